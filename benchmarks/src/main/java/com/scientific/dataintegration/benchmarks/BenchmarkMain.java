@@ -0,0 +1,66 @@
+package com.scientific.dataintegration.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Accepts the usual JMH command line and
+ * always attaches the GC profiler, so every result includes the allocation rate
+ * ({@code gc.alloc.rate}, MB/s) and the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}).
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class BenchmarkMain {
+    
+    /**
+     * Prevents instantiation of this entry point class.
+     */
+    private BenchmarkMain() {
+    }
+    
+    /**
+     * Runs the benchmarks selected on the command line.
+     * 
+     * @param args JMH command line arguments, e.g. {@code ParseBenchmark -p sizeMb=64}
+     * @throws Exception if JMH fails to list or run the benchmarks
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            // Nothing to run, let JMH print what was asked for
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        boolean gcProfilerRequested = commandLine.getProfilers().stream()
+                .anyMatch(profiler -> "gc".equals(profiler.getKlass())
+                        || GCProfiler.class.getName().equals(profiler.getKlass()));
+        if (!gcProfilerRequested) {
+            options.addProfiler(GCProfiler.class);
+        }
+        
+        try {
+            new Runner(options.build()).run();
+        } catch (RunnerException e) {
+            System.err.println("Benchmark run failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.scientific.dataintegration.benchmarks;
+
+import com.scientific.dataintegration.core.JsonFileReader;
+import com.scientific.dataintegration.core.RecordStream;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Helpers shared by the benchmarks.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class BenchmarkSupport {
+    
+    /** Bytes per megabyte (MiB), the unit of the dataset sizes and of the MB/s results. */
+    public static final double MEGABYTE = 1024.0 * 1024.0;
+    
+    // Held strongly: java.util.logging only keeps weak references to configured loggers
+    private static final Logger APPLICATION_LOGGER = Logger.getLogger("com.scientific.dataintegration");
+    
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private BenchmarkSupport() {
+    }
+    
+    /**
+     * Silences the INFO messages the converter logs for every file, which would
+     * otherwise be measured along with the conversion.
+     */
+    public static void quietLogging() {
+        APPLICATION_LOGGER.setLevel(Level.WARNING);
+    }
+    
+    /**
+     * Counts the records of a dataset without materializing them.
+     * 
+     * @param file the dataset
+     * @return the number of records
+     * @throws JsonFileException if the dataset cannot be read
+     */
+    public static long countRecords(Path file) throws JsonFileException {
+        try (RecordStream records = new JsonFileReader().openRecordStream(file.toString())) {
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                parser.skipChildren();
+            }
+            return records.getRecordCount();
+        } catch (IOException e) {
+            throw new JsonFileException("Failed to count records of " + file, e);
+        }
+    }
+    
+    /**
+     * Gets the size of a file.
+     * 
+     * @param file the file
+     * @return size in bytes
+     */
+    public static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
\ No newline at end of file
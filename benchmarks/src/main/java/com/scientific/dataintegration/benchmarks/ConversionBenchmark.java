@@ -0,0 +1,112 @@
+package com.scientific.dataintegration.benchmarks;
+
+import com.scientific.dataintegration.core.DataConverter;
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end conversion of a generated dataset file to a CSV file, through the
+ * same public entry points the application uses. Input MB/s and records/s are
+ * reported as secondary results.
+ * 
+ * <p>The {@code memory} mode loads the whole document and is only meant for sizes
+ * that fit the heap; use {@code streaming}, {@code parallel} or {@code jsonl}
+ * for multi-gigabyte datasets, e.g. {@code -p sizeMb=4096 -p mode=streaming}.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConversionBenchmark {
+    
+    /** Approximate dataset size in MiB. */
+    @Param({"1", "64"})
+    public int sizeMb;
+    
+    /** Conversion path: memory, streaming, parallel or jsonl. */
+    @Param({"memory", "streaming", "parallel", "jsonl"})
+    public String mode;
+    
+    private DataConverter converter;
+    private Path inputFile;
+    private Path outputFile;
+    private long inputBytes;
+    private long recordCount;
+    
+    /**
+     * Generates or reuses the dataset and prepares the converter.
+     * 
+     * @throws IOException if the dataset cannot be generated
+     * @throws JsonFileException if the dataset cannot be read
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, JsonFileException {
+        BenchmarkSupport.quietLogging();
+        DatasetGenerator.Format format = "jsonl".equals(mode)
+                ? DatasetGenerator.Format.JSON_LINES
+                : DatasetGenerator.Format.JSON;
+        inputFile = DatasetGenerator.cached(sizeMb, format);
+        inputBytes = BenchmarkSupport.sizeOf(inputFile);
+        recordCount = BenchmarkSupport.countRecords(inputFile);
+        outputFile = Files.createTempFile("conversion-benchmark-", ".csv");
+        converter = new DataConverter();
+    }
+    
+    /**
+     * Deletes the CSV output.
+     * 
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+    
+    /**
+     * Converts the dataset once.
+     * 
+     * @param counters secondary throughput results
+     * @throws JsonFileException if the dataset cannot be read
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    @Benchmark
+    public void convert(ThroughputCounters counters) throws JsonFileException, CsvFileException {
+        String input = inputFile.toString();
+        String output = outputFile.toString();
+        switch (mode) {
+            case "memory":
+                converter.convertJsonToCsv(input, output);
+                break;
+            case "parallel":
+                converter.convertJsonToCsvParallel(input, output, Runtime.getRuntime().availableProcessors());
+                break;
+            default:
+                converter.convertJsonToCsvStreaming(input, output);
+                break;
+        }
+        counters.add(inputBytes, recordCount);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,418 @@
+package com.scientific.dataintegration.benchmarks;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic generator of synthetic publication datasets.
+ * Records look like bibliographic exports of scientific publications: nested
+ * journal and metric objects, a variable number of authors with nested
+ * affiliations, keyword lists, numbers spanning many orders of magnitude (so both
+ * plain and E-notation formatting are exercised), nulls, text needing CSV quoting,
+ * non-ASCII characters and sparse, irregular keys that only some records carry.
+ * 
+ * <p>Record <i>n</i> depends only on the seed and <i>n</i>, so a smaller dataset is
+ * always a prefix of a larger one generated with the same seed, and two runs
+ * produce byte-identical files.</p>
+ * 
+ * <p>Usage: {@code java -cp benchmarks.jar com.scientific.dataintegration.benchmarks.DatasetGenerator
+ * <output_file> <size> [--jsonl] [--seed N]}, where the size takes a KB, MB or GB suffix.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class DatasetGenerator {
+    
+    /** Seed used when none is given. */
+    public static final long DEFAULT_SEED = 20240501L;
+    
+    /** Name of the record array of generated JSON documents. */
+    public static final String DATA_KEY = "publications";
+    
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+    private static final long RECORD_SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    
+    private static final String[] TITLE_WORDS = {
+        "quantum", "thermal", "spectroscopic", "analysis", "of", "in", "the", "dynamics", "protein",
+        "folding", "catalytic", "graphene", "neural", "networks", "climate", "variability", "genomic",
+        "sequencing", "dark", "matter", "halo", "constraints", "β-catenin", "signalling", "α-helix",
+        "résumé", "Schrödinger", "Müller", "cells", "under", "high", "pressure", "a", "study", "on",
+        "large-scale", "survey", "\"in vitro\"", "models,", "kinetics", "field", "observations"
+    };
+    private static final String[] GIVEN_NAMES = {
+        "Ana", "Luis", "María", "José", "Wei", "Yuki", "Olga", "Pierre", "Fatima", "Kwame",
+        "Søren", "Zoë", "Ravi", "Chen", "Elena", "Tomás", "Aisha", "Jörg", "Nia", "Mateo"
+    };
+    private static final String[] FAMILY_NAMES = {
+        "García", "Hernández", "Smith", "Wang", "Tanaka", "Ivanova", "Dubois", "Khan", "Mensah",
+        "Nielsen", "O'Brien", "Patel", "Li", "Rossi", "Núñez", "Schmidt", "Okafor", "Costa", "Kim", "Calderón"
+    };
+    private static final String[] INSTITUTIONS = {
+        "Universidad Nacional Autónoma de México", "Massachusetts Institute of Technology",
+        "University of Tokyo", "Max Planck Institute for Chemistry", "CERN", "Peking University",
+        "Instituto Politécnico Nacional", "ETH Zürich", "University of Cape Town", "CNRS, Paris"
+    };
+    private static final String[] COUNTRIES = { "MX", "US", "JP", "DE", "CH", "CN", "FR", "ZA", "BR", "IN" };
+    private static final String[] JOURNALS = {
+        "Physical Review Letters", "Nature Chemistry", "Journal of Applied Physics",
+        "Revista Mexicana de Física", "Bioinformatics", "Astrophysical Journal", "PLOS ONE",
+        "Journal of Chemical Physics", "Cell Reports", "Geophysical Research Letters"
+    };
+    private static final String[] KEYWORDS = {
+        "machine learning", "spectroscopy", "thermodynamics", "genomics", "astrophysics", "catalysis",
+        "climate", "materials", "simulation", "proteomics", "optics", "statistics", "nanotechnology"
+    };
+    private static final String[] AGENCIES = { "CONACYT", "NSF", "ERC", "JSPS", "DFG", "NIH", "NSFC" };
+    private static final String[] EXTRA_FIELDS = {
+        "instrument", "sample_temperature_k", "wavelength_nm", "dataset_url", "embargo_until",
+        "peer_review", "preprint_server", "license", "reagent_lot", "observatory", "software_version",
+        "beamline", "cohort_size", "ethics_approval", "detector"
+    };
+    
+    /**
+     * Output layout of a generated dataset.
+     */
+    public enum Format {
+        /** A single document {@code {"publications": [...]}}. */
+        JSON(".json"),
+        /** One record per line. */
+        JSON_LINES(".jsonl");
+        
+        private final String extension;
+        
+        Format(String extension) {
+            this.extension = extension;
+        }
+        
+        /**
+         * Gets the file extension of this format.
+         * 
+         * @return the extension including the dot
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+    
+    private final long seed;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    
+    /**
+     * Constructs a new DatasetGenerator.
+     * 
+     * @param seed seed from which every record is derived
+     */
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Command line entry point.
+     * 
+     * @param args output file, size, and optionally --jsonl and --seed N
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: DatasetGenerator <output_file> <size, e.g. 64MB or 2GB> [--jsonl] [--seed N]");
+            System.exit(1);
+        }
+        Format format = Format.JSON;
+        long seed = DEFAULT_SEED;
+        for (int i = 2; i < args.length; i++) {
+            if ("--jsonl".equals(args[i])) {
+                format = Format.JSON_LINES;
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(1);
+            }
+        }
+        
+        long start = System.nanoTime();
+        long records = new DatasetGenerator(seed).write(Paths.get(args[0]), parseSize(args[1]), format);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Wrote " + records + " records (" + Files.size(Paths.get(args[0])) + " bytes) to "
+                + args[0] + " in " + elapsedMillis + " ms");
+    }
+    
+    /**
+     * Gets a dataset of the given size from the shared cache directory, generating it
+     * with the default seed on first use. Generation goes to a temporary file that is
+     * moved into place when complete, so concurrent or interrupted runs never see a
+     * partial dataset.
+     * 
+     * @param megabytes approximate size in MiB
+     * @param format layout of the dataset
+     * @return path of the cached dataset
+     * @throws IOException if the dataset cannot be written
+     */
+    public static Path cached(int megabytes, Format format) throws IOException {
+        Path directory = Paths.get(System.getProperty("benchmark.data.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "dataintegration-benchmarks").toString()));
+        Files.createDirectories(directory);
+        Path file = directory.resolve("publications-" + megabytes + "mb-" + DEFAULT_SEED + format.getExtension());
+        if (Files.isRegularFile(file)) {
+            return file;
+        }
+        
+        Path temporaryFile = Files.createTempFile(directory, "generating-", format.getExtension());
+        try {
+            new DatasetGenerator(DEFAULT_SEED).write(temporaryFile, megabytes * 1024L * 1024L, format);
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        return file;
+    }
+    
+    /**
+     * Writes records until the file reaches the target size. The last record is
+     * completed, so the file ends up slightly larger than the target.
+     * 
+     * @param file the output file
+     * @param targetBytes minimum size of the file in bytes
+     * @param format layout of the dataset
+     * @return the number of records written
+     * @throws IOException if the file cannot be written
+     */
+    public long write(Path file, long targetBytes, Format format) throws IOException {
+        try (CountingOutputStream output = new CountingOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), OUTPUT_BUFFER_SIZE));
+             JsonGenerator generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8)) {
+            
+            if (format == Format.JSON) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart(DATA_KEY);
+            } else {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+            }
+            
+            long records = 0;
+            do {
+                writeRecord(generator, records++);
+            } while (output.count + generator.getOutputBuffered() < targetBytes);
+            
+            if (format == Format.JSON) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeRaw('\n');
+            return records;
+        }
+    }
+    
+    /**
+     * Writes one publication record.
+     * 
+     * @param generator destination generator
+     * @param index position of the record in the dataset
+     * @throws IOException if the record cannot be written
+     */
+    private void writeRecord(JsonGenerator generator, long index) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed ^ (index * RECORD_SEED_MULTIPLIER));
+        
+        generator.writeStartObject();
+        generator.writeStringField("id", "pub-" + zeroPad(index, 9));
+        generator.writeStringField("doi", "10." + (1000 + random.nextInt(9000)) + "/sdis." + index);
+        generator.writeStringField("title", sentence(random, 6 + random.nextInt(12)));
+        generator.writeNumberField("year", 1985 + random.nextInt(40));
+        
+        generator.writeObjectFieldStart("journal");
+        generator.writeStringField("name", pick(random, JOURNALS));
+        generator.writeStringField("issn", zeroPad(random.nextInt(10000), 4) + "-" + zeroPad(random.nextInt(10000), 4));
+        generator.writeNumberField("volume", 1 + random.nextInt(400));
+        if (random.nextInt(4) == 0) {
+            generator.writeNullField("issue");
+        } else {
+            generator.writeNumberField("issue", 1 + random.nextInt(24));
+        }
+        generator.writeEndObject();
+        
+        // Author counts are skewed: most papers have a few, some have dozens
+        int authorCount = 1 + (int) Math.min(40, -Math.log(1 - random.nextDouble()) * 4);
+        generator.writeArrayFieldStart("authors");
+        for (int i = 0; i < authorCount; i++) {
+            generator.writeStartObject();
+            generator.writeStringField("name", pick(random, GIVEN_NAMES) + " " + pick(random, FAMILY_NAMES));
+            if (random.nextInt(10) < 6) {
+                generator.writeStringField("orcid", "0000-000" + random.nextInt(4) + "-"
+                        + zeroPad(random.nextInt(10000), 4) + "-" + zeroPad(random.nextInt(10000), 4));
+            }
+            generator.writeObjectFieldStart("affiliation");
+            generator.writeStringField("institution", pick(random, INSTITUTIONS));
+            generator.writeStringField("country", pick(random, COUNTRIES));
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        
+        generator.writeArrayFieldStart("keywords");
+        for (int i = random.nextInt(7); i > 0; i--) {
+            generator.writeString(pick(random, KEYWORDS));
+        }
+        generator.writeEndArray();
+        
+        generator.writeObjectFieldStart("metrics");
+        generator.writeNumberField("citations", (long) Math.floor(Math.pow(1 - random.nextDouble(), -1.5)) - 1);
+        generator.writeNumberField("impact_factor", Math.round(random.nextDouble() * 50_000) / 1000.0);
+        // Spans from 1e-9 to 1e9 so that both plain and E-notation cells occur
+        generator.writeNumberField("altmetric_score", Math.pow(10, random.nextDouble() * 18 - 9));
+        generator.writeNumberField("downloads", random.nextLong(50_000_000L));
+        generator.writeEndObject();
+        
+        generator.writeBooleanField("open_access", random.nextBoolean());
+        if (random.nextInt(2) == 0) {
+            generator.writeStringField("abstract", sentence(random, 30 + random.nextInt(90)));
+        }
+        if (random.nextInt(10) < 3) {
+            generator.writeArrayFieldStart("funding");
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                generator.writeStartObject();
+                generator.writeStringField("agency", pick(random, AGENCIES));
+                generator.writeStringField("grant_id", Long.toString(100_000 + random.nextInt(900_000)));
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        
+        // Irregular keys: rare flags and a few of many optional fields
+        if (random.nextInt(100) < 5) {
+            generator.writeBooleanField("retracted", true);
+        }
+        if (random.nextInt(100) < 10) {
+            generator.writeObjectFieldStart("extra");
+            // Consecutive names from a random start, so that no key repeats within the object
+            int first = random.nextInt(EXTRA_FIELDS.length);
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                String field = EXTRA_FIELDS[(first + i) % EXTRA_FIELDS.length];
+                generator.writeFieldName(field);
+                if (random.nextBoolean()) {
+                    generator.writeNumber(random.nextDouble() * 1000);
+                } else {
+                    generator.writeString(field + "-" + random.nextInt(1000));
+                }
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+    
+    /**
+     * Builds a sentence of random title words.
+     * 
+     * @param random source of randomness
+     * @param words number of words
+     * @return the sentence
+     */
+    private static String sentence(SplittableRandom random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(pick(random, TITLE_WORDS));
+        }
+        return text.toString();
+    }
+    
+    /**
+     * Picks a random element.
+     * 
+     * @param random source of randomness
+     * @param values candidates
+     * @return one of the candidates
+     */
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+    
+    /**
+     * Formats a non-negative number with leading zeros.
+     * 
+     * @param value the number
+     * @param width minimum number of digits
+     * @return the padded digits
+     */
+    private static String zeroPad(long value, int width) {
+        String digits = Long.toString(value);
+        if (digits.length() >= width) {
+            return digits;
+        }
+        StringBuilder text = new StringBuilder(width);
+        for (int i = digits.length(); i < width; i++) {
+            text.append('0');
+        }
+        return text.append(digits).toString();
+    }
+    
+    /**
+     * Parses a size with an optional KB, MB or GB suffix (powers of 1024).
+     * 
+     * @param text the size, e.g. 512KB, 64MB or 2GB
+     * @return the size in bytes
+     */
+    static long parseSize(String text) {
+        String size = text.trim().toUpperCase(Locale.ROOT);
+        long multiplier = 1;
+        if (size.endsWith("KB")) {
+            multiplier = 1024L;
+        } else if (size.endsWith("MB")) {
+            multiplier = 1024L * 1024L;
+        } else if (size.endsWith("GB")) {
+            multiplier = 1024L * 1024L * 1024L;
+        }
+        if (multiplier > 1) {
+            size = size.substring(0, size.length() - 2).trim();
+        }
+        return Math.round(Double.parseDouble(size) * multiplier);
+    }
+    
+    /**
+     * Output stream counting the bytes passed to the underlying stream.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        
+        private long count;
+        
+        /**
+         * Constructs a new CountingOutputStream.
+         * 
+         * @param out the underlying stream
+         */
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            out.write(data, offset, length);
+            count += length;
+        }
+    }
+}
\ No newline at end of file
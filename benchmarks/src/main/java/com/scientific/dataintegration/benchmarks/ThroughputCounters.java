@@ -0,0 +1,47 @@
+package com.scientific.dataintegration.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary results reported next to the operations per second of a benchmark.
+ * JMH divides each counter by the measured time, so in throughput mode the
+ * results read as MB/s and records/s. Benchmarks reading input count the input
+ * bytes; benchmarks writing CSV count the bytes written.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class ThroughputCounters {
+    
+    /** Megabytes (MiB) processed. */
+    public double megabytes;
+    
+    /** Records processed. */
+    public long records;
+    
+    /**
+     * Resets the counters before every iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+        megabytes = 0;
+        records = 0;
+    }
+    
+    /**
+     * Adds one pass over a dataset.
+     * 
+     * @param bytes bytes processed
+     * @param recordCount records processed
+     */
+    public void add(long bytes, long recordCount) {
+        megabytes += bytes / BenchmarkSupport.MEGABYTE;
+        records += recordCount;
+    }
+}
\ No newline at end of file
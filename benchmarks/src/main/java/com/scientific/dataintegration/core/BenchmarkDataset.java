@@ -0,0 +1,133 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.benchmarks.DatasetGenerator;
+import com.scientific.dataintegration.config.ApplicationConfig;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A generated dataset loaded into memory, so that benchmarks of single stages
+ * measure the stage alone and not the file system.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class BenchmarkDataset {
+    
+    private final List<Map<String, Object>> records;
+    private final byte[] jsonLines;
+    private final long jsonBytes;
+    private final ValueFormatter valueFormatter;
+    private final ColumnPlan plan;
+    
+    /**
+     * Loads the cached dataset of the given size, generating it if needed.
+     * 
+     * @param sizeMb approximate dataset size in MiB
+     * @throws IOException if the dataset cannot be generated or read
+     * @throws JsonFileException if the dataset cannot be parsed
+     */
+    @SuppressWarnings("unchecked")
+    BenchmarkDataset(int sizeMb) throws IOException, JsonFileException {
+        Path jsonFile = DatasetGenerator.cached(sizeMb, DatasetGenerator.Format.JSON);
+        this.records = (List<Map<String, Object>>) new JsonFileReader()
+                .readJsonAsMap(jsonFile.toString()).get(DatasetGenerator.DATA_KEY);
+        this.jsonBytes = Files.size(jsonFile);
+        this.jsonLines = Files.readAllBytes(DatasetGenerator.cached(sizeMb, DatasetGenerator.Format.JSON_LINES));
+        this.valueFormatter = new ValueFormatter(ScientificNumberFormatter.fromConfig(ApplicationConfig.load()));
+        
+        ColumnPlan.Builder builder = ColumnPlan.builder();
+        for (Map<String, Object> record : records) {
+            builder.collect(record);
+        }
+        this.plan = builder.build(valueFormatter);
+    }
+    
+    /**
+     * Gets the parsed records.
+     * 
+     * @return the records in dataset order
+     */
+    List<Map<String, Object>> getRecords() {
+        return records;
+    }
+    
+    /**
+     * Gets the size of the dataset as a JSON document.
+     * 
+     * @return size in bytes
+     */
+    long getJsonBytes() {
+        return jsonBytes;
+    }
+    
+    /**
+     * Gets the dataset as JSON Lines.
+     * 
+     * @return the file content; not to be modified
+     */
+    byte[] getJsonLines() {
+        return jsonLines;
+    }
+    
+    /**
+     * Gets the value formatter configured from the bundled application properties.
+     * 
+     * @return the formatter
+     */
+    ValueFormatter getValueFormatter() {
+        return valueFormatter;
+    }
+    
+    /**
+     * Gets the column plan of all records.
+     * 
+     * @return the plan
+     */
+    ColumnPlan getPlan() {
+        return plan;
+    }
+    
+    /**
+     * Opens a record stream over the in-memory JSON Lines content.
+     * 
+     * @return a new stream
+     * @throws IOException if the parser cannot be created
+     */
+    RecordStream openJsonLines() throws IOException {
+        JsonParser parser = new JsonFileReader().createParser(new ByteArrayInputStream(jsonLines));
+        return new JsonSequenceRecordStream(parser, "benchmark dataset");
+    }
+    
+    /**
+     * Converts every record into columnar batches, as the streaming conversion does.
+     * 
+     * @param dictionarySize maximum distinct values kept per text column, 0 for none
+     * @return the filled batches
+     * @throws IOException if a record cannot be read
+     */
+    List<ColumnarBatch> toBatches(int dictionarySize) throws IOException {
+        List<ColumnarBatch> batches = new ArrayList<>();
+        ColumnarBatch batch = plan.newBatch(ColumnarBatch.DEFAULT_CAPACITY, dictionarySize);
+        try (RecordStream stream = openJsonLines()) {
+            JsonParser parser;
+            while ((parser = stream.nextRecord()) != null) {
+                plan.evaluate(parser, batch);
+                if (batch.isFull()) {
+                    batches.add(batch);
+                    batch = plan.newBatch(ColumnarBatch.DEFAULT_CAPACITY, dictionarySize);
+                }
+            }
+        }
+        batches.add(batch);
+        return batches;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.benchmarks.BenchmarkSupport;
+import com.scientific.dataintegration.benchmarks.ThroughputCounters;
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV output of already flattened rows: encoding rows and columnar batches into
+ * bytes in memory, and writing them to a file through {@link CsvFileWriter}.
+ * Output MB/s (of CSV written) and records/s are reported as secondary results.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class CsvWriteBenchmark {
+    
+    private static final int ENCODER_CAPACITY = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 4096;
+    
+    /** Approximate dataset size in MiB. */
+    @Param({"1", "16"})
+    public int sizeMb;
+    
+    private CsvFileWriter csvWriter;
+    private String[] headers;
+    private List<String[]> rows;
+    private List<ColumnarBatch> batches;
+    private CsvEncoder encoder;
+    private Path outputFile;
+    
+    /**
+     * Loads the dataset and flattens it into rows and batches.
+     * 
+     * @throws IOException if the dataset cannot be generated or read
+     * @throws JsonFileException if the dataset cannot be parsed
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, JsonFileException {
+        BenchmarkSupport.quietLogging();
+        BenchmarkDataset dataset = new BenchmarkDataset(sizeMb);
+        ColumnPlan plan = dataset.getPlan();
+        
+        headers = plan.getHeaders();
+        rows = new ArrayList<>();
+        for (Map<String, Object> record : dataset.getRecords()) {
+            rows.add(plan.evaluate(record));
+        }
+        batches = dataset.toBatches(DICTIONARY_SIZE);
+        
+        csvWriter = new CsvFileWriter();
+        encoder = csvWriter.newEncoder(ENCODER_CAPACITY);
+        outputFile = Files.createTempFile("csv-write-benchmark-", ".csv");
+    }
+    
+    /**
+     * Deletes the CSV output.
+     * 
+     * @throws IOException if the file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(outputFile);
+    }
+    
+    /**
+     * Encodes rows of cell text into CSV bytes.
+     * 
+     * @param counters secondary throughput results
+     */
+    @Benchmark
+    public void encodeRows(ThroughputCounters counters) {
+        long bytes = 0;
+        encoder.reset();
+        for (String[] row : rows) {
+            encoder.encodeRow(row, headers.length);
+            if (encoder.size() >= ENCODER_CAPACITY) {
+                bytes += encoder.size();
+                encoder.reset();
+            }
+        }
+        counters.add(bytes + encoder.size(), rows.size());
+    }
+    
+    /**
+     * Encodes columnar batches into CSV bytes.
+     * 
+     * @param counters secondary throughput results
+     */
+    @Benchmark
+    public void encodeBatches(ThroughputCounters counters) {
+        long bytes = 0;
+        long rowCount = 0;
+        for (ColumnarBatch batch : batches) {
+            encoder.reset();
+            encoder.encodeBatch(batch, headers.length);
+            bytes += encoder.size();
+            rowCount += batch.getSize();
+        }
+        counters.add(bytes, rowCount);
+    }
+    
+    /**
+     * Writes columnar batches to a CSV file, as the streaming conversion does.
+     * 
+     * @param counters secondary throughput results
+     * @throws CsvFileException if the file cannot be written
+     */
+    @Benchmark
+    public void writeBatches(ThroughputCounters counters) throws CsvFileException {
+        long rowCount;
+        try (CsvRowWriter rowWriter = csvWriter.openRowWriter(outputFile.toString(), headers)) {
+            for (ColumnarBatch batch : batches) {
+                rowWriter.writeBatch(batch);
+            }
+            rowCount = rowWriter.getRowCount();
+        }
+        counters.add(BenchmarkSupport.sizeOf(outputFile), rowCount);
+    }
+    
+    /**
+     * Writes rows of cell text to a CSV file, as the in-memory conversion does.
+     * 
+     * @param counters secondary throughput results
+     * @throws CsvFileException if the file cannot be written
+     */
+    @Benchmark
+    public void writeRows(ThroughputCounters counters) throws CsvFileException {
+        csvWriter.writeWithHeaders(outputFile.toString(), headers, rows);
+        counters.add(BenchmarkSupport.sizeOf(outputFile), rows.size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.benchmarks.BenchmarkSupport;
+import com.scientific.dataintegration.benchmarks.ThroughputCounters;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flattening of nested records into CSV columns by {@link ColumnPlan}: collecting
+ * the column union, turning parsed maps into rows as the in-memory conversion
+ * does, and filling columnar batches straight from tokens as the streaming
+ * conversion does. The data is held in memory; input MB/s (of the JSON text)
+ * and records/s are reported as secondary results.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class FlattenBenchmark {
+    
+    private static final int DICTIONARY_SIZE = 4096;
+    
+    /** Approximate dataset size in MiB. */
+    @Param({"1", "16"})
+    public int sizeMb;
+    
+    private BenchmarkDataset dataset;
+    private ColumnPlan plan;
+    private ColumnarBatch batch;
+    
+    /**
+     * Loads the dataset and compiles its column plan.
+     * 
+     * @throws IOException if the dataset cannot be generated or read
+     * @throws JsonFileException if the dataset cannot be parsed
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, JsonFileException {
+        BenchmarkSupport.quietLogging();
+        dataset = new BenchmarkDataset(sizeMb);
+        plan = dataset.getPlan();
+        batch = plan.newBatch(ColumnarBatch.DEFAULT_CAPACITY, DICTIONARY_SIZE);
+    }
+    
+    /**
+     * Collects the columns of every record and compiles the plan.
+     * 
+     * @param counters secondary throughput results
+     * @return the compiled plan
+     */
+    @Benchmark
+    public ColumnPlan collectColumns(ThroughputCounters counters) {
+        List<Map<String, Object>> records = dataset.getRecords();
+        ColumnPlan.Builder builder = ColumnPlan.builder();
+        for (Map<String, Object> record : records) {
+            builder.collect(record);
+        }
+        counters.add(dataset.getJsonBytes(), records.size());
+        return builder.build(dataset.getValueFormatter());
+    }
+    
+    /**
+     * Turns every parsed record into a row of formatted cells.
+     * 
+     * @param counters secondary throughput results
+     * @param blackhole sink for the rows
+     */
+    @Benchmark
+    public void evaluateMaps(ThroughputCounters counters, Blackhole blackhole) {
+        List<Map<String, Object>> records = dataset.getRecords();
+        for (Map<String, Object> record : records) {
+            blackhole.consume(plan.evaluate(record));
+        }
+        counters.add(dataset.getJsonBytes(), records.size());
+    }
+    
+    /**
+     * Parses the JSON Lines text and fills columnar batches from its tokens.
+     * 
+     * @param counters secondary throughput results
+     * @param blackhole sink for the batches
+     * @throws IOException if a record cannot be read
+     */
+    @Benchmark
+    public void evaluateTokens(ThroughputCounters counters, Blackhole blackhole) throws IOException {
+        try (RecordStream records = dataset.openJsonLines()) {
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                plan.evaluate(parser, batch);
+                if (batch.isFull()) {
+                    blackhole.consume(batch);
+                    batch.clear();
+                }
+            }
+            batch.clear();
+            counters.add(dataset.getJsonLines().length, records.getRecordCount());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.benchmarks.BenchmarkSupport;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting of cell values by {@link ValueFormatter}, reported in values per
+ * second. The values are the leaves of the generated dataset in document order,
+ * so the mix of strings, integers, lists and plain or E-notation doubles is the
+ * one a real conversion sees.
+ * 
+ * <p>The benchmarks ending in {@code WithStringFormat} format the same doubles the way
+ * cells were formatted before {@link ScientificNumberFormatter}, with
+ * {@code String.format("%.6E")}, as the baseline of the ones without the suffix.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class FormatBenchmark {
+    
+    private static final int VALUE_COUNT = 65_536;
+    private static final int DATASET_MB = 4;
+    
+    private ValueFormatter valueFormatter;
+    private Object[] values;
+    private double[] doubles;
+    private double[] scientificDoubles;
+    private ScientificNumberFormatter numberFormatter;
+    private String scientificPattern;
+    private CsvEncoder encoder;
+    
+    /**
+     * Collects the leaf values of the dataset.
+     * 
+     * @throws IOException if the dataset cannot be generated or read
+     * @throws JsonFileException if the dataset cannot be parsed
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, JsonFileException {
+        BenchmarkSupport.quietLogging();
+        BenchmarkDataset dataset = new BenchmarkDataset(DATASET_MB);
+        valueFormatter = dataset.getValueFormatter();
+        
+        List<Object> leaves = new ArrayList<>();
+        List<Double> doubleLeaves = new ArrayList<>();
+        for (Map<String, Object> record : dataset.getRecords()) {
+            collectLeaves(record, leaves, doubleLeaves);
+        }
+        numberFormatter = valueFormatter.getNumberFormatter();
+        scientificPattern = "%." + numberFormatter.getDecimalPlaces() + "E";
+        List<Double> scientificLeaves = new ArrayList<>();
+        for (Double value : doubleLeaves) {
+            if (numberFormatter.usesScientificNotation(value)) {
+                scientificLeaves.add(value);
+            }
+        }
+        
+        values = new Object[VALUE_COUNT];
+        doubles = new double[VALUE_COUNT];
+        scientificDoubles = new double[VALUE_COUNT];
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            values[i] = leaves.get(i % leaves.size());
+            doubles[i] = doubleLeaves.get(i % doubleLeaves.size());
+            scientificDoubles[i] = scientificLeaves.get(i % scientificLeaves.size());
+        }
+        encoder = new CsvFileWriter().newEncoder(1024 * 1024);
+    }
+    
+    /**
+     * Formats values of every type into cell text.
+     * 
+     * @param blackhole sink for the text
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUE_COUNT)
+    public void formatValues(Blackhole blackhole) {
+        for (Object value : values) {
+            blackhole.consume(valueFormatter.format(value));
+        }
+    }
+    
+    /**
+     * Formats unboxed doubles into cell text, as columnar batches do.
+     * 
+     * @param blackhole sink for the text
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUE_COUNT)
+    public void formatDoubles(Blackhole blackhole) {
+        for (double value : doubles) {
+            blackhole.consume(valueFormatter.formatDouble(value));
+        }
+    }
+    
+    /**
+     * Formats unboxed doubles into cell text with {@code String.format}, as before
+     * {@link ScientificNumberFormatter}: the baseline of {@link #formatDoubles}.
+     * 
+     * @param blackhole sink for the text
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUE_COUNT)
+    public void formatDoublesWithStringFormat(Blackhole blackhole) {
+        for (double value : doubles) {
+            blackhole.consume(numberFormatter.usesScientificNotation(value)
+                    ? String.format(scientificPattern, value) : Double.toString(value));
+        }
+    }
+    
+    /**
+     * Formats doubles that are all written in E-notation.
+     * 
+     * @param blackhole sink for the text
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUE_COUNT)
+    public void formatScientific(Blackhole blackhole) {
+        for (double value : scientificDoubles) {
+            blackhole.consume(numberFormatter.formatScientific(value));
+        }
+    }
+    
+    /**
+     * Formats the same E-notation doubles with {@code String.format}: the baseline of
+     * {@link #formatScientific}.
+     * 
+     * @param blackhole sink for the text
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUE_COUNT)
+    public void formatScientificWithStringFormat(Blackhole blackhole) {
+        for (double value : scientificDoubles) {
+            blackhole.consume(String.format(scientificPattern, value));
+        }
+    }
+    
+    /**
+     * Encodes unboxed doubles straight into CSV bytes, as the streaming writer does.
+     * 
+     * @return the number of bytes encoded
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUE_COUNT)
+    public int encodeDoubles() {
+        encoder.reset();
+        for (double value : doubles) {
+            encoder.encodeDouble(value, valueFormatter);
+            encoder.encodeSeparator();
+        }
+        return encoder.size();
+    }
+    
+    /**
+     * Collects the values that become CSV cells: everything except nested objects,
+     * whose fields are collected instead.
+     * 
+     * @param object the object to walk
+     * @param leaves receives every cell value
+     * @param doubleLeaves receives the floating point cell values
+     */
+    private static void collectLeaves(Map<?, ?> object, List<Object> leaves, List<Double> doubleLeaves) {
+        for (Object value : object.values()) {
+            if (value instanceof Map) {
+                collectLeaves((Map<?, ?>) value, leaves, doubleLeaves);
+                continue;
+            }
+            leaves.add(value);
+            if (value instanceof Double) {
+                doubleLeaves.add((Double) value);
+            }
+        }
+    }
+}
\ No newline at end of file
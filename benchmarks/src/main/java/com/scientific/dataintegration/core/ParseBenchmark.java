@@ -0,0 +1,150 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.benchmarks.BenchmarkSupport;
+import com.scientific.dataintegration.benchmarks.DatasetGenerator;
+import com.scientific.dataintegration.benchmarks.ThroughputCounters;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of generated datasets by {@link JsonFileReader}: whole documents into
+ * maps, record streams into one map per record, and the bare token scan that
+ * the streaming conversion's first pass is built on. Input MB/s and records/s
+ * are reported as secondary results.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ParseBenchmark {
+    
+    /** Approximate dataset size in MiB. */
+    @Param({"1", "16"})
+    public int sizeMb;
+    
+    private JsonFileReader reader;
+    private String jsonFile;
+    private String jsonLinesFile;
+    private long jsonBytes;
+    private long jsonLinesBytes;
+    
+    /**
+     * Generates or reuses the datasets.
+     * 
+     * @throws IOException if a dataset cannot be generated
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkSupport.quietLogging();
+        reader = new JsonFileReader();
+        Path json = DatasetGenerator.cached(sizeMb, DatasetGenerator.Format.JSON);
+        Path jsonLines = DatasetGenerator.cached(sizeMb, DatasetGenerator.Format.JSON_LINES);
+        jsonFile = json.toString();
+        jsonLinesFile = jsonLines.toString();
+        jsonBytes = BenchmarkSupport.sizeOf(json);
+        jsonLinesBytes = BenchmarkSupport.sizeOf(jsonLines);
+    }
+    
+    /**
+     * Parses the whole document into nested maps and lists, as the in-memory conversion does.
+     * 
+     * @param counters secondary throughput results
+     * @return the parsed document
+     * @throws JsonFileException if the document cannot be parsed
+     */
+    @Benchmark
+    public Map<String, Object> readDocument(ThroughputCounters counters) throws JsonFileException {
+        Map<String, Object> document = reader.readJsonAsMap(jsonFile);
+        counters.add(jsonBytes, ((List<?>) document.get(DatasetGenerator.DATA_KEY)).size());
+        return document;
+    }
+    
+    /**
+     * Reads the record array one map per record.
+     * 
+     * @param counters secondary throughput results
+     * @param blackhole sink for the records
+     * @throws IOException if the document cannot be parsed
+     * @throws JsonFileException if the document cannot be opened
+     */
+    @Benchmark
+    public void readRecords(ThroughputCounters counters, Blackhole blackhole) throws IOException, JsonFileException {
+        readAll(jsonFile, jsonBytes, counters, blackhole);
+    }
+    
+    /**
+     * Reads a JSON Lines file one map per line.
+     * 
+     * @param counters secondary throughput results
+     * @param blackhole sink for the records
+     * @throws IOException if the file cannot be parsed
+     * @throws JsonFileException if the file cannot be opened
+     */
+    @Benchmark
+    public void readJsonLines(ThroughputCounters counters, Blackhole blackhole) throws IOException, JsonFileException {
+        readAll(jsonLinesFile, jsonLinesBytes, counters, blackhole);
+    }
+    
+    /**
+     * Tokenizes every record without building values.
+     * 
+     * @param counters secondary throughput results
+     * @throws IOException if the document cannot be parsed
+     * @throws JsonFileException if the document cannot be opened
+     */
+    @Benchmark
+    public void scanTokens(ThroughputCounters counters) throws IOException, JsonFileException {
+        try (RecordStream records = reader.openRecordStream(jsonFile)) {
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                parser.skipChildren();
+            }
+            counters.add(jsonBytes, records.getRecordCount());
+        }
+    }
+    
+    /**
+     * Reads every record of a file as a map.
+     * 
+     * @param file the dataset
+     * @param bytes size of the dataset
+     * @param counters secondary throughput results
+     * @param blackhole sink for the records
+     * @throws IOException if the file cannot be parsed
+     * @throws JsonFileException if the file cannot be opened
+     */
+    private void readAll(String file, long bytes, ThroughputCounters counters, Blackhole blackhole)
+            throws IOException, JsonFileException {
+        try (RecordStream records = reader.openRecordStream(file)) {
+            Map<String, Object> record;
+            while ((record = records.readRecord()) != null) {
+                blackhole.consume(record);
+            }
+            counters.add(bytes, records.getRecordCount());
+        }
+    }
+}
\ No newline at end of file
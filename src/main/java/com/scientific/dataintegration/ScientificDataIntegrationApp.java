@@ -1,10 +1,32 @@
 package com.scientific.dataintegration;
 
+import com.scientific.dataintegration.config.ApplicationConfig;
+import com.scientific.dataintegration.core.BatchConverter;
+import com.scientific.dataintegration.core.BatchResult;
+import com.scientific.dataintegration.core.ConversionMetrics;
+import com.scientific.dataintegration.core.ConversionServer;
 import com.scientific.dataintegration.core.DataConverter;
+import com.scientific.dataintegration.core.DirectoryWatcher;
+import com.scientific.dataintegration.core.JsonFileReader;
+import com.scientific.dataintegration.core.JsonFileStats;
+import com.scientific.dataintegration.core.JsonFileValidator;
+import com.scientific.dataintegration.core.OutputSharding;
+import com.scientific.dataintegration.core.RecordSelection;
+import com.scientific.dataintegration.core.RowOrder;
+import com.scientific.dataintegration.core.SummarySpec;
 import com.scientific.dataintegration.exceptions.CsvFileException;
 import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.Logger;
 
 /**
@@ -17,18 +39,65 @@ import java.util.logging.Logger;
 public class ScientificDataIntegrationApp {
     
     private static final Logger LOGGER = Logger.getLogger(ScientificDataIntegrationApp.class.getName());
+    private static final String STREAM_OPTION = "--stream";
+    private static final String BATCH_OPTION = "--batch";
+    private static final String PARALLELISM_OPTION = "--parallelism";
+    private static final String GZIP_OPTION = "--gzip";
+    private static final String FULL_OPTION = "--full";
+    private static final String WATCH_OPTION = "--watch";
+    private static final String METRICS_OPTION = "--metrics";
+    private static final String SERVE_OPTION = "--serve";
+    private static final String VALIDATE_OPTION = "--validate";
+    private static final String SORT_OPTION = "--sort";
+    private static final String DEDUP_OPTION = "--dedup";
+    private static final String MERGE_OPTION = "--merge";
+    private static final String SHARD_OPTION = "--shard";
+    private static final String GROUP_BY_OPTION = "--group-by";
+    private static final String AGGREGATE_OPTION = "--aggregate";
+    private static final String COLUMNS_OPTION = "--columns";
+    private static final String WHERE_OPTION = "--where";
+    private static final int DEFAULT_DEBOUNCE_MILLIS = 250;
+    private static final int DEFAULT_SERVER_PORT = 8080;
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 256;
+    private static final int DEFAULT_MAX_BODY_MEGABYTES = 256;
     
     /**
      * Main entry point for the Scientific Data Integration System.
      * 
-     * @param args command line arguments: [input_json_file] [output_csv_file]
+     * @param args command line arguments: [input_json_file] [output_csv_file] [--stream] [--parallelism N]
+     *             [--metrics metrics_file] [--sort columns] [--dedup columns] [--shard rows:N|bytes:N|column:name]
+     *             [--group-by columns]... [--aggregate columns] [--columns fields] [--where condition]...
+     *             or --batch [input_dir] [output_dir] [--parallelism N] [--stream] [--gzip] [--full]
+     *             [--metrics metrics_file] [--sort columns] [--dedup columns] [--shard rows:N|bytes:N|column:name]
+     *             [--group-by columns]... [--aggregate columns] [--columns fields] [--where condition]...
+     *             or --watch [input_dir output_dir] [--parallelism N] [--gzip]
+     *             or --serve [port]
+     *             or --validate [file_or_dir]... [--parallelism N]
+     *             or --merge [output_csv_file] [file_or_dir]... [--parallelism N]
+     *             [--metrics metrics_file] [--sort columns] [--dedup columns] [--shard rows:N|bytes:N|column:name]
+     *             [--group-by columns]... [--aggregate columns] [--columns fields] [--where condition]...
      */
     public static void main(String[] args) {
         LOGGER.info("Starting Scientific Data Integration System...");
         
-        if (args.length == 2) {
+        if (args.length >= 3 && BATCH_OPTION.equals(args[0])) {
+            // Directory mode: convert many files inside this JVM
+            processDirectory(args);
+        } else if (args.length >= 1 && WATCH_OPTION.equals(args[0])) {
+            // Daemon mode: convert files as they are dropped into a directory
+            watchDirectory(args);
+        } else if (args.length >= 1 && SERVE_OPTION.equals(args[0])) {
+            // Service mode: convert JSON posted over HTTP
+            serve(args);
+        } else if (args.length >= 2 && VALIDATE_OPTION.equals(args[0])) {
+            // Pre-flight mode: check files and report their structure without converting them
+            validateFiles(args);
+        } else if (args.length >= 3 && MERGE_OPTION.equals(args[0])) {
+            // Merge mode: combine many files into one CSV with the union of their columns
+            mergeFiles(args);
+        } else if (args.length >= 2 && !args[0].startsWith("--")) {
             // Command line mode
-            processFiles(args[0], args[1]);
+            processFiles(args);
         } else {
             // Interactive mode
             runInteractiveMode();
@@ -38,13 +107,31 @@ public class ScientificDataIntegrationApp {
     /**
      * Processes files in command line mode.
      * 
-     * @param inputJsonFile path to input JSON file
-     * @param outputCsvFile path to output CSV file
+     * @param args command line arguments starting with [input_json_file] [output_csv_file]
      */
-    private static void processFiles(String inputJsonFile, String outputCsvFile) {
+    private static void processFiles(String[] args) {
+        String inputJsonFile = args[0];
+        String outputCsvFile = args[1];
+        ConversionOptions options = ConversionOptions.parse(args, 2, "", 0, Set.of(STREAM_OPTION), false);
+        int parallelism = options.parallelism;
+        
         try {
-            DataConverter converter = new DataConverter();
-            converter.convertJsonToCsv(inputJsonFile, outputCsvFile);
+            DataConverter converter = options.newConverter();
+            ConversionMetrics metrics;
+            if (parallelism > 1) {
+                metrics = converter.convertJsonToCsvParallel(inputJsonFile, outputCsvFile, parallelism);
+            } else if (options.streaming) {
+                metrics = converter.convertJsonToCsvStreaming(inputJsonFile, outputCsvFile);
+            } else if (parallelism == 1) {
+                // The planner still chooses between memory, streaming and spilling, but on one thread
+                metrics = converter.convertJsonToCsvAdaptive(inputJsonFile, outputCsvFile, 1, 1);
+            } else {
+                // No mode given: let the planner choose from the input, the heap and the processors
+                metrics = converter.convertJsonToCsvAdaptive(inputJsonFile, outputCsvFile, 1);
+            }
+            if (options.metricsFile != null) {
+                writeMetrics(options.metricsFile, List.of(metrics));
+            }
             LOGGER.info("Conversion completed successfully!");
             System.out.println("✅ Conversion completed: " + inputJsonFile + " → " + outputCsvFile);
         } catch (JsonFileException | CsvFileException e) {
@@ -54,11 +141,337 @@ public class ScientificDataIntegrationApp {
         }
     }
     
+    /**
+     * Converts every JSON file of a directory in batch mode and prints a per-file summary.
+     * 
+     * @param args command line arguments starting with --batch [input_dir] [output_dir]
+     */
+    private static void processDirectory(String[] args) {
+        String inputDirectory = args[1];
+        String outputDirectory = args[2];
+        ConversionOptions options = ConversionOptions.parse(args, 3, "batch ",
+                Runtime.getRuntime().availableProcessors(), Set.of(STREAM_OPTION, GZIP_OPTION, FULL_OPTION), false);
+        
+        try {
+            BatchConverter batchConverter = new BatchConverter(options.newConverter(), options.parallelism,
+                    options.streaming, options.compressOutput, options.incremental);
+            BatchResult result = batchConverter.convertDirectory(inputDirectory, outputDirectory);
+            
+            if (options.metricsFile != null) {
+                List<ConversionMetrics> conversions = new ArrayList<>();
+                for (BatchResult.FileResult fileResult : result.getFileResults()) {
+                    if (fileResult.getMetrics() != null) {
+                        conversions.add(fileResult.getMetrics());
+                    }
+                }
+                writeMetrics(options.metricsFile, conversions);
+            }
+            
+            for (BatchResult.FileResult fileResult : result.getFileResults()) {
+                if (fileResult.isSkipped()) {
+                    continue;
+                }
+                if (fileResult.isSuccess()) {
+                    System.out.println("✅ " + fileResult.getInputFile() + " → " + fileResult.getOutputFile()
+                            + " (" + fileResult.getElapsedMillis() + " ms)");
+                } else {
+                    System.out.println("❌ " + fileResult.getInputFile() + ": " + fileResult.getMessage());
+                }
+            }
+            System.out.println("Batch completed in " + result.getElapsedMillis() + " ms: "
+                    + result.getSuccessCount() + " succeeded (" + result.getSkippedCount() + " unchanged), "
+                    + result.getFailureCount() + " failed");
+            
+            if (!result.isAllSuccessful()) {
+                System.exit(1);
+            }
+        } catch (JsonFileException | CsvFileException e) {
+            LOGGER.severe("Batch conversion failed: " + e.getMessage());
+            System.err.println("❌ Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Watches a directory and converts every JSON file dropped into it until the JVM is stopped.
+     * The directories default to {@code default.input.directory} and {@code default.output.directory}.
+     * 
+     * @param args command line arguments starting with --watch [input_dir output_dir]
+     */
+    private static void watchDirectory(String[] args) {
+        ApplicationConfig config = ApplicationConfig.load();
+        String inputDirectory = config.getString("default.input.directory", "data/input");
+        String outputDirectory = config.getString("default.output.directory", "data/output");
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        boolean compressOutput = false;
+        
+        int i = 1;
+        if (args.length >= 3 && !args[1].startsWith("--") && !args[2].startsWith("--")) {
+            inputDirectory = args[1];
+            outputDirectory = args[2];
+            i = 3;
+        }
+        for (; i < args.length; i++) {
+            if (GZIP_OPTION.equals(args[i])) {
+                compressOutput = true;
+            } else if (PARALLELISM_OPTION.equals(args[i]) && i + 1 < args.length) {
+                parallelism = parsePositiveInt(args[++i], PARALLELISM_OPTION);
+            } else {
+                System.err.println("❌ Error: Unknown watch option: " + args[i]);
+                System.exit(1);
+            }
+        }
+        
+        long debounceMillis = Math.max(0, config.getInt("watch.debounce.millis", DEFAULT_DEBOUNCE_MILLIS));
+        DirectoryWatcher watcher = new DirectoryWatcher(new DataConverter(new ObjectMapper()),
+                Paths.get(inputDirectory), Paths.get(outputDirectory), parallelism, debounceMillis, compressOutput);
+        
+        // Let running conversions and the manifest finish when the JVM is stopped
+        CountDownLatch finished = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            watcher.stop();
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        
+        System.out.println("👀 Watching " + inputDirectory + " → " + outputDirectory + " (Ctrl+C to stop)");
+        try {
+            watcher.run();
+        } catch (JsonFileException | CsvFileException e) {
+            LOGGER.severe("Watch mode failed: " + e.getMessage());
+            System.err.println("❌ Error: " + e.getMessage());
+            finished.countDown();
+            System.exit(1);
+        } finally {
+            finished.countDown();
+        }
+    }
+    
+    /**
+     * Runs the HTTP conversion service until the JVM is stopped.
+     * The port defaults to {@code server.port}; the limits come from {@code server.max.concurrent.requests}
+     * and {@code server.max.body.megabytes}.
+     * 
+     * @param args command line arguments starting with --serve [port]
+     */
+    private static void serve(String[] args) {
+        ApplicationConfig config = ApplicationConfig.load();
+        int port = config.getInt("server.port", DEFAULT_SERVER_PORT);
+        if (args.length == 2) {
+            port = parsePositiveInt(args[1], SERVE_OPTION);
+        } else if (args.length > 2) {
+            System.err.println("❌ Error: Unknown serve option: " + args[2]);
+            System.exit(1);
+        }
+        int maxConcurrentRequests = Math.max(1, config.getInt("server.max.concurrent.requests",
+                DEFAULT_MAX_CONCURRENT_REQUESTS));
+        long maxBodyBytes = Math.max(1, config.getInt("server.max.body.megabytes", DEFAULT_MAX_BODY_MEGABYTES))
+                * 1024L * 1024L;
+        String spoolDirectory = config.getString("server.spool.directory", System.getProperty("java.io.tmpdir"));
+        
+        ConversionServer server = new ConversionServer(new DataConverter(new ObjectMapper()),
+                new InetSocketAddress(port), maxConcurrentRequests, maxBodyBytes, Paths.get(spoolDirectory));
+        try {
+            server.start();
+        } catch (IOException e) {
+            LOGGER.severe("Cannot start conversion server: " + e.getMessage());
+            System.err.println("❌ Error: Cannot start conversion server on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+        
+        // Let running requests finish when the JVM is stopped; the server threads keep it alive until then
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("🌐 Converting JSON posted to http://localhost:" + server.getPort() + "/convert (Ctrl+C to stop)");
+    }
+    
+    /**
+     * Validates JSON files and the JSON files of directories and prints a report for each.
+     * Exits with status 1 if any file is invalid.
+     * 
+     * @param args command line arguments starting with --validate [file_or_dir]...
+     */
+    private static void validateFiles(String[] args) {
+        List<String> paths = new ArrayList<>();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        
+        for (int i = 1; i < args.length; i++) {
+            if (PARALLELISM_OPTION.equals(args[i]) && i + 1 < args.length) {
+                parallelism = parsePositiveInt(args[++i], PARALLELISM_OPTION);
+            } else if (args[i].startsWith("--")) {
+                System.err.println("❌ Error: Unknown validate option: " + args[i]);
+                System.exit(1);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        
+        try {
+            JsonFileValidator validator = new JsonFileValidator(new JsonFileReader(), parallelism);
+            List<JsonFileStats> results = validator.validatePaths(paths);
+            
+            int invalidCount = 0;
+            for (JsonFileStats stats : results) {
+                System.out.println((stats.isValid() ? "✅ " : "❌ ") + stats.getFilePath());
+                System.out.println("   " + stats.toReport().replace(System.lineSeparator(), System.lineSeparator() + "   "));
+                if (!stats.isValid()) {
+                    invalidCount++;
+                }
+            }
+            System.out.println("Validation complete: " + (results.size() - invalidCount) + " valid, "
+                    + invalidCount + " invalid");
+            
+            if (invalidCount > 0) {
+                System.exit(1);
+            }
+        } catch (JsonFileException e) {
+            LOGGER.severe("Validation failed: " + e.getMessage());
+            System.err.println("❌ Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Merges JSON files and the JSON files of directories into a single CSV file.
+     * 
+     * @param args command line arguments starting with --merge [output_csv_file] [file_or_dir]...
+     */
+    private static void mergeFiles(String[] args) {
+        String outputCsvFile = args[1];
+        ConversionOptions options = ConversionOptions.parse(args, 2, "merge ",
+                Runtime.getRuntime().availableProcessors(), Set.of(), true);
+        
+        try {
+            List<String> inputFiles = BatchConverter.expandInputPaths(options.paths);
+            ConversionMetrics metrics = options.newConverter().mergeJsonToCsv(inputFiles, outputCsvFile,
+                    options.parallelism);
+            if (options.metricsFile != null) {
+                writeMetrics(options.metricsFile, List.of(metrics));
+            }
+            System.out.println("✅ Merge completed: " + inputFiles.size() + " files, "
+                    + metrics.getRecordCount() + " records → " + outputCsvFile);
+        } catch (JsonFileException | CsvFileException e) {
+            LOGGER.severe("Merge failed: " + e.getMessage());
+            System.err.println("❌ Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Parses the --sort and --dedup options, exiting on an invalid value.
+     * 
+     * @param sortSpec value of --sort, or null
+     * @param dedupSpec value of --dedup, or null
+     * @return the requested row order
+     */
+    private static RowOrder parseRowOrder(String sortSpec, String dedupSpec) {
+        try {
+            return RowOrder.parse(sortSpec, dedupSpec);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: Invalid " + SORT_OPTION + " or " + DEDUP_OPTION + " value: " + e.getMessage());
+            System.exit(1);
+            return RowOrder.NONE;
+        }
+    }
+    
+    /**
+     * Parses the --shard option, exiting on an invalid value.
+     * 
+     * @param shardSpec value of --shard, or null
+     * @return the requested sharding
+     */
+    private static OutputSharding parseSharding(String shardSpec) {
+        try {
+            return OutputSharding.parse(shardSpec);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: Invalid " + SHARD_OPTION + " value: " + e.getMessage());
+            System.exit(1);
+            return OutputSharding.NONE;
+        }
+    }
+    
+    /**
+     * Parses the --group-by and --aggregate options, exiting on an invalid value.
+     * 
+     * @param groupSpecs values of the --group-by options
+     * @param metricSpec value of --aggregate, or null
+     * @return the requested summary
+     */
+    private static SummarySpec parseSummary(List<String> groupSpecs, String metricSpec) {
+        try {
+            return SummarySpec.parse(groupSpecs, metricSpec);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: Invalid " + GROUP_BY_OPTION + " or " + AGGREGATE_OPTION + " value: "
+                    + e.getMessage());
+            System.exit(1);
+            return SummarySpec.NONE;
+        }
+    }
+    
+    /**
+     * Parses the --columns and --where options, exiting on an invalid value.
+     * 
+     * @param columnSpec value of --columns, or null
+     * @param conditionSpecs values of the --where options
+     * @return the requested selection
+     */
+    private static RecordSelection parseSelection(String columnSpec, List<String> conditionSpecs) {
+        try {
+            return RecordSelection.parse(columnSpec, conditionSpecs);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ Error: Invalid " + COLUMNS_OPTION + " or " + WHERE_OPTION + " value: "
+                    + e.getMessage());
+            System.exit(1);
+            return RecordSelection.NONE;
+        }
+    }
+    
+    /**
+     * Appends the metrics of the conversions of this run to a JSON Lines file.
+     * A metrics file that cannot be written is reported but does not fail the run.
+     * 
+     * @param metricsFile path of the metrics file
+     * @param conversions the conversions to record
+     */
+    private static void writeMetrics(String metricsFile, Collection<ConversionMetrics> conversions) {
+        try {
+            ConversionMetrics.appendSummary(Paths.get(metricsFile), conversions);
+        } catch (IOException e) {
+            LOGGER.warning("Cannot write metrics file " + metricsFile + ": " + e.getMessage());
+            System.err.println("⚠️ Warning: cannot write metrics file: " + metricsFile);
+        }
+    }
+    
+    /**
+     * Parses a strictly positive integer option value, exiting on invalid input.
+     * 
+     * @param value the option value
+     * @param option the option name used in the error message
+     * @return the parsed value
+     */
+    private static int parsePositiveInt(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.err.println("❌ Error: " + option + " requires a positive integer, got: " + value);
+        System.exit(1);
+        return -1;
+    }
+    
     /**
      * Runs the application in interactive mode.
      */
     private static void runInteractiveMode() {
         Scanner scanner = new Scanner(System.in);
+        // One converter for the whole session keeps Jackson and the CSV writer warm
+        DataConverter converter = new DataConverter();
         
         System.out.println("=== Scientific Data Integration System ===");
         System.out.println("JSON to CSV Converter for Scientific Data");
@@ -76,12 +489,11 @@ public class ScientificDataIntegrationApp {
                 System.out.print("Enter CSV output file path: ");
                 String csvFile = scanner.nextLine().trim();
                 
-                DataConverter converter = new DataConverter();
-                converter.convertJsonToCsv(jsonFile, csvFile);
+                converter.convertJsonToCsvAdaptive(jsonFile, csvFile, 1);
                 
                 System.out.println("✅ Conversion completed successfully!");
                 System.out.println();
-                
+            
             } catch (JsonFileException | CsvFileException e) {
                 System.err.println("❌ Error: " + e.getMessage());
                 System.out.println();
@@ -94,4 +506,92 @@ public class ScientificDataIntegrationApp {
         scanner.close();
         System.out.println("👋 Thank you for using Scientific Data Integration System!");
     }
+    
+    /**
+     * Options of the file, batch and merge modes. The options all three modes take
+     * configure the converter; the flags and input paths only some modes take are
+     * accepted when the mode asks for them.
+     */
+    private static final class ConversionOptions {
+        
+        private final List<String> paths = new ArrayList<>();
+        private final List<String> groupSpecs = new ArrayList<>();
+        private final List<String> conditionSpecs = new ArrayList<>();
+        private int parallelism;
+        private boolean streaming;
+        private boolean compressOutput;
+        private boolean incremental = true;
+        private String metricsFile;
+        private String sortSpec;
+        private String dedupSpec;
+        private String shardSpec;
+        private String metricSpec;
+        private String columnSpec;
+        
+        /**
+         * Parses the options of a mode, exiting on an option the mode does not take.
+         * 
+         * @param args command line arguments
+         * @param start index of the first option
+         * @param mode name of the mode followed by a space, used in error messages; empty for file mode
+         * @param defaultParallelism parallelism when --parallelism is not given
+         * @param modeFlags the flags among --stream, --gzip and --full that the mode takes
+         * @param acceptsPaths whether the arguments that are not options are input paths
+         * @return the options
+         */
+        static ConversionOptions parse(String[] args, int start, String mode, int defaultParallelism,
+                Set<String> modeFlags, boolean acceptsPaths) {
+            ConversionOptions options = new ConversionOptions();
+            options.parallelism = defaultParallelism;
+            
+            for (int i = start; i < args.length; i++) {
+                boolean hasValue = i + 1 < args.length;
+                if (SORT_OPTION.equals(args[i]) && hasValue) {
+                    options.sortSpec = args[++i];
+                } else if (DEDUP_OPTION.equals(args[i]) && hasValue) {
+                    options.dedupSpec = args[++i];
+                } else if (SHARD_OPTION.equals(args[i]) && hasValue) {
+                    options.shardSpec = args[++i];
+                } else if (GROUP_BY_OPTION.equals(args[i]) && hasValue) {
+                    options.groupSpecs.add(args[++i]);
+                } else if (AGGREGATE_OPTION.equals(args[i]) && hasValue) {
+                    options.metricSpec = args[++i];
+                } else if (COLUMNS_OPTION.equals(args[i]) && hasValue) {
+                    options.columnSpec = args[++i];
+                } else if (WHERE_OPTION.equals(args[i]) && hasValue) {
+                    options.conditionSpecs.add(args[++i]);
+                } else if (METRICS_OPTION.equals(args[i]) && hasValue) {
+                    options.metricsFile = args[++i];
+                } else if (PARALLELISM_OPTION.equals(args[i]) && hasValue) {
+                    options.parallelism = parsePositiveInt(args[++i], PARALLELISM_OPTION);
+                } else if (STREAM_OPTION.equals(args[i]) && modeFlags.contains(STREAM_OPTION)) {
+                    options.streaming = true;
+                } else if (GZIP_OPTION.equals(args[i]) && modeFlags.contains(GZIP_OPTION)) {
+                    options.compressOutput = true;
+                } else if (FULL_OPTION.equals(args[i]) && modeFlags.contains(FULL_OPTION)) {
+                    options.incremental = false;
+                } else if (acceptsPaths && !args[i].startsWith("--")) {
+                    options.paths.add(args[i]);
+                } else {
+                    System.err.println("❌ Error: Unknown " + mode + "option: " + args[i]);
+                    System.exit(1);
+                }
+            }
+            return options;
+        }
+        
+        /**
+         * Creates a converter with the row order, sharding, summary and selection of these
+         * options, exiting on an invalid value.
+         * 
+         * @return the converter
+         */
+        DataConverter newConverter() {
+            return new DataConverter(new ObjectMapper())
+                    .withRowOrder(parseRowOrder(sortSpec, dedupSpec))
+                    .withSharding(parseSharding(shardSpec))
+                    .withSummary(parseSummary(groupSpecs, metricSpec))
+                    .withSelection(parseSelection(columnSpec, conditionSpecs));
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.scientific.dataintegration.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Read-only access to the settings declared in {@code application.properties}.
+ * A JVM system property with the same key overrides the bundled value, so any
+ * setting can be changed per run with {@code -Dkey=value}.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class ApplicationConfig {
+    
+    private static final Logger LOGGER = Logger.getLogger(ApplicationConfig.class.getName());
+    private static final String RESOURCE_NAME = "/application.properties";
+    
+    private final Properties properties;
+    
+    /**
+     * Constructs a new ApplicationConfig backed by the given properties.
+     * 
+     * @param properties the configuration values
+     */
+    public ApplicationConfig(Properties properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * Gets the configuration bundled with the application.
+     * The properties file is read once, on first use.
+     * 
+     * @return the shared application configuration
+     */
+    public static ApplicationConfig load() {
+        return Holder.INSTANCE;
+    }
+    
+    /**
+     * Gets a string setting.
+     * 
+     * @param key the setting name
+     * @param defaultValue value returned when the setting is absent
+     * @return the configured value or the default
+     */
+    public String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value == null ? defaultValue : value;
+    }
+    
+    /**
+     * Gets a single-character setting.
+     * 
+     * @param key the setting name
+     * @param defaultValue value returned when the setting is absent or empty
+     * @return the first character of the configured value or the default
+     */
+    public char getChar(String key, char defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        if (value.length() > 1) {
+            LOGGER.warning("Setting " + key + " should be a single character, using '" + value.charAt(0) + "'");
+        }
+        return value.charAt(0);
+    }
+    
+    /**
+     * Gets a numeric setting.
+     * 
+     * @param key the setting name
+     * @param defaultValue value returned when the setting is absent or invalid
+     * @return the configured value or the default
+     */
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid number for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Gets an integer setting.
+     * 
+     * @param key the setting name
+     * @param defaultValue value returned when the setting is absent or invalid
+     * @return the configured value or the default
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid integer for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Reads the bundled properties file.
+     * 
+     * @return the bundled properties, empty if the file is missing or unreadable
+     */
+    private static Properties readBundledProperties() {
+        Properties properties = new Properties();
+        try (InputStream input = ApplicationConfig.class.getResourceAsStream(RESOURCE_NAME)) {
+            if (input != null) {
+                properties.load(input);
+            } else {
+                LOGGER.warning("Configuration file not found on classpath: " + RESOURCE_NAME);
+            }
+        } catch (IOException e) {
+            LOGGER.warning("Cannot read " + RESOURCE_NAME + ": " + e.getMessage());
+        }
+        return properties;
+    }
+    
+    /**
+     * Lazily initialized holder of the bundled configuration.
+     */
+    private static final class Holder {
+        private static final ApplicationConfig INSTANCE = new ApplicationConfig(readBundledProperties());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,364 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts every JSON file of a directory inside a single JVM.
+ * Files are spread over a work-stealing pool and share one {@link DataConverter},
+ * so JVM startup, JIT warm-up and the Jackson configuration are paid only once per run.
+ * 
+ * <p>Runs are incremental: a {@link ConversionManifest} in the output directory
+ * records every converted input, and inputs that have not changed since they
+ * were converted with the same settings are skipped.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class BatchConverter {
+    
+    private static final Logger LOGGER = Logger.getLogger(BatchConverter.class.getName());
+    
+    private final DataConverter converter;
+    private final int parallelism;
+    private final boolean streaming;
+    private final boolean compressOutput;
+    private final boolean incremental;
+    
+    /**
+     * Constructs a new BatchConverter writing uncompressed CSV files.
+     * 
+     * @param converter shared, thread-safe converter used for every file
+     * @param parallelism maximum number of files converted at the same time
+     * @param streaming whether to use the constant-memory streaming conversion for every file,
+     *                  rather than the strategy planned for each file
+     */
+    public BatchConverter(DataConverter converter, int parallelism, boolean streaming) {
+        this(converter, parallelism, streaming, false);
+    }
+    
+    /**
+     * Constructs a new BatchConverter.
+     * 
+     * @param converter shared, thread-safe converter used for every file
+     * @param parallelism maximum number of files converted at the same time
+     * @param streaming whether to use the constant-memory streaming conversion for every file,
+     *                  rather than the strategy planned for each file
+     * @param compressOutput whether to write gzip-compressed {@code .csv.gz} files
+     */
+    public BatchConverter(DataConverter converter, int parallelism, boolean streaming, boolean compressOutput) {
+        this(converter, parallelism, streaming, compressOutput, true);
+    }
+    
+    /**
+     * Constructs a new BatchConverter.
+     * 
+     * @param converter shared, thread-safe converter used for every file
+     * @param parallelism maximum number of files converted at the same time
+     * @param streaming whether to use the constant-memory streaming conversion for every file,
+     *                  rather than the strategy planned for each file
+     * @param compressOutput whether to write gzip-compressed {@code .csv.gz} files
+     * @param incremental whether to skip inputs that are unchanged since the previous run;
+     *                    when false every input is converted and the manifest rebuilt
+     */
+    public BatchConverter(DataConverter converter, int parallelism, boolean streaming, boolean compressOutput,
+            boolean incremental) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.converter = converter;
+        this.parallelism = parallelism;
+        this.streaming = streaming;
+        this.compressOutput = compressOutput;
+        this.incremental = incremental;
+    }
+    
+    /**
+     * Converts all JSON and JSON Lines files found directly inside a directory.
+     * Each input {@code name.json} (or {@code name.jsonl}, optionally gzip-compressed as
+     * {@code name.json.gz}) is written to {@code name.csv}, or {@code name.csv.gz} when
+     * output compression is enabled, in the output directory.
+     * Inputs that would write the same CSV file, such as {@code name.json} and
+     * {@code name.jsonl}, are all reported as failed rather than overwriting each other.
+     * A failing file is recorded in the result and does not stop the others,
+     * and is converted again on the next run.
+     * 
+     * @param inputDirectory directory containing the JSON files
+     * @param outputDirectory directory receiving the CSV files
+     * @return per-file summary of the run
+     * @throws JsonFileException if the input directory cannot be listed
+     * @throws CsvFileException if the output directory or the manifest cannot be written
+     */
+    public BatchResult convertDirectory(String inputDirectory, String outputDirectory)
+            throws JsonFileException, CsvFileException {
+        
+        Path inputDir = Paths.get(inputDirectory);
+        Path outputDir = Paths.get(outputDirectory);
+        
+        if (!Files.isDirectory(inputDir)) {
+            throw new JsonFileException("Input directory not found: " + inputDirectory);
+        }
+        
+        try {
+            Files.createDirectories(outputDir);
+        } catch (IOException e) {
+            throw new CsvFileException("Failed to create output directory: " + outputDirectory, e);
+        }
+        
+        List<Path> inputFiles = listJsonFiles(inputDir);
+        LOGGER.info("Found " + inputFiles.size() + " JSON files in " + inputDirectory
+                + ", converting with parallelism " + parallelism);
+        
+        long start = System.nanoTime();
+        ConversionManifest manifest = ConversionManifest.load(outputDir, converter.getSettingsFingerprint());
+        manifest.retainAll(inputFiles.stream()
+                .map(path -> path.getFileName().toString())
+                .collect(Collectors.toList()));
+        
+        List<BatchResult.FileResult> results;
+        try {
+            results = convertAll(inputFiles, outputDir, manifest);
+        } finally {
+            manifest.save();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        
+        results.sort(Comparator.comparing(BatchResult.FileResult::getInputFile));
+        BatchResult batchResult = new BatchResult(results, elapsedMillis);
+        
+        LOGGER.info("Batch conversion finished in " + elapsedMillis + " ms: "
+                + batchResult.getSuccessCount() + " succeeded ("
+                + batchResult.getSkippedCount() + " unchanged), "
+                + batchResult.getFailureCount() + " failed");
+        return batchResult;
+    }
+    
+    /**
+     * Lists the JSON files of a directory, largest first so that long conversions
+     * start early and do not become the tail of the batch.
+     * 
+     * @param inputDir directory to list
+     * @return the JSON files to convert
+     * @throws JsonFileException if the directory cannot be listed
+     */
+    private List<Path> listJsonFiles(Path inputDir) throws JsonFileException {
+        try (Stream<Path> entries = Files.list(inputDir)) {
+            // Sizes are read once per file rather than once per comparison
+            Map<Path, Long> sizes = entries
+                    .filter(Files::isRegularFile)
+                    .filter(path -> isJsonInput(path.getFileName().toString().toLowerCase()))
+                    .collect(Collectors.toMap(path -> path, this::sizeOf));
+            return sizes.keySet().stream()
+                    .sorted(Comparator.comparing(sizes::get, Comparator.reverseOrder()))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new JsonFileException("Failed to list input directory: " + inputDir, e);
+        }
+    }
+    
+    /**
+     * Replaces directories by the JSON files they contain.
+     * Directories are not searched recursively; their files are taken in name order.
+     * 
+     * @param paths paths to files or directories
+     * @return paths to files, in the given order
+     * @throws JsonFileException if a directory cannot be listed
+     */
+    public static List<String> expandInputPaths(List<String> paths) throws JsonFileException {
+        List<String> filePaths = new ArrayList<>();
+        for (String path : paths) {
+            Path candidate = Paths.get(path);
+            if (!Files.isDirectory(candidate)) {
+                filePaths.add(path);
+                continue;
+            }
+            try (Stream<Path> entries = Files.list(candidate)) {
+                filePaths.addAll(entries
+                        .filter(Files::isRegularFile)
+                        .filter(file -> isJsonInput(file.getFileName().toString().toLowerCase()))
+                        .sorted()
+                        .map(Path::toString)
+                        .collect(Collectors.toList()));
+            } catch (IOException e) {
+                throw new JsonFileException("Failed to list input directory: " + path, e);
+            }
+        }
+        return filePaths;
+    }
+    
+    /**
+     * Checks whether a file name denotes a JSON or JSON Lines input.
+     * 
+     * @param lowerCaseName the file name in lower case
+     * @return true for .json, .jsonl and .ndjson files, compressed or not,
+     *         except the conversion manifest and shard indexes
+     */
+    static boolean isJsonInput(String lowerCaseName) {
+        if (lowerCaseName.equals(ConversionManifest.FILE_NAME)
+                || lowerCaseName.endsWith(ShardedRowWriter.INDEX_SUFFIX)) {
+            return false;
+        }
+        String name = JsonFileReader.stripCompressionSuffix(lowerCaseName);
+        return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+    
+    /**
+     * Converts the given files on a work-stealing pool and waits for all of them.
+     * 
+     * @param inputFiles files to convert
+     * @param outputDir directory receiving the CSV files
+     * @param manifest manifest of the output directory, updated as files are converted
+     * @return one result per input file
+     */
+    private List<BatchResult.FileResult> convertAll(List<Path> inputFiles, Path outputDir,
+            ConversionManifest manifest) {
+        Map<Path, String> collisions = findNameCollisions(inputFiles, compressOutput);
+        List<BatchResult.FileResult> results = new ArrayList<>();
+        ExecutorService executor = Executors.newWorkStealingPool(parallelism);
+        try {
+            List<Callable<BatchResult.FileResult>> tasks = new ArrayList<>();
+            for (Path inputFile : inputFiles) {
+                Path outputFile = outputDir.resolve(toCsvFileName(inputFile, compressOutput));
+                String collision = collisions.get(inputFile);
+                if (collision != null) {
+                    LOGGER.warning("Conversion failed for " + inputFile + ": " + collision);
+                    manifest.remove(inputFile);
+                    results.add(new BatchResult.FileResult(inputFile.toString(), outputFile.toString(), false,
+                            collision, 0L));
+                    continue;
+                }
+                tasks.add(() -> convertFile(inputFile, outputFile, manifest));
+            }
+            
+            for (Future<BatchResult.FileResult> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch conversion was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected batch conversion failure", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Converts a single file unless it is unchanged since the previous run,
+     * capturing the outcome instead of propagating errors.
+     * 
+     * @param inputFile path of the input JSON file
+     * @param outputFile path of the output CSV file
+     * @param manifest manifest of the output directory
+     * @return the outcome of the conversion
+     */
+    private BatchResult.FileResult convertFile(Path inputFile, Path outputFile, ConversionManifest manifest) {
+        long start = System.nanoTime();
+        String inputPath = inputFile.toString();
+        String outputPath = outputFile.toString();
+        try {
+            // A sharded output has no file of its own name; its index is written last
+            Path writtenFile = converter.getSharding().isNone() ? outputFile : ShardedRowWriter.indexFile(outputPath);
+            if (incremental && manifest.isUpToDate(inputFile, writtenFile)) {
+                LOGGER.fine("Skipping unchanged file: " + inputPath);
+                return BatchResult.FileResult.skipped(inputPath, outputPath);
+            }
+            
+            ConversionManifest.Entry state = manifest.snapshot(inputFile, writtenFile);
+            ConversionMetrics metrics = streaming
+                    ? converter.convertJsonToCsvStreaming(inputPath, outputPath)
+                    : converter.convertJsonToCsvAdaptive(inputPath, outputPath, parallelism);
+            manifest.record(inputFile, state);
+            return new BatchResult.FileResult(inputPath, outputPath, true, null,
+                    (System.nanoTime() - start) / 1_000_000, metrics);
+        
+        } catch (IOException | JsonFileException | CsvFileException | RuntimeException e) {
+            LOGGER.warning("Conversion failed for " + inputPath + ": " + e.getMessage());
+            manifest.remove(inputFile);
+            return new BatchResult.FileResult(inputPath, outputPath, false, e.getMessage(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+    
+    /**
+     * Derives the CSV file name for an input file by replacing its extension,
+     * including a compression suffix.
+     * 
+     * @param inputFile the input JSON file
+     * @param compressOutput whether the CSV file is gzip-compressed
+     * @return the CSV file name
+     */
+    static String toCsvFileName(Path inputFile, boolean compressOutput) {
+        String name = JsonFileReader.stripCompressionSuffix(inputFile.getFileName().toString());
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + (compressOutput ? ".csv.gz" : ".csv");
+    }
+    
+    /**
+     * Finds the input files whose CSV file name is also derived from another input,
+     * as for {@code name.json}, {@code name.jsonl} and {@code name.json.gz}.
+     * Converting them side by side would leave only one of their outputs.
+     * 
+     * @param inputFiles input files of one output directory
+     * @param compressOutput whether the CSV files are gzip-compressed
+     * @return the reason each colliding input cannot be converted, by input file
+     */
+    static Map<Path, String> findNameCollisions(Collection<Path> inputFiles, boolean compressOutput) {
+        Map<String, List<Path>> inputsByOutput = new HashMap<>();
+        for (Path inputFile : inputFiles) {
+            inputsByOutput.computeIfAbsent(toCsvFileName(inputFile, compressOutput), name -> new ArrayList<>())
+                    .add(inputFile);
+        }
+        
+        Map<Path, String> collisions = new HashMap<>();
+        for (Map.Entry<String, List<Path>> entry : inputsByOutput.entrySet()) {
+            if (entry.getValue().size() < 2) {
+                continue;
+            }
+            String names = entry.getValue().stream()
+                    .map(path -> path.getFileName().toString())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            for (Path inputFile : entry.getValue()) {
+                collisions.put(inputFile, "Inputs " + names + " would all be written to " + entry.getKey()
+                        + "; rename all but one of them");
+            }
+        }
+        return collisions;
+    }
+    
+    /**
+     * Gets the size of a file, treating unreadable files as empty.
+     * 
+     * @param path file to measure
+     * @return size in bytes
+     */
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,223 @@
+package com.scientific.dataintegration.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Summary of a batch conversion run, with one entry per input file.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class BatchResult {
+    
+    private final List<FileResult> fileResults;
+    private final long elapsedMillis;
+    
+    /**
+     * Constructs a new BatchResult.
+     * 
+     * @param fileResults per-file outcomes, in the order they should be reported
+     * @param elapsedMillis wall-clock duration of the whole batch
+     */
+    public BatchResult(List<FileResult> fileResults, long elapsedMillis) {
+        this.fileResults = Collections.unmodifiableList(new ArrayList<>(fileResults));
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    /**
+     * Gets the per-file outcomes.
+     * 
+     * @return unmodifiable list of file results
+     */
+    public List<FileResult> getFileResults() {
+        return fileResults;
+    }
+    
+    /**
+     * Gets the number of files converted successfully.
+     * 
+     * @return the success count
+     */
+    public int getSuccessCount() {
+        return (int) fileResults.stream().filter(FileResult::isSuccess).count();
+    }
+    
+    /**
+     * Gets the number of files skipped because they were unchanged since the previous run.
+     * Skipped files are also counted as successful.
+     * 
+     * @return the skipped count
+     */
+    public int getSkippedCount() {
+        return (int) fileResults.stream().filter(FileResult::isSkipped).count();
+    }
+    
+    /**
+     * Gets the number of files that failed to convert.
+     * 
+     * @return the failure count
+     */
+    public int getFailureCount() {
+        return fileResults.size() - getSuccessCount();
+    }
+    
+    /**
+     * Gets the wall-clock duration of the whole batch.
+     * 
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    /**
+     * Checks whether every file in the batch was converted.
+     * 
+     * @return true if no file failed
+     */
+    public boolean isAllSuccessful() {
+        return getFailureCount() == 0;
+    }
+    
+    /**
+     * Outcome of converting a single file within a batch.
+     */
+    public static class FileResult {
+        
+        private final String inputFile;
+        private final String outputFile;
+        private final boolean success;
+        private final String message;
+        private final long elapsedMillis;
+        private final boolean skipped;
+        private final ConversionMetrics metrics;
+        
+        /**
+         * Constructs a new FileResult.
+         * 
+         * @param inputFile path of the input JSON file
+         * @param outputFile path of the output CSV file
+         * @param success whether the conversion succeeded
+         * @param message error message for failures, or null on success
+         * @param elapsedMillis time spent converting this file
+         */
+        public FileResult(String inputFile, String outputFile, boolean success, 
+                String message, long elapsedMillis) {
+            this(inputFile, outputFile, success, message, elapsedMillis, null);
+        }
+        
+        /**
+         * Constructs a new FileResult carrying the measurements of the conversion.
+         * 
+         * @param inputFile path of the input JSON file
+         * @param outputFile path of the output CSV file
+         * @param success whether the conversion succeeded
+         * @param message error message for failures, or null on success
+         * @param elapsedMillis time spent converting this file
+         * @param metrics measurements of a successful conversion, or null
+         */
+        public FileResult(String inputFile, String outputFile, boolean success, 
+                String message, long elapsedMillis, ConversionMetrics metrics) {
+            this.inputFile = inputFile;
+            this.outputFile = outputFile;
+            this.success = success;
+            this.message = message;
+            this.elapsedMillis = elapsedMillis;
+            this.skipped = false;
+            this.metrics = metrics;
+        }
+        
+        /**
+         * Constructs a new FileResult for a file that was not converted because
+         * its output is up to date.
+         * 
+         * @param inputFile path of the input JSON file
+         * @param outputFile path of the existing output CSV file
+         */
+        private FileResult(String inputFile, String outputFile) {
+            this.inputFile = inputFile;
+            this.outputFile = outputFile;
+            this.success = true;
+            this.message = null;
+            this.elapsedMillis = 0L;
+            this.skipped = true;
+            this.metrics = null;
+        }
+        
+        /**
+         * Creates the result of a file skipped because it is unchanged since the previous run.
+         * 
+         * @param inputFile path of the input JSON file
+         * @param outputFile path of the existing output CSV file
+         * @return a successful, skipped result
+         */
+        public static FileResult skipped(String inputFile, String outputFile) {
+            return new FileResult(inputFile, outputFile);
+        }
+        
+        /**
+         * Gets the path of the input JSON file.
+         * 
+         * @return the input file path
+         */
+        public String getInputFile() {
+            return inputFile;
+        }
+        
+        /**
+         * Gets the path of the output CSV file.
+         * 
+         * @return the output file path
+         */
+        public String getOutputFile() {
+            return outputFile;
+        }
+        
+        /**
+         * Checks whether the conversion succeeded.
+         * 
+         * @return true on success
+         */
+        public boolean isSuccess() {
+            return success;
+        }
+        
+        /**
+         * Checks whether the file was skipped because its output was up to date.
+         * 
+         * @return true if the file was not converted in this run
+         */
+        public boolean isSkipped() {
+            return skipped;
+        }
+        
+        /**
+         * Gets the error message of a failed conversion.
+         * 
+         * @return the error message, or null on success
+         */
+        public String getMessage() {
+            return message;
+        }
+        
+        /**
+         * Gets the time spent converting this file.
+         * 
+         * @return elapsed time in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+        
+        /**
+         * Gets the measurements of the conversion.
+         * 
+         * @return the metrics, or null if the file was skipped or failed
+         */
+        public ConversionMetrics getMetrics() {
+            return metrics;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,913 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled mapping from record fields to CSV columns.
+ * The schema of a dataset is collected once into a tree of field names whose
+ * leaves are the columns, named by their dotted path (for example
+ * {@code contact.email}). Each record is then turned into a row with a single
+ * traversal of its fields, either from a parsed Map or directly from the parser's
+ * token stream, instead of looking up every header in every record.
+ * 
+ * <p>Nested objects are flattened into one column per leaf field; arrays stay in
+ * a single column. Records usually list their fields in the same order, so each
+ * field is first matched against the field that followed its predecessor in the
+ * schema, and only looked up by name when the order differs.</p>
+ * 
+ * <p>A plan built with a {@link RecordSelection} only knows the selected fields, so
+ * the others are skipped token by token without being read, and it checks the
+ * selection's conditions while the record is read, before any cell is formatted.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class ColumnPlan {
+    
+    private static final String PATH_SEPARATOR = ".";
+    
+    private final Node root;
+    private final String[] headers;
+    private final ValueFormatter valueFormatter;
+    private final RecordSelection selection;
+    private final RecordSelection.Condition[] conditions;
+    /** True when no collected record filled a column, so no record yields a row. */
+    private final boolean rowless;
+    
+    /**
+     * Constructs a new ColumnPlan.
+     * 
+     * @param root frozen root of the field tree
+     * @param headers column headers, indexed by column
+     * @param valueFormatter formatter used for cell values
+     * @param selection the selected columns and conditions
+     * @param rowless whether every record is dropped because none filled a column
+     */
+    private ColumnPlan(Node root, String[] headers, ValueFormatter valueFormatter, RecordSelection selection,
+            boolean rowless) {
+        this.root = root;
+        this.headers = headers;
+        this.valueFormatter = valueFormatter;
+        this.selection = selection;
+        this.conditions = selection.getConditions().toArray(new RecordSelection.Condition[0]);
+        this.rowless = rowless;
+    }
+    
+    /**
+     * Creates a builder that collects the columns of a dataset.
+     * 
+     * @return a new, empty builder
+     */
+    static Builder builder() {
+        return new Builder(RecordSelection.NONE);
+    }
+    
+    /**
+     * Creates a builder that collects the selected columns of the records meeting the
+     * selection's conditions. Builders to be merged must share the same selection.
+     * 
+     * @param selection the selected columns and conditions
+     * @return a new, empty builder
+     */
+    static Builder builder(RecordSelection selection) {
+        return new Builder(selection);
+    }
+    
+    /**
+     * Gets the column headers in first-seen order.
+     * 
+     * @return a copy of the headers
+     */
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+    
+    /**
+     * Gets the number of columns.
+     * 
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return headers.length;
+    }
+    
+    /**
+     * Converts a parsed record into a row.
+     * 
+     * @param record the record to convert
+     * @return the formatted cells, empty for fields the record does not have;
+     *         null if the record does not meet the selection's conditions,
+     *         or if no collected record filled a column
+     */
+    String[] evaluate(Map<String, Object> record) {
+        if (rowless || !selection.accepts(record)) {
+            return null;
+        }
+        String[] row = newRow();
+        evaluateObject(root, record, row);
+        return row;
+    }
+    
+    /**
+     * Converts the record the parser is positioned on into a row, reading the
+     * record's tokens exactly once without building a Map.
+     * 
+     * @param parser parser positioned on the record's START_OBJECT token;
+     *               left on the matching END_OBJECT token
+     * @return the formatted cells, empty for fields the record does not have;
+     *         null if the record does not meet the selection's conditions,
+     *         or if no collected record filled a column
+     * @throws IOException if the record cannot be read or is malformed
+     */
+    String[] evaluate(JsonParser parser) throws IOException {
+        if (rowless) {
+            parser.skipChildren();
+            return null;
+        }
+        String[] row = newRow();
+        return evaluateObject(root, parser, row, 0L) == allMatched(conditions) ? row : null;
+    }
+    
+    /**
+     * Appends the record the parser is positioned on to a batch as its next row,
+     * storing numbers and booleans without converting them to text. A record that
+     * does not meet the selection's conditions leaves the batch as it was.
+     * 
+     * @param parser parser positioned on the record's START_OBJECT token;
+     *               left on the matching END_OBJECT token
+     * @param batch batch created by this plan, not full
+     * @return true if the record was added
+     * @throws IOException if the record cannot be read or is malformed
+     */
+    boolean evaluate(JsonParser parser, ColumnarBatch batch) throws IOException {
+        if (rowless) {
+            parser.skipChildren();
+            return false;
+        }
+        if (evaluateObject(root, parser, batch, 0L) != allMatched(conditions)) {
+            batch.discardRow();
+            return false;
+        }
+        batch.endRow();
+        return true;
+    }
+    
+    /**
+     * Creates an empty batch with one column per column of this plan.
+     * 
+     * @param capacity maximum number of rows of the batch
+     * @return a new batch
+     */
+    public ColumnarBatch newBatch(int capacity) {
+        return newBatch(capacity, 0);
+    }
+    
+    /**
+     * Creates an empty batch whose text columns share repeated values through
+     * a bounded dictionary per column.
+     * 
+     * @param capacity maximum number of rows of the batch
+     * @param dictionarySize maximum distinct values kept per column, 0 for no dictionaries
+     * @return a new batch
+     */
+    public ColumnarBatch newBatch(int capacity, int dictionarySize) {
+        return new ColumnarBatch(headers.length, capacity, valueFormatter, dictionarySize);
+    }
+    
+    /**
+     * Creates a row with every cell empty.
+     * 
+     * @return a new row
+     */
+    private String[] newRow() {
+        String[] row = new String[headers.length];
+        Arrays.fill(row, "");
+        return row;
+    }
+    
+    /**
+     * Fills the cells of the fields of a parsed object.
+     * 
+     * @param node schema node of the object
+     * @param object the object's fields
+     * @param row the row being filled
+     */
+    @SuppressWarnings("unchecked")
+    private void evaluateObject(Node node, Map<String, Object> object, String[] row) {
+        int expected = 0;
+        for (Map.Entry<String, Object> entry : object.entrySet()) {
+            Node child = node.find(entry.getKey(), expected);
+            if (child == null) {
+                continue;
+            }
+            expected = child.siblingIndex + 1;
+            
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                evaluateObject(child, (Map<String, Object>) value, row);
+            } else if (child.column >= 0) {
+                row[child.column] = valueFormatter.format(value);
+            }
+        }
+    }
+    
+    /**
+     * Fills the cells of the fields of the object the parser is positioned on.
+     * 
+     * @param node schema node of the object
+     * @param parser parser positioned on the object's START_OBJECT token
+     * @param row the row being filled
+     * @param matched bits of the conditions met so far by the record
+     * @return bits of the conditions met once the object has been read
+     * @throws IOException if the object cannot be read or is malformed
+     */
+    private long evaluateObject(Node node, JsonParser parser, String[] row, long matched) throws IOException {
+        int expected = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.find(parser.getCurrentName(), expected);
+            JsonToken token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+                continue;
+            }
+            expected = child.siblingIndex + 1;
+            if (child.conditionBits != 0) {
+                matched = child.match(conditions, parser, token, matched);
+            }
+            
+            if (token == JsonToken.START_OBJECT) {
+                matched = evaluateObject(child, parser, row, matched);
+            } else if (child.column >= 0) {
+                row[child.column] = readCell(parser, token, valueFormatter);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return matched;
+    }
+    
+    /**
+     * Stores the fields of the object the parser is positioned on in the current row of a batch.
+     * 
+     * @param node schema node of the object
+     * @param parser parser positioned on the object's START_OBJECT token
+     * @param batch the batch being filled
+     * @param matched bits of the conditions met so far by the record
+     * @return bits of the conditions met once the object has been read
+     * @throws IOException if the object cannot be read or is malformed
+     */
+    private long evaluateObject(Node node, JsonParser parser, ColumnarBatch batch, long matched)
+            throws IOException {
+        int expected = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Node child = node.find(parser.getCurrentName(), expected);
+            JsonToken token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+                continue;
+            }
+            expected = child.siblingIndex + 1;
+            if (child.conditionBits != 0) {
+                matched = child.match(conditions, parser, token, matched);
+            }
+            
+            if (token == JsonToken.START_OBJECT) {
+                matched = evaluateObject(child, parser, batch, matched);
+            } else if (child.column >= 0) {
+                storeCell(parser, token, batch, child.column);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return matched;
+    }
+    
+    /**
+     * Stores the scalar or array value the parser is positioned on in a batch,
+     * keeping numbers that Jackson would bind to an Integer, Long or Double primitive.
+     * 
+     * @param parser parser positioned on the value
+     * @param token the value's first token
+     * @param batch the batch being filled
+     * @param column the column index
+     * @throws IOException if the value cannot be read
+     */
+    private void storeCell(JsonParser parser, JsonToken token, ColumnarBatch batch, int column) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                StringDictionary dictionary = batch.getDictionary(column);
+                StringDictionary.Entry entry = dictionary == null ? null : dictionary.lookup(
+                        parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                if (entry != null) {
+                    batch.setEntry(column, entry);
+                } else {
+                    batch.setString(column, parser.getText());
+                }
+                break;
+            case VALUE_NUMBER_INT:
+                if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                    batch.setString(column, parser.getNumberValue().toString());
+                } else {
+                    batch.setLong(column, parser.getLongValue());
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                batch.setDouble(column, parser.getDoubleValue());
+                break;
+            case VALUE_TRUE:
+                batch.setBoolean(column, true);
+                break;
+            case VALUE_FALSE:
+                batch.setBoolean(column, false);
+                break;
+            case VALUE_NULL:
+                batch.setNull(column);
+                break;
+            default:
+                batch.setString(column, readCell(parser, token, valueFormatter));
+        }
+    }
+    
+    /**
+     * Reads and formats the scalar or array value the parser is positioned on,
+     * producing the same text as formatting the value Jackson would bind it to.
+     * 
+     * @param parser parser positioned on the value
+     * @param token the value's first token
+     * @param valueFormatter formatter used for cell values
+     * @return the formatted cell
+     * @throws IOException if the value cannot be read
+     */
+    private static String readCell(JsonParser parser, JsonToken token, ValueFormatter valueFormatter)
+            throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue().toString();
+            case VALUE_NUMBER_FLOAT:
+                return valueFormatter.formatDouble(parser.getDoubleValue());
+            case VALUE_TRUE:
+                return "true";
+            case VALUE_FALSE:
+                return "false";
+            case VALUE_NULL:
+                return "";
+            default:
+                return valueFormatter.format(JsonValueReader.readValue(parser));
+        }
+    }
+    
+    /**
+     * Gets the bits of a record that meets all of a plan's conditions.
+     * 
+     * @param conditions the conditions
+     * @return one bit per condition, 0 if there are none
+     */
+    private static long allMatched(RecordSelection.Condition[] conditions) {
+        return conditions.length == Long.SIZE ? -1L : (1L << conditions.length) - 1;
+    }
+    
+    /**
+     * Checks whether the scalar value the parser is positioned on meets a condition,
+     * without consuming it.
+     * 
+     * @param condition the condition
+     * @param parser parser positioned on the value
+     * @param token the value's first token
+     * @return false for nulls, arrays and objects
+     * @throws IOException if the value cannot be read
+     */
+    private static boolean matches(RecordSelection.Condition condition, JsonParser parser, JsonToken token)
+            throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return condition.matches(parser.getText());
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return condition.matches(parser.getDoubleValue(), parser.getText());
+            case VALUE_TRUE:
+                return condition.matches("true");
+            case VALUE_FALSE:
+                return condition.matches("false");
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Field of the schema tree. A node is a column when the field held a
+     * non-object value in some record, and has children when it held an object;
+     * a field seen with both kinds of value is both.
+     * 
+     * <p>With a column selection, the root and the objects leading to selected
+     * fields are partial: only their selected children exist, and other fields are
+     * skipped. Below a selected field, every field is kept.</p>
+     */
+    private static final class Node {
+        
+        private final Node parent;
+        private final String name;
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private Node[] ordered = new Node[0];
+        private int siblingIndex;
+        private int column = -1;
+        private boolean partial;
+        private int selectionRank = -1;
+        private int[] conditionIndexes = new int[0];
+        private long conditionBits;
+        
+        /**
+         * Constructs a new Node.
+         * 
+         * @param parent node of the enclosing object, null for the root
+         * @param name field name, null for the root
+         */
+        Node(Node parent, String name) {
+            this.parent = parent;
+            this.name = name;
+            this.partial = parent != null && parent.partial;
+        }
+        
+        /**
+         * Gets the child for a field name, creating it if needed.
+         * 
+         * @param childName the field name
+         * @return the child node
+         */
+        Node child(String childName) {
+            Node child = children.get(childName);
+            if (child == null) {
+                child = new Node(this, childName);
+                children.put(childName, child);
+            }
+            return child;
+        }
+        
+        /**
+         * Gets the child for a field of a record being collected.
+         * 
+         * @param childName the field name
+         * @return the child node, created if this node keeps every field;
+         *         null if the field is not selected
+         */
+        Node collectedChild(String childName) {
+            return partial ? children.get(childName) : child(childName);
+        }
+        
+        /**
+         * Selects this field and every field below it.
+         * 
+         * @param rank position of the selection, ordering the columns it yields
+         */
+        void select(int rank) {
+            if (selectionRank < 0) {
+                selectionRank = rank;
+            }
+            keepAll();
+        }
+        
+        /**
+         * Makes this node and every node below it keep all their fields.
+         */
+        private void keepAll() {
+            partial = false;
+            for (Node child : children.values()) {
+                child.keepAll();
+            }
+        }
+        
+        /**
+         * Gets the position of the selection this column belongs to.
+         * 
+         * @return rank of the nearest selected field on the path of this node
+         */
+        int getSelectionRank() {
+            return selectionRank >= 0 || parent == null ? selectionRank : parent.getSelectionRank();
+        }
+        
+        /**
+         * Makes this field the subject of a condition.
+         * 
+         * @param index position of the condition in the selection
+         */
+        void addCondition(int index) {
+            conditionIndexes = Arrays.copyOf(conditionIndexes, conditionIndexes.length + 1);
+            conditionIndexes[conditionIndexes.length - 1] = index;
+            conditionBits |= 1L << index;
+        }
+        
+        /**
+         * Checks the conditions on this field against the value the parser is positioned on.
+         * A repeated field replaces the results of its earlier value, as it replaces the value.
+         * 
+         * @param conditions the conditions of the selection
+         * @param parser parser positioned on the value
+         * @param token the value's first token
+         * @param matched bits of the conditions met so far by the record
+         * @return the bits updated with the conditions on this field
+         * @throws IOException if the value cannot be read
+         */
+        long match(RecordSelection.Condition[] conditions, JsonParser parser, JsonToken token, long matched)
+                throws IOException {
+            matched &= ~conditionBits;
+            for (int index : conditionIndexes) {
+                if (matches(conditions[index], parser, token)) {
+                    matched |= 1L << index;
+                }
+            }
+            return matched;
+        }
+        
+        /**
+         * Finds the child for a field name, trying the expected next field first.
+         * 
+         * @param childName the field name
+         * @param expected index of the field that usually comes next
+         * @return the child node, or null if the field is not part of the plan
+         */
+        Node find(String childName, int expected) {
+            if (expected < ordered.length && ordered[expected].name.equals(childName)) {
+                return ordered[expected];
+            }
+            return children.get(childName);
+        }
+        
+        /**
+         * Gets the dotted path of this field.
+         * 
+         * @return the column header for this field
+         */
+        String path() {
+            return parent.parent == null ? name : parent.path() + PATH_SEPARATOR + name;
+        }
+        
+        /**
+         * Fixes the child order of this subtree for evaluation.
+         */
+        void freeze() {
+            ordered = children.values().toArray(new Node[0]);
+            for (int i = 0; i < ordered.length; i++) {
+                ordered[i].siblingIndex = i;
+                ordered[i].freeze();
+            }
+        }
+    }
+    
+    /**
+     * Collects the columns of a dataset from its records, in first-seen order.
+     * Builders of consecutive parts of a dataset can be merged in order to obtain
+     * the columns of the whole dataset. A builder is not thread-safe.
+     */
+    static final class Builder {
+        
+        private final Node root = new Node(null, null);
+        private final List<Node> columns = new ArrayList<>();
+        private final List<Node> pendingColumns = new ArrayList<>();
+        private final List<Node> rowFields = new ArrayList<>();
+        private final List<String> rowCells = new ArrayList<>();
+        private final RecordSelection selection;
+        private final RecordSelection.Condition[] conditions;
+        private boolean built;
+        
+        /**
+         * Constructs a new Builder, creating the fields of the selection in advance.
+         * 
+         * @param selection the selected columns and conditions
+         */
+        private Builder(RecordSelection selection) {
+            this.selection = selection;
+            this.conditions = selection.getConditions().toArray(new RecordSelection.Condition[0]);
+            List<String> selectedColumns = selection.getColumns();
+            root.partial = !selectedColumns.isEmpty();
+            for (int rank = 0; rank < selectedColumns.size(); rank++) {
+                node(RecordSelection.splitPath(selectedColumns.get(rank))).select(rank);
+            }
+            for (int index = 0; index < conditions.length; index++) {
+                node(conditions[index].getPath()).addCondition(index);
+            }
+        }
+        
+        /**
+         * Adds the fields of a parsed record, unless it does not meet the selection's conditions.
+         * 
+         * @param record the record
+         */
+        void collect(Map<String, Object> record) {
+            checkNotBuilt();
+            if (selection.accepts(record)) {
+                collectObject(root, record);
+            }
+        }
+        
+        /**
+         * Adds the fields of the record the parser is positioned on, unless it does
+         * not meet the selection's conditions.
+         * 
+         * @param parser parser positioned on the record's START_OBJECT token;
+         *               left on the matching END_OBJECT token
+         * @throws IOException if the record cannot be read or is malformed
+         */
+        void collect(JsonParser parser) throws IOException {
+            checkNotBuilt();
+            long matched = collectObject(root, parser, 0L);
+            if (matched == allMatched(conditions)) {
+                for (Node column : pendingColumns) {
+                    addColumn(column);
+                }
+            }
+            pendingColumns.clear();
+        }
+        
+        /**
+         * Adds the fields of the record the parser is positioned on and converts it into
+         * a row over the columns collected so far, reading the record's tokens once.
+         * Columns are only ever appended, so the row is a prefix of the row of the same
+         * record over all the columns of the dataset in first-seen order.
+         * 
+         * @param parser parser positioned on the record's START_OBJECT token;
+         *               left on the matching END_OBJECT token
+         * @param valueFormatter formatter used for cell values
+         * @return the formatted cells, empty for fields the record does not have;
+         *         null if the record does not meet the selection's conditions
+         * @throws IOException if the record cannot be read or is malformed
+         */
+        String[] collectRow(JsonParser parser, ValueFormatter valueFormatter) throws IOException {
+            checkNotBuilt();
+            rowFields.clear();
+            rowCells.clear();
+            if (collectRowObject(root, parser, valueFormatter, 0L) != allMatched(conditions)) {
+                return null;
+            }
+            
+            for (Node field : rowFields) {
+                addColumn(field);
+            }
+            String[] row = new String[columns.size()];
+            Arrays.fill(row, "");
+            for (int i = 0; i < rowFields.size(); i++) {
+                row[rowFields.get(i).column] = rowCells.get(i);
+            }
+            return row;
+        }
+        
+        /**
+         * Adds every field of the record the parser is positioned on and measures how
+         * deeply it nests. Arrays are read token by token rather than skipped, so that
+         * their nesting is measured too. The selection is not applied.
+         * 
+         * @param parser parser positioned on the record's START_OBJECT token;
+         *               left on the matching END_OBJECT token
+         * @param depth nesting depth of the record within its document
+         * @return the deepest nesting reached inside the record, at least {@code depth}
+         * @throws IOException if the record cannot be read or is malformed
+         */
+        int collectMeasured(JsonParser parser, int depth) throws IOException {
+            checkNotBuilt();
+            return collectObjectMeasured(root, parser, depth);
+        }
+        
+        /**
+         * Adds the columns of another builder after the columns of this one.
+         * 
+         * @param other builder of the following part of the dataset
+         */
+        void addAll(Builder other) {
+            checkNotBuilt();
+            for (Node column : other.columns) {
+                addColumn(resolve(column));
+            }
+        }
+        
+        /**
+         * Gets the number of columns collected so far.
+         * 
+         * @return the column count
+         */
+        int getColumnCount() {
+            return columns.size();
+        }
+        
+        /**
+         * Gets the paths of the columns collected so far.
+         * 
+         * @return dotted column paths in first-seen order
+         */
+        List<String> getColumnPaths() {
+            List<String> paths = new ArrayList<>(columns.size());
+            for (Node column : columns) {
+                paths.add(column.path());
+            }
+            return paths;
+        }
+        
+        /**
+         * Compiles the collected columns into a plan. The builder cannot be used afterwards.
+         * When no collected record filled a column, as when the conditions reject every
+         * record or the selected fields are missing from the data, the result is empty:
+         * the plan drops every record and its headers are the selected field paths, or
+         * none without a column selection.
+         * 
+         * @param valueFormatter formatter used for cell values
+         * @return the column plan
+         */
+        ColumnPlan build(ValueFormatter valueFormatter) {
+            checkNotBuilt();
+            built = true;
+            boolean rowless = columns.isEmpty();
+            if (rowless) {
+                for (String path : selection.getColumns()) {
+                    addColumn(node(RecordSelection.splitPath(path)));
+                }
+            }
+            root.freeze();
+            
+            if (root.partial) {
+                // Columns follow the order of the selection, then first-seen order within each selected field
+                columns.sort(Comparator.comparingInt(Node::getSelectionRank));
+            }
+            String[] headers = new String[columns.size()];
+            for (int i = 0; i < headers.length; i++) {
+                columns.get(i).column = i;
+                headers[i] = columns.get(i).path();
+            }
+            return new ColumnPlan(root, headers, valueFormatter, selection, rowless);
+        }
+        
+        /**
+         * Adds the fields of a parsed object below a node.
+         * 
+         * @param node schema node of the object
+         * @param object the object's fields
+         */
+        @SuppressWarnings("unchecked")
+        private void collectObject(Node node, Map<String, Object> object) {
+            for (Map.Entry<String, Object> entry : object.entrySet()) {
+                Node child = node.collectedChild(entry.getKey());
+                if (child == null) {
+                    continue;
+                }
+                if (entry.getValue() instanceof Map) {
+                    collectObject(child, (Map<String, Object>) entry.getValue());
+                } else if (!child.partial) {
+                    addColumn(child);
+                }
+            }
+        }
+        
+        /**
+         * Adds the fields of the object the parser is positioned on below a node.
+         * With conditions, the fields wait in the pending columns until the record is accepted.
+         * 
+         * @param node schema node of the object
+         * @param parser parser positioned on the object's START_OBJECT token
+         * @param matched bits of the conditions met so far by the record
+         * @return bits of the conditions met once the object has been read
+         * @throws IOException if the object cannot be read or is malformed
+         */
+        private long collectObject(Node node, JsonParser parser, long matched) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.collectedChild(parser.getCurrentName());
+                JsonToken token = parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (child.conditionBits != 0) {
+                    matched = child.match(conditions, parser, token, matched);
+                }
+                
+                if (token == JsonToken.START_OBJECT) {
+                    matched = collectObject(child, parser, matched);
+                    continue;
+                }
+                if (!child.partial && child.column < 0) {
+                    if (conditions.length == 0) {
+                        addColumn(child);
+                    } else {
+                        pendingColumns.add(child);
+                    }
+                }
+                parser.skipChildren();
+            }
+            return matched;
+        }
+        
+        /**
+         * Reads the fields of the object the parser is positioned on below a node into
+         * the fields and cells of the current row, without adding them as columns yet.
+         * 
+         * @param node schema node of the object
+         * @param parser parser positioned on the object's START_OBJECT token
+         * @param valueFormatter formatter used for cell values
+         * @param matched bits of the conditions met so far by the record
+         * @return bits of the conditions met once the object has been read
+         * @throws IOException if the object cannot be read or is malformed
+         */
+        private long collectRowObject(Node node, JsonParser parser, ValueFormatter valueFormatter, long matched)
+                throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.collectedChild(parser.getCurrentName());
+                JsonToken token = parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (child.conditionBits != 0) {
+                    matched = child.match(conditions, parser, token, matched);
+                }
+                
+                if (token == JsonToken.START_OBJECT) {
+                    matched = collectRowObject(child, parser, valueFormatter, matched);
+                } else if (child.partial) {
+                    parser.skipChildren();
+                } else {
+                    rowFields.add(child);
+                    rowCells.add(readCell(parser, token, valueFormatter));
+                }
+            }
+            return matched;
+        }
+        
+        /**
+         * Adds the fields of the object the parser is positioned on below a node,
+         * measuring the nesting of its values.
+         * 
+         * @param node schema node of the object
+         * @param parser parser positioned on the object's START_OBJECT token
+         * @param depth nesting depth of the object
+         * @return the deepest nesting reached inside the object
+         * @throws IOException if the object cannot be read or is malformed
+         */
+        private int collectObjectMeasured(Node node, JsonParser parser, int depth) throws IOException {
+            int maxDepth = depth;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                Node child = node.child(parser.getCurrentName());
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT) {
+                    maxDepth = Math.max(maxDepth, collectObjectMeasured(child, parser, depth + 1));
+                } else {
+                    addColumn(child);
+                    if (token == JsonToken.START_ARRAY) {
+                        maxDepth = Math.max(maxDepth, JsonFileValidator.skipMeasured(parser, depth + 1));
+                    }
+                }
+            }
+            return maxDepth;
+        }
+        
+        /**
+         * Makes a node a column if it is not one yet.
+         * 
+         * @param node the field node
+         */
+        private void addColumn(Node node) {
+            if (node.column < 0) {
+                node.column = columns.size();
+                columns.add(node);
+            }
+        }
+        
+        /**
+         * Finds or creates the node of a field path.
+         * 
+         * @param path the field names from the outermost
+         * @return the node of the last field
+         */
+        private Node node(String[] path) {
+            Node node = root;
+            for (String name : path) {
+                node = node.child(name);
+            }
+            return node;
+        }
+        
+        /**
+         * Finds or creates the node of this builder with the same path as a node of another builder.
+         * 
+         * @param foreign node of another builder
+         * @return the matching node of this builder
+         */
+        private Node resolve(Node foreign) {
+            return foreign.parent == null ? root : resolve(foreign.parent).child(foreign.name);
+        }
+        
+        /**
+         * Rejects changes once the plan has been compiled.
+         */
+        private void checkNotBuilt() {
+            if (built) {
+                throw new IllegalStateException("Column plan has already been built");
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,442 @@
+package com.scientific.dataintegration.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity batch of records stored column by column.
+ * Numbers and booleans are kept in primitive arrays and every column has a bitmap
+ * telling which rows hold a value, so a batch of records costs a few bytes per cell
+ * instead of a boxed value inside a Map entry. A batch is filled straight from the
+ * parser by a {@link ColumnPlan}, encoded, then cleared and refilled, so its arrays
+ * are allocated once per conversion rather than once per record.
+ * 
+ * <p>Each column takes the type of the first value it receives in the batch. A value
+ * of another type turns the column into a text column, converting the values already
+ * stored with the same formatting the row-based conversion uses, so the CSV output
+ * does not depend on how records were grouped into batches.</p>
+ * 
+ * <p>Text columns can be given a bounded {@link StringDictionary}: cells holding a
+ * value already seen in the column share a single String, and the encoder reuses
+ * the CSV bytes it produced for that value the first time. Dictionaries outlive
+ * {@link #clear()}, so they cover the whole conversion.</p>
+ * 
+ * <p>A batch is not thread-safe.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class ColumnarBatch {
+    
+    /** Number of rows per batch used by the conversion paths. */
+    static final int DEFAULT_CAPACITY = 1024;
+    
+    /**
+     * Storage type of a column within a batch.
+     */
+    public enum ColumnType {
+        /** No value received yet. */
+        EMPTY,
+        /** Integral numbers stored as {@code long}. */
+        LONG,
+        /** Floating point numbers stored as {@code double}. */
+        DOUBLE,
+        /** Booleans stored as {@code boolean}. */
+        BOOLEAN,
+        /** Any other value, stored as its formatted text. */
+        STRING
+    }
+    
+    private final ValueFormatter valueFormatter;
+    private final int capacity;
+    private final ColumnType[] types;
+    private final long[][] presence;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final boolean[][] booleans;
+    private final String[][] strings;
+    private final StringDictionary[] dictionaries;
+    private final StringDictionary.Entry[][] entries;
+    private int size;
+    
+    /**
+     * Constructs a new, empty ColumnarBatch.
+     * 
+     * @param columnCount number of columns
+     * @param capacity maximum number of rows
+     * @param valueFormatter formatter used when a column is converted to text
+     * @param dictionarySize maximum entries of the dictionary of each column, 0 for no dictionaries
+     */
+    ColumnarBatch(int columnCount, int capacity, ValueFormatter valueFormatter, int dictionarySize) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Batch capacity must be at least 1: " + capacity);
+        }
+        this.valueFormatter = valueFormatter;
+        this.capacity = capacity;
+        this.types = new ColumnType[columnCount];
+        this.presence = new long[columnCount][(capacity + 63) >>> 6];
+        this.longs = new long[columnCount][];
+        this.doubles = new double[columnCount][];
+        this.booleans = new boolean[columnCount][];
+        this.strings = new String[columnCount][];
+        this.dictionaries = new StringDictionary[columnCount];
+        this.entries = new StringDictionary.Entry[columnCount][];
+        Arrays.fill(types, ColumnType.EMPTY);
+        if (dictionarySize > 0) {
+            for (int column = 0; column < columnCount; column++) {
+                dictionaries[column] = new StringDictionary(dictionarySize);
+            }
+        }
+    }
+    
+    /**
+     * Gets the number of complete rows in the batch.
+     * 
+     * @return the row count
+     */
+    public int getSize() {
+        return size;
+    }
+    
+    /**
+     * Gets the maximum number of rows.
+     * 
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Gets the number of columns.
+     * 
+     * @return the column count
+     */
+    public int getColumnCount() {
+        return types.length;
+    }
+    
+    /**
+     * Checks whether the batch cannot take another row.
+     * 
+     * @return true if the batch holds {@link #getCapacity()} rows
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+    
+    /**
+     * Gets the storage type of a column.
+     * 
+     * @param column the column index
+     * @return the column type for this batch
+     */
+    public ColumnType getType(int column) {
+        return types[column];
+    }
+    
+    /**
+     * Checks whether a cell holds a value. Missing fields and JSON nulls have none.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return true if the cell has a value
+     */
+    public boolean isPresent(int column, int row) {
+        return (presence[column][row >>> 6] & (1L << row)) != 0;
+    }
+    
+    /**
+     * Gets the value of a cell of a {@link ColumnType#LONG} column.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the value
+     */
+    public long getLong(int column, int row) {
+        return longs[column][row];
+    }
+    
+    /**
+     * Gets the value of a cell of a {@link ColumnType#DOUBLE} column.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the value
+     */
+    public double getDouble(int column, int row) {
+        return doubles[column][row];
+    }
+    
+    /**
+     * Gets the value of a cell of a {@link ColumnType#BOOLEAN} column.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the value
+     */
+    public boolean getBoolean(int column, int row) {
+        return booleans[column][row];
+    }
+    
+    /**
+     * Gets the CSV text of a cell, whatever the column type.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the formatted value, empty if the cell has no value
+     */
+    public String getText(int column, int row) {
+        if (!isPresent(column, row)) {
+            return "";
+        }
+        switch (types[column]) {
+            case LONG:
+                return Long.toString(longs[column][row]);
+            case DOUBLE:
+                return valueFormatter.formatDouble(doubles[column][row]);
+            case BOOLEAN:
+                return booleans[column][row] ? "true" : "false";
+            default:
+                return strings[column][row];
+        }
+    }
+    
+    /**
+     * Gets the dictionary entry of a cell of a {@link ColumnType#STRING} column.
+     * 
+     * @param column the column index
+     * @param row the row index
+     * @return the shared entry of the cell's value, or null if the value has none
+     */
+    StringDictionary.Entry getEntry(int column, int row) {
+        return entries[column] == null ? null : entries[column][row];
+    }
+    
+    /**
+     * Gets the dictionary of a column if it is still in use.
+     * 
+     * @param column the column index
+     * @return the active dictionary, or null if the column does not use one
+     */
+    StringDictionary getDictionary(int column) {
+        StringDictionary dictionary = dictionaries[column];
+        return dictionary != null && dictionary.isActive() ? dictionary : null;
+    }
+    
+    /**
+     * Gets the formatter used for the text of this batch's cells.
+     * 
+     * @return the value formatter
+     */
+    ValueFormatter getValueFormatter() {
+        return valueFormatter;
+    }
+    
+    /**
+     * Stores an integral number in the row being filled.
+     * 
+     * @param column the column index
+     * @param value the value
+     */
+    void setLong(int column, long value) {
+        if (prepare(column, ColumnType.LONG)) {
+            longs[column][size] = value;
+        } else {
+            strings[column][size] = Long.toString(value);
+        }
+        markPresent(column);
+    }
+    
+    /**
+     * Stores a floating point number in the row being filled.
+     * 
+     * @param column the column index
+     * @param value the value
+     */
+    void setDouble(int column, double value) {
+        if (prepare(column, ColumnType.DOUBLE)) {
+            doubles[column][size] = value;
+        } else {
+            strings[column][size] = valueFormatter.formatDouble(value);
+        }
+        markPresent(column);
+    }
+    
+    /**
+     * Stores a boolean in the row being filled.
+     * 
+     * @param column the column index
+     * @param value the value
+     */
+    void setBoolean(int column, boolean value) {
+        if (prepare(column, ColumnType.BOOLEAN)) {
+            booleans[column][size] = value;
+        } else {
+            strings[column][size] = value ? "true" : "false";
+        }
+        markPresent(column);
+    }
+    
+    /**
+     * Stores already formatted text in the row being filled.
+     * 
+     * @param column the column index
+     * @param value the text
+     */
+    void setString(int column, String value) {
+        prepare(column, ColumnType.STRING);
+        strings[column][size] = value;
+        if (entries[column] != null) {
+            entries[column][size] = null;
+        }
+        markPresent(column);
+    }
+    
+    /**
+     * Stores a text value taken from the column's dictionary in the row being filled.
+     * 
+     * @param column the column index
+     * @param entry the dictionary entry of the value
+     */
+    void setEntry(int column, StringDictionary.Entry entry) {
+        prepare(column, ColumnType.STRING);
+        if (entries[column] == null) {
+            entries[column] = new StringDictionary.Entry[capacity];
+        }
+        strings[column][size] = entry.getValue();
+        entries[column][size] = entry;
+        markPresent(column);
+    }
+    
+    /**
+     * Clears a cell of the row being filled, as for a JSON null.
+     * 
+     * @param column the column index
+     */
+    void setNull(int column) {
+        presence[column][size >>> 6] &= ~(1L << size);
+    }
+    
+    /**
+     * Completes the row being filled.
+     */
+    void endRow() {
+        if (isFull()) {
+            throw new IllegalStateException("Batch is full");
+        }
+        size++;
+    }
+    
+    /**
+     * Abandons the row being filled, clearing the cells stored in it so far.
+     */
+    void discardRow() {
+        for (int column = 0; column < types.length; column++) {
+            if (types[column] != ColumnType.EMPTY) {
+                presence[column][size >>> 6] &= ~(1L << size);
+                if (strings[column] != null) {
+                    strings[column][size] = null;
+                }
+                if (entries[column] != null) {
+                    entries[column][size] = null;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes all rows, keeping the column arrays for reuse.
+     */
+    public void clear() {
+        for (int column = 0; column < types.length; column++) {
+            if (types[column] != ColumnType.EMPTY) {
+                Arrays.fill(presence[column], 0L);
+                if (strings[column] != null) {
+                    Arrays.fill(strings[column], 0, size, null);
+                }
+                if (entries[column] != null) {
+                    Arrays.fill(entries[column], 0, size, null);
+                }
+                types[column] = ColumnType.EMPTY;
+            }
+        }
+        size = 0;
+    }
+    
+    /**
+     * Makes a column ready to receive a value of the given type.
+     * 
+     * @param column the column index
+     * @param type type of the incoming value
+     * @return true if the value can be stored with its own type, false if it
+     *         must be stored as text because the column already holds another type
+     */
+    private boolean prepare(int column, ColumnType type) {
+        ColumnType current = types[column];
+        if (current == type) {
+            return true;
+        }
+        if (current == ColumnType.EMPTY) {
+            allocate(column, type);
+            types[column] = type;
+            return true;
+        }
+        if (current != ColumnType.STRING) {
+            convertToText(column);
+        }
+        return false;
+    }
+    
+    /**
+     * Converts the values stored so far in a column, including the row being filled, to text.
+     * 
+     * @param column the column index
+     */
+    private void convertToText(int column) {
+        allocate(column, ColumnType.STRING);
+        String[] text = strings[column];
+        for (int row = 0; row <= size && row < capacity; row++) {
+            text[row] = isPresent(column, row) ? getText(column, row) : null;
+        }
+        types[column] = ColumnType.STRING;
+    }
+    
+    /**
+     * Allocates the value array of a column for a type unless it exists from a previous use.
+     * 
+     * @param column the column index
+     * @param type the column type
+     */
+    private void allocate(int column, ColumnType type) {
+        switch (type) {
+            case LONG:
+                if (longs[column] == null) {
+                    longs[column] = new long[capacity];
+                }
+                break;
+            case DOUBLE:
+                if (doubles[column] == null) {
+                    doubles[column] = new double[capacity];
+                }
+                break;
+            case BOOLEAN:
+                if (booleans[column] == null) {
+                    booleans[column] = new boolean[capacity];
+                }
+                break;
+            default:
+                if (strings[column] == null) {
+                    strings[column] = new String[capacity];
+                }
+        }
+    }
+    
+    /**
+     * Marks the cell of the row being filled as holding a value.
+     * 
+     * @param column the column index
+     */
+    private void markPresent(int column) {
+        presence[column][size >>> 6] |= 1L << size;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.scientific.dataintegration.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning one JSON to CSV conversion.
+ * Enabled by default whenever a recording is running, for example with
+ * {@code -XX:StartFlightRecording}; committing it costs nothing otherwise.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@Name("com.scientific.dataintegration.Conversion")
+@Label("JSON to CSV Conversion")
+@Category("Scientific Data Integration")
+@Description("Conversion of one JSON file into a CSV file")
+final class ConversionEvent extends jdk.jfr.Event {
+    
+    @Label("Input File")
+    String inputFile;
+    
+    @Label("Output File")
+    String outputFile;
+    
+    @Label("Mode")
+    @Description("Conversion path: memory, streaming or parallel")
+    String mode;
+    
+    @Label("Records")
+    long records;
+    
+    @Label("Bytes In")
+    @DataAmount
+    long bytesIn;
+    
+    @Label("Bytes Out")
+    @DataAmount
+    long bytesOut;
+    
+    @Label("Peak Heap")
+    @Description("Highest heap usage of the JVM sampled during the conversion")
+    @DataAmount
+    long peakHeap;
+}
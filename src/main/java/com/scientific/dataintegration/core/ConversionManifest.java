@@ -0,0 +1,328 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Record of the inputs converted into an output directory, used to skip inputs
+ * that have not changed since the previous batch run.
+ * 
+ * <p>For every input the manifest keeps its size, modification time and the name of
+ * the CSV file written for it, together with the settings fingerprint of the
+ * converter. An input whose size and modification time are unchanged is skipped
+ * without being read. When only the modification time changed, the CRC-32C content
+ * hash decides: it is computed at that point only, so converting an input never
+ * costs an extra read of it, and it is kept with the entry once the input has been
+ * converted or found unchanged. A touched input whose entry has no hash yet is
+ * converted again. A different settings fingerprint invalidates the whole
+ * manifest.</p>
+ * 
+ * <p>The manifest is saved to a temporary file that then replaces the previous
+ * manifest in a single atomic move, so an interrupted run never leaves a partly
+ * written manifest behind. Entries can be updated from several threads.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class ConversionManifest {
+    
+    private static final Logger LOGGER = Logger.getLogger(ConversionManifest.class.getName());
+    
+    /** Name of the manifest file inside the output directory. */
+    public static final String FILE_NAME = ".conversion-manifest.json";
+    
+    private static final int MANIFEST_VERSION = 1;
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MANIFEST_TYPE =
+            new TypeReference<Map<String, Object>>() {};
+    
+    private final Path manifestFile;
+    private final String settingsFingerprint;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Entry> hashedStates = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructs a new, empty ConversionManifest.
+     * 
+     * @param manifestFile path of the manifest file
+     * @param settingsFingerprint fingerprint of the converter settings
+     */
+    private ConversionManifest(Path manifestFile, String settingsFingerprint) {
+        this.manifestFile = manifestFile;
+        this.settingsFingerprint = settingsFingerprint;
+    }
+    
+    /**
+     * Loads the manifest of an output directory. A missing, unreadable or
+     * outdated manifest yields an empty one, so every input is converted.
+     * 
+     * @param outputDir the output directory
+     * @param settingsFingerprint fingerprint of the converter settings of this run
+     * @return the manifest
+     */
+    public static ConversionManifest load(Path outputDir, String settingsFingerprint) {
+        ConversionManifest manifest = new ConversionManifest(outputDir.resolve(FILE_NAME), settingsFingerprint);
+        if (!Files.isRegularFile(manifest.manifestFile)) {
+            return manifest;
+        }
+        
+        try {
+            Map<String, Object> content = MAPPER.readValue(manifest.manifestFile.toFile(), MANIFEST_TYPE);
+            Object version = content.get("version");
+            if (!(version instanceof Number) || ((Number) version).intValue() != MANIFEST_VERSION) {
+                LOGGER.info("Ignoring manifest with unsupported version: " + manifest.manifestFile);
+                return manifest;
+            }
+            if (!settingsFingerprint.equals(content.get("settings"))) {
+                LOGGER.info("Conversion settings changed since the last run, converting all files");
+                return manifest;
+            }
+            
+            Object files = content.get("files");
+            if (files instanceof Map) {
+                for (Map.Entry<?, ?> file : ((Map<?, ?>) files).entrySet()) {
+                    Entry entry = Entry.fromMap(file.getValue());
+                    if (entry != null) {
+                        manifest.entries.put(String.valueOf(file.getKey()), entry);
+                    }
+                }
+            }
+            LOGGER.info("Loaded manifest with " + manifest.entries.size() + " entries: " + manifest.manifestFile);
+        
+        } catch (IOException e) {
+            LOGGER.warning("Ignoring unreadable manifest " + manifest.manifestFile + ": " + e.getMessage());
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+    
+    /**
+     * Gets the number of inputs recorded.
+     * 
+     * @return the entry count
+     */
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Checks whether an input was already converted to the given output and has not changed since.
+     * When the input was only touched, its new modification time is recorded.
+     * 
+     * @param inputFile the input file
+     * @param outputFile the CSV file the input would be converted to
+     * @return true if the conversion can be skipped
+     * @throws IOException if the input cannot be read
+     */
+    public boolean isUpToDate(Path inputFile, Path outputFile) throws IOException {
+        String key = inputFile.getFileName().toString();
+        Entry entry = entries.get(key);
+        if (entry == null || !entry.outputFile.equals(outputFile.getFileName().toString())
+                || !Files.isRegularFile(outputFile)) {
+            return false;
+        }
+        
+        long size = Files.size(inputFile);
+        long lastModified = Files.getLastModifiedTime(inputFile).toMillis();
+        if (size != entry.size) {
+            return false;
+        }
+        if (lastModified == entry.lastModified) {
+            return true;
+        }
+        
+        String hash = hash(inputFile);
+        if (!hash.equals(entry.hash)) {
+            // Kept for the snapshot of the conversion that follows
+            hashedStates.put(key, new Entry(size, lastModified, hash, entry.outputFile));
+            return false;
+        }
+        entries.put(key, new Entry(size, lastModified, hash, entry.outputFile));
+        return true;
+    }
+    
+    /**
+     * Captures the current state of an input about to be converted.
+     * The state is taken before the conversion so that a file modified while
+     * it is being converted is detected as changed on the next run. The input
+     * is not read: the state only carries a content hash when {@link #isUpToDate}
+     * already computed one for the same size and modification time.
+     * 
+     * @param inputFile the input file
+     * @param outputFile the CSV file the input is converted to
+     * @return the state to {@link #record} once the conversion succeeded
+     * @throws IOException if the attributes of the input cannot be read
+     */
+    public Entry snapshot(Path inputFile, Path outputFile) throws IOException {
+        long size = Files.size(inputFile);
+        long lastModified = Files.getLastModifiedTime(inputFile).toMillis();
+        Entry hashed = hashedStates.remove(inputFile.getFileName().toString());
+        String hash = hashed != null && hashed.size == size && hashed.lastModified == lastModified
+                ? hashed.hash : null;
+        return new Entry(size, lastModified, hash, outputFile.getFileName().toString());
+    }
+    
+    /**
+     * Records a successful conversion.
+     * 
+     * @param inputFile the input file
+     * @param entry the state captured by {@link #snapshot} before the conversion
+     */
+    public void record(Path inputFile, Entry entry) {
+        entries.put(inputFile.getFileName().toString(), entry);
+    }
+    
+    /**
+     * Forgets an input, so that it is converted again on the next run.
+     * 
+     * @param inputFile the input file
+     */
+    public void remove(Path inputFile) {
+        entries.remove(inputFile.getFileName().toString());
+    }
+    
+    /**
+     * Forgets every input that is not among the given file names, such as inputs
+     * deleted since the previous run.
+     * 
+     * @param fileNames names of the current input files
+     */
+    public void retainAll(Collection<String> fileNames) {
+        entries.keySet().retainAll(fileNames);
+    }
+    
+    /**
+     * Writes the manifest to a temporary file and atomically moves it in place.
+     * 
+     * @throws CsvFileException if the manifest cannot be written
+     */
+    public void save() throws CsvFileException {
+        Map<String, Object> files = new TreeMap<>();
+        entries.forEach((name, entry) -> files.put(name, entry.toMap()));
+        
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("version", MANIFEST_VERSION);
+        content.put("settings", settingsFingerprint);
+        content.put("files", files);
+        
+        Path temporaryFile = manifestFile.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(temporaryFile.toFile(), content);
+            try {
+                Files.move(temporaryFile, manifestFile, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, manifestFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            LOGGER.info("Saved manifest with " + files.size() + " entries: " + manifestFile);
+        
+        } catch (IOException e) {
+            throw new CsvFileException("Failed to write conversion manifest: " + manifestFile, e);
+        }
+    }
+    
+    /**
+     * Computes the CRC-32C of a file's content. CRC-32C is computed with
+     * dedicated processor instructions on current hardware, so hashing is
+     * limited by the disk rather than the CPU.
+     * 
+     * @param file the file to hash
+     * @return the checksum as a hexadecimal string
+     * @throws IOException if the file cannot be read
+     */
+    static String hash(Path file) throws IOException {
+        CRC32C checksum = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+        return String.format("%08x", checksum.getValue());
+    }
+    
+    /**
+     * State of an input at the time it was converted.
+     */
+    public static final class Entry {
+        
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final String outputFile;
+        
+        /**
+         * Constructs a new Entry.
+         * 
+         * @param size input size in bytes
+         * @param lastModified input modification time in milliseconds since the epoch
+         * @param hash CRC-32C of the input content, or null if it was not computed
+         * @param outputFile name of the CSV file written for the input
+         */
+        Entry(long size, long lastModified, String hash, String outputFile) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.outputFile = outputFile;
+        }
+        
+        /**
+         * Converts the entry to its JSON representation.
+         * 
+         * @return the entry fields by name
+         */
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("size", size);
+            map.put("lastModified", lastModified);
+            if (hash != null) {
+                map.put("crc32c", hash);
+            }
+            map.put("output", outputFile);
+            return map;
+        }
+        
+        /**
+         * Reads an entry from its JSON representation.
+         * 
+         * @param value the parsed JSON value
+         * @return the entry, or null if the value is not a complete entry
+         */
+        private static Entry fromMap(Object value) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            Map<?, ?> map = (Map<?, ?>) value;
+            Object size = map.get("size");
+            Object lastModified = map.get("lastModified");
+            Object hash = map.get("crc32c");
+            Object outputFile = map.get("output");
+            if (!(size instanceof Number) || !(lastModified instanceof Number)
+                    || (hash != null && !(hash instanceof String)) || !(outputFile instanceof String)) {
+                return null;
+            }
+            return new Entry(((Number) size).longValue(), ((Number) lastModified).longValue(),
+                    (String) hash, (String) outputFile);
+        }
+    }
+}
\ No newline at end of file
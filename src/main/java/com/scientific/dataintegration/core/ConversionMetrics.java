@@ -0,0 +1,447 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Measurements of a single conversion: time spent in each stage, bytes read and
+ * written, record count and the peak heap in use while it ran.
+ * 
+ * <p>A conversion creates its metrics with {@link #start}, the reader, converter and
+ * writer add to them as they go, and {@link #finish} commits them as JDK Flight
+ * Recorder events ({@code com.scientific.dataintegration.Conversion} and
+ * {@code com.scientific.dataintegration.ConversionStage}) when a recording is running
+ * at the start of the conversion. The event classes are not even loaded otherwise,
+ * because defining the first event costs a short run about a quarter of a second.
+ * Stage times are added from
+ * several threads by the parallel conversion, so for that path they are CPU time
+ * summed over the workers and can exceed the elapsed time.</p>
+ * 
+ * <p>The heap figure is sampled at stage and batch boundaries and covers the whole
+ * JVM, so conversions running at the same time see each other's allocations.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class ConversionMetrics {
+    
+    private static final Logger LOGGER = Logger.getLogger(ConversionMetrics.class.getName());
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Object SUMMARY_LOCK = new Object();
+    
+    /**
+     * Stages of a conversion.
+     */
+    public enum Stage {
+        /** Reading JSON tokens into records or batches. */
+        PARSE("parse"),
+        /** Collecting the CSV header from the records. */
+        DISCOVERY("discovery"),
+        /** Turning values into CSV text. */
+        FORMAT("format"),
+        /** Handing encoded bytes to the output file, including compression. */
+        WRITE("write"),
+        /** Sorting and deduplicating rows, including their spill files. */
+        SORT("sort"),
+        /** Computing group aggregates and writing the summary files. */
+        SUMMARY("summary");
+        
+        private final String label;
+        
+        Stage(String label) {
+            this.label = label;
+        }
+        
+        /**
+         * Gets the name of the stage used in logs, events and summaries.
+         * 
+         * @return the lower-case stage name
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    private final String inputFile;
+    private final String outputFile;
+    private final boolean fileOutput;
+    private final Instant startTime;
+    private final long startNanos;
+    private final ConversionEvent event;
+    private final LongAdder[] stageNanos = new LongAdder[Stage.values().length];
+    private final LongAdder recordCount = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAccumulator peakHeap = new LongAccumulator(Math::max, 0L);
+    private volatile String mode = "memory";
+    private volatile long bytesIn;
+    private volatile long bytesOut;
+    private volatile long elapsedNanos = -1L;
+    
+    /**
+     * Constructs a new ConversionMetrics.
+     * 
+     * @param inputFile path of the input JSON file
+     * @param outputFile path of the output CSV file, or name of the output channel
+     * @param fileOutput whether the output is a file whose size can be read at the end
+     */
+    private ConversionMetrics(String inputFile, String outputFile, boolean fileOutput) {
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.fileOutput = fileOutput;
+        this.startTime = Instant.now();
+        this.startNanos = System.nanoTime();
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageNanos[i] = new LongAdder();
+        }
+        this.event = isRecording() ? new ConversionEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+    }
+    
+    /**
+     * Starts measuring a conversion. The input size is read from the file system.
+     * 
+     * @param inputFile path of the input JSON file
+     * @param outputFile path of the output CSV file
+     * @return the metrics of the new conversion
+     */
+    public static ConversionMetrics start(String inputFile, String outputFile) {
+        return start(inputFile, outputFile, true);
+    }
+    
+    /**
+     * Starts measuring a conversion whose output may not be a file.
+     * 
+     * @param inputFile path of the input JSON file
+     * @param outputName path of the output CSV file, or name of the output channel
+     * @param fileOutput false if the output is a channel; its size is then the number
+     *                   of bytes handed to it
+     * @return the metrics of the new conversion
+     */
+    static ConversionMetrics start(String inputFile, String outputName, boolean fileOutput) {
+        ConversionMetrics metrics = new ConversionMetrics(inputFile, outputName, fileOutput);
+        try {
+            metrics.bytesIn = Files.size(Paths.get(inputFile));
+        } catch (IOException | RuntimeException e) {
+            // A missing input is reported by the reader
+        }
+        metrics.sampleHeap();
+        return metrics;
+    }
+    
+    /**
+     * Sets the conversion path that produced the output.
+     * 
+     * @param mode {@code memory}, {@code streaming}, {@code parallel} or {@code merge}
+     */
+    void setMode(String mode) {
+        this.mode = mode;
+    }
+    
+    /**
+     * Sets the input size, for conversions that read several files.
+     * 
+     * @param bytes total size of the inputs in bytes
+     */
+    void setBytesIn(long bytes) {
+        this.bytesIn = bytes;
+    }
+    
+    /**
+     * Adds time spent in a stage.
+     * 
+     * @param stage the stage
+     * @param nanos elapsed time in nanoseconds
+     */
+    void addTime(Stage stage, long nanos) {
+        stageNanos[stage.ordinal()].add(nanos);
+    }
+    
+    /**
+     * Adds time spent in a stage since the given start time and returns the current time,
+     * so consecutive stages can be timed with a single clock read between them.
+     * 
+     * @param stage the stage
+     * @param startNanos value of {@link System#nanoTime()} when the stage started
+     * @return the current value of {@link System#nanoTime()}
+     */
+    long addTimeSince(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()].add(now - startNanos);
+        return now;
+    }
+    
+    /**
+     * Adds converted records.
+     * 
+     * @param records number of records written as rows
+     */
+    void addRecords(long records) {
+        recordCount.add(records);
+    }
+    
+    /**
+     * Adds bytes handed to the output.
+     * 
+     * @param bytes number of bytes
+     */
+    void addBytesWritten(long bytes) {
+        bytesWritten.add(bytes);
+    }
+    
+    /**
+     * Records the heap currently in use if it is the highest seen so far.
+     */
+    void sampleHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        peakHeap.accumulate(runtime.totalMemory() - runtime.freeMemory());
+    }
+    
+    /**
+     * Ends the measurement, commits the Flight Recorder events and logs a one-line summary.
+     * 
+     * @return these metrics
+     */
+    ConversionMetrics finish() {
+        sampleHeap();
+        elapsedNanos = System.nanoTime() - startNanos;
+        bytesOut = bytesWritten.sum();
+        if (fileOutput) {
+            // Files are measured on disk so that compressed output is counted compressed
+            try {
+                bytesOut = Files.size(Paths.get(outputFile));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.fine("Cannot read output size of " + outputFile + ": " + e.getMessage());
+            }
+        }
+        
+        if (event != null) {
+            commitEvents();
+        }
+        
+        LOGGER.info(toString());
+        return this;
+    }
+    
+    /**
+     * Commits the conversion event and one event per stage that took any time.
+     */
+    private void commitEvents() {
+        event.end();
+        if (event.shouldCommit()) {
+            event.inputFile = inputFile;
+            event.outputFile = outputFile;
+            event.mode = mode;
+            event.records = getRecordCount();
+            event.bytesIn = bytesIn;
+            event.bytesOut = bytesOut;
+            event.peakHeap = getPeakHeapBytes();
+            event.commit();
+        }
+        for (Stage stage : Stage.values()) {
+            ConversionStageEvent stageEvent = new ConversionStageEvent();
+            if (stageEvent.isEnabled() && getStageNanos(stage) > 0) {
+                stageEvent.inputFile = inputFile;
+                stageEvent.stage = stage.getLabel();
+                stageEvent.stageTime = getStageNanos(stage);
+                stageEvent.commit();
+            }
+        }
+    }
+    
+    /**
+     * Checks whether a Flight Recorder recording exists in this JVM.
+     * 
+     * @return true if Flight Recorder has been started and holds at least one recording
+     */
+    private static boolean isRecording() {
+        return FlightRecorder.isInitialized() && !FlightRecorder.getFlightRecorder().getRecordings().isEmpty();
+    }
+    
+    /**
+     * Gets the path of the input JSON file.
+     * 
+     * @return the input file path
+     */
+    public String getInputFile() {
+        return inputFile;
+    }
+    
+    /**
+     * Gets the path of the output CSV file.
+     * 
+     * @return the output file path
+     */
+    public String getOutputFile() {
+        return outputFile;
+    }
+    
+    /**
+     * Gets the conversion path that produced the output.
+     * 
+     * @return {@code memory}, {@code streaming} or {@code parallel}
+     */
+    public String getMode() {
+        return mode;
+    }
+    
+    /**
+     * Gets the time spent in a stage.
+     * 
+     * @param stage the stage
+     * @return the stage time in nanoseconds
+     */
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()].sum();
+    }
+    
+    /**
+     * Gets the wall-clock duration of the conversion.
+     * 
+     * @return elapsed time in nanoseconds, up to now if the conversion has not finished
+     */
+    public long getElapsedNanos() {
+        long elapsed = elapsedNanos;
+        return elapsed >= 0 ? elapsed : System.nanoTime() - startNanos;
+    }
+    
+    /**
+     * Gets the number of records written as rows.
+     * 
+     * @return the record count
+     */
+    public long getRecordCount() {
+        return recordCount.sum();
+    }
+    
+    /**
+     * Gets the size of the input file on disk.
+     * 
+     * @return input size in bytes, compressed if the input is compressed
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+    
+    /**
+     * Gets the number of bytes written to the output file.
+     * 
+     * @return output size in bytes, compressed if the output is compressed
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+    
+    /**
+     * Gets the conversion throughput.
+     * 
+     * @return records converted per second of elapsed time
+     */
+    public double getRecordsPerSecond() {
+        long elapsed = getElapsedNanos();
+        return elapsed > 0 ? getRecordCount() * 1e9 / elapsed : 0.0;
+    }
+    
+    /**
+     * Gets the highest heap usage sampled during the conversion.
+     * 
+     * @return heap in use in bytes
+     */
+    public long getPeakHeapBytes() {
+        return peakHeap.get();
+    }
+    
+    /**
+     * Appends one JSON line per conversion to a metrics file, creating it if needed.
+     * Appending keeps the history of earlier runs, so the file can be used to track
+     * batch jobs over time. Concurrent callers within the JVM do not interleave lines.
+     * 
+     * @param summaryFile path of the JSON Lines metrics file
+     * @param conversions the conversions to record
+     * @throws IOException if the file cannot be written
+     */
+    public static void appendSummary(Path summaryFile, Collection<ConversionMetrics> conversions)
+            throws IOException {
+        Path parent = summaryFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        
+        synchronized (SUMMARY_LOCK) {
+            try (OutputStream output = Files.newOutputStream(summaryFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+                generator.setRootValueSeparator(null);
+                for (ConversionMetrics metrics : conversions) {
+                    metrics.writeJson(generator);
+                    generator.writeRaw('\n');
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes these metrics as a single JSON object.
+     * 
+     * @param generator the JSON output
+     * @throws IOException if the object cannot be written
+     */
+    private void writeJson(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("timestamp", startTime.toString());
+        generator.writeStringField("input", inputFile);
+        generator.writeStringField("output", outputFile);
+        generator.writeStringField("mode", mode);
+        generator.writeNumberField("elapsedMillis", toMillis(getElapsedNanos()));
+        generator.writeNumberField("records", getRecordCount());
+        generator.writeNumberField("recordsPerSecond", Math.round(getRecordsPerSecond()));
+        generator.writeNumberField("bytesIn", bytesIn);
+        generator.writeNumberField("bytesOut", bytesOut);
+        generator.writeNumberField("peakHeapBytes", getPeakHeapBytes());
+        generator.writeObjectFieldStart("stageMillis");
+        for (Stage stage : Stage.values()) {
+            generator.writeNumberField(stage.getLabel(), toMillis(getStageNanos(stage)));
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+    
+    /**
+     * Converts nanoseconds to milliseconds rounded to three decimals.
+     * 
+     * @param nanos a duration in nanoseconds
+     * @return the duration in milliseconds
+     */
+    private static double toMillis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "Conversion metrics for %s (%s): %d records in %.1f ms (%.0f records/s), %d bytes in, %d bytes out, peak heap %d MB",
+                inputFile, mode, getRecordCount(), toMillis(getElapsedNanos()), getRecordsPerSecond(),
+                bytesIn, bytesOut, getPeakHeapBytes() / (1024 * 1024)));
+        for (Stage stage : Stage.values()) {
+            summary.append(String.format(Locale.ROOT, ", %s %.1f ms", stage.getLabel(), toMillis(getStageNanos(stage))));
+        }
+        return summary.toString();
+    }
+}
\ No newline at end of file
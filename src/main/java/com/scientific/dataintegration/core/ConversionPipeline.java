@@ -0,0 +1,405 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the stages of a streaming conversion on separate threads, so that reading
+ * the input, turning rows into CSV bytes and writing them overlap.
+ * 
+ * <p>The calling thread parses records into batches and hands them on. When the
+ * output is an {@link EncodedRowWriter}, an encoder thread turns the batches into CSV bytes
+ * and a writer thread writes them; otherwise the writer thread passes the batches
+ * to the output as they are. A fixed set of batches and byte buffers circulates
+ * through bounded queues: each one goes back to its pool once the next stage is
+ * done with it, so a stage that falls behind makes the ones before it wait, and
+ * nothing is allocated per batch once the pipeline is full.</p>
+ * 
+ * <p>With a depth of 0, there are no threads: each batch is written by the calling
+ * thread as it is submitted, which suits inputs too small to gain from overlap.</p>
+ * 
+ * <p>The first failure of the encoder or writer is rethrown on the calling thread
+ * by the next {@link #takeBatch()} or {@link #submit(ColumnarBatch)}. After a
+ * failure, or when the pipeline is closed early, the stages only return what they
+ * receive to the pools, so no thread is left waiting.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class ConversionPipeline implements AutoCloseable {
+    
+    /** Encoded bytes handed to the writer at once; the last block of an output may be smaller. */
+    private static final int BLOCK_SIZE = 128 * 1024;
+    /** Queued after the last batch or block. */
+    private static final Object END = new Object();
+    
+    private final ColumnPlan plan;
+    private final int dictionarySize;
+    private final int depth;
+    private final CsvRowWriter rowWriter;
+    /** The output when it takes encoded rows, null when it takes batches. */
+    private final EncodedRowWriter encodedWriter;
+    private final ConversionMetrics metrics;
+    private final BlockingQueue<ColumnarBatch> freeBatches;
+    private final BlockingQueue<Object> filledBatches;
+    private final BlockingQueue<CsvEncoder> freeBlocks;
+    private final BlockingQueue<Object> filledBlocks;
+    private final List<Future<?>> stages = new ArrayList<>();
+    /** Runs the encoder and writer stages; null when every stage runs on the calling thread. */
+    private final ExecutorService executor;
+    private final AtomicReference<CsvFileException> failure = new AtomicReference<>();
+    private volatile boolean abandoned;
+    private int createdBatches;
+    private boolean ended;
+    
+    /**
+     * Constructs a new ConversionPipeline whose writer thread hands the batches to the output
+     * as they are, and starts that thread.
+     * 
+     * @param plan the plan filling the batches
+     * @param dictionarySize maximum distinct values kept per text column of a batch, 0 to disable
+     * @param depth number of batches in circulation; 0 to write each batch on the calling thread
+     * @param rowWriter the output
+     * @param metrics metrics of the running conversion
+     */
+    ConversionPipeline(ColumnPlan plan, int dictionarySize, int depth, CsvRowWriter rowWriter,
+            ConversionMetrics metrics) {
+        this(plan, dictionarySize, depth, rowWriter, null, null, metrics);
+    }
+    
+    /**
+     * Constructs a new ConversionPipeline that encodes the batches on an encoder thread
+     * before a writer thread writes the bytes, and starts both threads.
+     * 
+     * @param plan the plan filling the batches
+     * @param dictionarySize maximum distinct values kept per text column of a batch, 0 to disable
+     * @param depth number of batches, and of encoded blocks, in circulation;
+     *              0 to write each batch on the calling thread
+     * @param rowWriter the output
+     * @param csvWriter creates the encoders, in the format of the output
+     * @param metrics metrics of the running conversion
+     */
+    ConversionPipeline(ColumnPlan plan, int dictionarySize, int depth, EncodedRowWriter rowWriter,
+            CsvFileWriter csvWriter, ConversionMetrics metrics) {
+        this(plan, dictionarySize, depth, rowWriter, rowWriter, csvWriter, metrics);
+    }
+    
+    /**
+     * Constructs a new ConversionPipeline and starts its threads.
+     * 
+     * @param plan the plan filling the batches
+     * @param dictionarySize maximum distinct values kept per text column of a batch, 0 to disable
+     * @param depth number of batches, and of encoded blocks, in circulation
+     * @param rowWriter the output
+     * @param encodedWriter the output if it receives encoded rows, or null
+     * @param csvWriter creates the encoders, or null without an encoded output
+     * @param metrics metrics of the running conversion
+     */
+    private ConversionPipeline(ColumnPlan plan, int dictionarySize, int depth, CsvRowWriter rowWriter,
+            EncodedRowWriter encodedWriter, CsvFileWriter csvWriter, ConversionMetrics metrics) {
+        this.plan = plan;
+        this.dictionarySize = dictionarySize;
+        this.depth = Math.max(1, depth);
+        this.rowWriter = rowWriter;
+        this.encodedWriter = encodedWriter;
+        this.metrics = metrics;
+        this.freeBatches = new ArrayBlockingQueue<>(this.depth);
+        // One more slot than there are batches, so the end marker always fits
+        this.filledBatches = new ArrayBlockingQueue<>(this.depth + 1);
+        
+        if (depth <= 0) {
+            this.freeBlocks = null;
+            this.filledBlocks = null;
+            this.executor = null;
+        } else if (encodedWriter == null) {
+            this.freeBlocks = null;
+            this.filledBlocks = null;
+            this.executor = Executors.newSingleThreadExecutor();
+            stages.add(executor.submit(this::runBatchWriter));
+        } else {
+            this.freeBlocks = new ArrayBlockingQueue<>(this.depth);
+            this.filledBlocks = new ArrayBlockingQueue<>(this.depth + 1);
+            for (int i = 0; i < this.depth; i++) {
+                freeBlocks.add(csvWriter.newEncoder(BLOCK_SIZE + BLOCK_SIZE / 4));
+            }
+            this.executor = Executors.newFixedThreadPool(2);
+            stages.add(executor.submit(this::runEncoder));
+            stages.add(executor.submit(this::runBlockWriter));
+        }
+    }
+    
+    /**
+     * Takes an empty batch to fill, waiting while every batch is still in a later stage.
+     * 
+     * @return an empty batch created by the plan
+     * @throws CsvFileException if a later stage failed, or if interrupted while waiting
+     */
+    ColumnarBatch takeBatch() throws CsvFileException {
+        checkFailure();
+        ColumnarBatch batch = freeBatches.poll();
+        if (batch == null) {
+            if (createdBatches < depth) {
+                createdBatches++;
+                return plan.newBatch(ColumnarBatch.DEFAULT_CAPACITY, dictionarySize);
+            }
+            batch = take(freeBatches);
+            checkFailure();
+        }
+        return batch;
+    }
+    
+    /**
+     * Hands a filled batch to the next stage. The batch must not be used afterwards.
+     * 
+     * @param batch a batch taken from this pipeline
+     * @throws CsvFileException if a later stage failed, or if interrupted while waiting
+     */
+    void submit(ColumnarBatch batch) throws CsvFileException {
+        if (executor == null) {
+            rowWriter.writeBatch(batch);
+            batch.clear();
+            freeBatches.add(batch);
+            return;
+        }
+        checkFailure();
+        put(filledBatches, batch);
+    }
+    
+    /**
+     * Waits until every submitted batch has been written to the output and stops the threads.
+     * 
+     * @throws CsvFileException if a later stage failed, or if interrupted while waiting
+     */
+    void finish() throws CsvFileException {
+        ended = true;
+        if (executor == null) {
+            return;
+        }
+        put(filledBatches, END);
+        awaitStages();
+        checkFailure();
+    }
+    
+    /**
+     * Stops the threads. Batches not written yet are dropped when {@link #finish()} was
+     * not called, which is how a conversion that failed while reading gives up its output.
+     */
+    @Override
+    public void close() {
+        if (executor == null) {
+            return;
+        }
+        if (!ended) {
+            ended = true;
+            abandoned = true;
+            filledBatches.offer(END);
+            try {
+                awaitStages();
+            } catch (CsvFileException e) {
+                // Reading already failed; that failure is the one reported
+            }
+        }
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Encoder stage: turns batches into CSV bytes, handing a block to the writer
+     * once it holds {@value #BLOCK_SIZE} bytes.
+     * 
+     * @return always null
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private Void runEncoder() throws InterruptedException {
+        CsvEncoder block = null;
+        long blockRows = 0;
+        while (true) {
+            Object item = filledBatches.take();
+            if (item == END) {
+                if (block != null) {
+                    filledBlocks.put(new EncodedBlock(block, blockRows));
+                }
+                filledBlocks.put(END);
+                return null;
+            }
+            
+            ColumnarBatch batch = (ColumnarBatch) item;
+            if (isRunning()) {
+                try {
+                    if (block == null) {
+                        block = freeBlocks.take();
+                        blockRows = 0;
+                    }
+                    long start = System.nanoTime();
+                    block.encodeBatch(batch, plan.getColumnCount());
+                    metrics.addTimeSince(ConversionMetrics.Stage.FORMAT, start);
+                    blockRows += batch.getSize();
+                    if (block.size() >= BLOCK_SIZE) {
+                        filledBlocks.put(new EncodedBlock(block, blockRows));
+                        block = null;
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, new CsvFileException("Failed to encode CSV rows", e));
+                }
+            }
+            batch.clear();
+            freeBatches.put(batch);
+        }
+    }
+    
+    /**
+     * Writer stage for encoded rows: writes the blocks of the encoder stage in order.
+     * 
+     * @return always null
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private Void runBlockWriter() throws InterruptedException {
+        while (true) {
+            Object item = filledBlocks.take();
+            if (item == END) {
+                return null;
+            }
+            
+            EncodedBlock block = (EncodedBlock) item;
+            if (isRunning()) {
+                try {
+                    encodedWriter.writeEncoded(block.encoder.array(), block.encoder.size(), block.rows);
+                } catch (CsvFileException e) {
+                    failure.compareAndSet(null, e);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, new CsvFileException("Failed to write CSV rows", e));
+                }
+            }
+            block.encoder.reset();
+            freeBlocks.put(block.encoder);
+        }
+    }
+    
+    /**
+     * Writer stage for outputs that take batches: passes the batches on in order.
+     * 
+     * @return always null
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private Void runBatchWriter() throws InterruptedException {
+        while (true) {
+            Object item = filledBatches.take();
+            if (item == END) {
+                return null;
+            }
+            
+            ColumnarBatch batch = (ColumnarBatch) item;
+            if (isRunning()) {
+                try {
+                    rowWriter.writeBatch(batch);
+                } catch (CsvFileException e) {
+                    failure.compareAndSet(null, e);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, new CsvFileException("Failed to write CSV rows", e));
+                }
+            }
+            batch.clear();
+            freeBatches.put(batch);
+        }
+    }
+    
+    /**
+     * Checks whether the stages should still process what they receive.
+     * 
+     * @return false after a failure or once the pipeline was abandoned
+     */
+    private boolean isRunning() {
+        return !abandoned && failure.get() == null;
+    }
+    
+    /**
+     * Waits for the encoder and writer threads to end.
+     * 
+     * @throws CsvFileException if interrupted while waiting, or if a thread ended unexpectedly
+     */
+    private void awaitStages() throws CsvFileException {
+        for (Future<?> stage : stages) {
+            try {
+                stage.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CsvFileException("Interrupted while writing CSV rows", e);
+            } catch (ExecutionException e) {
+                throw new CsvFileException("Failed to write CSV rows", e.getCause());
+            }
+        }
+    }
+    
+    /**
+     * Rethrows the first failure of the encoder or writer thread.
+     * 
+     * @throws CsvFileException if a later stage failed
+     */
+    private void checkFailure() throws CsvFileException {
+        CsvFileException exception = failure.get();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+    
+    /**
+     * Takes the next element of a queue, waiting while it is empty.
+     * 
+     * @param queue the queue
+     * @param <T> the element type
+     * @return the element
+     * @throws CsvFileException if interrupted while waiting
+     */
+    private static <T> T take(BlockingQueue<T> queue) throws CsvFileException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CsvFileException("Interrupted while writing CSV rows", e);
+        }
+    }
+    
+    /**
+     * Adds an element to a queue, waiting while it is full.
+     * 
+     * @param queue the queue
+     * @param item the element
+     * @throws CsvFileException if interrupted while waiting
+     */
+    private static void put(BlockingQueue<Object> queue, Object item) throws CsvFileException {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CsvFileException("Interrupted while writing CSV rows", e);
+        }
+    }
+    
+    /**
+     * Encoded rows on their way from the encoder to the writer.
+     */
+    private static final class EncodedBlock {
+        
+        private final CsvEncoder encoder;
+        private final long rows;
+        
+        /**
+         * Constructs a new EncodedBlock.
+         * 
+         * @param encoder buffer holding the encoded lines
+         * @param rows number of rows in the buffer
+         */
+        EncodedBlock(CsvEncoder encoder, long rows) {
+            this.encoder = encoder;
+            this.rows = rows;
+        }
+    }
+}
\ No newline at end of file
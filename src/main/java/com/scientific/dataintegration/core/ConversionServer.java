@@ -0,0 +1,413 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Embedded HTTP service converting JSON request bodies to CSV responses.
+ * Built on the JDK's own HTTP server, so it adds no dependency; every request
+ * is handled on its own virtual thread when the JVM supports them (JDK 21 and
+ * later) and on a bounded thread pool otherwise. All requests share one
+ * {@link DataConverter}, so they run on warm, JIT-compiled code.
+ * 
+ * <p>{@code POST /convert} takes a JSON document or, when the content type or the
+ * {@code format} query parameter says {@code ndjson} or {@code jsonl}, JSON Lines;
+ * gzip-compressed bodies are recognized by their content. The body is spooled to a
+ * temporary file rather than held in memory, because the streaming conversion reads
+ * its input twice, and the CSV is written back in chunks as it is produced.
+ * {@code GET /health} answers {@code OK}.</p>
+ * 
+ * <p>Requests beyond the concurrency limit are refused with 503 and bodies beyond
+ * the size limit with 413. Invalid JSON is answered with 400 before any CSV is sent,
+ * because the conversion reads the whole input once before producing output.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class ConversionServer {
+    
+    private static final Logger LOGGER = Logger.getLogger(ConversionServer.class.getName());
+    
+    private static final String CONVERT_PATH = "/convert";
+    private static final String HEALTH_PATH = "/health";
+    private static final String CSV_CONTENT_TYPE = "text/csv; charset=utf-8";
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int STOP_DELAY_SECONDS = 30;
+    
+    private final DataConverter converter;
+    private final InetSocketAddress address;
+    private final int maxConcurrentRequests;
+    private final long maxBodyBytes;
+    private final Path spoolDir;
+    private final Semaphore permits;
+    private HttpServer server;
+    private ExecutorService executor;
+    
+    /**
+     * Constructs a new ConversionServer.
+     * 
+     * @param converter shared, thread-safe converter used for every request
+     * @param address address and port to listen on
+     * @param maxConcurrentRequests maximum number of conversions running at the same time
+     * @param maxBodyBytes largest accepted request body in bytes
+     * @param spoolDir directory receiving the temporary copies of request bodies
+     */
+    public ConversionServer(DataConverter converter, InetSocketAddress address, int maxConcurrentRequests,
+            long maxBodyBytes, Path spoolDir) {
+        if (maxConcurrentRequests < 1) {
+            throw new IllegalArgumentException("Concurrent request limit must be at least 1: " + maxConcurrentRequests);
+        }
+        if (maxBodyBytes < 1) {
+            throw new IllegalArgumentException("Body size limit must be at least 1 byte: " + maxBodyBytes);
+        }
+        this.converter = converter;
+        this.address = address;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.maxBodyBytes = maxBodyBytes;
+        this.spoolDir = spoolDir;
+        this.permits = new Semaphore(maxConcurrentRequests);
+    }
+    
+    /**
+     * Starts listening. Requests are served on background threads until {@link #stop()} is called.
+     * A stopped server can be started again.
+     * 
+     * @throws IOException if the address cannot be bound or the spool directory created
+     * @throws IllegalStateException if the server is already running
+     */
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Conversion server already running on port " + getPort());
+        }
+        Files.createDirectories(spoolDir);
+        executor = newExecutor(maxConcurrentRequests);
+        server = HttpServer.create(address, maxConcurrentRequests * 4);
+        server.setExecutor(executor);
+        server.createContext(CONVERT_PATH, this::handleConvert);
+        server.createContext(HEALTH_PATH, this::handleHealth);
+        server.start();
+        LOGGER.info("Conversion server listening on port " + getPort() + ", at most " + maxConcurrentRequests
+                + " concurrent requests of up to " + maxBodyBytes + " bytes");
+    }
+    
+    /**
+     * Stops the server once the running conversions have finished, waiting for them
+     * at most {@value #STOP_DELAY_SECONDS} seconds. New requests are refused with 503
+     * in the meantime.
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        boolean drained = false;
+        try {
+            // Holding every permit both waits for running conversions and refuses new ones
+            drained = permits.tryAcquire(maxConcurrentRequests, STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+            if (!drained) {
+                LOGGER.warning("Conversions still running after " + STOP_DELAY_SECONDS + " s, stopping anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(STOP_DELAY_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (drained) {
+            // Give the permits back so that a restarted server accepts requests again
+            permits.release(maxConcurrentRequests);
+        }
+        server = null;
+        LOGGER.info("Conversion server stopped");
+    }
+    
+    /**
+     * Gets the port the server listens on, which is chosen by the system when port 0 was requested.
+     * 
+     * @return the bound port, or the configured port if the server is not running
+     */
+    public synchronized int getPort() {
+        return server == null ? address.getPort() : server.getAddress().getPort();
+    }
+    
+    /**
+     * Answers a health check.
+     * 
+     * @param exchange the HTTP exchange
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            sendText(exchange, 200, "OK");
+        }
+    }
+    
+    /**
+     * Converts the JSON request body and streams the CSV back.
+     * 
+     * @param exchange the HTTP exchange
+     * @throws IOException if an error response cannot be sent
+     */
+    private void handleConvert(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Use POST to convert a JSON body");
+                return;
+            }
+            long declaredLength = parseContentLength(exchange.getRequestHeaders().getFirst("Content-Length"));
+            if (declaredLength > maxBodyBytes) {
+                sendText(exchange, 413, "Request body exceeds " + maxBodyBytes + " bytes");
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendText(exchange, 503, "Too many concurrent conversions, retry later");
+                return;
+            }
+            try {
+                convert(exchange);
+            } finally {
+                permits.release();
+            }
+        }
+    }
+    
+    /**
+     * Spools the request body to a temporary file and converts it into the response.
+     * 
+     * @param exchange the HTTP exchange
+     * @throws IOException if an error response cannot be sent
+     */
+    private void convert(HttpExchange exchange) throws IOException {
+        String requestName = "request from " + exchange.getRemoteAddress();
+        Path body = Files.createTempFile(spoolDir, "request-", isJsonLines(exchange) ? ".jsonl" : ".json");
+        ResponseChannel response = new ResponseChannel(exchange);
+        try {
+            long size = spool(exchange.getRequestBody(), body);
+            if (size < 0) {
+                sendText(exchange, 413, "Request body exceeds " + maxBodyBytes + " bytes");
+                return;
+            }
+            if (size == 0) {
+                sendText(exchange, 400, "Request body is empty");
+                return;
+            }
+            converter.convertJsonToCsvStreaming(body.toString(), response, requestName);
+        
+        } catch (JsonFileException e) {
+            LOGGER.warning("Rejected " + requestName + ": " + e.getMessage());
+            if (!response.isCommitted()) {
+                sendText(exchange, 400, rootMessage(e).replace(body.toString(), "request body"));
+            }
+        } catch (CsvFileException | IOException | RuntimeException e) {
+            // Usually the client went away; once the CSV has started the connection is just closed
+            LOGGER.warning("Failed to convert " + requestName + ": " + e.getMessage());
+            if (!response.isCommitted()) {
+                sendText(exchange, 500, "Conversion failed");
+            }
+        } finally {
+            Files.deleteIfExists(body);
+        }
+    }
+    
+    /**
+     * Copies a request body to a file, stopping at the body size limit.
+     * 
+     * @param input the request body
+     * @param target the file receiving the body
+     * @return the number of bytes copied, or -1 if the body is larger than the limit
+     * @throws IOException if the body cannot be read or the file written
+     */
+    private long spool(InputStream input, Path target) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        try (OutputStream output = Files.newOutputStream(target)) {
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                total += read;
+                if (total > maxBodyBytes) {
+                    return -1;
+                }
+                output.write(buffer, 0, read);
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Checks whether a request carries JSON Lines, from its {@code format} query
+     * parameter or its content type.
+     * 
+     * @param exchange the HTTP exchange
+     * @return true for JSON Lines bodies
+     */
+    private static boolean isJsonLines(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("format=")) {
+                    String format = parameter.substring("format=".length()).toLowerCase(Locale.ROOT);
+                    return format.equals("jsonl") || format.equals("ndjson");
+                }
+            }
+        }
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.contains("ndjson") || type.contains("jsonl") || type.contains("json-seq");
+    }
+    
+    /**
+     * Parses a Content-Length header.
+     * 
+     * @param value the header value, may be null
+     * @return the declared length, or -1 if absent or invalid
+     */
+    private static long parseContentLength(String value) {
+        if (value == null) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+    
+    /**
+     * Gets the message of the innermost cause of an error, which names the JSON problem.
+     * 
+     * @param error the error
+     * @return the message to report to the client
+     */
+    private static String rootMessage(Throwable error) {
+        String message = error.getMessage();
+        Throwable cause = error.getCause();
+        return cause == null || cause.getMessage() == null ? message : message + ": " + cause.getMessage();
+    }
+    
+    /**
+     * Sends a complete plain-text response.
+     * 
+     * @param exchange the HTTP exchange
+     * @param status the HTTP status code
+     * @param text the response body
+     * @throws IOException if the response cannot be sent
+     */
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", TEXT_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+    
+    /**
+     * Creates the executor handling requests: one virtual thread per request where
+     * available, otherwise a fixed pool large enough to answer requests over the
+     * limit with 503 while the limit is reached.
+     * 
+     * @param maxConcurrentRequests maximum number of conversions running at the same time
+     * @return the request executor
+     */
+    private static ExecutorService newExecutor(int maxConcurrentRequests) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            LOGGER.info("Serving requests on virtual threads");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.info("Virtual threads are not available, serving requests on a pool of "
+                    + (maxConcurrentRequests * 2) + " threads");
+            return Executors.newFixedThreadPool(maxConcurrentRequests * 2);
+        }
+    }
+    
+    /**
+     * Response body channel that sends the 200 status line and headers with its
+     * first bytes, so an error found before any CSV was produced can still be
+     * answered with an error status. The body is sent with chunked encoding.
+     */
+    private static final class ResponseChannel implements WritableByteChannel {
+        
+        private final HttpExchange exchange;
+        private OutputStream output;
+        private boolean open = true;
+        
+        /**
+         * Constructs a new ResponseChannel.
+         * 
+         * @param exchange the HTTP exchange to answer
+         */
+        ResponseChannel(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+        
+        /**
+         * Checks whether the response status has been sent.
+         * 
+         * @return true once CSV bytes have been written
+         */
+        boolean isCommitted() {
+            return output != null;
+        }
+        
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            if (output == null) {
+                exchange.getResponseHeaders().set("Content-Type", CSV_CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, 0);
+                output = exchange.getResponseBody();
+            }
+            int length = source.remaining();
+            if (source.hasArray()) {
+                output.write(source.array(), source.arrayOffset() + source.position(), length);
+                source.position(source.limit());
+            } else {
+                byte[] bytes = new byte[length];
+                source.get(bytes);
+                output.write(bytes);
+            }
+            return length;
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            open = false;
+            if (output != null) {
+                output.close();
+            }
+        }
+    }
+}
\ No newline at end of file
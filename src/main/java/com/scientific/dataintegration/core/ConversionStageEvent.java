@@ -0,0 +1,32 @@
+package com.scientific.dataintegration.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event holding the total time a conversion spent in one stage.
+ * Stages are interleaved batch by batch, so the event carries the accumulated
+ * time as a field and is committed once per stage when the conversion ends.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+@Name("com.scientific.dataintegration.ConversionStage")
+@Label("Conversion Stage")
+@Category("Scientific Data Integration")
+@Description("Time spent by a conversion in parsing, header discovery, formatting or writing")
+final class ConversionStageEvent extends jdk.jfr.Event {
+    
+    @Label("Input File")
+    String inputFile;
+    
+    @Label("Stage")
+    String stage;
+    
+    @Label("Stage Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long stageTime;
+}
@@ -0,0 +1,559 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Rows of a conversion, read from the input as they are pulled instead of being
+ * written to a CSV file. Each row holds the cells the conversion would write,
+ * aligned to {@link #getHeaders()}.
+ * 
+ * <p>The rows of a file are read in two passes, like a streaming conversion: the
+ * columns are known before the first row, and the rows are those of the CSV file.
+ * An input stream or channel can only be read once, so its columns are collected
+ * while its rows are read. The header then only grows, new columns being appended
+ * in first-seen order, and each row has one cell per column known when it was read.
+ * Padding every row with empty cells to the final header gives the rows of the CSV
+ * file, except that the columns are not reordered by a column selection.</p>
+ * 
+ * <p>The rows can be taken through this iterator, through {@link #spliterator()} or
+ * {@link #stream()}, or through {@link #publisher(Executor)}; every row is delivered
+ * once, by whichever is used. Failures while reading the input are thrown as
+ * {@link UncheckedIOException}. The rows must be closed once they are no longer
+ * needed; they are not thread-safe, except for the splits of a spliterator.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class ConvertedRows implements Iterator<String[]>, AutoCloseable {
+    
+    private final JsonFileReader jsonReader;
+    private final ValueFormatter valueFormatter;
+    private final String sourceName;
+    /** Plan of a file read in two passes; null when the columns are collected while reading. */
+    private final ColumnPlan plan;
+    /** Columns of a source read once; null when the plan is known in advance. */
+    private final ColumnPlan.Builder planBuilder;
+    /** Rows of a document loaded whole; null when rows are read from a record stream. */
+    private final Iterator<String[]> loadedRows;
+    private final long chunkSize;
+    private final long recordCount;
+    private RecordStream records;
+    private FileChannel splitChannel;
+    private String[] headers;
+    private String[] nextRow;
+    private boolean started;
+    private boolean exhausted;
+    
+    /**
+     * Constructs a new ConvertedRows.
+     * 
+     * @param jsonReader reader of the input
+     * @param valueFormatter formatter used for cell values
+     * @param sourceName path of the input file, or name of the input, for messages
+     * @param plan the plan of a file, or null
+     * @param planBuilder the column collector of a source read once, or null
+     * @param records the records of the input, or null for a loaded document
+     * @param loadedRows the rows of a loaded document, or null
+     * @param headers the header known before the first row
+     * @param chunkSize approximate number of input bytes per split of a file
+     * @param recordCount number of records of a file, or 0 if unknown
+     */
+    private ConvertedRows(JsonFileReader jsonReader, ValueFormatter valueFormatter, String sourceName,
+            ColumnPlan plan, ColumnPlan.Builder planBuilder, RecordStream records, Iterator<String[]> loadedRows,
+            String[] headers, long chunkSize, long recordCount) {
+        this.jsonReader = jsonReader;
+        this.valueFormatter = valueFormatter;
+        this.sourceName = sourceName;
+        this.plan = plan;
+        this.planBuilder = planBuilder;
+        this.records = records;
+        this.loadedRows = loadedRows;
+        this.headers = headers;
+        this.chunkSize = chunkSize;
+        this.recordCount = recordCount;
+    }
+    
+    /**
+     * Creates the rows of a file whose columns were collected in a first pass.
+     * 
+     * @param jsonReader reader of the input
+     * @param jsonFilePath path of the input file
+     * @param plan the plan compiled from the first pass
+     * @param records a new record stream over the file
+     * @param chunkSize approximate number of input bytes per split
+     * @param recordCount number of records found by the first pass
+     * @return the rows
+     */
+    static ConvertedRows ofFile(JsonFileReader jsonReader, String jsonFilePath, ColumnPlan plan,
+            RecordStream records, long chunkSize, long recordCount) {
+        return new ConvertedRows(jsonReader, null, jsonFilePath, plan, null, records, null,
+                plan.getHeaders(), chunkSize, recordCount);
+    }
+    
+    /**
+     * Creates the rows of a source that is read once.
+     * 
+     * @param jsonReader reader of the input
+     * @param valueFormatter formatter used for cell values
+     * @param sourceName name of the input, for messages
+     * @param planBuilder an empty builder with the selection of the conversion
+     * @param records the records of the input
+     * @return the rows
+     */
+    static ConvertedRows ofStream(JsonFileReader jsonReader, ValueFormatter valueFormatter, String sourceName,
+            ColumnPlan.Builder planBuilder, RecordStream records) {
+        return new ConvertedRows(jsonReader, valueFormatter, sourceName, null, planBuilder, records, null,
+                new String[0], 0L, 0L);
+    }
+    
+    /**
+     * Creates the rows of a document that was converted in memory.
+     * 
+     * @param jsonReader reader of the input
+     * @param sourceName path of the input file, for messages
+     * @param headers the header
+     * @param rows the rows
+     * @return the rows
+     */
+    static ConvertedRows ofLoaded(JsonFileReader jsonReader, String sourceName, String[] headers,
+            List<String[]> rows) {
+        return new ConvertedRows(jsonReader, null, sourceName, null, null, null, rows.iterator(),
+                headers, 0L, rows.size());
+    }
+    
+    /**
+     * Gets the column headers. For a source read once, these are the columns of the
+     * rows read so far, and later columns are appended as rows are read.
+     * 
+     * @return a copy of the headers
+     */
+    public String[] getHeaders() {
+        if (planBuilder != null && planBuilder.getColumnCount() != headers.length) {
+            headers = planBuilder.getColumnPaths().toArray(new String[0]);
+        }
+        return headers.clone();
+    }
+    
+    /**
+     * Checks whether another row can be read, reading it from the input if needed.
+     * 
+     * @return true if {@link #next()} returns a row
+     * @throws UncheckedIOException if the input cannot be read or is malformed
+     */
+    @Override
+    public boolean hasNext() {
+        started = true;
+        if (nextRow == null && !exhausted) {
+            nextRow = readRow();
+            if (nextRow == null) {
+                close();
+            }
+        }
+        return nextRow != null;
+    }
+    
+    /**
+     * Gets the next row.
+     * 
+     * @return the cells of the next record meeting the selection
+     * @throws NoSuchElementException if every row has been read
+     * @throws UncheckedIOException if the input cannot be read or is malformed
+     */
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more rows in " + sourceName);
+        }
+        String[] row = nextRow;
+        nextRow = null;
+        return row;
+    }
+    
+    /**
+     * Creates a spliterator over the rows not read yet. When no row has been read from
+     * an uncompressed file, its records are split into chunks at record boundaries, and
+     * the splits of a parallel stream read their own chunks at the same time; the
+     * rows of this iterator are then all left to the spliterator. Otherwise, the
+     * splits take their rows from this iterator.
+     * 
+     * @return an ordered spliterator of non-null rows
+     * @throws UncheckedIOException if the file cannot be split
+     */
+    public Spliterator<String[]> spliterator() {
+        if (plan != null && !started && !jsonReader.isCompressed(sourceName)) {
+            try {
+                List<RecordChunk> chunks = ParallelChunkConverter.split(jsonReader, sourceName, chunkSize);
+                if (chunks.size() > 1) {
+                    started = true;
+                    close();
+                    splitChannel = FileChannel.open(Paths.get(sourceName), StandardOpenOption.READ);
+                    return new ChunkSpliterator(chunks, jsonReader.isJsonLines(sourceName));
+                }
+            } catch (JsonFileException e) {
+                throw new UncheckedIOException(new IOException(e.getMessage(), e));
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
+        return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+    
+    /**
+     * Creates a sequential stream over the rows not read yet, which closes these rows when
+     * it is closed. Calling {@code parallel()} on it reads the chunks of a file in parallel,
+     * as described for {@link #spliterator()}.
+     * 
+     * @return the stream of rows
+     */
+    public Stream<String[]> stream() {
+        return StreamSupport.stream(spliterator(), false).onClose(this::close);
+    }
+    
+    /**
+     * Creates a publisher of the rows not read yet, for a single subscriber. Rows are read
+     * on the executor only as the subscriber requests them, so a slow subscriber holds
+     * back the reading of the input rather than letting rows pile up. These rows are closed
+     * when the subscriber has received them all, when reading fails, and when the
+     * subscription is cancelled.
+     * 
+     * @param executor runs the reading of rows and the calls to the subscriber
+     * @return the publisher
+     */
+    public Flow.Publisher<String[]> publisher(Executor executor) {
+        return new RowPublisher(Objects.requireNonNull(executor, "executor"));
+    }
+    
+    /**
+     * Closes the input. Rows not read yet are dropped.
+     * 
+     * @throws UncheckedIOException if the input cannot be closed
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        nextRow = null;
+        try {
+            if (records != null) {
+                RecordStream open = records;
+                records = null;
+                open.close();
+            }
+            if (splitChannel != null) {
+                FileChannel open = splitChannel;
+                splitChannel = null;
+                open.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + sourceName, e);
+        }
+    }
+    
+    /**
+     * Reads the next record meeting the selection and converts it.
+     * 
+     * @return the row, or null when there are no more records
+     * @throws UncheckedIOException if the input cannot be read or is malformed
+     */
+    private String[] readRow() {
+        if (loadedRows != null) {
+            return loadedRows.hasNext() ? loadedRows.next() : null;
+        }
+        if (records == null) {
+            return null;
+        }
+        try {
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                String[] row = plan != null ? plan.evaluate(parser) : planBuilder.collectRow(parser, valueFormatter);
+                if (row != null) {
+                    return row;
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw readFailure(e);
+        }
+    }
+    
+    /**
+     * Builds the exception thrown when the input cannot be read, with the hint of the reader.
+     * 
+     * @param cause the underlying error
+     * @return the exception to throw
+     */
+    private UncheckedIOException readFailure(IOException cause) {
+        return new UncheckedIOException(jsonReader.parseFailure(sourceName, cause).getMessage(), cause);
+    }
+    
+    /**
+     * Spliterator over a range of the record chunks of a file. A split takes the first
+     * half of the chunks left, together with the chunk being read, so that the splits
+     * keep the order of the file.
+     */
+    private final class ChunkSpliterator implements Spliterator<String[]> {
+        
+        private final List<RecordChunk> chunks;
+        private final boolean jsonLines;
+        private final double recordsPerByte;
+        private RecordStream current;
+        private int nextChunk;
+        private int endChunk;
+        
+        /**
+         * Constructs a new ChunkSpliterator over every chunk of the file.
+         * 
+         * @param chunks the chunks of the file
+         * @param jsonLines whether the file is a JSON Lines file
+         */
+        ChunkSpliterator(List<RecordChunk> chunks, boolean jsonLines) {
+            this.chunks = chunks;
+            this.jsonLines = jsonLines;
+            long bytes = 0;
+            for (RecordChunk chunk : chunks) {
+                bytes += chunk.getLength();
+            }
+            this.recordsPerByte = bytes == 0 ? 0.0 : (double) recordCount / bytes;
+            this.endChunk = chunks.size();
+        }
+        
+        /**
+         * Constructs a new ChunkSpliterator over a prefix of the chunks of another one.
+         * 
+         * @param other the spliterator being split
+         * @param current the stream of the chunk being read, or null
+         * @param nextChunk index of the first chunk not opened yet
+         * @param endChunk index after the last chunk
+         */
+        private ChunkSpliterator(ChunkSpliterator other, RecordStream current, int nextChunk, int endChunk) {
+            this.chunks = other.chunks;
+            this.jsonLines = other.jsonLines;
+            this.recordsPerByte = other.recordsPerByte;
+            this.current = current;
+            this.nextChunk = nextChunk;
+            this.endChunk = endChunk;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super String[]> action) {
+            try {
+                while (true) {
+                    if (current == null) {
+                        if (nextChunk >= endChunk) {
+                            return false;
+                        }
+                        current = ParallelChunkConverter.openChunk(jsonReader, splitChannel, jsonLines,
+                                chunks.get(nextChunk++), sourceName);
+                    }
+                    JsonParser parser = current.nextRecord();
+                    if (parser == null) {
+                        current.close();
+                        current = null;
+                        continue;
+                    }
+                    String[] row = plan.evaluate(parser);
+                    if (row != null) {
+                        action.accept(row);
+                        return true;
+                    }
+                }
+            } catch (IOException e) {
+                throw readFailure(e);
+            }
+        }
+        
+        @Override
+        public Spliterator<String[]> trySplit() {
+            if (endChunk - nextChunk < (current == null ? 2 : 1)) {
+                return null;
+            }
+            int middle = nextChunk + (endChunk - nextChunk) / 2;
+            ChunkSpliterator prefix = new ChunkSpliterator(this, current, nextChunk, middle);
+            current = null;
+            nextChunk = middle;
+            return prefix;
+        }
+        
+        /**
+         * Estimates the rows left from the records per byte of the whole file,
+         * counting the chunk being read as a whole.
+         * 
+         * @return the estimated number of rows
+         */
+        @Override
+        public long estimateSize() {
+            long bytes = 0;
+            for (int i = current == null ? nextChunk : nextChunk - 1; i < endChunk; i++) {
+                bytes += chunks.get(i).getLength();
+            }
+            return (long) Math.ceil(bytes * recordsPerByte);
+        }
+        
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+    
+    /**
+     * Publisher reading the rows on an executor as its subscriber requests them.
+     * Requests and cancellation only signal the reading task, which is scheduled
+     * whenever there is no task running, so the subscriber is never called by
+     * two threads at once.
+     */
+    private final class RowPublisher implements Flow.Publisher<String[]>, Flow.Subscription {
+        
+        private final Executor executor;
+        private final AtomicBoolean subscribed = new AtomicBoolean();
+        private final AtomicLong demand = new AtomicLong();
+        /** Signals not yet seen by the reading task; a task is running while it is positive. */
+        private final AtomicInteger pendingSignals = new AtomicInteger();
+        private volatile Flow.Subscriber<? super String[]> subscriber;
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        private boolean done;
+        
+        /**
+         * Constructs a new RowPublisher.
+         * 
+         * @param executor runs the reading of rows and the calls to the subscriber
+         */
+        RowPublisher(Executor executor) {
+            this.executor = executor;
+        }
+        
+        @Override
+        public void subscribe(Flow.Subscriber<? super String[]> newSubscriber) {
+            Objects.requireNonNull(newSubscriber, "subscriber");
+            if (!subscribed.compareAndSet(false, true)) {
+                newSubscriber.onSubscribe(new Flow.Subscription() {
+                    @Override
+                    public void request(long n) {
+                        // Nothing to deliver
+                    }
+                    
+                    @Override
+                    public void cancel() {
+                        // Nothing to stop
+                    }
+                });
+                newSubscriber.onError(new IllegalStateException("Rows of " + sourceName
+                        + " can only be published to one subscriber"));
+                return;
+            }
+            subscriber = newSubscriber;
+            newSubscriber.onSubscribe(this);
+        }
+        
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested rows must be positive, got " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            signal();
+        }
+        
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+        }
+        
+        /**
+         * Schedules the reading task unless it is already running.
+         */
+        private void signal() {
+            if (pendingSignals.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+        
+        /**
+         * Reading task: delivers rows until the demand is met, then ends unless
+         * another signal arrived in the meantime.
+         */
+        private void drain() {
+            int signals = 1;
+            do {
+                deliver();
+                signals = pendingSignals.addAndGet(-signals);
+            } while (signals != 0);
+        }
+        
+        /**
+         * Delivers as many rows as requested, or the end of the rows.
+         */
+        private void deliver() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                done = true;
+                closeQuietly();
+                return;
+            }
+            if (invalidRequest != null) {
+                done = true;
+                closeQuietly();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            
+            while (demand.get() > 0 && !cancelled) {
+                String[] row;
+                try {
+                    if (!hasNext()) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    row = next();
+                } catch (RuntimeException e) {
+                    done = true;
+                    closeQuietly();
+                    subscriber.onError(e);
+                    return;
+                }
+                subscriber.onNext(row);
+                demand.decrementAndGet();
+            }
+            if (cancelled) {
+                done = true;
+                closeQuietly();
+            }
+        }
+        
+        /**
+         * Closes the rows once nothing more is delivered.
+         */
+        private void closeQuietly() {
+            try {
+                close();
+            } catch (UncheckedIOException e) {
+                // The subscriber has stopped listening, or is told of the failure that ended the rows
+            }
+        }
+    }
+}
\ No newline at end of file
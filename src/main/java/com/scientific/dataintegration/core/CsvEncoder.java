@@ -0,0 +1,365 @@
+package com.scientific.dataintegration.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes CSV rows as UTF-8 bytes into a reusable buffer.
+ * Quoting, escaping and character encoding are done in a single pass per cell,
+ * writing straight into the buffer, so no String, char array or byte array is
+ * allocated per cell once the buffer has reached its working size.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class CsvEncoder {
+    
+    private final char separator;
+    private final char quoteChar;
+    private final char escapeChar;
+    private final byte[] separatorBytes;
+    private final byte[] quoteBytes;
+    private final byte[] escapeBytes;
+    private final byte[] lineEndBytes;
+    private final boolean quoted;
+    private final boolean plainNumbers;
+    
+    private final char[] numberChars = new char[32];
+    
+    private byte[] buffer;
+    private int size;
+    
+    /**
+     * Constructs a new CsvEncoder.
+     * 
+     * @param format the CSV dialect to produce
+     * @param initialCapacity initial size of the buffer in bytes
+     */
+    CsvEncoder(CsvFormat format, int initialCapacity) {
+        this.separator = format.getSeparator();
+        this.quoteChar = format.getQuoteChar();
+        this.escapeChar = format.getEscapeChar();
+        this.separatorBytes = String.valueOf(separator).getBytes(StandardCharsets.UTF_8);
+        this.quoteBytes = String.valueOf(quoteChar).getBytes(StandardCharsets.UTF_8);
+        this.escapeBytes = String.valueOf(escapeChar).getBytes(StandardCharsets.UTF_8);
+        this.lineEndBytes = format.getLineEnd().getBytes(StandardCharsets.UTF_8);
+        this.quoted = quoteChar != CsvFormat.NO_QUOTE_CHARACTER;
+        this.plainNumbers = noneNeedsEscape("-0123456789");
+        this.buffer = new byte[initialCapacity];
+    }
+    
+    /**
+     * Encodes one row followed by the line end. Missing cells are written empty
+     * and extra cells are dropped, so every line has exactly {@code columnCount} fields.
+     * 
+     * @param row the cell values; null cells are written as nothing, without quotes
+     * @param columnCount number of fields to write
+     */
+    void encodeRow(String[] row, int columnCount) {
+        for (int i = 0; i < columnCount; i++) {
+            if (i > 0) {
+                append(separatorBytes);
+            }
+            encodeCell(i < row.length ? row[i] : "");
+        }
+        endRow();
+    }
+    
+    /**
+     * Encodes every row of a batch, each followed by the line end. Columns missing
+     * from the batch are written empty and extra columns are dropped.
+     * 
+     * @param batch the rows to encode
+     * @param columnCount number of fields to write per row
+     */
+    void encodeBatch(ColumnarBatch batch, int columnCount) {
+        for (int row = 0; row < batch.getSize(); row++) {
+            encodeBatchRow(batch, row, columnCount);
+        }
+    }
+    
+    /**
+     * Encodes one row of a batch followed by the line end. Columns missing
+     * from the batch are written empty and extra columns are dropped.
+     * 
+     * @param batch the batch holding the row
+     * @param row index of the row in the batch
+     * @param columnCount number of fields to write
+     */
+    void encodeBatchRow(ColumnarBatch batch, int row, int columnCount) {
+        int batchColumns = Math.min(columnCount, batch.getColumnCount());
+        for (int column = 0; column < columnCount; column++) {
+            if (column > 0) {
+                append(separatorBytes);
+            }
+            if (column >= batchColumns || !batch.isPresent(column, row)) {
+                encodeCell("");
+            } else if (batch.getType(column) == ColumnarBatch.ColumnType.LONG) {
+                encodeLong(batch.getLong(column, row));
+            } else if (batch.getType(column) == ColumnarBatch.ColumnType.DOUBLE) {
+                encodeDouble(batch.getDouble(column, row), batch.getValueFormatter());
+            } else {
+                StringDictionary.Entry entry = batch.getEntry(column, row);
+                if (entry != null) {
+                    encodeEntry(entry);
+                } else {
+                    encodeCell(batch.getText(column, row));
+                }
+            }
+        }
+        endRow();
+    }
+    
+    /**
+     * Encodes an integral number as a single quoted cell without a separator,
+     * writing its digits directly instead of going through a String.
+     * 
+     * @param value the value
+     */
+    void encodeLong(long value) {
+        if (!plainNumbers) {
+            encodeCell(Long.toString(value));
+            return;
+        }
+        
+        ensureCapacity(20 + 2 * quoteBytes.length);
+        if (quoted) {
+            append(quoteBytes);
+        }
+        
+        // Digits are produced from a non-positive value so that Long.MIN_VALUE needs no special case
+        long remaining = value < 0 ? value : -value;
+        if (value < 0) {
+            buffer[size++] = '-';
+        }
+        int start = size;
+        do {
+            buffer[size++] = (byte) ('0' - (int) (remaining % 10));
+            remaining /= 10;
+        } while (remaining != 0);
+        for (int i = start, j = size - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+        
+        if (quoted) {
+            append(quoteBytes);
+        }
+    }
+    
+    /**
+     * Encodes a floating point number as a single quoted cell without a separator.
+     * Numbers in E-notation are written from a reusable char buffer.
+     * 
+     * @param value the value
+     * @param valueFormatter formatter defining the number's text
+     */
+    void encodeDouble(double value, ValueFormatter valueFormatter) {
+        int length = valueFormatter.writeScientific(value, numberChars);
+        if (length < 0) {
+            encodeCell(valueFormatter.formatDouble(value));
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            if (numberChars[i] >= 0x80 || needsEscape(numberChars[i])) {
+                encodeCell(new String(numberChars, 0, length));
+                return;
+            }
+        }
+        
+        ensureCapacity(length + 2 * quoteBytes.length);
+        if (quoted) {
+            append(quoteBytes);
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[size++] = (byte) numberChars[i];
+        }
+        if (quoted) {
+            append(quoteBytes);
+        }
+    }
+    
+    /**
+     * Encodes a dictionary value as a single cell without a separator, reusing the
+     * bytes produced the first time this encoder wrote the value.
+     * 
+     * @param entry the dictionary entry of the value
+     */
+    void encodeEntry(StringDictionary.Entry entry) {
+        byte[] encoded = entry.getEncoded(this);
+        if (encoded != null) {
+            append(encoded);
+            return;
+        }
+        
+        int start = size;
+        encodeCell(entry.getValue());
+        entry.setEncoded(this, Arrays.copyOfRange(buffer, start, size));
+    }
+    
+    /**
+     * Encodes a single quoted, escaped cell without a separator.
+     * 
+     * @param value the cell value, may be null
+     */
+    void encodeCell(String value) {
+        if (value == null) {
+            return;
+        }
+        
+        int length = value.length();
+        ensureCapacity(length + 2 * quoteBytes.length);
+        
+        if (quoted) {
+            append(quoteBytes);
+        }
+        
+        // Fast path: plain ASCII without characters to escape is copied byte by byte
+        int i = 0;
+        byte[] bytes = buffer;
+        int position = size;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || needsEscape(c)) {
+                break;
+            }
+            bytes[position++] = (byte) c;
+        }
+        size = position;
+        
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (needsEscape(c)) {
+                append(escapeBytes);
+            }
+            if (c < 0x80) {
+                ensureCapacity(1);
+                buffer[size++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                appendCodePoint(Character.toCodePoint(c, value.charAt(++i)));
+            } else {
+                appendCodePoint(Character.isSurrogate(c) ? '?' : c);
+            }
+        }
+        
+        if (quoted) {
+            append(quoteBytes);
+        }
+    }
+    
+    /**
+     * Writes the field separator.
+     */
+    void encodeSeparator() {
+        append(separatorBytes);
+    }
+    
+    /**
+     * Writes the line end terminating the current row.
+     */
+    void endRow() {
+        append(lineEndBytes);
+    }
+    
+    /**
+     * Gets the buffer holding the encoded bytes.
+     * Only the first {@link #size()} bytes are meaningful.
+     * 
+     * @return the internal buffer
+     */
+    byte[] array() {
+        return buffer;
+    }
+    
+    /**
+     * Gets the number of encoded bytes in the buffer.
+     * 
+     * @return the encoded size
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Discards the encoded bytes, keeping the buffer for reuse.
+     */
+    void reset() {
+        size = 0;
+    }
+    
+    /**
+     * Checks whether a character must be preceded by the escape character,
+     * following the same rules as OpenCSV's writer.
+     * 
+     * @param c the character
+     * @return true if the character must be escaped
+     */
+    private boolean needsEscape(char c) {
+        if (quoted) {
+            return c == quoteChar || c == escapeChar;
+        }
+        return c == escapeChar || c == separator || c == '\n';
+    }
+    
+    /**
+     * Checks that none of the given characters has to be escaped.
+     * 
+     * @param characters the characters to check
+     * @return true if every character can be written as is
+     */
+    private boolean noneNeedsEscape(String characters) {
+        for (int i = 0; i < characters.length(); i++) {
+            if (needsEscape(characters.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Appends a code point as UTF-8.
+     * 
+     * @param codePoint the Unicode code point
+     */
+    private void appendCodePoint(int codePoint) {
+        ensureCapacity(4);
+        byte[] bytes = buffer;
+        if (codePoint < 0x800) {
+            bytes[size++] = (byte) (0xC0 | (codePoint >> 6));
+            bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            bytes[size++] = (byte) (0xE0 | (codePoint >> 12));
+            bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+            bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+    }
+    
+    /**
+     * Appends raw bytes.
+     * 
+     * @param bytes the bytes to append
+     */
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+    
+    /**
+     * Grows the buffer so that at least {@code extra} more bytes fit.
+     * 
+     * @param extra number of bytes about to be written
+     */
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
\ No newline at end of file
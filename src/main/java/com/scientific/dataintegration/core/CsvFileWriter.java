@@ -1,19 +1,30 @@
 package com.scientific.dataintegration.core;
 
+import com.scientific.dataintegration.config.ApplicationConfig;
 import com.scientific.dataintegration.exceptions.CsvFileException;
 import com.opencsv.CSVWriter;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import java.util.logging.Logger;
 
 /**
  * Utility class for writing data to CSV files.
- * Uses OpenCSV library for reliable CSV formatting and writing.
+ * Header-based writes go through a byte-level UTF-8 row writer; the remaining
+ * helpers use the OpenCSV library. Both follow the configured {@link CsvFormat}.
+ * Paths ending in {@code .gz} are written gzip-compressed on several threads
+ * with a {@link ParallelGzipOutputStream}.
  * 
  * @author AlduinoCalderon
  * @version 1.0
@@ -21,6 +32,27 @@ import java.util.logging.Logger;
 public class CsvFileWriter {
     
     private static final Logger LOGGER = Logger.getLogger(CsvFileWriter.class.getName());
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FILE_NAME_PART_LENGTH = 64;
+    
+    private final CsvFormat csvFormat;
+    
+    /**
+     * Constructs a new CsvFileWriter using the CSV format declared in application.properties.
+     */
+    public CsvFileWriter() {
+        this(CsvFormat.fromConfig(ApplicationConfig.load()));
+    }
+    
+    /**
+     * Constructs a new CsvFileWriter producing the given CSV format.
+     * 
+     * @param csvFormat the CSV dialect to write
+     */
+    public CsvFileWriter(CsvFormat csvFormat) {
+        this.csvFormat = csvFormat;
+    }
     
     /**
      * Writes data to a CSV file with headers.
@@ -63,32 +95,194 @@ public class CsvFileWriter {
         LOGGER.info("Headers: " + headers.length + " columns");
         LOGGER.info("Data: " + data.size() + " rows");
         
-        try (FileWriter fileWriter = new FileWriter(filePath);
-             CSVWriter csvWriter = new CSVWriter(fileWriter)) {
-            
-            // Write headers
-            csvWriter.writeNext(headers);
+        try (CsvRowWriter rowWriter = openChannelWriter(filePath, headers, null)) {
             
-            // Write data rows
+            // Write data rows; the row writer pads or truncates rows to the header count
             for (String[] row : data) {
-                if (row.length != headers.length) {
-                    LOGGER.warning("Row has " + row.length + " columns but expected " + headers.length);
-                    // Pad or truncate row to match header count
-                    String[] adjustedRow = new String[headers.length];
-                    System.arraycopy(row, 0, adjustedRow, 0, Math.min(row.length, headers.length));
-                    for (int i = row.length; i < headers.length; i++) {
-                        adjustedRow[i] = "";
-                    }
-                    csvWriter.writeNext(adjustedRow);
-                } else {
-                    csvWriter.writeNext(row);
-                }
+                rowWriter.writeRow(row);
             }
             
             LOGGER.info("Successfully wrote CSV file with " + (data.size() + 1) + " total rows (including header)");
+        }
+    }
+    
+    /**
+     * Opens a CSV file for incremental writing and writes the header line.
+     * Rows are encoded into a large reusable buffer as they are passed to the
+     * returned {@link CsvRowWriter}, so the data never has to be held in memory.
+     * 
+     * @param filePath path to the output CSV file
+     * @param headers array of column headers; empty for a result without columns, left as an empty file
+     * @return an open row writer; the caller must close it
+     * @throws CsvFileException if the file cannot be created
+     */
+    public CsvRowWriter openRowWriter(String filePath, String[] headers) throws CsvFileException {
+        return openRowWriter(filePath, headers, null);
+    }
+    
+    /**
+     * Opens a CSV file for incremental writing and writes the header line,
+     * recording the encoding and write times of the rows.
+     * 
+     * @param filePath path to the output CSV file
+     * @param headers array of column headers; empty for a result without columns, left as an empty file
+     * @param metrics metrics of the running conversion, or null
+     * @return an open row writer; the caller must close it
+     * @throws CsvFileException if the file cannot be created
+     */
+    EncodedRowWriter openRowWriter(String filePath, String[] headers, ConversionMetrics metrics)
+            throws CsvFileException {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            throw new CsvFileException("File path cannot be null or empty");
+        }
+        
+        if (headers == null) {
+            throw new CsvFileException("Headers cannot be null");
+        }
+        
+        // Validate file path and create directories if needed
+        try {
+            Path outputPath = Paths.get(filePath);
+            Path parentDir = outputPath.getParent();
+            
+            if (parentDir != null && !Files.exists(parentDir)) {
+                Files.createDirectories(parentDir);
+                LOGGER.info("Created directory: " + parentDir);
+            }
             
         } catch (IOException e) {
-            throw new CsvFileException("Failed to write CSV file: " + filePath, e);
+            throw new CsvFileException("Failed to create output directory for: " + filePath, e);
+        }
+        
+        LOGGER.info("Opening CSV file for streaming: " + filePath);
+        LOGGER.info("Headers: " + headers.length + " columns");
+        
+        return openChannelWriter(filePath, headers, metrics);
+    }
+    
+    /**
+     * Opens a row writer over an arbitrary channel, such as a network connection,
+     * and encodes the header line. Bytes are handed to the channel in blocks of
+     * {@value #STREAM_BUFFER_SIZE} bytes, so a reader receives the first rows early.
+     * 
+     * @param channel channel receiving the CSV bytes; closed with the row writer
+     * @param outputName name of the output, used in error messages
+     * @param headers array of column headers; empty for a result without columns, which writes nothing
+     * @return an open row writer; the caller must close it
+     * @throws CsvFileException if the headers are missing
+     */
+    public CsvRowWriter openRowWriter(WritableByteChannel channel, String outputName, String[] headers)
+            throws CsvFileException {
+        return openRowWriter(channel, outputName, headers, null);
+    }
+    
+    /**
+     * Opens a row writer over an arbitrary channel, recording the encoding and write times.
+     * 
+     * @param channel channel receiving the CSV bytes; closed with the row writer
+     * @param outputName name of the output, used in error messages
+     * @param headers array of column headers; empty for a result without columns, which writes nothing
+     * @param metrics metrics of the running conversion, or null
+     * @return an open row writer; the caller must close it
+     * @throws CsvFileException if the headers are missing
+     */
+    EncodedRowWriter openRowWriter(WritableByteChannel channel, String outputName, String[] headers,
+            ConversionMetrics metrics) throws CsvFileException {
+        if (headers == null) {
+            throw new CsvFileException("Headers cannot be null");
+        }
+        return new Utf8CsvRowWriter(outputName, channel, csvFormat, STREAM_BUFFER_SIZE, headers, metrics);
+    }
+    
+    /**
+     * Creates an encoder producing the same bytes as this writer's row writers.
+     * Lets worker threads do the quoting, escaping and encoding of their own rows
+     * so that the single output thread only has to append the resulting bytes.
+     * 
+     * @param initialCapacity initial buffer size in bytes
+     * @return a new encoder for this writer's CSV format
+     */
+    CsvEncoder newEncoder(int initialCapacity) {
+        return new CsvEncoder(csvFormat, initialCapacity);
+    }
+    
+    /**
+     * Gets the CSV dialect produced by this writer.
+     * 
+     * @return the CSV format
+     */
+    public CsvFormat getCsvFormat() {
+        return csvFormat;
+    }
+    
+    /**
+     * Checks whether a CSV file is written gzip-compressed, based on its extension.
+     * 
+     * @param filePath path to the output CSV file
+     * @return true for paths ending in .gz
+     */
+    public boolean isCompressedOutput(String filePath) {
+        return filePath != null && filePath.toLowerCase().endsWith(".gz");
+    }
+    
+    /**
+     * Gets the length of the CSV extension of an output path, which files derived
+     * from the output, such as shards and summaries, replace with their own suffix.
+     * 
+     * @param filePath path to the output CSV file
+     * @return the length of a trailing {@code .csv.gz}, {@code .csv} or {@code .gz}, 0 if none
+     */
+    static int extensionLength(String filePath) {
+        String lowerCasePath = filePath.toLowerCase();
+        if (lowerCasePath.endsWith(".csv.gz")) {
+            return 7;
+        }
+        return lowerCasePath.endsWith(".csv") ? 4 : lowerCasePath.endsWith(".gz") ? 3 : 0;
+    }
+    
+    /**
+     * Turns a value into a portable part of a file name.
+     * 
+     * @param value the value
+     * @return the value with characters other than letters, digits, dots, dashes and
+     *         underscores replaced, shortened if long; {@code _empty} for an empty value
+     */
+    static String toFileNamePart(String value) {
+        if (value.isEmpty()) {
+            return "_empty";
+        }
+        StringBuilder label = new StringBuilder(Math.min(value.length(), MAX_FILE_NAME_PART_LENGTH));
+        for (int i = 0; i < value.length() && label.length() < MAX_FILE_NAME_PART_LENGTH; i++) {
+            char c = value.charAt(i);
+            boolean portable = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '_';
+            label.append(portable ? c : '_');
+        }
+        return label.toString();
+    }
+    
+    /**
+     * Opens the output file channel and wraps it in a byte-level row writer.
+     * 
+     * @param filePath path to the output CSV file
+     * @param headers array of column headers
+     * @param metrics metrics of the running conversion, or null
+     * @return an open row writer; the caller must close it
+     * @throws CsvFileException if the file cannot be created
+     */
+    private EncodedRowWriter openChannelWriter(String filePath, String[] headers, ConversionMetrics metrics)
+            throws CsvFileException {
+        try {
+            WritableByteChannel channel;
+            if (isCompressedOutput(filePath)) {
+                channel = Channels.newChannel(new ParallelGzipOutputStream(Files.newOutputStream(Paths.get(filePath))));
+            } else {
+                channel = FileChannel.open(Paths.get(filePath),
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            }
+            return new Utf8CsvRowWriter(filePath, channel, csvFormat, WRITE_BUFFER_SIZE, headers, metrics);
+        } catch (IOException e) {
+            throw new CsvFileException("Failed to open CSV file: " + filePath, e);
         }
     }
     
@@ -125,8 +319,8 @@ public class CsvFileWriter {
         LOGGER.info("Writing CSV file without headers: " + filePath);
         LOGGER.info("Data: " + data.size() + " rows");
         
-        try (FileWriter fileWriter = new FileWriter(filePath);
-             CSVWriter csvWriter = new CSVWriter(fileWriter)) {
+        try (Writer fileWriter = openTextWriter(filePath, false);
+             CSVWriter csvWriter = newCsvWriter(fileWriter)) {
             
             // Write data rows only
             for (String[] row : data) {
@@ -142,6 +336,8 @@ public class CsvFileWriter {
     
     /**
      * Appends data to an existing CSV file.
+     * The rows must have the columns of the existing header, in the same order; to combine
+     * files with different columns, use {@link DataConverter#mergeJsonToCsv} instead.
      * 
      * @param filePath path to the CSV file
      * @param data list of data rows to append
@@ -159,8 +355,8 @@ public class CsvFileWriter {
         
         LOGGER.info("Appending " + data.size() + " rows to CSV file: " + filePath);
         
-        try (FileWriter fileWriter = new FileWriter(filePath, true);
-             CSVWriter csvWriter = new CSVWriter(fileWriter)) {
+        try (Writer fileWriter = openTextWriter(filePath, true);
+             CSVWriter csvWriter = newCsvWriter(fileWriter)) {
             
             for (String[] row : data) {
                 csvWriter.writeNext(row);
@@ -173,6 +369,35 @@ public class CsvFileWriter {
         }
     }
     
+    /**
+     * Opens a UTF-8 character writer on a CSV file. Appending to a compressed
+     * file adds a new gzip member, which readers decompress as a continuation.
+     * 
+     * @param filePath path to the CSV file
+     * @param append whether to append to an existing file instead of replacing it
+     * @return the writer; the caller must close it
+     * @throws IOException if the file cannot be opened
+     */
+    private Writer openTextWriter(String filePath, boolean append) throws IOException {
+        if (isCompressedOutput(filePath)) {
+            return new OutputStreamWriter(new ParallelGzipOutputStream(append
+                    ? Files.newOutputStream(Paths.get(filePath), StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                    : Files.newOutputStream(Paths.get(filePath))), StandardCharsets.UTF_8);
+        }
+        return new FileWriter(filePath, StandardCharsets.UTF_8, append);
+    }
+    
+    /**
+     * Creates an OpenCSV writer configured with this writer's CSV format.
+     * 
+     * @param writer the character output
+     * @return a configured CSV writer
+     */
+    private CSVWriter newCsvWriter(Writer writer) {
+        return new CSVWriter(writer, csvFormat.getSeparator(), csvFormat.getQuoteChar(),
+                csvFormat.getEscapeChar(), csvFormat.getLineEnd());
+    }
+    
     /**
      * Validates if a file path is suitable for CSV writing.
      * 
@@ -0,0 +1,87 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.config.ApplicationConfig;
+
+/**
+ * CSV dialect used for output files: separator, quote and escape characters and line end.
+ * Every field is quoted, and quote or escape characters inside a field are preceded
+ * by the escape character, matching OpenCSV's default writer behavior.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class CsvFormat {
+    
+    /** Quote character value meaning fields are written without quotes. */
+    public static final char NO_QUOTE_CHARACTER = '\u0000';
+    
+    private final char separator;
+    private final char quoteChar;
+    private final char escapeChar;
+    private final String lineEnd;
+    
+    /**
+     * Constructs a new CsvFormat.
+     * 
+     * @param separator field separator
+     * @param quoteChar field quote character, or {@link #NO_QUOTE_CHARACTER}
+     * @param escapeChar character written before quote and escape characters in a field
+     * @param lineEnd line terminator written after every row
+     */
+    public CsvFormat(char separator, char quoteChar, char escapeChar, String lineEnd) {
+        this.separator = separator;
+        this.quoteChar = quoteChar;
+        this.escapeChar = escapeChar;
+        this.lineEnd = lineEnd;
+    }
+    
+    /**
+     * Builds the format declared by the {@code csv.default.*} settings.
+     * 
+     * @param config the application configuration
+     * @return the configured CSV format
+     */
+    public static CsvFormat fromConfig(ApplicationConfig config) {
+        return new CsvFormat(
+                config.getChar("csv.default.separator", ','),
+                config.getChar("csv.default.quote.char", '"'),
+                config.getChar("csv.default.escape.char", '"'),
+                config.getString("csv.default.line.end", "\n"));
+    }
+    
+    /**
+     * Gets the field separator.
+     * 
+     * @return the separator character
+     */
+    public char getSeparator() {
+        return separator;
+    }
+    
+    /**
+     * Gets the field quote character.
+     * 
+     * @return the quote character, or {@link #NO_QUOTE_CHARACTER}
+     */
+    public char getQuoteChar() {
+        return quoteChar;
+    }
+    
+    /**
+     * Gets the escape character.
+     * 
+     * @return the escape character
+     */
+    public char getEscapeChar() {
+        return escapeChar;
+    }
+    
+    /**
+     * Gets the line terminator.
+     * 
+     * @return the line end written after every row
+     */
+    public String getLineEnd() {
+        return lineEnd;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+
+/**
+ * Incremental CSV writer that writes rows as soon as they are produced.
+ * Used by the streaming conversion paths so that no row list is ever built in memory.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public interface CsvRowWriter extends AutoCloseable {
+    
+    /**
+     * Writes a single data row, padding or truncating it to the header width.
+     * 
+     * @param row the row values
+     * @throws CsvFileException if the row cannot be written
+     */
+    void writeRow(String[] row) throws CsvFileException;
+    
+    /**
+     * Writes every row of a columnar batch, padding or truncating them to the header width.
+     * The batch is left unchanged and can be cleared for reuse afterwards.
+     * 
+     * @param batch the rows to write
+     * @throws CsvFileException if the rows cannot be written
+     */
+    void writeBatch(ColumnarBatch batch) throws CsvFileException;
+    
+    /**
+     * Gets the number of data rows written so far, excluding the header.
+     * 
+     * @return the row count
+     */
+    long getRowCount();
+    
+    /**
+     * Flushes and closes the output.
+     * 
+     * @throws CsvFileException if pending data cannot be written or the output cannot be closed
+     */
+    @Override
+    void close() throws CsvFileException;
+}
\ No newline at end of file
@@ -1,10 +1,23 @@
 package com.scientific.dataintegration.core;
 
+import com.scientific.dataintegration.config.ApplicationConfig;
 import com.scientific.dataintegration.exceptions.CsvFileException;
 import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.logging.Logger;
+import java.util.zip.CRC32C;
 
 /**
  * Specialized data converter for scientific data processing.
@@ -16,16 +29,177 @@ import java.util.logging.Logger;
 public class DataConverter {
     
     private static final Logger LOGGER = Logger.getLogger(DataConverter.class.getName());
+    private static final long DEFAULT_CHUNK_SIZE = 8L * 1024 * 1024;
+    private static final int DEFAULT_DICTIONARY_SIZE = 4096;
+    private static final int DEFAULT_SORT_MEMORY_MEGABYTES = 64;
+    private static final int DEFAULT_SHARD_WRITER_THREADS = 4;
+    private static final int DEFAULT_SHARD_MAX_PARTITIONS = 1024;
+    private static final int DEFAULT_SUMMARY_MAX_GROUPS = 100000;
+    private static final int DEFAULT_PIPELINE_BATCHES = 4;
+    private static final int DEFAULT_PLANNER_MEMORY_MEGABYTES = 2;
+    /** Version of the CSV layout; increase it whenever the same input produces different output. */
+    private static final int OUTPUT_FORMAT_VERSION = 1;
     
     private final JsonFileReader jsonReader;
+    private final ApplicationConfig config;
     private final CsvFileWriter csvWriter;
+    private final ValueFormatter valueFormatter;
+    private final int dictionarySize;
+    private final RowOrder rowOrder;
+    private final long sortMemoryBytes;
+    private final Path spillDirectory;
+    private final OutputSharding sharding;
+    private final int shardWriterThreads;
+    private final int shardMaxPartitions;
+    private final SummarySpec summary;
+    private final int summaryMaxGroups;
+    private final RecordSelection selection;
+    private final int pipelineBatches;
+    private final ExecutionPlanner planner;
     
     /**
      * Constructs a new DataConverter with default configuration.
      */
     public DataConverter() {
-        this.jsonReader = new JsonFileReader();
-        this.csvWriter = new CsvFileWriter();
+        this(new JsonFileReader(), ApplicationConfig.load(), RowOrder.NONE, OutputSharding.NONE,
+                SummarySpec.NONE, RecordSelection.NONE);
+    }
+    
+    /**
+     * Constructs a new DataConverter that parses with a shared mapper.
+     * Converters hold no per-conversion state, so a single instance built this
+     * way can serve many concurrent conversions.
+     * 
+     * @param objectMapper configured Jackson mapper shared by all conversions
+     */
+    public DataConverter(ObjectMapper objectMapper) {
+        this(new JsonFileReader(objectMapper), ApplicationConfig.load(), RowOrder.NONE, OutputSharding.NONE,
+                SummarySpec.NONE, RecordSelection.NONE);
+    }
+    
+    /**
+     * Constructs a new DataConverter from its reader and the application configuration.
+     * 
+     * @param jsonReader reader used for the input files
+     * @param config the application configuration
+     * @param rowOrder order and uniqueness of the output rows
+     * @param sharding how the output rows are split over several files
+     * @param summary the aggregates computed while the output is written
+     * @param selection the columns and records kept from the input
+     */
+    private DataConverter(JsonFileReader jsonReader, ApplicationConfig config, RowOrder rowOrder,
+            OutputSharding sharding, SummarySpec summary, RecordSelection selection) {
+        this.jsonReader = jsonReader;
+        this.config = config;
+        this.csvWriter = new CsvFileWriter(CsvFormat.fromConfig(config));
+        this.valueFormatter = new ValueFormatter(ScientificNumberFormatter.fromConfig(config));
+        this.dictionarySize = Math.max(0, config.getInt("conversion.dictionary.max.entries",
+                DEFAULT_DICTIONARY_SIZE));
+        this.rowOrder = rowOrder;
+        this.sortMemoryBytes = Math.max(1, config.getInt("sort.memory.megabytes", DEFAULT_SORT_MEMORY_MEGABYTES))
+                * 1024L * 1024L;
+        this.spillDirectory = Paths.get(config.getString("sort.spill.directory",
+                System.getProperty("java.io.tmpdir")));
+        this.sharding = sharding;
+        this.shardWriterThreads = Math.max(1, config.getInt("shard.writer.threads", DEFAULT_SHARD_WRITER_THREADS));
+        this.shardMaxPartitions = Math.max(1, config.getInt("shard.max.partitions", DEFAULT_SHARD_MAX_PARTITIONS));
+        this.summary = summary;
+        this.summaryMaxGroups = Math.max(1, config.getInt("summary.max.groups", DEFAULT_SUMMARY_MAX_GROUPS));
+        this.selection = selection;
+        this.pipelineBatches = Math.max(0, config.getInt("pipeline.batches", DEFAULT_PIPELINE_BATCHES));
+        this.planner = new ExecutionPlanner(jsonReader, Math.max(0, config.getInt("planner.memory.max.megabytes",
+                DEFAULT_PLANNER_MEMORY_MEGABYTES)) * 1024L * 1024L, DEFAULT_CHUNK_SIZE);
+    }
+    
+    /**
+     * Creates a converter with the same settings that sorts and deduplicates the rows it writes.
+     * Rows beyond {@code sort.memory.megabytes} are spilled in sorted runs to
+     * {@code sort.spill.directory} and merged when the output is written, so inputs larger
+     * than the heap can be sorted. Sorted conversions do not use several threads per file.
+     * 
+     * @param rowOrder order and uniqueness of the output rows
+     * @return the new converter
+     */
+    public DataConverter withRowOrder(RowOrder rowOrder) {
+        return new DataConverter(jsonReader, config, rowOrder, sharding, summary, selection);
+    }
+    
+    /**
+     * Creates a converter with the same settings that splits each CSV output into shards,
+     * each with its own header, written concurrently by up to {@code shard.writer.threads}
+     * threads, and lists them in an index file named after the output. Partitioning by a
+     * column fails once it has more than {@code shard.max.partitions} distinct values, since
+     * every partition keeps a file open. Sharded conversions do not use several threads per
+     * file for reading.
+     * 
+     * @param sharding how the output rows are split over several files
+     * @return the new converter
+     */
+    public DataConverter withSharding(OutputSharding sharding) {
+        return new DataConverter(jsonReader, config, rowOrder, sharding, summary, selection);
+    }
+    
+    /**
+     * Creates a converter with the same settings that computes group aggregates of the rows
+     * it writes and saves them as summary CSV files next to each output, so that reports need
+     * no second pass over the CSV. Each grouping keeps at most {@code summary.max.groups}
+     * groups. Aggregates are computed after sorting and deduplication. Summarized conversions
+     * do not use several threads per file.
+     * 
+     * @param summary the aggregates to compute
+     * @return the new converter
+     */
+    public DataConverter withSummary(SummarySpec summary) {
+        return new DataConverter(jsonReader, config, rowOrder, sharding, summary, selection);
+    }
+    
+    /**
+     * Creates a converter with the same settings that writes only some columns, of only
+     * the records meeting some conditions. Both are applied while the input is parsed:
+     * fields outside the selected columns are skipped without being read, and rejected
+     * records are dropped before any of their values is formatted.
+     * 
+     * @param selection the columns and records kept from the input
+     * @return the new converter
+     */
+    public DataConverter withSelection(RecordSelection selection) {
+        return new DataConverter(jsonReader, config, rowOrder, sharding, summary, selection);
+    }
+    
+    /**
+     * Gets the order and uniqueness of the rows written by this converter.
+     * 
+     * @return the row order, {@link RowOrder#NONE} for input order
+     */
+    public RowOrder getRowOrder() {
+        return rowOrder;
+    }
+    
+    /**
+     * Gets how the CSV outputs of this converter are split over several files.
+     * 
+     * @return the sharding, {@link OutputSharding#NONE} for a single file
+     */
+    public OutputSharding getSharding() {
+        return sharding;
+    }
+    
+    /**
+     * Gets the aggregates computed while this converter writes its outputs.
+     * 
+     * @return the summary, {@link SummarySpec#NONE} if none is computed
+     */
+    public SummarySpec getSummary() {
+        return summary;
+    }
+    
+    /**
+     * Gets the columns and records this converter keeps from its inputs.
+     * 
+     * @return the selection, {@link RecordSelection#NONE} if everything is kept
+     */
+    public RecordSelection getSelection() {
+        return selection;
     }
     
     /**
@@ -33,27 +207,607 @@ public class DataConverter {
      * 
      * @param jsonFilePath path to the input JSON file
      * @param csvFilePath path to the output CSV file
+     * @return the measurements of the conversion
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    public ConversionMetrics convertJsonToCsv(String jsonFilePath, String csvFilePath) 
+            throws JsonFileException, CsvFileException {
+        
+        if (jsonReader.isJsonLines(jsonFilePath)) {
+            // JSON Lines files are never loaded whole, records are streamed line by line
+            return convertJsonToCsvStreaming(jsonFilePath, csvFilePath);
+        }
+        
+        ConversionMetrics metrics = ConversionMetrics.start(jsonFilePath, csvFilePath);
+        convertInMemory(jsonFilePath, csvFilePath, toFile(csvFilePath, metrics), metrics);
+        return metrics.finish();
+    }
+    
+    /**
+     * Converts a JSON file to CSV format with the strategy the planner chooses for it.
+     * The planner samples the first records of the input and weighs their size and number
+     * of fields, the size of the input, the free heap and the processors. Documents up to
+     * {@code planner.memory.max.megabytes} whose in-memory conversion fits in half of the
+     * free heap are converted in memory. Larger inputs are streamed, on several threads
+     * when they can be split into several chunks. Sorted rows are streamed and spilled
+     * to disk when they exceed the sort budget, which is lowered when the heap is too
+     * small for {@code sort.memory.megabytes}. The decision and its reason are logged.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param csvFilePath path to the output CSV file
+     * @param concurrentConversions number of conversions running at the same time, which
+     *                              share the heap and the processors
+     * @return the measurements of the conversion
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    public ConversionMetrics convertJsonToCsvAdaptive(String jsonFilePath, String csvFilePath,
+            int concurrentConversions) throws JsonFileException, CsvFileException {
+        return convertJsonToCsvAdaptive(jsonFilePath, csvFilePath, concurrentConversions, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Converts a JSON file to CSV format with the strategy the planner chooses for it,
+     * on at most the given number of threads.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param csvFilePath path to the output CSV file
+     * @param concurrentConversions number of conversions running at the same time, which
+     *                              share the heap and the processors
+     * @param maxParallelism largest number of threads the conversion may use
+     * @return the measurements of the conversion
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     * @see #convertJsonToCsvAdaptive(String, String, int)
+     */
+    public ConversionMetrics convertJsonToCsvAdaptive(String jsonFilePath, String csvFilePath,
+            int concurrentConversions, int maxParallelism) throws JsonFileException, CsvFileException {
+        
+        ExecutionPlan plan = planConversion(jsonFilePath, concurrentConversions, maxParallelism);
+        LOGGER.info("Planned conversion of " + jsonFilePath + ": " + plan);
+        
+        if (plan.getStrategy() == ExecutionPlan.Strategy.PARALLEL) {
+            return convertJsonToCsvParallel(jsonFilePath, csvFilePath, plan.getParallelism());
+        }
+        ConversionMetrics metrics = ConversionMetrics.start(jsonFilePath, csvFilePath);
+        RowWriterOpener output = toFile(csvFilePath, metrics, plan.getSortMemoryBytes());
+        if (plan.getStrategy() == ExecutionPlan.Strategy.MEMORY) {
+            convertInMemory(jsonFilePath, csvFilePath, output, metrics);
+        } else {
+            convertStreaming(jsonFilePath, csvFilePath, output, metrics);
+        }
+        return metrics.finish();
+    }
+    
+    /**
+     * Chooses how a JSON file is converted by {@link #convertJsonToCsvAdaptive}, without converting it.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param concurrentConversions number of conversions running at the same time, which
+     *                              share the heap and the processors
+     * @return the strategy, parallelism and sort budget of the conversion, and the reason for them
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     */
+    public ExecutionPlan planConversion(String jsonFilePath, int concurrentConversions) throws JsonFileException {
+        return planConversion(jsonFilePath, concurrentConversions, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Chooses how a JSON file is converted on at most the given number of threads, without converting it.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param concurrentConversions number of conversions running at the same time, which
+     *                              share the heap and the processors
+     * @param maxParallelism largest number of threads the conversion may use
+     * @return the strategy, parallelism and sort budget of the conversion, and the reason for them
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     */
+    public ExecutionPlan planConversion(String jsonFilePath, int concurrentConversions, int maxParallelism)
+            throws JsonFileException {
+        return planner.plan(jsonFilePath, !rowOrder.isEmpty(), writesSingleFile(), sortMemoryBytes,
+                concurrentConversions, maxParallelism);
+    }
+    
+    /**
+     * Converts a JSON file to CSV format without loading the document into memory.
+     * The main data array is read twice from the token stream: a first pass collects
+     * the header union, a second pass turns each record into a row and writes it
+     * immediately, so heap use does not grow with the size of the input.
+     * JSON Lines files are read one line per record. Documents without an array
+     * of records fall back to {@link #convertJsonToCsv}.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param csvFilePath path to the output CSV file
+     * @return the measurements of the conversion
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    public ConversionMetrics convertJsonToCsvStreaming(String jsonFilePath, String csvFilePath)
+            throws JsonFileException, CsvFileException {
+        
+        ConversionMetrics metrics = ConversionMetrics.start(jsonFilePath, csvFilePath);
+        convertStreaming(jsonFilePath, csvFilePath, toFile(csvFilePath, metrics), metrics);
+        return metrics.finish();
+    }
+    
+    /**
+     * Converts a JSON file to CSV bytes written to a channel, with the constant-memory
+     * streaming conversion. Nothing is written before the first pass over the input
+     * has completed, so syntax errors are reported before any output is produced.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param output channel receiving the CSV bytes; closed when the conversion ends
+     * @param outputName name of the output used in messages and metrics
+     * @return the measurements of the conversion
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV bytes cannot be written
+     */
+    public ConversionMetrics convertJsonToCsvStreaming(String jsonFilePath, WritableByteChannel output,
+            String outputName) throws JsonFileException, CsvFileException {
+        
+        ConversionMetrics metrics = ConversionMetrics.start(jsonFilePath, outputName, false);
+        RowWriterOpener channel = headers -> csvWriter.openRowWriter(output, outputName, headers, metrics);
+        convertStreaming(jsonFilePath, outputName, orEmpty(ordered(channel, metrics, sortMemoryBytes), channel),
+                metrics);
+        return metrics.finish();
+    }
+    
+    /**
+     * Converts a JSON file to CSV format using several threads for a single file.
+     * The record array is split into chunks at record boundaries which are parsed and
+     * formatted concurrently; the rows are written in their original order, so the
+     * output is identical to {@link #convertJsonToCsvStreaming}. Files that are too
+     * small to split, and compressed files, are converted with the streaming path.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param csvFilePath path to the output CSV file
+     * @param parallelism number of worker threads
+     * @return the measurements of the conversion
      * @throws JsonFileException if the JSON file cannot be read or parsed
      * @throws CsvFileException if the CSV file cannot be written
      */
-    public void convertJsonToCsv(String jsonFilePath, String csvFilePath) 
+    public ConversionMetrics convertJsonToCsvParallel(String jsonFilePath, String csvFilePath, int parallelism) 
+            throws JsonFileException, CsvFileException {
+        
+        if (parallelism < 2) {
+            return convertJsonToCsvStreaming(jsonFilePath, csvFilePath);
+        }
+        if (!rowOrder.isEmpty()) {
+            // Workers hand over encoded rows, which cannot be sorted
+            LOGGER.info("Rows are sorted, using streaming conversion");
+            return convertJsonToCsvStreaming(jsonFilePath, csvFilePath);
+        }
+        if (!sharding.isNone()) {
+            // Encoded rows cannot be split between shards either
+            LOGGER.info("Output is sharded, using streaming conversion");
+            return convertJsonToCsvStreaming(jsonFilePath, csvFilePath);
+        }
+        if (!summary.isEmpty()) {
+            // Nor can they be read back for aggregation
+            LOGGER.info("Output is summarized, using streaming conversion");
+            return convertJsonToCsvStreaming(jsonFilePath, csvFilePath);
+        }
+        
+        LOGGER.info("Starting parallel conversion: " + jsonFilePath + " → " + csvFilePath);
+        
+        ConversionMetrics metrics = ConversionMetrics.start(jsonFilePath, csvFilePath);
+        metrics.setMode("parallel");
+        ParallelChunkConverter chunkConverter = 
+                new ParallelChunkConverter(valueFormatter, jsonReader, csvWriter, parallelism,
+                        DEFAULT_CHUNK_SIZE, dictionarySize, selection);
+        
+        if (chunkConverter.convert(jsonFilePath, csvFilePath, metrics)) {
+            LOGGER.info("Parallel conversion completed successfully");
+        } else {
+            LOGGER.info("Input cannot be split, using streaming conversion");
+            convertStreaming(jsonFilePath, csvFilePath, toFile(csvFilePath, metrics), metrics);
+        }
+        return metrics.finish();
+    }
+    
+    /**
+     * Merges the records of several JSON files into one CSV file.
+     * The header is the union of the columns of all inputs, in first-seen order, and
+     * every row is aligned to it, leaving the cells of columns a file does not have empty.
+     * The inputs are read concurrently, but rows are written by a single writer in the
+     * order of the list, so the output does not depend on the number of threads.
+     * A document without an array of records contributes a single row.
+     * 
+     * @param jsonFilePaths paths to the input JSON and JSON Lines files, in output order
+     * @param csvFilePath path to the output CSV file
+     * @param parallelism number of files read at the same time
+     * @return the measurements of the conversion
+     * @throws JsonFileException if an input cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    public ConversionMetrics mergeJsonToCsv(List<String> jsonFilePaths, String csvFilePath, int parallelism)
+            throws JsonFileException, CsvFileException {
+        
+        if (jsonFilePaths.isEmpty()) {
+            throw new JsonFileException("No input files to merge");
+        }
+        
+        LOGGER.info("Starting merge of " + jsonFilePaths.size() + " files → " + csvFilePath);
+        
+        ConversionMetrics metrics = ConversionMetrics.start(String.join(", ", jsonFilePaths), csvFilePath);
+        metrics.setMode("merge");
+        long bytesIn = 0;
+        for (String jsonFilePath : jsonFilePaths) {
+            try {
+                bytesIn += Files.size(Paths.get(jsonFilePath));
+            } catch (IOException | RuntimeException e) {
+                // A missing input is reported by the reader
+            }
+        }
+        metrics.setBytesIn(bytesIn);
+        
+        new MergeConverter(valueFormatter, jsonReader, Math.max(1, parallelism), dictionarySize, selection)
+                .merge(jsonFilePaths, toFile(csvFilePath, metrics), metrics);
+        
+        LOGGER.info("Merge completed successfully");
+        return metrics.finish();
+    }
+    
+    /**
+     * Opens the rows a conversion of a JSON or JSON Lines file would write, to be read
+     * without writing a CSV file. The columns are collected in a first pass over the file,
+     * as in {@link #convertJsonToCsvStreaming}, and each record is converted only when its
+     * row is pulled, so the rows are never held in memory together. The selection of this
+     * converter applies; its row order, sharding and summaries only apply to written files,
+     * so the rows come in input order. A document without an array of records is converted
+     * in memory instead.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @return the rows; the caller must close them
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     */
+    public ConvertedRows openRows(String jsonFilePath) throws JsonFileException {
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
+        long recordCount;
+        
+        try (RecordStream records = jsonReader.openRecordStream(jsonFilePath)) {
+            if (!records.hasRecordArray()) {
+                LOGGER.info("No record array found, converting in memory");
+                return loadRows(jsonFilePath);
+            }
+            
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                planBuilder.collect(parser);
+            }
+            recordCount = records.getRecordCount();
+        
+        } catch (IOException e) {
+            throw jsonReader.parseFailure(jsonFilePath, e);
+        }
+        
+        ColumnPlan plan = planBuilder.build(valueFormatter);
+        LOGGER.info("Opened rows of " + jsonFilePath + ": " + recordCount + " records, "
+                + plan.getColumnCount() + " columns");
+        return ConvertedRows.ofFile(jsonReader, jsonFilePath, plan, jsonReader.openRecordStream(jsonFilePath),
+                DEFAULT_CHUNK_SIZE, recordCount);
+    }
+    
+    /**
+     * Opens the rows of JSON read from a stream, in a single pass. The columns are
+     * collected as the rows are read, so the header of the rows grows while they are
+     * read, as described for {@link ConvertedRows}. The input must hold an array of
+     * records, or JSON Lines records when {@code jsonLines} is set.
+     * 
+     * @param input the uncompressed JSON input; closed together with the rows
+     * @param sourceName name of the input used in messages
+     * @param jsonLines whether the input holds one record per line
+     * @return the rows; the caller must close them
+     * @throws JsonFileException if the input cannot be read or holds no array of records
+     */
+    public ConvertedRows openRows(InputStream input, String sourceName, boolean jsonLines)
+            throws JsonFileException {
+        JsonParser parser = null;
+        try {
+            parser = jsonReader.createParser(input);
+            RecordStream records = jsonLines
+                    ? new JsonSequenceRecordStream(parser, sourceName)
+                    : new JsonRecordStream(parser, sourceName);
+            if (!records.hasRecordArray()) {
+                records.close();
+                throw new JsonFileException("No array of records found in " + sourceName);
+            }
+            return ConvertedRows.ofStream(jsonReader, valueFormatter, sourceName, ColumnPlan.builder(selection),
+                    records);
+        
+        } catch (IOException e) {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            throw jsonReader.parseFailure(sourceName, e);
+        }
+    }
+    
+    /**
+     * Opens the rows of JSON read from a channel, in a single pass, as described
+     * for {@link #openRows(InputStream, String, boolean)}.
+     * 
+     * @param input the uncompressed JSON input; closed together with the rows
+     * @param sourceName name of the input used in messages
+     * @param jsonLines whether the input holds one record per line
+     * @return the rows; the caller must close them
+     * @throws JsonFileException if the input cannot be read or holds no array of records
+     */
+    public ConvertedRows openRows(ReadableByteChannel input, String sourceName, boolean jsonLines)
+            throws JsonFileException {
+        return openRows(Channels.newInputStream(input), sourceName, jsonLines);
+    }
+    
+    /**
+     * Converts a document without an array of records in memory and keeps its rows.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @return the rows of the document
+     * @throws JsonFileException if the JSON file cannot be read, parsed or converted
+     */
+    private ConvertedRows loadRows(String jsonFilePath) throws JsonFileException {
+        ConversionMetrics metrics = ConversionMetrics.start(jsonFilePath, jsonFilePath, false);
+        Map<String, Object> jsonData = jsonReader.readJsonAsMap(jsonFilePath);
+        RowCollector collector = new RowCollector();
+        try {
+            if (isArrayData(jsonData)) {
+                convertArrayData(jsonData, collector, metrics);
+            } else {
+                convertObjectData(jsonData, collector, metrics);
+            }
+        } catch (CsvFileException e) {
+            throw new JsonFileException(e.getMessage() + ": " + jsonFilePath, e);
+        }
+        return ConvertedRows.ofLoaded(jsonReader, jsonFilePath, collector.headers, collector.rows);
+    }
+    
+    /**
+     * Converts a JSON document loaded whole into memory.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param csvFilePath name of the output, for messages
+     * @param output opens the output once the header is known
+     * @param metrics metrics of the running conversion
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    private void convertInMemory(String jsonFilePath, String csvFilePath, RowWriterOpener output,
+            ConversionMetrics metrics)
             throws JsonFileException, CsvFileException {
         
         LOGGER.info("Starting conversion: " + jsonFilePath + " → " + csvFilePath);
+        metrics.setMode("memory");
         
         // Read JSON data
+        long start = System.nanoTime();
         Map<String, Object> jsonData = jsonReader.readJsonAsMap(jsonFilePath);
+        metrics.addTimeSince(ConversionMetrics.Stage.PARSE, start);
+        metrics.sampleHeap();
         
         // Convert to CSV format
         if (isArrayData(jsonData)) {
-            convertArrayData(jsonData, csvFilePath);
+            convertArrayData(jsonData, output, metrics);
         } else {
-            convertObjectData(jsonData, csvFilePath);
+            convertObjectData(jsonData, output, metrics);
         }
         
         LOGGER.info("Conversion completed successfully");
     }
     
+    /**
+     * Converts a JSON file in two passes over its token stream, as described for
+     * {@link #convertJsonToCsvStreaming}. In the second pass, when the input fills more
+     * than one batch and there is more than one processor, records are parsed on the calling
+     * thread while up to {@code pipeline.batches} batches are encoded and written by a
+     * {@link ConversionPipeline}.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param csvFilePath name of the output, for messages
+     * @param output opens the output once the header is known
+     * @param metrics metrics of the running conversion
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    private void convertStreaming(String jsonFilePath, String csvFilePath, RowWriterOpener output,
+            ConversionMetrics metrics)
+            throws JsonFileException, CsvFileException {
+        
+        LOGGER.info("Starting streaming conversion: " + jsonFilePath + " → " + csvFilePath);
+        metrics.setMode("streaming");
+        
+        // First pass: collect the columns without materializing records
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
+        String dataKey;
+        long recordCount;
+        long start = System.nanoTime();
+        
+        try (RecordStream records = jsonReader.openRecordStream(jsonFilePath)) {
+            if (!records.hasRecordArray()) {
+                LOGGER.info("No record array found, using in-memory conversion");
+                convertInMemory(jsonFilePath, csvFilePath, output, metrics);
+                return;
+            }
+            
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                planBuilder.collect(parser);
+            }
+            dataKey = records.getDataKey();
+            recordCount = records.getRecordCount();
+        
+        } catch (IOException e) {
+            throw jsonReader.parseFailure(jsonFilePath, e);
+        }
+        
+        LOGGER.info("Found " + (dataKey == null ? "" : "data array '" + dataKey + "' with ") + recordCount + " records");
+        
+        ColumnPlan plan = planBuilder.build(valueFormatter);
+        metrics.addTimeSince(ConversionMetrics.Stage.DISCOVERY, start);
+        
+        // Second pass: fill reusable columnar batches straight from the tokens and hand them on when full
+        // Stages on other threads only pay off with a processor to run them and more than one batch to overlap
+        int depth = recordCount > ColumnarBatch.DEFAULT_CAPACITY && Runtime.getRuntime().availableProcessors() > 1
+                ? pipelineBatches : 0;
+        try (RecordStream records = jsonReader.openRecordStream(jsonFilePath);
+             CsvRowWriter rowWriter = output.open(plan.getHeaders());
+             ConversionPipeline pipeline = newPipeline(plan, depth, rowWriter, metrics)) {
+            
+            ColumnarBatch batch = pipeline.takeBatch();
+            JsonParser parser;
+            start = System.nanoTime();
+            while ((parser = records.nextRecord()) != null) {
+                plan.evaluate(parser, batch);
+                if (batch.isFull()) {
+                    // Parse time is taken per batch; the later stages time their own encoding and writes
+                    metrics.addTimeSince(ConversionMetrics.Stage.PARSE, start);
+                    pipeline.submit(batch);
+                    batch = pipeline.takeBatch();
+                    start = System.nanoTime();
+                }
+            }
+            metrics.addTimeSince(ConversionMetrics.Stage.PARSE, start);
+            pipeline.submit(batch);
+            pipeline.finish();
+            metrics.addRecords(rowWriter.getRowCount());
+            
+            LOGGER.info("Written " + rowWriter.getRowCount() + " records to CSV file");
+        
+        } catch (IOException e) {
+            throw jsonReader.parseFailure(jsonFilePath, e);
+        }
+        
+        LOGGER.info("Streaming conversion completed successfully");
+    }
+    
+    /**
+     * Creates the opener of a CSV output file.
+     * 
+     * @param csvFilePath path to the output CSV file
+     * @param metrics metrics of the running conversion
+     * @return an opener writing the file, or its shards when the output is sharded, and its summaries
+     */
+    private RowWriterOpener toFile(String csvFilePath, ConversionMetrics metrics) {
+        return toFile(csvFilePath, metrics, sortMemoryBytes);
+    }
+    
+    /**
+     * Creates the opener of a CSV output file whose sorted rows have a memory budget of their own.
+     * 
+     * @param csvFilePath path to the output CSV file
+     * @param metrics metrics of the running conversion
+     * @param sortBudgetBytes estimated size of the sorted rows kept in memory before spilling
+     * @return an opener writing the file, or its shards when the output is sharded, and its summaries
+     */
+    private RowWriterOpener toFile(String csvFilePath, ConversionMetrics metrics, long sortBudgetBytes) {
+        RowWriterOpener file = headers -> csvWriter.openRowWriter(csvFilePath, headers, metrics);
+        RowWriterOpener output;
+        if (sharding.isNone()) {
+            output = file;
+        } else {
+            output = headers -> new ShardedRowWriter(csvFilePath, headers, sharding, csvWriter,
+                    shardWriterThreads, shardMaxPartitions, metrics);
+        }
+        if (!summary.isEmpty()) {
+            RowWriterOpener rows = output;
+            output = headers -> new SummarizingRowWriter(csvFilePath, headers, summary, summaryMaxGroups,
+                    csvWriter, valueFormatter, rows, metrics);
+        }
+        return orEmpty(ordered(output, metrics, sortBudgetBytes), file);
+    }
+    
+    /**
+     * Sends a result without columns, such as the rows of a selection that rejected every
+     * record, straight to the underlying output, which is left empty. Sorting, sharding and
+     * summaries need columns to work on and have no rows to handle.
+     * 
+     * @param output opens the output of rows with columns
+     * @param plain opens the single file or channel underneath
+     * @return an opener choosing between the two by the header
+     */
+    private static RowWriterOpener orEmpty(RowWriterOpener output, RowWriterOpener plain) {
+        return headers -> headers.length == 0 ? plain.open(headers) : output.open(headers);
+    }
+    
+    /**
+     * Checks whether the outputs of this converter are single CSV files, which chunks
+     * converted on several threads can be appended to; sorted, sharded and summarized
+     * outputs cannot take them.
+     * 
+     * @return true if rows go straight to a single CSV file or channel
+     */
+    private boolean writesSingleFile() {
+        return rowOrder.isEmpty() && sharding.isNone() && summary.isEmpty();
+    }
+    
+    /**
+     * Creates the pipeline of a streaming conversion, which encodes rows on a thread of
+     * its own when the output takes encoded rows.
+     * 
+     * @param plan the plan filling the batches
+     * @param depth number of batches in circulation; 0 to write each batch on the calling thread
+     * @param rowWriter the output
+     * @param metrics metrics of the running conversion
+     * @return the pipeline
+     */
+    private ConversionPipeline newPipeline(ColumnPlan plan, int depth, CsvRowWriter rowWriter,
+            ConversionMetrics metrics) {
+        if (rowWriter instanceof EncodedRowWriter) {
+            return new ConversionPipeline(plan, dictionarySize, depth, (EncodedRowWriter) rowWriter, csvWriter,
+                    metrics);
+        }
+        return new ConversionPipeline(plan, dictionarySize, depth, rowWriter, metrics);
+    }
+    
+    /**
+     * Puts the external sort in front of an output when rows are sorted or deduplicated.
+     * 
+     * @param output opens the real output
+     * @param metrics metrics of the running conversion
+     * @param sortBudgetBytes estimated size of the sorted rows kept in memory before spilling
+     * @return the same opener when rows are written in input order, otherwise one that sorts them first
+     */
+    private RowWriterOpener ordered(RowWriterOpener output, ConversionMetrics metrics, long sortBudgetBytes) {
+        if (rowOrder.isEmpty()) {
+            return output;
+        }
+        return headers -> new SortingRowWriter(headers, rowOrder, sortBudgetBytes, spillDirectory, output, metrics);
+    }
+    
+    /**
+     * Gets a fingerprint of every setting that affects the CSV produced for an input:
+     * the CSV dialect, the number formatting, the selected columns and records, the row order,
+     * the sharding, the summaries and the output layout version.
+     * Two converters with the same fingerprint write identical files.
+     * 
+     * @return the fingerprint as a hexadecimal string
+     */
+    public String getSettingsFingerprint() {
+        CsvFormat csvFormat = csvWriter.getCsvFormat();
+        ScientificNumberFormatter numberFormatter = valueFormatter.getNumberFormatter();
+        String settings = "layout=" + OUTPUT_FORMAT_VERSION
+                + ";separator=" + (int) csvFormat.getSeparator()
+                + ";quote=" + (int) csvFormat.getQuoteChar()
+                + ";escape=" + (int) csvFormat.getEscapeChar()
+                + ";lineEnd=" + csvFormat.getLineEnd().replace("\r", "\\r").replace("\n", "\\n")
+                + ";upper=" + numberFormatter.getUpperThreshold()
+                + ";lower=" + numberFormatter.getLowerThreshold()
+                + ";places=" + numberFormatter.getDecimalPlaces()
+                + ";locale=" + Locale.getDefault(Locale.Category.FORMAT).toLanguageTag()
+                + (rowOrder.isEmpty() ? "" : ";order=" + rowOrder)
+                + (sharding.isNone() ? "" : ";shards=" + sharding)
+                + (summary.isEmpty() ? "" : ";summary=" + summary)
+                + (selection.isEmpty() ? "" : ";select=" + selection);
+        
+        CRC32C checksum = new CRC32C();
+        checksum.update(settings.getBytes(StandardCharsets.UTF_8));
+        return String.format("%08x", checksum.getValue());
+    }
+    
     /**
      * Checks if the JSON data represents an array of objects.
      * 
@@ -69,11 +823,12 @@ public class DataConverter {
      * Converts JSON array data to CSV format.
      * 
      * @param jsonData the parsed JSON data
-     * @param csvFilePath path to the output CSV file
+     * @param output opens the output once the header is known
+     * @param metrics metrics of the running conversion
      * @throws CsvFileException if the CSV file cannot be written
      */
     @SuppressWarnings("unchecked")
-    private void convertArrayData(Map<String, Object> jsonData, String csvFilePath) 
+    private void convertArrayData(Map<String, Object> jsonData, RowWriterOpener output, ConversionMetrics metrics) 
             throws CsvFileException {
         
         // Find the main data array
@@ -97,27 +852,29 @@ public class DataConverter {
         
         LOGGER.info("Found data array '" + dataKey + "' with " + dataList.size() + " records");
         
-        // Extract headers from the first object
-        Set<String> headerSet = new LinkedHashSet<>();
+        // Compile the columns of all records, nested fields becoming dotted columns
+        long start = System.nanoTime();
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
         for (Map<String, Object> record : dataList) {
-            headerSet.addAll(record.keySet());
+            planBuilder.collect(record);
         }
-        
-        String[] headers = headerSet.toArray(new String[0]);
+        ColumnPlan plan = planBuilder.build(valueFormatter);
+        start = metrics.addTimeSince(ConversionMetrics.Stage.DISCOVERY, start);
         
         // Convert data to string arrays
         List<String[]> csvData = new ArrayList<>();
         for (Map<String, Object> record : dataList) {
-            String[] row = new String[headers.length];
-            for (int i = 0; i < headers.length; i++) {
-                Object value = record.get(headers[i]);
-                row[i] = formatValue(value);
+            String[] row = plan.evaluate(record);
+            if (row != null) {
+                csvData.add(row);
             }
-            csvData.add(row);
         }
+        metrics.addTimeSince(ConversionMetrics.Stage.FORMAT, start);
+        metrics.sampleHeap();
         
         // Write to CSV
-        csvWriter.writeWithHeaders(csvFilePath, headers, csvData);
+        writeRows(output, plan.getHeaders(), csvData);
+        metrics.addRecords(csvData.size());
         LOGGER.info("Written " + csvData.size() + " records to CSV file");
     }
     
@@ -125,76 +882,103 @@ public class DataConverter {
      * Converts JSON object data to CSV format.
      * 
      * @param jsonData the parsed JSON data
-     * @param csvFilePath path to the output CSV file
+     * @param output opens the output once the header is known
+     * @param metrics metrics of the running conversion
      * @throws CsvFileException if the CSV file cannot be written
      */
-    private void convertObjectData(Map<String, Object> jsonData, String csvFilePath) 
+    private void convertObjectData(Map<String, Object> jsonData, RowWriterOpener output, ConversionMetrics metrics) 
             throws CsvFileException {
         
-        // Create headers and single data row from the object
-        List<String> headers = new ArrayList<>();
-        List<String> values = new ArrayList<>();
+        // Create headers and single data row from the object, flattening nested objects
+        long start = System.nanoTime();
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
+        planBuilder.collect(jsonData);
+        ColumnPlan plan = planBuilder.build(valueFormatter);
+        start = metrics.addTimeSince(ConversionMetrics.Stage.DISCOVERY, start);
         
-        flattenObject("", jsonData, headers, values);
-        
-        String[] headerArray = headers.toArray(new String[0]);
-        String[] valuesArray = values.toArray(new String[0]);
         List<String[]> csvData = new ArrayList<>();
-        csvData.add(valuesArray);
+        String[] row = plan.evaluate(jsonData);
+        if (row != null) {
+            csvData.add(row);
+        }
+        metrics.addTimeSince(ConversionMetrics.Stage.FORMAT, start);
         
-        csvWriter.writeWithHeaders(csvFilePath, headerArray, csvData);
-        LOGGER.info("Written object data with " + headers.size() + " fields to CSV file");
+        writeRows(output, plan.getHeaders(), csvData);
+        metrics.addRecords(csvData.size());
+        LOGGER.info("Written object data with " + plan.getColumnCount() + " fields to CSV file");
     }
     
     /**
-     * Recursively flattens nested objects into flat key-value pairs.
+     * Writes a header and the rows of a document converted in memory.
      * 
-     * @param prefix current key prefix
-     * @param obj object to flatten
-     * @param headers list to store flattened headers
-     * @param values list to store flattened values
+     * @param output opens the output
+     * @param headers array of column headers
+     * @param csvData the rows to write
+     * @throws CsvFileException if the rows cannot be written
      */
-    @SuppressWarnings("unchecked")
-    private void flattenObject(String prefix, Object obj, List<String> headers, List<String> values) {
-        if (obj instanceof Map) {
-            Map<String, Object> map = (Map<String, Object>) obj;
-            for (Map.Entry<String, Object> entry : map.entrySet()) {
-                String key = prefix.isEmpty() ? entry.getKey() : prefix + "." + entry.getKey();
-                flattenObject(key, entry.getValue(), headers, values);
+    private void writeRows(RowWriterOpener output, String[] headers, List<String[]> csvData) throws CsvFileException {
+        try (CsvRowWriter rowWriter = output.open(headers)) {
+            for (String[] row : csvData) {
+                rowWriter.writeRow(row);
             }
-        } else {
-            headers.add(prefix);
-            values.add(formatValue(obj));
         }
     }
     
     /**
-     * Formats a value for CSV output, handling special scientific data types.
-     * 
-     * @param value the value to format
-     * @return formatted string representation
+     * Output keeping the header and rows of a document converted in memory.
      */
-    private String formatValue(Object value) {
-        if (value == null) {
-            return "";
+    private static final class RowCollector implements RowWriterOpener, CsvRowWriter {
+        
+        private final List<String[]> rows = new ArrayList<>();
+        private String[] headers = new String[0];
+        
+        @Override
+        public CsvRowWriter open(String[] openedHeaders) {
+            this.headers = openedHeaders;
+            return this;
         }
         
-        if (value instanceof List) {
-            List<?> list = (List<?>) value;
-            return list.stream()
-                    .map(this::formatValue)
-                    .reduce((a, b) -> a + "; " + b)
-                    .orElse("");
+        @Override
+        public void writeRow(String[] row) {
+            rows.add(row);
         }
         
-        if (value instanceof Double || value instanceof Float) {
-            // Handle scientific notation for large/small numbers
-            double doubleValue = ((Number) value).doubleValue();
-            if (Math.abs(doubleValue) >= 1e6 || (Math.abs(doubleValue) <= 1e-3 && doubleValue != 0)) {
-                return String.format("%.6E", doubleValue);
+        @Override
+        public void writeBatch(ColumnarBatch batch) {
+            for (int row = 0; row < batch.getSize(); row++) {
+                String[] cells = new String[headers.length];
+                for (int column = 0; column < cells.length; column++) {
+                    cells[column] = batch.getText(column, row);
+                }
+                rows.add(cells);
             }
         }
         
-        return value.toString();
+        @Override
+        public long getRowCount() {
+            return rows.size();
+        }
+        
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+    
+    /**
+     * Opens the output of a conversion once its header is known, so a file path and
+     * an arbitrary channel are written by the same conversion code.
+     */
+    @FunctionalInterface
+    interface RowWriterOpener {
+        
+        /**
+         * Opens the output and writes the header line.
+         * 
+         * @param headers array of column headers
+         * @return an open row writer; the caller must close it
+         * @throws CsvFileException if the output cannot be opened
+         */
+        CsvRowWriter open(String[] headers) throws CsvFileException;
     }
 }
\ No newline at end of file
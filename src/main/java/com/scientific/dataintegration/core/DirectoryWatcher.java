@@ -0,0 +1,373 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Long-running conversion of the JSON files dropped into a directory.
+ * The directory is watched with a {@link WatchService}; a file is converted once
+ * no event was seen for it during the debounce interval and its size has stopped
+ * changing, so files still being copied are not read half-written. Conversions
+ * run on a bounded worker pool and share one {@link DataConverter}, so every file
+ * after the first runs on a warm JVM with Jackson already configured and compiled.
+ * 
+ * <p>Each CSV file is written under a hidden temporary name and moved into place
+ * when complete, so consumers of the output directory never see partial files.
+ * Converted inputs are recorded in a {@link ConversionManifest}; files already
+ * converted by a previous run or by batch mode are not converted again.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class DirectoryWatcher {
+    
+    private static final Logger LOGGER = Logger.getLogger(DirectoryWatcher.class.getName());
+    
+    private static final int QUEUED_FILES_PER_WORKER = 16;
+    private static final long MANIFEST_SAVE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    private final DataConverter converter;
+    private final Path inputDir;
+    private final Path outputDir;
+    private final int workers;
+    private final long debounceNanos;
+    private final boolean compressOutput;
+    private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile WatchService watchService;
+    private volatile boolean stopped;
+    private volatile boolean manifestChanged;
+    
+    /**
+     * Constructs a new DirectoryWatcher.
+     * 
+     * @param converter shared, thread-safe converter used for every file
+     * @param inputDir directory to watch for JSON files
+     * @param outputDir directory receiving the CSV files
+     * @param workers maximum number of files converted at the same time
+     * @param debounceMillis time without changes after which a file is considered complete
+     * @param compressOutput whether to write gzip-compressed {@code .csv.gz} files
+     */
+    public DirectoryWatcher(DataConverter converter, Path inputDir, Path outputDir, int workers,
+            long debounceMillis, boolean compressOutput) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Worker count must be at least 1: " + workers);
+        }
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce interval must not be negative: " + debounceMillis);
+        }
+        this.converter = converter;
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.workers = workers;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(debounceMillis);
+        this.compressOutput = compressOutput;
+    }
+    
+    /**
+     * Watches the input directory and converts its files until {@link #stop()} is
+     * called or the thread is interrupted. Files already present are converted
+     * first unless the manifest shows them as up to date.
+     * 
+     * @throws JsonFileException if the input directory cannot be watched
+     * @throws CsvFileException if the output directory cannot be created
+     */
+    public void run() throws JsonFileException, CsvFileException {
+        if (!Files.isDirectory(inputDir)) {
+            throw new JsonFileException("Input directory not found: " + inputDir);
+        }
+        try {
+            Files.createDirectories(outputDir);
+        } catch (IOException e) {
+            throw new CsvFileException("Failed to create output directory: " + outputDir, e);
+        }
+        
+        ConversionManifest manifest = ConversionManifest.load(outputDir, converter.getSettingsFingerprint());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * QUEUED_FILES_PER_WORKER),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        
+        try (WatchService service = inputDir.getFileSystem().newWatchService()) {
+            watchService = service;
+            inputDir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            LOGGER.info("Watching " + inputDir + " for JSON files, writing CSV files to " + outputDir);
+            
+            scanDirectory();
+            watch(service, executor, manifest);
+        
+        } catch (IOException e) {
+            throw new JsonFileException("Failed to watch input directory: " + inputDir, e);
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            manifest.save();
+            LOGGER.info("Stopped watching " + inputDir);
+        }
+    }
+    
+    /**
+     * Stops a running watcher. Conversions already started are completed.
+     */
+    public void stop() {
+        stopped = true;
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                LOGGER.fine("Ignoring error while closing watch service: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Processes watch events and starts the conversion of settled files.
+     * 
+     * @param service the watch service of the input directory
+     * @param executor pool running the conversions
+     * @param manifest manifest of the output directory
+     * @throws CsvFileException if the manifest cannot be saved
+     */
+    private void watch(WatchService service, ThreadPoolExecutor executor, ConversionManifest manifest)
+            throws CsvFileException {
+        long pollMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(debounceNanos) / 4);
+        long lastSave = System.nanoTime();
+        
+        while (!stopped && !Thread.currentThread().isInterrupted()) {
+            try {
+                // Block until the next event unless files are settling or the manifest awaits saving
+                WatchKey key = pendingFiles.isEmpty() && !manifestChanged
+                        ? service.take()
+                        : service.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+            
+            submitSettledFiles(executor, manifest);
+            
+            if (manifestChanged && System.nanoTime() - lastSave >= MANIFEST_SAVE_INTERVAL_NANOS) {
+                manifestChanged = false;
+                manifest.save();
+                lastSave = System.nanoTime();
+            }
+        }
+    }
+    
+    /**
+     * Records the files named by the events of a watch key, rescanning the whole
+     * directory when events were lost.
+     * 
+     * @param key the signalled watch key
+     */
+    private void handleEvents(WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                LOGGER.warning("Watch events were lost, rescanning " + inputDir);
+                scanDirectory();
+            } else if (event.context() instanceof Path) {
+                touch(inputDir.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+    
+    /**
+     * Records every input file currently in the directory.
+     */
+    private void scanDirectory() {
+        try (Stream<Path> entries = Files.list(inputDir)) {
+            entries.forEach(this::touch);
+        } catch (IOException e) {
+            LOGGER.warning("Failed to list input directory " + inputDir + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Records that a file changed, restarting its debounce interval.
+     * 
+     * @param file the changed file
+     */
+    private void touch(Path file) {
+        if (!BatchConverter.isJsonInput(file.getFileName().toString().toLowerCase())) {
+            return;
+        }
+        PendingFile pending = pendingFiles.computeIfAbsent(file, path -> new PendingFile());
+        pending.lastChange = System.nanoTime();
+        pending.size = sizeOf(file);
+    }
+    
+    /**
+     * Starts the conversion of every recorded file that has not changed for the
+     * debounce interval. A file whose size still moved is given another interval,
+     * and a file being converted waits until its conversion is over.
+     * 
+     * @param executor pool running the conversions
+     * @param manifest manifest of the output directory
+     */
+    private void submitSettledFiles(ThreadPoolExecutor executor, ConversionManifest manifest) {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+        
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            Path file = entry.getKey();
+            PendingFile pending = entry.getValue();
+            
+            if (now - pending.lastChange < debounceNanos || inFlight.contains(file)) {
+                continue;
+            }
+            if (!Files.isRegularFile(file)) {
+                iterator.remove();
+                continue;
+            }
+            long size = sizeOf(file);
+            if (size != pending.size) {
+                pending.size = size;
+                pending.lastChange = now;
+                continue;
+            }
+            
+            iterator.remove();
+            inFlight.add(file);
+            executor.execute(() -> {
+                try {
+                    convertFile(file, manifest);
+                } finally {
+                    inFlight.remove(file);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Converts a single settled file unless the manifest shows it as up to date,
+     * or another input of the directory would be written to the same CSV file.
+     * 
+     * @param inputFile the input file
+     * @param manifest manifest of the output directory
+     */
+    private void convertFile(Path inputFile, ConversionManifest manifest) {
+        Path outputFile = outputDir.resolve(BatchConverter.toCsvFileName(inputFile, compressOutput));
+        // The hidden name keeps the extension, so compression is still chosen from it
+        Path partialFile = outputFile.resolveSibling("." + outputFile.getFileName());
+        long start = System.nanoTime();
+        
+        try {
+            String collision = findNameCollision(inputFile);
+            if (collision != null) {
+                throw new JsonFileException(collision);
+            }
+            if (manifest.isUpToDate(inputFile, outputFile)) {
+                LOGGER.fine("Skipping unchanged file: " + inputFile);
+                return;
+            }
+            
+            ConversionManifest.Entry state = manifest.snapshot(inputFile, outputFile);
+            converter.convertJsonToCsvStreaming(inputFile.toString(), partialFile.toString());
+            moveIntoPlace(partialFile, outputFile);
+            manifest.record(inputFile, state);
+            manifestChanged = true;
+            LOGGER.info("Converted " + inputFile + " → " + outputFile + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        
+        } catch (IOException | JsonFileException | CsvFileException | RuntimeException e) {
+            LOGGER.warning("Conversion failed for " + inputFile + ": " + e.getMessage());
+            manifest.remove(inputFile);
+            manifestChanged = true;
+            try {
+                Files.deleteIfExists(partialFile);
+            } catch (IOException deleteFailure) {
+                LOGGER.fine("Ignoring error while deleting " + partialFile + ": " + deleteFailure.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Checks whether another input currently in the directory has the same CSV file name
+     * as a file.
+     * 
+     * @param inputFile the input file
+     * @return the reason the file cannot be converted, or null if its output name is its own
+     * @throws IOException if the directory cannot be listed
+     */
+    private String findNameCollision(Path inputFile) throws IOException {
+        try (Stream<Path> entries = Files.list(inputDir)) {
+            List<Path> inputFiles = entries
+                    .filter(Files::isRegularFile)
+                    .filter(path -> BatchConverter.isJsonInput(path.getFileName().toString().toLowerCase()))
+                    .collect(Collectors.toList());
+            return BatchConverter.findNameCollisions(inputFiles, compressOutput).get(inputFile);
+        }
+    }
+    
+    /**
+     * Replaces the output file with a completely written temporary file.
+     * 
+     * @param partialFile the temporary file
+     * @param outputFile the final output file
+     * @throws IOException if the file cannot be moved
+     */
+    private void moveIntoPlace(Path partialFile, Path outputFile) throws IOException {
+        try {
+            Files.move(partialFile, outputFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partialFile, outputFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Gets the size of a file, treating unreadable files as empty.
+     * 
+     * @param path file to measure
+     * @return size in bytes
+     */
+    private long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+    
+    /**
+     * Debounce state of a file waiting to be converted.
+     */
+    private static final class PendingFile {
+        
+        private long lastChange;
+        private long size;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+
+/**
+ * Row writer that also takes rows already turned into CSV bytes, so that rows can be
+ * encoded on other threads than the one writing them. Only outputs writing the bytes
+ * as they are, to a single file or channel, can accept them: sorting, sharding and
+ * summarizing outputs need the cells of each row.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public interface EncodedRowWriter extends CsvRowWriter {
+    
+    /**
+     * Appends rows that were already encoded by a {@link CsvEncoder} with the same format.
+     * 
+     * @param data buffer holding the encoded lines
+     * @param length number of meaningful bytes in the buffer
+     * @param rows number of rows contained in the data
+     * @throws CsvFileException if the data cannot be written
+     */
+    void writeEncoded(byte[] data, int length, long rows) throws CsvFileException;
+}
\ No newline at end of file
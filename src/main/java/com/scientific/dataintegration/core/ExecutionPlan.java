@@ -0,0 +1,112 @@
+package com.scientific.dataintegration.core;
+
+/**
+ * How a conversion is run, as chosen by the planner of {@link DataConverter} from the
+ * size and record shape of the input, the free heap and the processors available.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class ExecutionPlan {
+    
+    /**
+     * Ways of running a conversion.
+     */
+    public enum Strategy {
+        /** The document is loaded whole and converted in memory. */
+        MEMORY("memory"),
+        /** Records are streamed in two passes over the input, in constant memory. */
+        STREAMING("streaming"),
+        /** Chunks of the input are converted on several threads. */
+        PARALLEL("parallel"),
+        /** Records are streamed, and sorted rows beyond the sort budget are spilled to disk in runs. */
+        SPILL("spill");
+        
+        private final String label;
+        
+        /**
+         * Constructs a new Strategy.
+         * 
+         * @param label name of the strategy in log messages
+         */
+        Strategy(String label) {
+            this.label = label;
+        }
+        
+        /**
+         * Gets the name of the strategy in log messages.
+         * 
+         * @return for example {@code streaming}
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    private final Strategy strategy;
+    private final int parallelism;
+    private final long sortMemoryBytes;
+    private final String reason;
+    
+    /**
+     * Constructs a new ExecutionPlan.
+     * 
+     * @param strategy how the conversion is run
+     * @param parallelism number of threads converting the input
+     * @param sortMemoryBytes estimated size of the sorted rows kept in memory before spilling
+     * @param reason why the strategy was chosen
+     */
+    ExecutionPlan(Strategy strategy, int parallelism, long sortMemoryBytes, String reason) {
+        this.strategy = strategy;
+        this.parallelism = parallelism;
+        this.sortMemoryBytes = sortMemoryBytes;
+        this.reason = reason;
+    }
+    
+    /**
+     * Gets how the conversion is run.
+     * 
+     * @return the strategy
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+    
+    /**
+     * Gets the number of threads converting the input.
+     * 
+     * @return 1 unless the strategy is {@link Strategy#PARALLEL}
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Gets the memory budget of sorted and deduplicated rows, which is never more than
+     * {@code sort.memory.megabytes}, but less when the free heap is small.
+     * 
+     * @return estimated size of the rows kept in memory before spilling, in bytes
+     */
+    public long getSortMemoryBytes() {
+        return sortMemoryBytes;
+    }
+    
+    /**
+     * Gets why the strategy was chosen.
+     * 
+     * @return the reason, for log messages
+     */
+    public String getReason() {
+        return reason;
+    }
+    
+    /**
+     * Formats this plan for log messages.
+     * 
+     * @return for example {@code parallel on 4 threads: 512.0 MB input splits into 64 chunks}
+     */
+    @Override
+    public String toString() {
+        return strategy.label + (parallelism > 1 ? " on " + parallelism + " threads" : "") + ": " + reason;
+    }
+}
\ No newline at end of file
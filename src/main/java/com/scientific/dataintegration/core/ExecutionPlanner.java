@@ -0,0 +1,315 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Chooses how a file is converted before the conversion starts. The first records
+ * of the input are sampled to learn their size and number of fields, from which the
+ * heap needed by an in-memory conversion and by sorted rows is estimated, and the
+ * estimates are weighed against the free heap and the processors available.
+ * 
+ * <p>Small documents are loaded whole, which has the least overhead. Larger inputs
+ * are streamed, on several threads when they span several chunks, can be split
+ * and the rows need no single writer. Sorted rows that would not fit in the sort
+ * budget are spilled to disk in runs, with the budget lowered when the heap is
+ * smaller than {@code sort.memory.megabytes}.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class ExecutionPlanner {
+    
+    /** Number of records read to learn the shape of the input. */
+    static final int SAMPLE_RECORDS = 1000;
+    
+    /** Heap taken by a record loaded as a Map and by its row, besides its fields. */
+    private static final long RECORD_OVERHEAD_BYTES = 150;
+    /** Heap taken by a field loaded in a Map and by its cell, besides its text. */
+    private static final long FIELD_OVERHEAD_BYTES = 120;
+    /** Heap taken by a sorted row besides its cells, as estimated by {@link ExternalRowSorter}. */
+    private static final long SORT_ROW_OVERHEAD_BYTES = 64;
+    /** Heap taken by a cell of a sorted row besides its text, with its reference in the row. */
+    private static final long SORT_CELL_OVERHEAD_BYTES = 60;
+    /** Smallest sort budget a small heap can lower the configured one to. */
+    private static final long MIN_SORT_MEMORY_BYTES = 1024L * 1024;
+    /** Compressed bytes decompressed to measure the compression ratio of gzip input. */
+    private static final long SAMPLE_COMPRESSED_BYTES = 1024L * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final double MEGABYTE = 1024.0 * 1024.0;
+    
+    private final JsonFileReader jsonReader;
+    private final long memoryMaxBytes;
+    private final long chunkSize;
+    
+    /**
+     * Constructs a new ExecutionPlanner.
+     * 
+     * @param jsonReader reader used to sample the input
+     * @param memoryMaxBytes largest input converted in memory
+     * @param chunkSize approximate number of input bytes per chunk of a parallel conversion
+     */
+    ExecutionPlanner(JsonFileReader jsonReader, long memoryMaxBytes, long chunkSize) {
+        this.jsonReader = jsonReader;
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Plans the conversion of a file.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param sorted whether rows are sorted or deduplicated
+     * @param splittable whether the output accepts rows converted by several threads
+     * @param sortMemoryBytes the configured memory budget of sorted rows
+     * @param concurrentConversions number of conversions sharing the heap and processors
+     * @param maxParallelism largest number of threads the conversion may use
+     * @return the plan
+     * @throws JsonFileException if the file cannot be read or parsed
+     */
+    ExecutionPlan plan(String jsonFilePath, boolean sorted, boolean splittable, long sortMemoryBytes,
+            int concurrentConversions, int maxParallelism) throws JsonFileException {
+        InputProfile input = sample(jsonFilePath);
+        Runtime runtime = Runtime.getRuntime();
+        int shares = Math.max(1, concurrentConversions);
+        long heap = (runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) / shares;
+        int processors = Math.max(1, runtime.availableProcessors() / shares);
+        
+        if (!input.hasRecords) {
+            return new ExecutionPlan(ExecutionPlan.Strategy.MEMORY, 1, sortMemoryBytes,
+                    "no array of records, the document is converted whole");
+        }
+        
+        long records = input.estimateRecords();
+        String shape = (input.sizeEstimated ? "about " : "") + formatBytes(input.bytes)
+                + (input.compressed ? " uncompressed" : "") + ", about "
+                + records + " records of " + String.format(Locale.ROOT, "%.1f", input.fieldsPerRecord) + " fields";
+        
+        long sortBudget = sortMemoryBytes;
+        if (sorted) {
+            sortBudget = Math.max(MIN_SORT_MEMORY_BYTES, Math.min(sortMemoryBytes, heap / 2));
+            long sortBytes = records * (SORT_ROW_OVERHEAD_BYTES
+                    + (long) Math.ceil(input.fieldsPerRecord * SORT_CELL_OVERHEAD_BYTES)) + 2 * input.bytes;
+            if (sortBytes > sortBudget) {
+                return new ExecutionPlan(ExecutionPlan.Strategy.SPILL, 1, sortBudget, shape + "; about "
+                        + formatBytes(sortBytes) + " of sorted rows exceed the " + formatBytes(sortBudget)
+                        + " sort budget" + (sortBudget < sortMemoryBytes ? " lowered to fit the free heap" : ""));
+            }
+        }
+        
+        long memoryBytes = records * (RECORD_OVERHEAD_BYTES
+                + (long) Math.ceil(input.fieldsPerRecord * FIELD_OVERHEAD_BYTES)) + 2 * input.bytes;
+        String notInMemory;
+        if (input.jsonLines) {
+            notInMemory = "JSON Lines input is always streamed";
+        } else if (input.sizeEstimated) {
+            notInMemory = "the uncompressed size is only estimated from the first "
+                    + formatBytes(SAMPLE_COMPRESSED_BYTES) + " of compressed input";
+        } else if (input.bytes > memoryMaxBytes) {
+            notInMemory = "larger than the " + formatBytes(memoryMaxBytes) + " converted in memory";
+        } else if (memoryBytes > heap / 2) {
+            notInMemory = "about " + formatBytes(memoryBytes) + " of heap needed in memory, more than half of the "
+                    + formatBytes(heap) + " free";
+        } else {
+            return new ExecutionPlan(ExecutionPlan.Strategy.MEMORY, 1, sortBudget, shape + "; about "
+                    + formatBytes(memoryBytes) + " of heap needed, " + formatBytes(heap) + " free");
+        }
+        
+        long chunks = (input.bytes + chunkSize - 1) / chunkSize;
+        String notParallel;
+        if (sorted || !splittable) {
+            notParallel = "sorted, sharded or summarized rows are written by one thread";
+        } else if (input.compressed) {
+            notParallel = "compressed input cannot be split";
+        } else if (maxParallelism < 2) {
+            notParallel = "limited to one thread";
+        } else if (processors < 2) {
+            notParallel = "one processor available";
+        } else if (chunks < 2) {
+            notParallel = "the input fits in one chunk of " + formatBytes(chunkSize);
+        } else {
+            int threads = (int) Math.min(Math.min(processors, maxParallelism), chunks);
+            return new ExecutionPlan(ExecutionPlan.Strategy.PARALLEL, threads, sortBudget, shape + "; "
+                    + notInMemory + "; splits into " + chunks + " chunks over " + processors + " processors");
+        }
+        return new ExecutionPlan(ExecutionPlan.Strategy.STREAMING, 1, sortBudget, shape + "; " + notInMemory
+                + "; " + notParallel);
+    }
+    
+    /**
+     * Reads the size of the input and the first records of its record array.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @return what was learnt of the input
+     * @throws JsonFileException if the file cannot be read or parsed
+     */
+    private InputProfile sample(String jsonFilePath) throws JsonFileException {
+        InputProfile input = new InputProfile();
+        input.compressed = jsonReader.isCompressed(jsonFilePath);
+        input.jsonLines = jsonReader.isJsonLines(jsonFilePath);
+        
+        try (RecordStream records = jsonReader.openRecordStream(jsonFilePath)) {
+            if (input.compressed) {
+                measureCompressed(jsonFilePath, input);
+            } else {
+                input.bytes = Files.size(Paths.get(jsonFilePath));
+            }
+            input.hasRecords = records.hasRecordArray();
+            if (!input.hasRecords) {
+                return input;
+            }
+            
+            long sampledBytes = 0;
+            long sampledFields = 0;
+            JsonParser parser;
+            while (input.sampledRecords < SAMPLE_RECORDS && (parser = records.nextRecord()) != null) {
+                long start = parser.getTokenLocation().getByteOffset();
+                sampledFields += countFields(parser);
+                sampledBytes += parser.getCurrentLocation().getByteOffset() - start;
+                input.sampledRecords++;
+            }
+            input.sampledAll = input.sampledRecords < SAMPLE_RECORDS || records.nextRecord() == null;
+            if (input.sampledRecords > 0) {
+                input.bytesPerRecord = Math.max(1.0, (double) sampledBytes / input.sampledRecords);
+                input.fieldsPerRecord = (double) sampledFields / input.sampledRecords;
+            }
+            return input;
+        
+        } catch (IOException e) {
+            throw jsonReader.parseFailure(jsonFilePath, e);
+        }
+    }
+    
+    /**
+     * Counts the columns a record fills, consuming it.
+     * 
+     * @param parser parser positioned on the START_OBJECT token of the record or of a nested object
+     * @return the number of non-object values below the object
+     * @throws IOException if the record cannot be read or is malformed
+     */
+    private static long countFields(JsonParser parser) throws IOException {
+        long fields = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                fields += countFields(parser);
+            } else {
+                fields++;
+                parser.skipChildren();
+            }
+        }
+        return fields;
+    }
+    
+    /**
+     * Measures the uncompressed size of a gzip file by decompressing its first
+     * {@value #SAMPLE_COMPRESSED_BYTES} bytes. When the file is larger, the size is estimated
+     * from the compression ratio of those bytes. The size recorded in the gzip trailer is not
+     * used: it only covers the last member, modulo 2^32, and files made of many members, as
+     * written by {@link ParallelGzipOutputStream}, pigz or bgzip, have a small last member.
+     * 
+     * @param jsonFilePath path to the compressed file
+     * @param input receives the size and whether it is estimated; never less than the compressed size
+     * @throws IOException if the file cannot be read or is not valid gzip
+     */
+    private static void measureCompressed(String jsonFilePath, InputProfile input) throws IOException {
+        Path path = Paths.get(jsonFilePath);
+        long compressedSize = Files.size(path);
+        long uncompressed = 0;
+        try (CountingInputStream compressed = new CountingInputStream(Files.newInputStream(path));
+             InputStream decompressed = new GZIPInputStream(compressed, READ_BUFFER_SIZE)) {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int read;
+            while (compressed.count < SAMPLE_COMPRESSED_BYTES && (read = decompressed.read(buffer)) >= 0) {
+                uncompressed += read;
+            }
+            if (decompressed.read() < 0) {
+                input.bytes = uncompressed;
+                return;
+            }
+            double ratio = (double) uncompressed / Math.max(1, compressed.count);
+            input.bytes = Math.max(compressedSize, (long) (compressedSize * ratio));
+            input.sizeEstimated = true;
+        }
+    }
+    
+    /**
+     * Formats a number of bytes for log messages.
+     * 
+     * @param bytes the number of bytes
+     * @return for example {@code 12.5 MB}
+     */
+    private static String formatBytes(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / MEGABYTE);
+    }
+    
+    /**
+     * Size and record shape of an input, learnt from its first records.
+     */
+    private static final class InputProfile {
+        
+        private long bytes;
+        private boolean sizeEstimated;
+        private boolean compressed;
+        private boolean jsonLines;
+        private boolean hasRecords;
+        private int sampledRecords;
+        private boolean sampledAll;
+        private double bytesPerRecord = 1.0;
+        private double fieldsPerRecord;
+        
+        /**
+         * Estimates the number of records of the input.
+         * 
+         * @return the exact count when every record was sampled, otherwise the
+         *         input size divided by the mean size of the sampled records
+         */
+        long estimateRecords() {
+            return sampledAll ? sampledRecords : (long) Math.ceil(bytes / bytesPerRecord);
+        }
+    }
+    
+    /**
+     * Counts the bytes read from an input.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        
+        private long count;
+        
+        /**
+         * Constructs a new CountingInputStream.
+         * 
+         * @param input the input to count
+         */
+        CountingInputStream(InputStream input) {
+            super(input);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                count++;
+            }
+            return value;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
\ No newline at end of file
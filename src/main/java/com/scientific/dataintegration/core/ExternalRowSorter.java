@@ -0,0 +1,622 @@
+package com.scientific.dataintegration.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Logger;
+
+/**
+ * External merge sort of CSV rows. Rows are buffered until their estimated size reaches
+ * a memory budget, then sorted and spilled to a temporary file as a sorted run. Reading
+ * the result merges the runs, with the rows still in memory as the last one, so the
+ * number of rows is bounded by disk space rather than by the heap. When there are more
+ * runs than can be merged at once, groups of runs are first merged into longer runs.
+ * 
+ * <p>Rows are ordered by their key columns, then by the sequence number given when they
+ * were added, so the sort is stable. A grouping sorter only brings rows with equal keys
+ * together: it orders them by a hash of their key cells, so most comparisons never look
+ * at the cell text. A sorter is not thread-safe and spill files are deleted when it is
+ * closed.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class ExternalRowSorter implements Closeable {
+    
+    private static final Logger LOGGER = Logger.getLogger(ExternalRowSorter.class.getName());
+    private static final int MAX_MERGE_FAN_IN = 64;
+    private static final int RUN_BUFFER_SIZE = 64 * 1024;
+    /** Object headers, references and fields of a row, excluding its cell text. */
+    private static final long ROW_OVERHEAD_BYTES = 64;
+    /** Header, fields and array header of a String, excluding its characters. */
+    private static final long STRING_OVERHEAD_BYTES = 56;
+    
+    private final int columnCount;
+    private final int[] keyColumns;
+    private final boolean[] descending;
+    private final boolean grouping;
+    private final long memoryBudgetBytes;
+    private final Path spillDirectory;
+    private final Comparator<Row> order;
+    private final List<Row> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long bufferedBytes;
+    private long rowCount;
+    private boolean reading;
+    
+    /**
+     * Constructs a new, empty ExternalRowSorter.
+     * 
+     * @param columnCount number of cells of each row; longer rows are truncated, shorter ones padded
+     * @param keyColumns indexes of the key columns, most significant first
+     * @param descending for each key column, true to put the largest values first; null to group rows
+     * @param memoryBudgetBytes estimated size of the rows kept in memory before a run is spilled
+     * @param spillDirectory directory receiving the spill files
+     */
+    private ExternalRowSorter(int columnCount, int[] keyColumns, boolean[] descending, long memoryBudgetBytes,
+            Path spillDirectory) {
+        this.columnCount = columnCount;
+        this.keyColumns = keyColumns.clone();
+        this.grouping = descending == null;
+        this.descending = grouping ? new boolean[keyColumns.length] : descending.clone();
+        this.memoryBudgetBytes = Math.max(1, memoryBudgetBytes);
+        this.spillDirectory = spillDirectory;
+        this.order = ((Comparator<Row>) this::compareKeys).thenComparingLong(row -> row.sequence);
+    }
+    
+    /**
+     * Creates a sorter ordering rows by the values of their key columns.
+     * 
+     * @param columnCount number of cells of each row; longer rows are truncated, shorter ones padded
+     * @param keyColumns indexes of the columns rows are ordered by, most significant first
+     * @param descending for each key column, true to put the largest values first
+     * @param memoryBudgetBytes estimated size of the rows kept in memory before a run is spilled
+     * @param spillDirectory directory receiving the spill files
+     * @return the new sorter
+     */
+    static ExternalRowSorter ordering(int columnCount, int[] keyColumns, boolean[] descending,
+            long memoryBudgetBytes, Path spillDirectory) {
+        return new ExternalRowSorter(columnCount, keyColumns, descending, memoryBudgetBytes, spillDirectory);
+    }
+    
+    /**
+     * Creates a sorter that makes rows with the same key cells adjacent, in input order,
+     * without ordering the groups in any meaningful way. Keys are compared as exact text.
+     * 
+     * @param columnCount number of cells of each row; longer rows are truncated, shorter ones padded
+     * @param keyColumns indexes of the columns identifying a group
+     * @param memoryBudgetBytes estimated size of the rows kept in memory before a run is spilled
+     * @param spillDirectory directory receiving the spill files
+     * @return the new sorter
+     */
+    static ExternalRowSorter grouping(int columnCount, int[] keyColumns, long memoryBudgetBytes,
+            Path spillDirectory) {
+        return new ExternalRowSorter(columnCount, keyColumns, null, memoryBudgetBytes, spillDirectory);
+    }
+    
+    /**
+     * Adds a row, spilling the buffered rows to disk if the memory budget is exceeded.
+     * 
+     * @param values the cells of the row; the array is kept and must not be modified afterwards
+     * @param sequence position of the row in the input, used to keep the sort stable
+     * @throws IOException if a run cannot be spilled
+     */
+    void add(String[] values, long sequence) throws IOException {
+        if (reading) {
+            throw new IllegalStateException("Rows cannot be added once the sorted rows are being read");
+        }
+        Row row = newRow(normalize(values), sequence);
+        buffer.add(row);
+        rowCount++;
+        bufferedBytes += estimateSize(row);
+        if (bufferedBytes >= memoryBudgetBytes) {
+            spill();
+        }
+    }
+    
+    /**
+     * Gets the number of rows added.
+     * 
+     * @return the row count
+     */
+    long getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * Gets the number of sorted runs written to disk so far.
+     * 
+     * @return the spilled run count
+     */
+    int getSpilledRunCount() {
+        return runs.size();
+    }
+    
+    /**
+     * Checks whether two rows have the same values in every key column.
+     * 
+     * @param first a row
+     * @param second another row
+     * @return true if the rows are equal for this sorter's order, ignoring their sequence
+     */
+    boolean hasSameKeys(Row first, Row second) {
+        return compareKeys(first, second) == 0;
+    }
+    
+    /**
+     * Checks whether a row has a value in at least one key column.
+     * 
+     * @param row a row
+     * @return false if every key cell of the row is empty
+     */
+    boolean hasKeyValue(Row row) {
+        for (int column : keyColumns) {
+            if (!row.values[column].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Starts reading the rows in sorted order. No rows can be added afterwards.
+     * 
+     * @return a cursor over every row added, in order
+     * @throws IOException if the runs cannot be merged
+     */
+    RowCursor sorted() throws IOException {
+        reading = true;
+        buffer.sort(order);
+        while (runs.size() + 1 > MAX_MERGE_FAN_IN) {
+            mergeRuns(new ArrayList<>(runs.subList(0, MAX_MERGE_FAN_IN)));
+        }
+        
+        List<RowCursor> sources = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                sources.add(new RunReader(run));
+            }
+        } catch (IOException e) {
+            closeAll(sources);
+            throw e;
+        }
+        sources.add(new BufferCursor(buffer));
+        return sources.size() == 1 ? sources.get(0) : new MergeCursor(sources, order);
+    }
+    
+    /**
+     * Deletes the spill files and releases the buffered rows.
+     */
+    @Override
+    public void close() {
+        buffer.clear();
+        for (Path run : runs) {
+            deleteQuietly(run);
+        }
+        runs.clear();
+    }
+    
+    /**
+     * Sorts the buffered rows and writes them to a new run file.
+     * 
+     * @throws IOException if the run cannot be written
+     */
+    private void spill() throws IOException {
+        buffer.sort(order);
+        Path run = Files.createTempFile(spillDirectory, "sort-run-", ".tmp");
+        runs.add(run);
+        try (RunWriter writer = new RunWriter(run, buffer.size())) {
+            for (Row row : buffer) {
+                writer.write(row);
+            }
+        }
+        LOGGER.fine("Spilled run " + runs.size() + " of " + buffer.size() + " rows to " + run);
+        buffer.clear();
+        bufferedBytes = 0;
+    }
+    
+    /**
+     * Replaces several runs with a single run holding their merged rows.
+     * 
+     * @param group the runs to merge, in the order they were written
+     * @throws IOException if the runs cannot be read or the merged run cannot be written
+     */
+    private void mergeRuns(List<Path> group) throws IOException {
+        Path merged = Files.createTempFile(spillDirectory, "sort-run-", ".tmp");
+        runs.add(merged);
+        long count = 0;
+        List<RowCursor> sources = new ArrayList<>();
+        try {
+            for (Path run : group) {
+                RunReader reader = new RunReader(run);
+                sources.add(reader);
+                count += reader.remaining;
+            }
+            try (MergeCursor cursor = new MergeCursor(sources, order);
+                 RunWriter writer = new RunWriter(merged, count)) {
+                while (cursor.next()) {
+                    writer.write(cursor.current());
+                }
+            }
+        } finally {
+            closeAll(sources);
+        }
+        runs.removeAll(group);
+        for (Path run : group) {
+            deleteQuietly(run);
+        }
+        LOGGER.fine("Merged " + group.size() + " runs of " + count + " rows into " + merged);
+    }
+    
+    /**
+     * Creates a row and reads the numeric value, or the hash when grouping, of its key cells.
+     * 
+     * @param values the cells of the row
+     * @param sequence position of the row in the input
+     * @return the row
+     */
+    private Row newRow(String[] values, long sequence) {
+        if (grouping) {
+            int keyHash = 1;
+            for (int column : keyColumns) {
+                keyHash = 31 * keyHash + values[column].hashCode();
+            }
+            return new Row(values, sequence, null, keyHash);
+        }
+        double[] numbers = new double[keyColumns.length];
+        for (int key = 0; key < keyColumns.length; key++) {
+            numbers[key] = parseNumber(values[keyColumns[key]]);
+        }
+        return new Row(values, sequence, numbers, 0);
+    }
+    
+    /**
+     * Pads or truncates a row to the column count and replaces missing cells with empty ones.
+     * 
+     * @param values the cells of the row
+     * @return the same array if it needs no change, otherwise a row of exactly the column count
+     */
+    private String[] normalize(String[] values) {
+        if (values.length == columnCount && !Arrays.asList(values).contains(null)) {
+            return values;
+        }
+        String[] resized = new String[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            resized[column] = column < values.length && values[column] != null ? values[column] : "";
+        }
+        return resized;
+    }
+    
+    /**
+     * Compares the key cells of two rows. Cells are compared as numbers when both hold
+     * one. Whatever the direction, numbers come before text and empty cells come last.
+     * Grouping sorters compare the key hashes first and the text only when they are equal.
+     * 
+     * @param first a row
+     * @param second another row
+     * @return a negative number, zero or a positive number as the first row sorts before,
+     *         with or after the second
+     */
+    private int compareKeys(Row first, Row second) {
+        if (grouping) {
+            int result = Integer.compare(first.keyHash, second.keyHash);
+            for (int key = 0; result == 0 && key < keyColumns.length; key++) {
+                result = first.values[keyColumns[key]].compareTo(second.values[keyColumns[key]]);
+            }
+            return result;
+        }
+        for (int key = 0; key < keyColumns.length; key++) {
+            double firstNumber = first.numbers[key];
+            double secondNumber = second.numbers[key];
+            int result;
+            if (!Double.isNaN(firstNumber) && !Double.isNaN(secondNumber)) {
+                // Numbers are compared without touching the cell text
+                result = Double.compare(firstNumber, secondNumber);
+            } else {
+                String firstValue = first.values[keyColumns[key]];
+                String secondValue = second.values[keyColumns[key]];
+                if (firstValue.isEmpty() || secondValue.isEmpty()) {
+                    if (firstValue.isEmpty() != secondValue.isEmpty()) {
+                        return firstValue.isEmpty() ? 1 : -1;
+                    }
+                    continue;
+                }
+                if (Double.isNaN(firstNumber) != Double.isNaN(secondNumber)) {
+                    return Double.isNaN(firstNumber) ? 1 : -1;
+                }
+                result = firstValue.compareTo(secondValue);
+            }
+            if (result != 0) {
+                return descending[key] ? -result : result;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Reads the numeric value of a cell.
+     * 
+     * @param value the cell text
+     * @return the number, or NaN if the cell does not hold one
+     */
+    static double parseNumber(String value) {
+        if (value == null || value.isEmpty()) {
+            return Double.NaN;
+        }
+        // Most text is told apart without the cost of a NumberFormatException
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+                return Double.NaN;
+            }
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * Estimates the heap taken by a buffered row.
+     * 
+     * @param row the row
+     * @return the estimated size in bytes
+     */
+    private static long estimateSize(Row row) {
+        long size = ROW_OVERHEAD_BYTES + 4L * row.values.length
+                + (row.numbers == null ? 0 : 8L * row.numbers.length);
+        for (String value : row.values) {
+            size += STRING_OVERHEAD_BYTES + 2L * value.length();
+        }
+        return size;
+    }
+    
+    /**
+     * Closes cursors, ignoring errors.
+     * 
+     * @param cursors the cursors to close
+     */
+    private static void closeAll(List<RowCursor> cursors) {
+        for (RowCursor cursor : cursors) {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                LOGGER.fine("Ignoring error while closing sorted run: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Deletes a spill file, logging failures.
+     * 
+     * @param run the spill file
+     */
+    private static void deleteQuietly(Path run) {
+        try {
+            Files.deleteIfExists(run);
+        } catch (IOException e) {
+            LOGGER.warning("Cannot delete sort spill file " + run + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * A row being sorted.
+     */
+    static final class Row {
+        
+        private final String[] values;
+        private final long sequence;
+        private final double[] numbers;
+        private final int keyHash;
+        
+        private Row(String[] values, long sequence, double[] numbers, int keyHash) {
+            this.values = values;
+            this.sequence = sequence;
+            this.numbers = numbers;
+            this.keyHash = keyHash;
+        }
+        
+        /**
+         * Gets the cells of the row.
+         * 
+         * @return the cell values
+         */
+        String[] getValues() {
+            return values;
+        }
+        
+        /**
+         * Gets the position of the row in the input.
+         * 
+         * @return the sequence number given when the row was added
+         */
+        long getSequence() {
+            return sequence;
+        }
+    }
+    
+    /**
+     * Forward-only cursor over sorted rows.
+     */
+    interface RowCursor extends Closeable {
+        
+        /**
+         * Advances to the next row.
+         * 
+         * @return false when there are no more rows
+         * @throws IOException if the rows cannot be read
+         */
+        boolean next() throws IOException;
+        
+        /**
+         * Gets the row the cursor is on.
+         * 
+         * @return the current row
+         */
+        Row current();
+    }
+    
+    /**
+     * Cursor over the sorted rows still in memory.
+     */
+    private static final class BufferCursor implements RowCursor {
+        
+        private final List<Row> rows;
+        private int index = -1;
+        
+        BufferCursor(List<Row> rows) {
+            this.rows = rows;
+        }
+        
+        @Override
+        public boolean next() {
+            return ++index < rows.size();
+        }
+        
+        @Override
+        public Row current() {
+            return rows.get(index);
+        }
+        
+        @Override
+        public void close() {
+            // The rows are released with the sorter
+        }
+    }
+    
+    /**
+     * Writes a run file: its row count, then for each row its sequence number and
+     * cells, each cell as a length-prefixed UTF-8 string.
+     */
+    private static final class RunWriter implements Closeable {
+        
+        private final DataOutputStream output;
+        
+        RunWriter(Path run, long count) throws IOException {
+            this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE));
+            output.writeLong(count);
+        }
+        
+        void write(Row row) throws IOException {
+            output.writeLong(row.sequence);
+            for (String value : row.values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+    
+    /**
+     * Cursor over the rows of a run file.
+     */
+    private final class RunReader implements RowCursor {
+        
+        private final DataInputStream input;
+        private long remaining;
+        private Row current;
+        
+        RunReader(Path run) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), RUN_BUFFER_SIZE));
+            try {
+                this.remaining = input.readLong();
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+        }
+        
+        @Override
+        public boolean next() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            remaining--;
+            long sequence = input.readLong();
+            String[] values = new String[columnCount];
+            for (int column = 0; column < columnCount; column++) {
+                int length = input.readInt();
+                if (length < 0) {
+                    throw new EOFException("Corrupted sort run: negative cell length");
+                }
+                byte[] bytes = new byte[length];
+                input.readFully(bytes);
+                values[column] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            current = newRow(values, sequence);
+            return true;
+        }
+        
+        @Override
+        public Row current() {
+            return current;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+    
+    /**
+     * Cursor merging several sorted cursors with a priority queue.
+     */
+    private static final class MergeCursor implements RowCursor {
+        
+        private final List<RowCursor> sources;
+        private final PriorityQueue<RowCursor> queue;
+        private RowCursor head;
+        private boolean started;
+        
+        MergeCursor(List<RowCursor> sources, Comparator<Row> order) {
+            this.sources = sources;
+            this.queue = new PriorityQueue<>(sources.size(),
+                    (first, second) -> order.compare(first.current(), second.current()));
+        }
+        
+        @Override
+        public boolean next() throws IOException {
+            if (!started) {
+                started = true;
+                for (RowCursor source : sources) {
+                    if (source.next()) {
+                        queue.add(source);
+                    }
+                }
+            } else if (head != null && head.next()) {
+                queue.add(head);
+            }
+            head = queue.poll();
+            return head != null;
+        }
+        
+        @Override
+        public Row current() {
+            return head.current();
+        }
+        
+        @Override
+        public void close() {
+            closeAll(sources);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,452 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the aggregates of one grouping as rows go by: the number of rows of each
+ * group and the count, sum, minimum and maximum of the numeric cells of each metric column.
+ * 
+ * <p>Each distinct value of a group column gets a small integer id; integral values,
+ * such as years, are looked up by their primitive value without creating a String.
+ * A group is then found by walking one {@link LongIntHashMap} per group column, keyed
+ * by the id of the group prefix so far and the value id. Aggregates are kept in flat
+ * primitive arrays indexed by group, so a row updates them without allocating.</p>
+ * 
+ * <p>At most a fixed number of groups is kept. Rows of further groups are counted in a
+ * single overflow group labelled {@value #OVERFLOW_LABEL}, so memory stays bounded
+ * whatever the number of distinct values. An aggregator is not thread-safe.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class GroupAggregator {
+    
+    /** Label of the group collecting the rows of groups beyond the limit. */
+    static final String OVERFLOW_LABEL = "(other)";
+    
+    private static final int INITIAL_GROUPS = 64;
+    
+    private final String[] groupNames;
+    private final int[] groupColumns;
+    private final String[] metricNames;
+    private final int[] metricColumns;
+    private final int maxGroups;
+    private final ValueIds[] valueIds;
+    private final LongIntHashMap[] levels;
+    private final int[] levelSizes;
+    private final int[] rowValueIds;
+    private final boolean[] integralMetrics;
+    private int[] groupValueIds;
+    private long[] rowCounts;
+    private long[] valueCounts;
+    private double[] sums;
+    private double[] mins;
+    private double[] maxs;
+    private int groupCount;
+    private int overflowGroup = -1;
+    
+    /**
+     * Constructs a new GroupAggregator.
+     * 
+     * @param headers the CSV header of the rows
+     * @param grouping columns rows are grouped by; empty to aggregate all rows together
+     * @param metrics numeric columns aggregated within each group
+     * @param maxGroups maximum number of groups kept apart
+     * @throws CsvFileException if a column is not in the header
+     */
+    GroupAggregator(String[] headers, List<String> grouping, List<String> metrics, int maxGroups)
+            throws CsvFileException {
+        this.groupNames = grouping.toArray(new String[0]);
+        this.groupColumns = indexesOf(headers, groupNames);
+        this.metricNames = metrics.toArray(new String[0]);
+        this.metricColumns = indexesOf(headers, metricNames);
+        this.maxGroups = Math.max(1, maxGroups);
+        this.valueIds = new ValueIds[groupColumns.length];
+        this.levels = new LongIntHashMap[groupColumns.length];
+        for (int level = 0; level < groupColumns.length; level++) {
+            valueIds[level] = new ValueIds();
+            levels[level] = new LongIntHashMap();
+        }
+        this.levelSizes = new int[groupColumns.length];
+        this.rowValueIds = new int[groupColumns.length];
+        this.integralMetrics = new boolean[metricColumns.length];
+        Arrays.fill(integralMetrics, true);
+        
+        this.groupValueIds = new int[INITIAL_GROUPS * groupColumns.length];
+        this.rowCounts = new long[INITIAL_GROUPS];
+        this.valueCounts = new long[INITIAL_GROUPS * metricColumns.length];
+        this.sums = new double[valueCounts.length];
+        this.mins = new double[valueCounts.length];
+        this.maxs = new double[valueCounts.length];
+        if (groupColumns.length == 0) {
+            // A single group of all rows
+            newGroup(false);
+        }
+    }
+    
+    /**
+     * Adds a row given as cell texts.
+     * 
+     * @param row the cells of the row
+     */
+    void add(String[] row) {
+        int group = findGroup(row, null, 0, false);
+        if (group < 0) {
+            group = groupCount < maxGroups ? findGroup(row, null, 0, true) : overflowGroup();
+        }
+        rowCounts[group]++;
+        for (int metric = 0; metric < metricColumns.length; metric++) {
+            accumulate(group, metric, ExternalRowSorter.parseNumber(cell(row, metricColumns[metric])));
+        }
+    }
+    
+    /**
+     * Adds a row of a columnar batch, reading integral and decimal cells without formatting them.
+     * 
+     * @param batch the batch holding the row
+     * @param row index of the row in the batch
+     */
+    void add(ColumnarBatch batch, int row) {
+        int group = findGroup(null, batch, row, false);
+        if (group < 0) {
+            group = groupCount < maxGroups ? findGroup(null, batch, row, true) : overflowGroup();
+        }
+        rowCounts[group]++;
+        for (int metric = 0; metric < metricColumns.length; metric++) {
+            accumulate(group, metric, numberOf(batch, metricColumns[metric], row));
+        }
+    }
+    
+    /**
+     * Gets the number of groups, including the overflow group if it was needed.
+     * 
+     * @return the group count
+     */
+    int getGroupCount() {
+        return groupCount;
+    }
+    
+    /**
+     * Checks whether some rows fell into the overflow group.
+     * 
+     * @return true if there were more groups than the limit
+     */
+    boolean isOverflowed() {
+        return overflowGroup >= 0;
+    }
+    
+    /**
+     * Gets the header of the summary: the group columns, the row count, and the count,
+     * sum, mean, minimum and maximum of each metric column.
+     * 
+     * @return the summary column names
+     */
+    String[] getHeaders() {
+        List<String> headers = new ArrayList<>(Arrays.asList(groupNames));
+        headers.add("rows");
+        for (String metric : metricNames) {
+            headers.add(metric + ".count");
+            headers.add(metric + ".sum");
+            headers.add(metric + ".mean");
+            headers.add(metric + ".min");
+            headers.add(metric + ".max");
+        }
+        return headers.toArray(new String[0]);
+    }
+    
+    /**
+     * Writes one summary row per group, in the order the groups were first seen.
+     * Metrics without any numeric value in a group are left empty.
+     * 
+     * @param writer the summary output
+     * @param valueFormatter formatter of decimal values
+     * @throws CsvFileException if a row cannot be written
+     */
+    void writeSummary(CsvRowWriter writer, ValueFormatter valueFormatter) throws CsvFileException {
+        String[] row = new String[groupColumns.length + 1 + metricColumns.length * 5];
+        for (int group = 0; group < groupCount; group++) {
+            for (int level = 0; level < groupColumns.length; level++) {
+                row[level] = group == overflowGroup ? OVERFLOW_LABEL
+                        : valueIds[level].labels.get(groupValueIds[group * groupColumns.length + level]);
+            }
+            int cell = groupColumns.length;
+            row[cell++] = Long.toString(rowCounts[group]);
+            for (int metric = 0; metric < metricColumns.length; metric++) {
+                int index = group * metricColumns.length + metric;
+                long count = valueCounts[index];
+                row[cell++] = Long.toString(count);
+                row[cell++] = count == 0 ? "" : format(sums[index], integralMetrics[metric], valueFormatter);
+                row[cell++] = count == 0 ? "" : valueFormatter.formatDouble(sums[index] / count);
+                row[cell++] = count == 0 ? "" : format(mins[index], integralMetrics[metric], valueFormatter);
+                row[cell++] = count == 0 ? "" : format(maxs[index], integralMetrics[metric], valueFormatter);
+            }
+            writer.writeRow(row);
+        }
+    }
+    
+    /**
+     * Finds the group of a row given either as cell texts or as a batch row.
+     * 
+     * @param row the cells of the row, or null for a batch row
+     * @param batch the batch holding the row, or null
+     * @param batchRow index of the row in the batch
+     * @param add true to create the values and group if they are new
+     * @return the group, or -1 if it does not exist and was not to be created
+     */
+    private int findGroup(String[] row, ColumnarBatch batch, int batchRow, boolean add) {
+        int node = 0;
+        int last = groupColumns.length - 1;
+        for (int level = 0; level <= last; level++) {
+            int valueId = row != null
+                    ? valueIds[level].idOf(cell(row, groupColumns[level]), add)
+                    : valueIds[level].idOf(batch, groupColumns[level], batchRow, add);
+            if (valueId < 0) {
+                return -1;
+            }
+            rowValueIds[level] = valueId;
+            
+            long key = ((long) node << 32) | valueId;
+            int next = levels[level].get(key);
+            if (next == LongIntHashMap.MISSING) {
+                if (!add) {
+                    return -1;
+                }
+                next = level == last ? newGroup(true) : levelSizes[level]++;
+                levels[level].put(key, next);
+            }
+            node = next;
+        }
+        return groupColumns.length == 0 ? 0 : node;
+    }
+    
+    /**
+     * Gets the overflow group, creating it on first use.
+     * 
+     * @return the overflow group
+     */
+    private int overflowGroup() {
+        if (overflowGroup < 0) {
+            overflowGroup = newGroup(false);
+        }
+        return overflowGroup;
+    }
+    
+    /**
+     * Creates a group, growing the aggregate arrays when needed.
+     * 
+     * @param withValues true to record the value ids of the row being added as the group's labels
+     * @return the new group
+     */
+    private int newGroup(boolean withValues) {
+        int group = groupCount++;
+        if (group == rowCounts.length) {
+            int capacity = rowCounts.length * 2;
+            rowCounts = Arrays.copyOf(rowCounts, capacity);
+            groupValueIds = Arrays.copyOf(groupValueIds, capacity * groupColumns.length);
+            valueCounts = Arrays.copyOf(valueCounts, capacity * metricColumns.length);
+            sums = Arrays.copyOf(sums, valueCounts.length);
+            mins = Arrays.copyOf(mins, valueCounts.length);
+            maxs = Arrays.copyOf(maxs, valueCounts.length);
+        }
+        if (withValues) {
+            System.arraycopy(rowValueIds, 0, groupValueIds, group * groupColumns.length, groupColumns.length);
+        }
+        return group;
+    }
+    
+    /**
+     * Adds a metric value to a group.
+     * 
+     * @param group the group
+     * @param metric index of the metric column
+     * @param value the value, NaN if the cell holds no number
+     */
+    private void accumulate(int group, int metric, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        int index = group * metricColumns.length + metric;
+        if (valueCounts[index] == 0) {
+            mins[index] = value;
+            maxs[index] = value;
+        } else if (value < mins[index]) {
+            mins[index] = value;
+        } else if (value > maxs[index]) {
+            maxs[index] = value;
+        }
+        sums[index] += value;
+        valueCounts[index]++;
+        if (integralMetrics[metric] && value != Math.rint(value)) {
+            integralMetrics[metric] = false;
+        }
+    }
+    
+    /**
+     * Reads the numeric value of a batch cell.
+     * 
+     * @param batch the batch
+     * @param column the column index
+     * @param row the row index
+     * @return the number, or NaN if the cell does not hold one
+     */
+    private static double numberOf(ColumnarBatch batch, int column, int row) {
+        if (column >= batch.getColumnCount() || !batch.isPresent(column, row)) {
+            return Double.NaN;
+        }
+        switch (batch.getType(column)) {
+            case LONG:
+                return batch.getLong(column, row);
+            case DOUBLE:
+                return batch.getDouble(column, row);
+            case BOOLEAN:
+                return Double.NaN;
+            default:
+                return ExternalRowSorter.parseNumber(batch.getText(column, row));
+        }
+    }
+    
+    /**
+     * Formats an aggregate, without a decimal part when every value of the metric was integral.
+     * 
+     * @param value the aggregate
+     * @param integral whether all values of the metric were whole numbers
+     * @param valueFormatter formatter of decimal values
+     * @return the text of the value
+     */
+    private static String format(double value, boolean integral, ValueFormatter valueFormatter) {
+        if (integral && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return valueFormatter.formatDouble(value);
+    }
+    
+    /**
+     * Gets a cell of a row given as texts.
+     * 
+     * @param row the cells
+     * @param column the column index
+     * @return the cell text, empty if missing
+     */
+    private static String cell(String[] row, int column) {
+        return column < row.length && row[column] != null ? row[column] : "";
+    }
+    
+    /**
+     * Finds the indexes of columns in the header.
+     * 
+     * @param headers the CSV header
+     * @param columns the column names
+     * @return the column indexes
+     * @throws CsvFileException if the header lacks a column
+     */
+    private static int[] indexesOf(String[] headers, String[] columns) throws CsvFileException {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = Arrays.asList(headers).indexOf(columns[i]);
+            if (indexes[i] < 0) {
+                throw new CsvFileException("Summary column not found in the CSV header: " + columns[i]);
+            }
+        }
+        return indexes;
+    }
+    
+    /**
+     * Ids of the distinct values of one group column, in first-seen order.
+     * Integral values are keyed by their number, whether they come as a number
+     * or as text, so both forms of a value fall into the same group.
+     */
+    private static final class ValueIds {
+        
+        private final LongIntHashMap integers = new LongIntHashMap();
+        private final Map<String, Integer> texts = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+        
+        /**
+         * Gets the id of a text value.
+         * 
+         * @param text the value
+         * @param add true to give a new value an id
+         * @return the id, or -1 if the value is new and was not to be added
+         */
+        int idOf(String text, boolean add) {
+            if (isCanonicalInteger(text)) {
+                return idOf(Long.parseLong(text), add);
+            }
+            Integer id = texts.get(text);
+            if (id != null) {
+                return id;
+            }
+            if (!add) {
+                return -1;
+            }
+            id = labels.size();
+            labels.add(text);
+            texts.put(text, id);
+            return id;
+        }
+        
+        /**
+         * Gets the id of an integral value.
+         * 
+         * @param value the value
+         * @param add true to give a new value an id
+         * @return the id, or -1 if the value is new and was not to be added
+         */
+        int idOf(long value, boolean add) {
+            int id = integers.get(value);
+            if (id != LongIntHashMap.MISSING || !add) {
+                return id;
+            }
+            id = labels.size();
+            labels.add(Long.toString(value));
+            integers.put(value, id);
+            return id;
+        }
+        
+        /**
+         * Gets the id of the value of a batch cell.
+         * 
+         * @param batch the batch
+         * @param column the column index
+         * @param row the row index
+         * @param add true to give a new value an id
+         * @return the id, or -1 if the value is new and was not to be added
+         */
+        int idOf(ColumnarBatch batch, int column, int row, boolean add) {
+            if (column >= batch.getColumnCount() || !batch.isPresent(column, row)) {
+                return idOf("", add);
+            }
+            if (batch.getType(column) == ColumnarBatch.ColumnType.LONG) {
+                return idOf(batch.getLong(column, row), add);
+            }
+            return idOf(batch.getText(column, row), add);
+        }
+        
+        /**
+         * Checks whether a text is the canonical form of a long, the way {@link Long#toString(long)} writes it.
+         * 
+         * @param text the text
+         * @return true if parsing and formatting it again gives the same text
+         */
+        private static boolean isCanonicalInteger(String text) {
+            int length = text.length();
+            int start = length > 0 && text.charAt(0) == '-' ? 1 : 0;
+            if (length == start || length - start > 18 || (text.charAt(start) == '0' && length > 1)) {
+                return false;
+            }
+            for (int i = start; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
\ No newline at end of file
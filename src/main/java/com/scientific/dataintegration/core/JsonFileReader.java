@@ -1,19 +1,36 @@
 package com.scientific.dataintegration.core;
 
 import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Utility class for reading and parsing JSON files.
  * Uses Jackson library for robust JSON processing with error handling.
+ * Gzip-compressed files are recognized by their magic bytes and decompressed
+ * on the fly, so {@code .json.gz} and {@code .jsonl.gz} exports never have to be
+ * unpacked to disk first.
+ * 
+ * <p>A reader created without an {@link ObjectMapper} only uses the Jackson
+ * streaming parser and builds maps and lists itself, which keeps the Jackson
+ * data-binding layer, and its costly initialization, out of short runs.</p>
  * 
  * @author AlduinoCalderon
  * @version 1.0
@@ -21,13 +38,32 @@ import java.util.logging.Logger;
 public class JsonFileReader {
     
     private static final Logger LOGGER = Logger.getLogger(JsonFileReader.class.getName());
+    private static final String GZIP_SUFFIX = ".gz";
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+    private final JsonFactory jsonFactory;
     private final ObjectMapper objectMapper;
     
     /**
      * Constructs a new JsonFileReader with default configuration.
+     * Parsed values have the same types as with a default {@link ObjectMapper}.
      */
     public JsonFileReader() {
-        this.objectMapper = new ObjectMapper();
+        this.jsonFactory = new JsonFactory();
+        this.objectMapper = null;
+    }
+    
+    /**
+     * Constructs a new JsonFileReader that parses with the given mapper.
+     * The mapper is thread-safe once configured, so one instance can be
+     * shared by every reader of a batch run.
+     * 
+     * @param objectMapper configured Jackson mapper to use for parsing
+     */
+    public JsonFileReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.objectMapper = objectMapper;
     }
     
     /**
@@ -38,6 +74,251 @@ public class JsonFileReader {
      * @throws JsonFileException if the file cannot be read or parsed
      */
     public Map<String, Object> readJsonAsMap(String filePath) throws JsonFileException {
+        File file = validateInputFile(filePath);
+        
+        LOGGER.info("Reading JSON file: " + filePath);
+        
+        try {
+            // Parse JSON into Map
+            Map<String, Object> jsonData;
+            if (objectMapper == null) {
+                try (JsonParser parser = isCompressed(filePath)
+                        ? createParser(openDecompressed(file))
+                        : configureStreaming(jsonFactory.createParser(file))) {
+                    jsonData = readRootObject(parser);
+                }
+            } else {
+                TypeReference<Map<String, Object>> typeRef = new TypeReference<Map<String, Object>>() {};
+                if (isCompressed(filePath)) {
+                    try (InputStream input = openDecompressed(file)) {
+                        jsonData = objectMapper.readValue(input, typeRef);
+                    }
+                } else {
+                    jsonData = objectMapper.readValue(file, typeRef);
+                }
+            }
+            
+            if (jsonData == null) {
+                throw new JsonFileException("JSON file contains null data: " + filePath);
+            }
+            
+            LOGGER.info("Successfully parsed JSON file with " + jsonData.size() + " top-level keys");
+            return jsonData;
+        
+        } catch (IOException e) {
+            throw parseFailure(filePath, e);
+        }
+    }
+    
+    /**
+     * Reads the root object of a document the way a default {@link ObjectMapper}
+     * binds it to a Map: content after the root value is ignored.
+     * 
+     * @param parser parser over the document, not yet advanced
+     * @return the root object, or null if the root is a JSON null
+     * @throws IOException if the document is empty, malformed or its root is not an object
+     */
+    private Map<String, Object> readRootObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonParseException(parser, "No content to map due to end-of-input");
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Cannot read a Map from " + token + ": the root must be an object");
+        }
+        return JsonValueReader.readObject(parser);
+    }
+    
+    /**
+     * Opens a streaming cursor over the records of a JSON file.
+     * Unlike {@link #readJsonAsMap(String)}, the document is never materialized;
+     * records are parsed one at a time as the caller pulls them. JSON Lines files
+     * yield one record per line, other files the records of their main data array.
+     * 
+     * @param filePath path to the JSON or JSON Lines file to read
+     * @return a record stream positioned before the first record; the caller must close it
+     * @throws JsonFileException if the file cannot be opened or its structure cannot be read
+     */
+    public RecordStream openRecordStream(String filePath) throws JsonFileException {
+        if (isJsonLines(filePath)) {
+            return openJsonLinesStream(filePath);
+        }
+        return openArrayStream(filePath);
+    }
+    
+    /**
+     * Checks whether a file is in JSON Lines (NDJSON) format, based on its extension.
+     * A trailing {@code .gz} is ignored.
+     * 
+     * @param filePath path to the file
+     * @return true for .jsonl and .ndjson files, compressed or not
+     */
+    public boolean isJsonLines(String filePath) {
+        String lowerCasePath = stripCompressionSuffix(filePath == null ? "" : filePath.toLowerCase());
+        return lowerCasePath.endsWith(".jsonl") || lowerCasePath.endsWith(".ndjson");
+    }
+    
+    /**
+     * Checks whether a file is gzip-compressed by looking at its first two bytes,
+     * so compressed input is recognized whatever its name.
+     * 
+     * @param filePath path to the file
+     * @return true if the file starts with the gzip magic number
+     */
+    public boolean isCompressed(String filePath) {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            return false;
+        }
+        try (InputStream input = Files.newInputStream(Paths.get(filePath))) {
+            return input.read() == GZIP_MAGIC_1 && input.read() == GZIP_MAGIC_2;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Removes a {@code .gz} suffix from a file name or path.
+     * 
+     * @param fileName the file name
+     * @return the name without its compression suffix
+     */
+    public static String stripCompressionSuffix(String fileName) {
+        if (fileName.toLowerCase().endsWith(GZIP_SUFFIX)) {
+            return fileName.substring(0, fileName.length() - GZIP_SUFFIX.length());
+        }
+        return fileName;
+    }
+    
+    /**
+     * Opens a streaming cursor over the main data array of a JSON document.
+     * 
+     * @param filePath path to the JSON file to read
+     * @return a record stream positioned on the main data array; the caller must close it
+     * @throws JsonFileException if the file cannot be opened or its structure cannot be read
+     */
+    JsonRecordStream openArrayStream(String filePath) throws JsonFileException {
+        JsonParser parser = openParser(filePath);
+        try {
+            return new JsonRecordStream(parser, filePath);
+        } catch (IOException e) {
+            closeQuietly(parser);
+            throw parseFailure(filePath, e);
+        }
+    }
+    
+    /**
+     * Opens a parser over the whole content of a file, decompressing it if needed.
+     * 
+     * @param filePath path to the JSON or JSON Lines file to read
+     * @return a parser not yet advanced to its first token; the caller must close it
+     * @throws JsonFileException if the file cannot be opened
+     */
+    JsonParser openParser(String filePath) throws JsonFileException {
+        File file = validateInputFile(filePath);
+        
+        try {
+            return isCompressed(filePath)
+                    ? createParser(openDecompressed(file))
+                    : configureStreaming(jsonFactory.createParser(file));
+        } catch (IOException e) {
+            throw parseFailure(filePath, e);
+        }
+    }
+    
+    /**
+     * Opens a memory-mapped record stream over a whole JSON Lines file.
+     * Compressed files cannot be mapped and are decompressed and parsed in a single pass.
+     * 
+     * @param filePath path to the JSON Lines file to read
+     * @return a record stream over every line of the file; the caller must close it
+     * @throws JsonFileException if the file cannot be opened
+     */
+    private RecordStream openJsonLinesStream(String filePath) throws JsonFileException {
+        File file = validateInputFile(filePath);
+        
+        try {
+            if (isCompressed(filePath)) {
+                return new JsonSequenceRecordStream(createParser(openDecompressed(file)), filePath);
+            }
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            return new JsonLinesRecordStream(this, channel, true, 0L, channel.size(), filePath);
+        } catch (IOException e) {
+            throw new JsonFileException("Cannot open JSON Lines file: " + filePath, e);
+        }
+    }
+    
+    /**
+     * Creates a parser over an arbitrary JSON input using this reader's mapper.
+     * 
+     * @param input the JSON input; closed together with the parser
+     * @return a parser not yet advanced to its first token
+     * @throws IOException if the parser cannot be created
+     */
+    JsonParser createParser(InputStream input) throws IOException {
+        return configureStreaming(jsonFactory.createParser(input));
+    }
+    
+    /**
+     * Opens a gzip-compressed file for reading its decompressed bytes.
+     * Files made of several concatenated gzip members are read as a whole.
+     * 
+     * @param file the compressed file
+     * @return the decompressed input; the caller must close it
+     * @throws IOException if the file cannot be opened or has no valid gzip header
+     */
+    private InputStream openDecompressed(File file) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(file.toPath()), INPUT_BUFFER_SIZE);
+        try {
+            return new GZIPInputStream(input, INPUT_BUFFER_SIZE);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Enables the parser options used by the streaming paths. Floating point
+     * values are read with Jackson's fast double parser, which yields the same
+     * correctly rounded values without the temporary big-number objects of
+     * {@link Double#parseDouble}.
+     * 
+     * @param parser a newly created parser
+     * @return the same parser
+     */
+    private JsonParser configureStreaming(JsonParser parser) {
+        return parser.enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER.mappedFeature());
+    }
+    
+    /**
+     * Builds the exception reported when a JSON file cannot be parsed,
+     * adding a hint for the most common syntax problems.
+     * 
+     * @param filePath path to the JSON file that failed
+     * @param cause the underlying parsing error
+     * @return exception describing the failure
+     */
+    JsonFileException parseFailure(String filePath, IOException cause) {
+        String errorMessage = "Failed to parse JSON file: " + filePath;
+        String causeMessage = String.valueOf(cause.getMessage());
+        if (causeMessage.contains("Unexpected character")) {
+            errorMessage += ". The file may contain invalid JSON syntax.";
+        } else if (causeMessage.contains("Unexpected end-of-input")) {
+            errorMessage += ". The JSON file appears to be incomplete.";
+        }
+        return new JsonFileException(errorMessage, cause);
+    }
+    
+    /**
+     * Validates that a path points to a readable, non-empty file.
+     * 
+     * @param filePath path to validate
+     * @return the validated file
+     * @throws JsonFileException if the path is missing, unreadable or empty
+     */
+    File validateInputFile(String filePath) throws JsonFileException {
         if (filePath == null || filePath.trim().isEmpty()) {
             throw new JsonFileException("File path cannot be null or empty");
         }
@@ -58,8 +339,8 @@ public class JsonFileReader {
         }
         
         // Validate file extension
-        if (!filePath.toLowerCase().endsWith(".json")) {
-            LOGGER.warning("File does not have .json extension: " + filePath);
+        if (!stripCompressionSuffix(filePath.toLowerCase()).endsWith(".json") && !isJsonLines(filePath)) {
+            LOGGER.warning("File does not have a .json, .jsonl or .ndjson extension: " + filePath);
         }
         
         // Check if file is empty
@@ -71,49 +352,45 @@ public class JsonFileReader {
             throw new JsonFileException("Error checking file size: " + filePath, e);
         }
         
-        LOGGER.info("Reading JSON file: " + filePath);
+        return file;
+    }
         
+    /**
+     * Closes a parser, ignoring any error raised while closing.
+     * 
+     * @param parser parser to close, may be null
+     */
+    private void closeQuietly(JsonParser parser) {
+        if (parser == null) {
+            return;
+        }
         try {
-            // Parse JSON into Map
-            TypeReference<Map<String, Object>> typeRef = new TypeReference<Map<String, Object>>() {};
-            Map<String, Object> jsonData = objectMapper.readValue(file, typeRef);
-            
-            if (jsonData == null) {
-                throw new JsonFileException("JSON file contains null data: " + filePath);
-            }
-            
-            LOGGER.info("Successfully parsed JSON file with " + jsonData.size() + " top-level keys");
-            return jsonData;
-            
+            parser.close();
         } catch (IOException e) {
-            String errorMessage = "Failed to parse JSON file: " + filePath;
-            if (e.getMessage().contains("Unexpected character")) {
-                errorMessage += ". The file may contain invalid JSON syntax.";
-            } else if (e.getMessage().contains("Unexpected end-of-input")) {
-                errorMessage += ". The JSON file appears to be incomplete.";
-            }
-            throw new JsonFileException(errorMessage, e);
+            LOGGER.fine("Ignoring error while closing parser: " + e.getMessage());
         }
     }
     
     /**
-     * Validates if a file contains valid JSON without fully parsing it.
+     * Validates if a file contains valid JSON without building any objects.
+     * The file is checked token by token, so any document or JSON Lines file
+     * that can be converted is accepted, whatever its root value.
      * 
      * @param filePath path to the JSON file to validate
      * @return true if the file contains valid JSON, false otherwise
+     * @see JsonFileValidator
      */
     public boolean isValidJson(String filePath) {
-        try {
-            readJsonAsMap(filePath);
-            return true;
-        } catch (JsonFileException e) {
-            LOGGER.warning("JSON validation failed for " + filePath + ": " + e.getMessage());
-            return false;
+        JsonFileStats stats = new JsonFileValidator(this, 1).validate(filePath);
+        if (!stats.isValid()) {
+            LOGGER.warning("JSON validation failed for " + filePath + ": " + stats.getErrorMessage());
         }
+        return stats.isValid();
     }
     
     /**
-     * Gets basic information about a JSON file without fully parsing it.
+     * Gets information about a JSON file: its size and the statistics of a
+     * single token-level pass over its content, as reported by {@link JsonFileValidator}.
      * 
      * @param filePath path to the JSON file
      * @return String containing file information
@@ -129,9 +406,10 @@ public class JsonFileReader {
         try {
             long fileSize = Files.size(Paths.get(filePath));
             String readableSize = formatFileSize(fileSize);
+            JsonFileStats stats = new JsonFileValidator(this, 1).validate(filePath);
             
-            return String.format("File: %s%nSize: %s (%d bytes)%nPath: %s", 
-                    file.getName(), readableSize, fileSize, file.getAbsolutePath());
+            return String.format("File: %s%nSize: %s (%d bytes)%nPath: %s%n%s", 
+                    file.getName(), readableSize, fileSize, file.getAbsolutePath(), stats.toReport());
                     
         } catch (IOException e) {
             throw new JsonFileException("Error reading file information: " + filePath, e);
@@ -0,0 +1,205 @@
+package com.scientific.dataintegration.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Structure and validity of a JSON file, gathered by {@link JsonFileValidator}
+ * in a single pass over its tokens.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class JsonFileStats {
+    
+    private final String filePath;
+    private final long fileSize;
+    private final String errorMessage;
+    private final boolean jsonLines;
+    private final boolean hasRecordArray;
+    private final String dataKey;
+    private final long recordCount;
+    private final List<String> topLevelKeys;
+    private final List<String> columns;
+    private final int maxDepth;
+    private final long elapsedNanos;
+    
+    /**
+     * Constructs a new JsonFileStats.
+     * 
+     * @param filePath path of the file
+     * @param fileSize size of the file on disk in bytes
+     * @param errorMessage why the file is invalid, or null if it is valid
+     * @param jsonLines whether the file was read as JSON Lines
+     * @param hasRecordArray whether a collection of records was found
+     * @param dataKey key of the main data array, or null if the records are not nested in an object
+     * @param recordCount number of records read before the end of the file or the first error
+     * @param topLevelKeys keys of the root object, in document order
+     * @param columns columns of the records, in first-seen order
+     * @param maxDepth deepest nesting of objects and arrays, 0 for a scalar document
+     * @param elapsedNanos time spent reading the file
+     */
+    JsonFileStats(String filePath, long fileSize, String errorMessage, boolean jsonLines, boolean hasRecordArray,
+            String dataKey, long recordCount, List<String> topLevelKeys, List<String> columns, int maxDepth,
+            long elapsedNanos) {
+        this.filePath = filePath;
+        this.fileSize = fileSize;
+        this.errorMessage = errorMessage;
+        this.jsonLines = jsonLines;
+        this.hasRecordArray = hasRecordArray;
+        this.dataKey = dataKey;
+        this.recordCount = recordCount;
+        this.topLevelKeys = Collections.unmodifiableList(new ArrayList<>(topLevelKeys));
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.maxDepth = maxDepth;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    /**
+     * Gets the path of the file.
+     * 
+     * @return the file path
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+    
+    /**
+     * Gets the size of the file on disk, compressed if the file is compressed.
+     * 
+     * @return the file size in bytes
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+    
+    /**
+     * Checks whether the whole file is well-formed JSON.
+     * 
+     * @return true if no error was found
+     */
+    public boolean isValid() {
+        return errorMessage == null;
+    }
+    
+    /**
+     * Gets the reason why the file is invalid.
+     * 
+     * @return the error message, or null if the file is valid
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+    
+    /**
+     * Checks whether the file was read as a sequence of JSON Lines records.
+     * 
+     * @return true for JSON Lines files
+     */
+    public boolean isJsonLines() {
+        return jsonLines;
+    }
+    
+    /**
+     * Checks whether the file holds a collection of records that can be converted row by row.
+     * 
+     * @return true if a data array of objects was found, always true for JSON Lines files
+     */
+    public boolean hasRecordArray() {
+        return hasRecordArray;
+    }
+    
+    /**
+     * Gets the key of the main data array.
+     * 
+     * @return the field name holding the records, or null if the records are not nested in an object
+     */
+    public String getDataKey() {
+        return dataKey;
+    }
+    
+    /**
+     * Gets the number of records of the main data array, or of lines of a JSON Lines file.
+     * 
+     * @return the record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Gets the keys of the root object.
+     * 
+     * @return unmodifiable list of keys in document order, empty if the root is not an object
+     */
+    public List<String> getTopLevelKeys() {
+        return topLevelKeys;
+    }
+    
+    /**
+     * Gets the columns a conversion of the records would produce.
+     * 
+     * @return unmodifiable list of dotted column paths in first-seen order
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+    
+    /**
+     * Gets the deepest nesting of objects and arrays in the file.
+     * 
+     * @return the maximum depth, 1 for a flat object or array
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    /**
+     * Gets the time spent reading the file.
+     * 
+     * @return the elapsed time in milliseconds
+     */
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+    
+    /**
+     * Gets the rate at which the file was read.
+     * 
+     * @return megabytes of the file on disk read per second
+     */
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : fileSize / (1024.0 * 1024.0) / (elapsedNanos / 1_000_000_000.0);
+    }
+    
+    /**
+     * Formats the statistics as a multi-line report.
+     * 
+     * @return the report
+     */
+    public String toReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Valid: %s%n", isValid() ? "yes" : "no, " + errorMessage));
+        report.append(String.format("Format: %s%n", jsonLines ? "JSON Lines" : "JSON"));
+        if (!topLevelKeys.isEmpty()) {
+            report.append(String.format("Top-level keys: %s%n", String.join(", ", topLevelKeys)));
+        }
+        if (hasRecordArray) {
+            report.append(String.format("Records: %d%s%n", recordCount,
+                    dataKey == null ? "" : " (in \"" + dataKey + "\")"));
+            report.append(String.format("Columns (%d): %s%n", columns.size(), String.join(", ", columns)));
+        } else {
+            report.append(String.format("Records: no array of records found%n"));
+        }
+        report.append(String.format("Max depth: %d%n", maxDepth));
+        report.append(String.format("Scanned in %.1f ms (%.1f MB/s)", getElapsedMillis(), getMegabytesPerSecond()));
+        return report.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return filePath + ": " + (isValid() ? "valid" : "invalid") + ", " + recordCount + " records, "
+                + columns.size() + " columns, max depth " + maxDepth;
+    }
+}
\ No newline at end of file
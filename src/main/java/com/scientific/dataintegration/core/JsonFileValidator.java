@@ -0,0 +1,322 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Validates JSON files and gathers their statistics in a single pass over their tokens.
+ * No maps, lists or values are built: scalar tokens are stepped over without being
+ * decoded and only the column tree of the records is kept, so a file is read at about
+ * the speed of the disk and in constant memory. Many files can be validated in parallel,
+ * for instance before a batch conversion.
+ * 
+ * <p>The main data array and the columns are found with the same rules as the
+ * conversion, so the statistics describe what converting the file would produce.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class JsonFileValidator {
+    
+    private static final Logger LOGGER = Logger.getLogger(JsonFileValidator.class.getName());
+    
+    private final JsonFileReader reader;
+    private final int parallelism;
+    
+    /**
+     * Constructs a new JsonFileValidator that validates one file at a time.
+     */
+    public JsonFileValidator() {
+        this(new JsonFileReader(), 1);
+    }
+    
+    /**
+     * Constructs a new JsonFileValidator.
+     * 
+     * @param reader reader used to open the files
+     * @param parallelism maximum number of files validated at the same time
+     */
+    public JsonFileValidator(JsonFileReader reader, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.reader = reader;
+        this.parallelism = parallelism;
+    }
+    
+    /**
+     * Validates a file and gathers its statistics. Problems with the file are
+     * reported in the statistics rather than thrown.
+     * 
+     * @param filePath path to the JSON or JSON Lines file
+     * @return the statistics of the file, counted up to the first error if it is invalid
+     */
+    public JsonFileStats validate(String filePath) {
+        long start = System.nanoTime();
+        Scan scan = new Scan(reader.isJsonLines(filePath));
+        String errorMessage = null;
+        
+        try (JsonParser parser = reader.openParser(filePath)) {
+            if (scan.jsonLines) {
+                scanSequence(parser, scan);
+            } else {
+                scanDocument(parser, scan);
+            }
+        } catch (JsonFileException e) {
+            errorMessage = e.getMessage();
+        } catch (IOException e) {
+            errorMessage = describeFailure(filePath, e);
+        }
+        
+        JsonFileStats stats = new JsonFileStats(filePath, sizeOf(filePath), errorMessage, scan.jsonLines,
+                scan.hasRecordArray, scan.dataKey, scan.recordCount, scan.topLevelKeys,
+                scan.columns.getColumnPaths(), scan.maxDepth, System.nanoTime() - start);
+        LOGGER.fine("Validated " + stats);
+        return stats;
+    }
+    
+    /**
+     * Validates several files, in parallel up to this validator's parallelism.
+     * 
+     * @param filePaths paths to the JSON or JSON Lines files
+     * @return the statistics of each file, in the order of the given paths
+     */
+    public List<JsonFileStats> validateAll(List<String> filePaths) {
+        if (parallelism == 1 || filePaths.size() < 2) {
+            List<JsonFileStats> results = new ArrayList<>();
+            for (String filePath : filePaths) {
+                results.add(validate(filePath));
+            }
+            return results;
+        }
+        
+        ExecutorService executor = Executors.newWorkStealingPool(parallelism);
+        try {
+            List<Callable<JsonFileStats>> tasks = new ArrayList<>();
+            for (String filePath : filePaths) {
+                tasks.add(() -> validate(filePath));
+            }
+            
+            List<JsonFileStats> results = new ArrayList<>();
+            for (Future<JsonFileStats> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Validation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unexpected validation failure", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Validates files and the JSON files of directories.
+     * Directories are not searched recursively; their files are taken in name order.
+     * 
+     * @param paths paths to files or directories
+     * @return the statistics of each file
+     * @throws JsonFileException if a directory cannot be listed
+     */
+    public List<JsonFileStats> validatePaths(List<String> paths) throws JsonFileException {
+        return validateAll(BatchConverter.expandInputPaths(paths));
+    }
+    
+    /**
+     * Reads a JSON document, locating its main data array the way {@link JsonRecordStream} does:
+     * a root array of objects or the first array of objects among the fields of the root object.
+     * 
+     * @param parser parser over the document, not yet advanced
+     * @param scan statistics gathered so far
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    private void scanDocument(JsonParser parser, Scan scan) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new JsonParseException(parser, "No content to map due to end-of-input");
+        }
+        
+        if (token == JsonToken.START_ARRAY) {
+            scanArray(parser, 1, scan);
+        } else if (token == JsonToken.START_OBJECT) {
+            scan.reach(1);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                scan.topLevelKeys.add(key);
+                token = parser.nextToken();
+                
+                if (token == JsonToken.START_ARRAY && !scan.hasRecordArray) {
+                    if (scanArray(parser, 2, scan)) {
+                        scan.dataKey = key;
+                    }
+                } else if (token.isStructStart()) {
+                    scan.reach(skipMeasured(parser, 2));
+                }
+            }
+        }
+        
+        if (parser.nextToken() != null) {
+            throw new JsonParseException(parser, "Unexpected content after the root value");
+        }
+    }
+    
+    /**
+     * Reads an array and counts its records if its first element is an object.
+     * 
+     * @param parser parser positioned on the array's START_ARRAY token;
+     *               left on the matching END_ARRAY token
+     * @param depth nesting depth of the array
+     * @param scan statistics gathered so far
+     * @return true if the array is the main data array
+     * @throws IOException if the array cannot be read or is malformed
+     */
+    private boolean scanArray(JsonParser parser, int depth, Scan scan) throws IOException {
+        scan.reach(depth);
+        JsonToken token = parser.nextToken();
+        if (token != JsonToken.START_OBJECT) {
+            if (token != JsonToken.END_ARRAY) {
+                if (token.isStructStart()) {
+                    scan.reach(skipMeasured(parser, depth + 1));
+                }
+                scan.reach(skipMeasured(parser, depth));
+            }
+            return false;
+        }
+        
+        scan.hasRecordArray = true;
+        do {
+            if (token == JsonToken.START_OBJECT) {
+                scan.recordCount++;
+                scan.reach(scan.columns.collectMeasured(parser, depth + 1));
+            } else if (token.isStructStart()) {
+                scan.reach(skipMeasured(parser, depth + 1));
+            }
+        } while ((token = parser.nextToken()) != JsonToken.END_ARRAY);
+        return true;
+    }
+    
+    /**
+     * Reads the root-level values of a JSON Lines input, each object being a record.
+     * 
+     * @param parser parser over the input, not yet advanced
+     * @param scan statistics gathered so far
+     * @throws IOException if the input cannot be read or a value is malformed
+     */
+    private void scanSequence(JsonParser parser, Scan scan) throws IOException {
+        scan.hasRecordArray = true;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.START_OBJECT) {
+                scan.recordCount++;
+                scan.reach(scan.columns.collectMeasured(parser, 1));
+            } else if (token.isStructStart()) {
+                scan.reach(skipMeasured(parser, 1));
+            }
+        }
+    }
+    
+    /**
+     * Reads the rest of an object or array token by token, measuring its nesting.
+     * 
+     * @param parser parser positioned on the container's start token or just after one of its values;
+     *               left on the container's end token
+     * @param depth nesting depth of the container
+     * @return the deepest nesting reached inside the container, at least {@code depth}
+     * @throws IOException if the container cannot be read or is malformed
+     */
+    static int skipMeasured(JsonParser parser, int depth) throws IOException {
+        int level = depth;
+        int maxDepth = depth;
+        while (level >= depth) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                throw new JsonParseException(parser, "Unexpected end-of-input in a nested value");
+            }
+            if (token.isStructStart()) {
+                maxDepth = Math.max(maxDepth, ++level);
+            } else if (token.isStructEnd()) {
+                level--;
+            }
+        }
+        return maxDepth;
+    }
+    
+    /**
+     * Describes a parsing error with its position in the file.
+     * 
+     * @param filePath path to the file that failed
+     * @param cause the parsing error
+     * @return message for the statistics report
+     */
+    private String describeFailure(String filePath, IOException cause) {
+        String message = reader.parseFailure(filePath, cause).getMessage();
+        if (!(cause instanceof JsonProcessingException)) {
+            return message + " (" + cause.getMessage() + ")";
+        }
+        JsonProcessingException parseError = (JsonProcessingException) cause;
+        JsonLocation location = parseError.getLocation();
+        return message + " (" + parseError.getOriginalMessage()
+                + (location == null ? "" : " at line " + location.getLineNr() + ", column " + location.getColumnNr())
+                + ")";
+    }
+    
+    /**
+     * Gets the size of a file, or 0 if it cannot be read.
+     * 
+     * @param filePath path to the file
+     * @return the file size in bytes
+     */
+    private static long sizeOf(String filePath) {
+        try {
+            return Files.size(Paths.get(filePath));
+        } catch (IOException | RuntimeException e) {
+            return 0L;
+        }
+    }
+    
+    /**
+     * Statistics gathered while reading one file.
+     */
+    private static final class Scan {
+        
+        private final boolean jsonLines;
+        private final List<String> topLevelKeys = new ArrayList<>();
+        private final ColumnPlan.Builder columns = ColumnPlan.builder();
+        private boolean hasRecordArray;
+        private String dataKey;
+        private long recordCount;
+        private int maxDepth;
+        
+        Scan(boolean jsonLines) {
+            this.jsonLines = jsonLines;
+        }
+        
+        /**
+         * Records that a nesting depth was reached.
+         * 
+         * @param depth the depth
+         */
+        void reach(int depth) {
+            maxDepth = Math.max(maxDepth, depth);
+        }
+    }
+}
\ No newline at end of file
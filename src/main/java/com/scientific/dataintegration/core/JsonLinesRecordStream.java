@@ -0,0 +1,237 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Record stream over a JSON Lines (NDJSON) file, where every line holds one record.
+ * The file is memory-mapped and scanned for newlines in place; each line is parsed
+ * directly from the mapped bytes without being copied into a String or array.
+ * Because lines are parsed independently, any byte range that starts at a line
+ * boundary can be streamed on its own, which is how large files are split and resumed.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class JsonLinesRecordStream implements RecordStream {
+    
+    private static final Logger LOGGER = Logger.getLogger(JsonLinesRecordStream.class.getName());
+    
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+    
+    private final JsonFileReader jsonReader;
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+    private final String sourceName;
+    
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long position;
+    private long lineNumber;
+    private long lineOffset;
+    private long recordCount;
+    private JsonParser lineParser;
+    
+    /**
+     * Constructs a new JsonLinesRecordStream over a byte range of a file.
+     * 
+     * @param jsonReader reader providing the parser configuration
+     * @param channel channel over the JSON Lines file
+     * @param ownsChannel whether closing this stream also closes the channel
+     * @param start byte offset of the first line to read; must be a line boundary
+     * @param end byte offset just past the last line to read
+     * @param sourceName name of the source used in messages
+     */
+    JsonLinesRecordStream(JsonFileReader jsonReader, FileChannel channel, boolean ownsChannel,
+            long start, long end, String sourceName) {
+        this.jsonReader = jsonReader;
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.position = start;
+        this.end = end;
+        this.sourceName = sourceName;
+    }
+    
+    /**
+     * JSON Lines files are a collection of records by definition.
+     * 
+     * @return always true
+     */
+    @Override
+    public boolean hasRecordArray() {
+        return true;
+    }
+    
+    /**
+     * JSON Lines records are not nested in an object.
+     * 
+     * @return always null
+     */
+    @Override
+    public String getDataKey() {
+        return null;
+    }
+    
+    @Override
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Gets the number of the line holding the current record, counted from the
+     * start of the range this stream reads.
+     * 
+     * @return the line number, starting at 1
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * Gets the byte offset of the line holding the current record.
+     * Restarting a stream at this offset resumes at the current record.
+     * 
+     * @return the byte offset within the file
+     */
+    public long getLineOffset() {
+        return lineOffset;
+    }
+    
+    @Override
+    public JsonParser nextRecord() throws IOException {
+        finishLine();
+        
+        while (position < end) {
+            long lineStart = position;
+            int relativeStart = mapFrom(lineStart);
+            int limit = segment.limit();
+            int i = relativeStart;
+            boolean blank = true;
+            
+            while (true) {
+                if (i == limit) {
+                    if (segmentStart + limit >= end) {
+                        break;
+                    }
+                    if (relativeStart == 0) {
+                        throw new IOException("Line " + (lineNumber + 1) + " of " + sourceName
+                                + " is longer than " + MAX_SEGMENT_SIZE + " bytes");
+                    }
+                    // The line crosses the end of the mapped segment: remap from its start
+                    i -= relativeStart;
+                    map(lineStart);
+                    relativeStart = 0;
+                    limit = segment.limit();
+                    continue;
+                }
+                byte b = segment.get(i);
+                if (b == '\n') {
+                    break;
+                }
+                if (b != ' ' && b != '\t' && b != '\r') {
+                    blank = false;
+                }
+                i++;
+            }
+            
+            int lineLength = i - relativeStart;
+            position = segmentStart + i + 1;
+            lineNumber++;
+            
+            if (blank) {
+                continue;
+            }
+            
+            lineParser = jsonReader.createParser(
+                    new ByteBufferBackedInputStream(segment.slice(relativeStart, lineLength)));
+            JsonToken token = lineParser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                lineOffset = lineStart;
+                recordCount++;
+                return lineParser;
+            }
+            
+            LOGGER.warning("Skipping non-object value on line " + lineNumber + " of " + sourceName);
+            lineParser.close();
+            lineParser = null;
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public Map<String, Object> readRecord() throws IOException {
+        JsonParser recordParser = nextRecord();
+        return recordParser == null ? null : JsonValueReader.readObject(recordParser);
+    }
+    
+    /**
+     * Closes the current line parser and, if owned, the underlying channel.
+     * 
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (lineParser != null) {
+            lineParser.close();
+            lineParser = null;
+        }
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+    
+    /**
+     * Closes the parser of the previous line after checking it held a single value.
+     * 
+     * @throws IOException if the line has content after its record
+     */
+    private void finishLine() throws IOException {
+        if (lineParser == null) {
+            return;
+        }
+        try {
+            if (lineParser.nextToken() != null) {
+                throw new IOException("Unexpected character after record on line " + lineNumber
+                        + " of " + sourceName);
+            }
+        } finally {
+            lineParser.close();
+            lineParser = null;
+        }
+    }
+    
+    /**
+     * Makes sure the mapped segment contains the given offset, mapping a new
+     * segment starting there when it does not.
+     * 
+     * @param offset absolute byte offset that must be mapped
+     * @return the offset relative to the current segment
+     * @throws IOException if the file cannot be mapped
+     */
+    private int mapFrom(long offset) throws IOException {
+        if (segment == null || offset < segmentStart || offset >= segmentStart + segment.limit()) {
+            map(offset);
+        }
+        return (int) (offset - segmentStart);
+    }
+    
+    /**
+     * Maps the next segment of the range, starting at the given offset.
+     * 
+     * @param offset absolute byte offset of the segment start
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(long offset) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(MAX_SEGMENT_SIZE, end - offset));
+        segmentStart = offset;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Forward-only cursor over the records of the main data array of a JSON document.
+ * Records are pulled from the Jackson token stream one at a time, so only the
+ * current record is ever held in memory regardless of the document size.
+ * 
+ * <p>The main data array is located with the same rule used by the in-memory
+ * conversion: the first array whose first element is an object. A document
+ * whose root is itself an array of objects is also accepted.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class JsonRecordStream implements RecordStream {
+    
+    private static final Logger LOGGER = Logger.getLogger(JsonRecordStream.class.getName());
+    
+    private final JsonParser parser;
+    private final String sourceName;
+    private String dataKey;
+    private boolean hasRecordArray;
+    private boolean pendingRecord;
+    private boolean exhausted;
+    private long recordCount;
+    
+    /**
+     * Constructs a new JsonRecordStream and positions it on the main data array.
+     * 
+     * @param parser parser over the JSON document, not yet advanced
+     * @param sourceName name of the source used in log messages
+     * @throws IOException if the document cannot be read while locating the array
+     */
+    JsonRecordStream(JsonParser parser, String sourceName) throws IOException {
+        this.parser = parser;
+        this.sourceName = sourceName;
+        locateRecordArray();
+    }
+    
+    /**
+     * Checks whether a data array of objects was found in the document.
+     * 
+     * @return true if records can be read from this stream
+     */
+    @Override
+    public boolean hasRecordArray() {
+        return hasRecordArray;
+    }
+    
+    /**
+     * Gets the key of the main data array.
+     * 
+     * @return the field name holding the records, or null if the root is the array
+     */
+    @Override
+    public String getDataKey() {
+        return dataKey;
+    }
+    
+    /**
+     * Gets the number of records returned so far.
+     * 
+     * @return the record count
+     */
+    @Override
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    /**
+     * Gets the byte offset of the current token, which is the opening brace of
+     * the record most recently returned (or about to be returned) by this stream.
+     * 
+     * @return the byte offset within the input
+     */
+    long getCurrentTokenOffset() {
+        return parser.getTokenLocation().getByteOffset();
+    }
+    
+    /**
+     * Advances to the next record of the data array.
+     * 
+     * @return the underlying parser positioned on the record's START_OBJECT token,
+     *         or null when the array is exhausted
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    @Override
+    public JsonParser nextRecord() throws IOException {
+        if (!hasRecordArray || exhausted) {
+            return null;
+        }
+        
+        if (pendingRecord) {
+            pendingRecord = false;
+            recordCount++;
+            return parser;
+        }
+        
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new IOException("Unexpected end-of-input inside data array");
+            }
+            if (token == JsonToken.START_OBJECT) {
+                recordCount++;
+                return parser;
+            }
+            
+            LOGGER.warning("Skipping non-object element in data array of " + sourceName);
+            parser.skipChildren();
+        }
+        
+        exhausted = true;
+        return null;
+    }
+    
+    /**
+     * Reads the next record of the data array into a Map.
+     * Only this record is materialized; the rest of the document stays on disk.
+     * 
+     * @return the record as a Map, or null when the array is exhausted
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    @Override
+    public Map<String, Object> readRecord() throws IOException {
+        JsonParser recordParser = nextRecord();
+        return recordParser == null ? null : JsonValueReader.readObject(recordParser);
+    }
+    
+    /**
+     * Closes the underlying parser and its input.
+     * 
+     * @throws IOException if the input cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+    
+    /**
+     * Positions the parser on the first record of the main data array.
+     * 
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    private void locateRecordArray() throws IOException {
+        JsonToken token = parser.nextToken();
+        
+        if (token == JsonToken.START_ARRAY) {
+            hasRecordArray = startsWithObject();
+            return;
+        }
+        
+        if (token != JsonToken.START_OBJECT) {
+            return;
+        }
+        
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            token = parser.nextToken();
+            
+            if (token == JsonToken.START_ARRAY) {
+                if (startsWithObject()) {
+                    dataKey = key;
+                    hasRecordArray = true;
+                    return;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+    
+    /**
+     * Checks whether the array the parser is positioned on starts with an object.
+     * When it does not, the rest of the array is skipped.
+     * 
+     * @return true if the parser is now on the START_OBJECT of the first element
+     * @throws IOException if the document cannot be read or is malformed
+     */
+    private boolean startsWithObject() throws IOException {
+        JsonToken token = parser.nextToken();
+        
+        if (token == JsonToken.START_OBJECT) {
+            pendingRecord = true;
+            return true;
+        }
+        
+        while (token != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new IOException("Unexpected end-of-input inside array");
+            }
+            parser.skipChildren();
+            token = parser.nextToken();
+        }
+        return false;
+    }
+}
\ No newline at end of file
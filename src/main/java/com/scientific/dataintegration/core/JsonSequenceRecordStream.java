@@ -0,0 +1,94 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Record stream over a sequence of root-level JSON values read by a single parser.
+ * Used for JSON Lines input that can only be read front to back, such as a
+ * decompressed gzip stream, where the lines cannot be memory-mapped and parsed
+ * independently. Records are read with one parser for the whole input, so values
+ * only need to be separated by whitespace and a record may span several lines.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class JsonSequenceRecordStream implements RecordStream {
+    
+    private static final Logger LOGGER = Logger.getLogger(JsonSequenceRecordStream.class.getName());
+    
+    private final JsonParser parser;
+    private final String sourceName;
+    private long recordCount;
+    
+    /**
+     * Constructs a new JsonSequenceRecordStream.
+     * 
+     * @param parser parser over the input, not yet advanced; closed with this stream
+     * @param sourceName name of the source used in log messages
+     */
+    JsonSequenceRecordStream(JsonParser parser, String sourceName) {
+        this.parser = parser;
+        this.sourceName = sourceName;
+    }
+    
+    /**
+     * A sequence of JSON Lines values is a collection of records by definition.
+     * 
+     * @return always true
+     */
+    @Override
+    public boolean hasRecordArray() {
+        return true;
+    }
+    
+    /**
+     * JSON Lines records are not nested in an object.
+     * 
+     * @return always null
+     */
+    @Override
+    public String getDataKey() {
+        return null;
+    }
+    
+    @Override
+    public long getRecordCount() {
+        return recordCount;
+    }
+    
+    @Override
+    public JsonParser nextRecord() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.START_OBJECT) {
+                recordCount++;
+                return parser;
+            }
+            
+            LOGGER.warning("Skipping non-object value after record " + recordCount + " of " + sourceName);
+            parser.skipChildren();
+        }
+        return null;
+    }
+    
+    @Override
+    public Map<String, Object> readRecord() throws IOException {
+        JsonParser recordParser = nextRecord();
+        return recordParser == null ? null : JsonValueReader.readObject(recordParser);
+    }
+    
+    /**
+     * Closes the underlying parser and its input.
+     * 
+     * @throws IOException if the input cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads JSON values from a parser into plain Java objects.
+ * Objects become {@link LinkedHashMap}s, arrays {@link ArrayList}s, and numbers
+ * the {@link Integer}, {@link Long}, {@link java.math.BigInteger} or {@link Double}
+ * returned by {@link JsonParser#getNumberValue()}: the same structure Jackson's
+ * default untyped data binding produces, including "last duplicate key wins".
+ * 
+ * <p>Building the values directly from the token stream avoids creating an
+ * {@code ObjectMapper}, whose initialization dominates the startup time of a
+ * one-off conversion. When the parser was created by a mapper, the mapper is
+ * used instead, so its configuration keeps applying.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class JsonValueReader {
+    
+    private static final TypeReference<Map<String, Object>> OBJECT_TYPE =
+            new TypeReference<Map<String, Object>>() {};
+    
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private JsonValueReader() {
+    }
+    
+    /**
+     * Reads the object the parser is positioned on.
+     * 
+     * @param parser parser whose current token is START_OBJECT
+     * @return the object's fields in document order; the parser is left on its END_OBJECT
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    static Map<String, Object> readObject(JsonParser parser) throws IOException {
+        if (parser.getCodec() != null) {
+            return parser.readValueAs(OBJECT_TYPE);
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object but found " + parser.currentToken());
+        }
+        return readFields(parser);
+    }
+    
+    /**
+     * Reads the value the parser is positioned on.
+     * 
+     * @param parser parser whose current token starts a value
+     * @return the value, null for a JSON null; the parser is left on the value's last token
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    static Object readValue(JsonParser parser) throws IOException {
+        if (parser.getCodec() != null) {
+            return parser.readValueAs(Object.class);
+        }
+        return read(parser);
+    }
+    
+    /**
+     * Reads the value the parser is positioned on, recursively.
+     * 
+     * @param parser parser whose current token starts a value
+     * @return the value
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    private static Object read(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            throw new JsonParseException(parser, "Unexpected end-of-input: expected a value");
+        }
+        switch (token) {
+            case START_OBJECT:
+                return readFields(parser);
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(read(parser));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.getEmbeddedObject();
+            default:
+                throw new JsonParseException(parser, "Unexpected token " + token + ": expected a value");
+        }
+    }
+    
+    /**
+     * Reads the fields of the object the parser is positioned on.
+     * 
+     * @param parser parser whose current token is START_OBJECT
+     * @return the fields in document order
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    private static Map<String, Object> readFields(JsonParser parser) throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            map.put(name, read(parser));
+        }
+        return map;
+    }
+}
\ No newline at end of file
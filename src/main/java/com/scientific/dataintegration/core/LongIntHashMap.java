@@ -0,0 +1,115 @@
+package com.scientific.dataintegration.core;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to non-negative int values with open addressing.
+ * Keys and values live in two flat arrays, so lookups box nothing and the map
+ * takes about 12 bytes per slot. A map is not thread-safe.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class LongIntHashMap {
+    
+    /** Returned by {@link #get(long)} for a key that is not in the map. */
+    static final int MISSING = -1;
+    
+    private long[] keys;
+    private int[] values;
+    private int size;
+    
+    /**
+     * Constructs a new, empty LongIntHashMap.
+     */
+    LongIntHashMap() {
+        this.keys = new long[16];
+        this.values = new int[16];
+        Arrays.fill(values, MISSING);
+    }
+    
+    /**
+     * Gets the value of a key.
+     * 
+     * @param key the key
+     * @return the value, or {@link #MISSING}
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (values[slot] == MISSING) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+    }
+    
+    /**
+     * Sets the value of a key.
+     * 
+     * @param key the key
+     * @param value the value, not negative
+     */
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative: " + value);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (values[slot] != MISSING && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == MISSING) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (size > keys.length / 2) {
+            resize();
+        }
+    }
+    
+    /**
+     * Gets the number of keys.
+     * 
+     * @return the key count
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Doubles the table and reinserts every key.
+     */
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, MISSING);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+    /**
+     * Spreads the bits of a key, so that sequential keys do not fill neighbouring slots.
+     * 
+     * @param key the key
+     * @return the hash
+     */
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+}
\ No newline at end of file
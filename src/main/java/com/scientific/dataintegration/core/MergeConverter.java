@@ -0,0 +1,330 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * Merges the records of many JSON files into a single CSV output.
+ * A first parallel pass collects the columns of every file; merged in file order they
+ * form the union header, in first-seen order. Worker threads then convert the files
+ * into columnar batches aligned to that header and hand them to the calling thread
+ * through a small bounded queue per file. The calling thread owns the only writer and
+ * drains the queues strictly in file order, so the output is the same as converting the
+ * files one after the other, whatever the number of threads.
+ * 
+ * <p>At most twice as many files as there are workers are in flight, and each has at
+ * most {@value #QUEUE_CAPACITY} batches waiting, so memory stays bounded however many
+ * files are merged. Written batches are recycled by the workers.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class MergeConverter {
+    
+    private static final Logger LOGGER = Logger.getLogger(MergeConverter.class.getName());
+    /** Filled batches a worker may queue ahead of the writer for one file. */
+    private static final int QUEUE_CAPACITY = 4;
+    /** Queued after the last rows of a file that was converted successfully. */
+    private static final Object END_OF_FILE = new Object();
+    
+    private final ValueFormatter valueFormatter;
+    private final JsonFileReader jsonReader;
+    private final int parallelism;
+    private final int dictionarySize;
+    private final RecordSelection selection;
+    
+    /**
+     * Constructs a new MergeConverter.
+     * 
+     * @param valueFormatter formatter used for cell values
+     * @param jsonReader reader used to open the inputs
+     * @param parallelism number of worker threads
+     * @param dictionarySize maximum distinct values kept per text column of a batch, 0 to disable
+     * @param selection the columns and records kept
+     */
+    MergeConverter(ValueFormatter valueFormatter, JsonFileReader jsonReader, int parallelism, int dictionarySize,
+            RecordSelection selection) {
+        this.valueFormatter = valueFormatter;
+        this.jsonReader = jsonReader;
+        this.parallelism = parallelism;
+        this.dictionarySize = dictionarySize;
+        this.selection = selection;
+    }
+    
+    /**
+     * Merges the records of JSON and JSON Lines files into one CSV output.
+     * A document without an array of records contributes a single row.
+     * 
+     * @param jsonFilePaths paths to the input files, in output order
+     * @param output opens the output once the union header is known
+     * @param metrics metrics of the running conversion; stage times are summed over the workers
+     * @throws JsonFileException if an input cannot be read or parsed
+     * @throws CsvFileException if the CSV output cannot be written
+     */
+    void merge(List<String> jsonFilePaths, DataConverter.RowWriterOpener output, ConversionMetrics metrics)
+            throws JsonFileException, CsvFileException {
+        
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            ColumnPlan plan = collectColumns(executor, jsonFilePaths, metrics);
+            LOGGER.info("Union of " + jsonFilePaths.size() + " files has " + plan.getColumnCount() + " columns");
+            writeRows(executor, jsonFilePaths, plan, output, metrics);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Collects the columns of all files in parallel and merges them in file order.
+     * 
+     * @param executor pool running the file tasks
+     * @param jsonFilePaths paths to the input files
+     * @param metrics metrics of the running conversion
+     * @return the column plan of the union header
+     * @throws JsonFileException if a file cannot be read or parsed
+     */
+    private ColumnPlan collectColumns(ExecutorService executor, List<String> jsonFilePaths,
+            ConversionMetrics metrics) throws JsonFileException {
+        
+        List<Future<ColumnPlan.Builder>> futures = new ArrayList<>();
+        for (String jsonFilePath : jsonFilePaths) {
+            futures.add(executor.submit(() -> collectFileColumns(jsonFilePath, metrics)));
+        }
+        
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
+        for (int i = 0; i < futures.size(); i++) {
+            planBuilder.addAll(await(futures.get(i), jsonFilePaths.get(i)));
+        }
+        return planBuilder.build(valueFormatter);
+    }
+    
+    /**
+     * Converts the files on the workers and writes their rows in file order,
+     * keeping a bounded window of files in flight.
+     * 
+     * @param executor pool running the file tasks
+     * @param jsonFilePaths paths to the input files
+     * @param plan the column plan of the union header
+     * @param output opens the output
+     * @param metrics metrics of the running conversion
+     * @throws JsonFileException if a file cannot be read or parsed
+     * @throws CsvFileException if the CSV output cannot be written
+     */
+    private void writeRows(ExecutorService executor, List<String> jsonFilePaths, ColumnPlan plan,
+            DataConverter.RowWriterOpener output, ConversionMetrics metrics)
+            throws JsonFileException, CsvFileException {
+        
+        BlockingQueue<ColumnarBatch> freeBatches = new LinkedBlockingQueue<>();
+        int window = parallelism * 2;
+        Deque<FileFeed> inFlight = new ArrayDeque<>();
+        int nextFile = 0;
+        
+        try (CsvRowWriter rowWriter = output.open(plan.getHeaders())) {
+            while (nextFile < jsonFilePaths.size() || !inFlight.isEmpty()) {
+                while (nextFile < jsonFilePaths.size() && inFlight.size() < window) {
+                    FileFeed feed = new FileFeed(jsonFilePaths.get(nextFile++));
+                    executor.submit(() -> feedFile(feed, plan, freeBatches, metrics));
+                    inFlight.add(feed);
+                }
+                drain(inFlight.poll(), rowWriter, freeBatches);
+            }
+            metrics.addRecords(rowWriter.getRowCount());
+            
+            LOGGER.info("Written " + rowWriter.getRowCount() + " records to CSV file");
+        }
+    }
+    
+    /**
+     * Writes the rows of one file as its worker produces them.
+     * 
+     * @param feed the file's queue
+     * @param rowWriter the output
+     * @param freeBatches batches available for reuse
+     * @throws JsonFileException if the file could not be read or parsed
+     * @throws CsvFileException if the rows cannot be written
+     */
+    private void drain(FileFeed feed, CsvRowWriter rowWriter, BlockingQueue<ColumnarBatch> freeBatches)
+            throws JsonFileException, CsvFileException {
+        
+        while (true) {
+            Object item;
+            try {
+                item = feed.queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JsonFileException("Merge interrupted: " + feed.jsonFilePath, e);
+            }
+            
+            if (item == END_OF_FILE) {
+                return;
+            } else if (item instanceof ColumnarBatch) {
+                ColumnarBatch batch = (ColumnarBatch) item;
+                rowWriter.writeBatch(batch);
+                batch.clear();
+                freeBatches.offer(batch);
+            } else if (item instanceof String[]) {
+                rowWriter.writeRow((String[]) item);
+            } else if (item instanceof JsonFileException) {
+                throw (JsonFileException) item;
+            } else if (item instanceof Error) {
+                throw (Error) item;
+            } else {
+                throw new JsonFileException("Failed to convert JSON file: " + feed.jsonFilePath, (Throwable) item);
+            }
+        }
+    }
+    
+    /**
+     * Collects the columns of every record of a file.
+     * 
+     * @param jsonFilePath path to the input file
+     * @param metrics metrics of the running conversion
+     * @return the columns in first-seen order
+     * @throws IOException if the file cannot be parsed
+     * @throws JsonFileException if the file cannot be opened
+     */
+    private ColumnPlan.Builder collectFileColumns(String jsonFilePath, ConversionMetrics metrics)
+            throws IOException, JsonFileException {
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
+        long start = System.nanoTime();
+        
+        try (RecordStream records = jsonReader.openRecordStream(jsonFilePath)) {
+            if (!records.hasRecordArray()) {
+                planBuilder.collect(jsonReader.readJsonAsMap(jsonFilePath));
+            } else {
+                JsonParser parser;
+                while ((parser = records.nextRecord()) != null) {
+                    planBuilder.collect(parser);
+                }
+            }
+        }
+        metrics.addTimeSince(ConversionMetrics.Stage.DISCOVERY, start);
+        return planBuilder;
+    }
+    
+    /**
+     * Converts the records of a file into batches and queues them for the writer,
+     * followed by {@link #END_OF_FILE}, or by whatever exception or error stopped the conversion.
+     * 
+     * @param feed the file's queue
+     * @param plan the column plan of the union header
+     * @param freeBatches batches available for reuse
+     * @param metrics metrics of the running conversion
+     * @return always null
+     * @throws InterruptedException if the merge was abandoned while the worker waited for the writer
+     */
+    private Void feedFile(FileFeed feed, ColumnPlan plan, BlockingQueue<ColumnarBatch> freeBatches,
+            ConversionMetrics metrics) throws InterruptedException {
+        String jsonFilePath = feed.jsonFilePath;
+        try (RecordStream records = jsonReader.openRecordStream(jsonFilePath)) {
+            if (!records.hasRecordArray()) {
+                String[] row = plan.evaluate(jsonReader.readJsonAsMap(jsonFilePath));
+                if (row != null) {
+                    feed.queue.put(row);
+                }
+            } else {
+                ColumnarBatch batch = takeBatch(freeBatches, plan);
+                JsonParser parser;
+                long start = System.nanoTime();
+                while ((parser = records.nextRecord()) != null) {
+                    plan.evaluate(parser, batch);
+                    if (batch.isFull()) {
+                        metrics.addTimeSince(ConversionMetrics.Stage.PARSE, start);
+                        feed.queue.put(batch);
+                        batch = takeBatch(freeBatches, plan);
+                        start = System.nanoTime();
+                    }
+                }
+                metrics.addTimeSince(ConversionMetrics.Stage.PARSE, start);
+                if (batch.getSize() > 0) {
+                    feed.queue.put(batch);
+                } else {
+                    freeBatches.offer(batch);
+                }
+            }
+            metrics.sampleHeap();
+            feed.queue.put(END_OF_FILE);
+        
+        } catch (IOException e) {
+            feed.queue.put(jsonReader.parseFailure(jsonFilePath, e));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable e) {
+            // Errors too must reach the writer, which otherwise waits for this file forever
+            feed.queue.put(e);
+        }
+        return null;
+    }
+    
+    /**
+     * Takes a written batch for reuse, or creates one if none is free.
+     * 
+     * @param freeBatches batches available for reuse
+     * @param plan the column plan of the union header
+     * @return an empty batch
+     */
+    private ColumnarBatch takeBatch(BlockingQueue<ColumnarBatch> freeBatches, ColumnPlan plan) {
+        ColumnarBatch batch = freeBatches.poll();
+        return batch != null ? batch : plan.newBatch(ColumnarBatch.DEFAULT_CAPACITY, dictionarySize);
+    }
+    
+    /**
+     * Waits for a file task and translates its failure into a conversion error.
+     * 
+     * @param future the pending task
+     * @param jsonFilePath path to the input file, for error messages
+     * @param <T> the task result type
+     * @return the task result
+     * @throws JsonFileException if the task failed to read its file
+     */
+    private <T> T await(Future<T> future, String jsonFilePath) throws JsonFileException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JsonFileException("Merge interrupted: " + jsonFilePath, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof JsonFileException) {
+                throw (JsonFileException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw jsonReader.parseFailure(jsonFilePath, (IOException) cause);
+            }
+            throw new JsonFileException("Failed to convert JSON file: " + jsonFilePath, cause);
+        }
+    }
+    
+    /**
+     * Rows of one input file on their way from its worker to the writer.
+     */
+    private static final class FileFeed {
+        
+        private final String jsonFilePath;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        
+        /**
+         * Constructs a new FileFeed.
+         * 
+         * @param jsonFilePath path to the input file
+         */
+        FileFeed(String jsonFilePath) {
+            this.jsonFilePath = jsonFilePath;
+        }
+    }
+}
\ No newline at end of file
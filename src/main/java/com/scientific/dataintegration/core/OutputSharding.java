@@ -0,0 +1,214 @@
+package com.scientific.dataintegration.core;
+
+import java.util.Locale;
+
+/**
+ * How the rows of a CSV output are split over several files: into shards of a
+ * given number of rows or bytes, or into one partition per value of a column.
+ * Every shard has its own header line, so each can be imported on its own.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class OutputSharding {
+    
+    /** All rows are written to a single file. */
+    public static final OutputSharding NONE = new OutputSharding(Strategy.NONE, 0, null);
+    
+    private final Strategy strategy;
+    private final long limit;
+    private final String column;
+    
+    /**
+     * The ways of splitting an output.
+     */
+    public enum Strategy {
+        /** A single file. */
+        NONE,
+        /** A new shard after a given number of rows. */
+        ROWS,
+        /** A new shard once the current one reaches a given size in bytes, before compression. */
+        BYTES,
+        /** One shard per distinct value of a column. */
+        COLUMN
+    }
+    
+    /**
+     * Constructs a new OutputSharding.
+     * 
+     * @param strategy how rows are assigned to shards
+     * @param limit rows or bytes per shard for {@link Strategy#ROWS} and {@link Strategy#BYTES}
+     * @param column partition column for {@link Strategy#COLUMN}
+     */
+    private OutputSharding(Strategy strategy, long limit, String column) {
+        this.strategy = strategy;
+        this.limit = limit;
+        this.column = column;
+    }
+    
+    /**
+     * Splits the output into shards of at most the given number of rows.
+     * 
+     * @param rows rows per shard
+     * @return the sharding
+     * @throws IllegalArgumentException if the number is not positive
+     */
+    public static OutputSharding byRows(long rows) {
+        if (rows <= 0) {
+            throw new IllegalArgumentException("Rows per shard must be positive: " + rows);
+        }
+        return new OutputSharding(Strategy.ROWS, rows, null);
+    }
+    
+    /**
+     * Splits the output into shards of about the given size; a shard is closed
+     * once its CSV text reaches the size, so it exceeds it by less than one row.
+     * 
+     * @param bytes uncompressed size per shard in bytes
+     * @return the sharding
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public static OutputSharding byBytes(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Bytes per shard must be positive: " + bytes);
+        }
+        return new OutputSharding(Strategy.BYTES, bytes, null);
+    }
+    
+    /**
+     * Writes the rows of each distinct value of a column to their own shard.
+     * 
+     * @param column the CSV header of the partition column
+     * @return the sharding
+     * @throws IllegalArgumentException if the column name is empty
+     */
+    public static OutputSharding byColumn(String column) {
+        if (column == null || column.trim().isEmpty()) {
+            throw new IllegalArgumentException("Empty partition column name");
+        }
+        return new OutputSharding(Strategy.COLUMN, 0, column.trim());
+    }
+    
+    /**
+     * Parses the command line form of a sharding.
+     * 
+     * @param spec {@code rows:N}, {@code bytes:N} with an optional {@code k}, {@code m}
+     *             or {@code g} suffix, or {@code column:name}; null for none
+     * @return the sharding
+     * @throws IllegalArgumentException if the form is not recognised
+     */
+    public static OutputSharding parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return NONE;
+        }
+        int colon = spec.indexOf(':');
+        String kind = colon < 0 ? "" : spec.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+        String value = colon < 0 ? "" : spec.substring(colon + 1).trim();
+        switch (kind) {
+            case "rows":
+                return byRows(parseCount(value, 1));
+            case "bytes":
+                return byBytes(parseSize(value));
+            case "column":
+                return byColumn(value);
+            default:
+                throw new IllegalArgumentException("Expected rows:N, bytes:N or column:name, got: " + spec);
+        }
+    }
+    
+    /**
+     * Gets how rows are assigned to shards.
+     * 
+     * @return the strategy
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+    
+    /**
+     * Gets the number of rows or bytes per shard.
+     * 
+     * @return the limit, 0 unless sharding by rows or bytes
+     */
+    public long getLimit() {
+        return limit;
+    }
+    
+    /**
+     * Gets the column whose values select the shard.
+     * 
+     * @return the CSV header of the partition column, null unless sharding by column
+     */
+    public String getColumn() {
+        return column;
+    }
+    
+    /**
+     * Checks whether the output is a single file.
+     * 
+     * @return true if no sharding is requested
+     */
+    public boolean isNone() {
+        return strategy == Strategy.NONE;
+    }
+    
+    /**
+     * Formats this sharding in its command line form.
+     * 
+     * @return for example {@code rows:100000} or {@code column:year}; {@code none} for a single file
+     */
+    @Override
+    public String toString() {
+        switch (strategy) {
+            case ROWS:
+                return "rows:" + limit;
+            case BYTES:
+                return "bytes:" + limit;
+            case COLUMN:
+                return "column:" + column;
+            default:
+                return "none";
+        }
+    }
+    
+    /**
+     * Parses a size with an optional binary unit suffix.
+     * 
+     * @param value for example {@code 64m}
+     * @return the size in bytes
+     * @throws IllegalArgumentException if the value is not a positive size
+     */
+    private static long parseSize(String value) {
+        String lowerCaseValue = value.toLowerCase(Locale.ROOT);
+        long unit = 1;
+        if (lowerCaseValue.endsWith("k")) {
+            unit = 1024L;
+        } else if (lowerCaseValue.endsWith("m")) {
+            unit = 1024L * 1024;
+        } else if (lowerCaseValue.endsWith("g")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        String digits = unit == 1 ? value : value.substring(0, value.length() - 1);
+        return parseCount(digits, unit);
+    }
+    
+    /**
+     * Parses a positive count and multiplies it by a unit.
+     * 
+     * @param value the digits
+     * @param unit the multiplier
+     * @return the product
+     * @throws IllegalArgumentException if the value is not a positive number
+     */
+    private static long parseCount(String value, long unit) {
+        try {
+            long count = Long.parseLong(value.trim());
+            if (count > 0 && count <= Long.MAX_VALUE / unit) {
+                return count * unit;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Expected a positive number, got: " + value);
+    }
+}
\ No newline at end of file
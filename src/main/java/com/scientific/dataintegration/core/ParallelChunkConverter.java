@@ -0,0 +1,423 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Converts the records of a single large JSON or JSON Lines file on several cores.
+ * The input is split into byte-range chunks at record boundaries; worker threads
+ * parse and format the chunks independently and an ordered merge appends their
+ * output, so the CSV is identical to the one produced by a sequential run.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class ParallelChunkConverter {
+    
+    private static final Logger LOGGER = Logger.getLogger(ParallelChunkConverter.class.getName());
+    
+    private static final byte[] ARRAY_START = "[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ARRAY_END = "]".getBytes(StandardCharsets.US_ASCII);
+    
+    private final ValueFormatter valueFormatter;
+    private final JsonFileReader jsonReader;
+    private final CsvFileWriter csvWriter;
+    private final int parallelism;
+    private final long chunkSize;
+    private final int dictionarySize;
+    private final RecordSelection selection;
+    
+    /**
+     * Constructs a new ParallelChunkConverter.
+     * 
+     * @param valueFormatter formatter used for cell values
+     * @param jsonReader reader used to open the input
+     * @param csvWriter writer used to produce the output
+     * @param parallelism number of worker threads
+     * @param chunkSize approximate number of input bytes per chunk
+     * @param dictionarySize maximum distinct values kept per text column of a chunk, 0 to disable
+     * @param selection the columns and records kept
+     */
+    ParallelChunkConverter(ValueFormatter valueFormatter, JsonFileReader jsonReader, CsvFileWriter csvWriter,
+            int parallelism, long chunkSize, int dictionarySize, RecordSelection selection) {
+        this.valueFormatter = valueFormatter;
+        this.jsonReader = jsonReader;
+        this.csvWriter = csvWriter;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+        this.dictionarySize = dictionarySize;
+        this.selection = selection;
+    }
+    
+    /**
+     * Converts a JSON file in parallel if its record array is large enough to split.
+     * 
+     * @param jsonFilePath path to the input JSON file
+     * @param csvFilePath path to the output CSV file
+     * @param metrics metrics of the running conversion; stage times are summed over the workers
+     * @return false if the file has no record array, fits in a single chunk or is
+     *         compressed, in which case nothing was written and the caller should
+     *         convert sequentially
+     * @throws JsonFileException if the JSON file cannot be read or parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    boolean convert(String jsonFilePath, String csvFilePath, ConversionMetrics metrics)
+            throws JsonFileException, CsvFileException {
+        if (jsonReader.isCompressed(jsonFilePath)) {
+            // A gzip stream can only be decompressed from its start, so it cannot be split
+            return false;
+        }
+        
+        Path jsonFile = Paths.get(jsonFilePath);
+        boolean jsonLines = jsonReader.isJsonLines(jsonFilePath);
+        List<RecordChunk> chunks = split(jsonReader, jsonFilePath, chunkSize);
+        
+        if (chunks.size() < 2) {
+            return false;
+        }
+        
+        LOGGER.info("Split " + jsonFilePath + " into " + chunks.size() + " chunks for "
+                + parallelism + " worker threads");
+        
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(jsonFile, StandardOpenOption.READ)) {
+            ChunkSource source = new ChunkSource(channel, jsonLines, jsonFilePath, metrics);
+            ColumnPlan plan = collectColumns(executor, source, chunks);
+            writeRows(executor, source, chunks, plan, csvFilePath);
+            return true;
+        
+        } catch (IOException e) {
+            throw jsonReader.parseFailure(jsonFilePath, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Splits the records of an uncompressed JSON or JSON Lines file into chunks.
+     * 
+     * @param jsonReader reader used to open the input
+     * @param jsonFilePath path to the input file
+     * @param chunkSize approximate number of input bytes per chunk
+     * @return the chunks, or an empty list if the document has no record array
+     * @throws JsonFileException if the file cannot be read
+     */
+    static List<RecordChunk> split(JsonFileReader jsonReader, String jsonFilePath, long chunkSize)
+            throws JsonFileException {
+        return jsonReader.isJsonLines(jsonFilePath)
+                ? scanLines(jsonReader, jsonFilePath, chunkSize)
+                : scanArray(jsonReader, jsonFilePath, chunkSize);
+    }
+    
+    /**
+     * Splits the main record array of a JSON document into chunks.
+     * 
+     * @param jsonReader reader used to open the input
+     * @param jsonFilePath path to the input JSON file
+     * @param chunkSize approximate number of input bytes per chunk
+     * @return the chunks, or an empty list if the document has no record array
+     * @throws JsonFileException if the file cannot be read
+     */
+    private static List<RecordChunk> scanArray(JsonFileReader jsonReader, String jsonFilePath, long chunkSize)
+            throws JsonFileException {
+        try (JsonRecordStream records = jsonReader.openArrayStream(jsonFilePath)) {
+            if (!records.hasRecordArray()) {
+                return List.of();
+            }
+            return new RecordChunkScanner(chunkSize).scan(Paths.get(jsonFilePath), records.getCurrentTokenOffset());
+        } catch (IOException e) {
+            throw jsonReader.parseFailure(jsonFilePath, e);
+        }
+    }
+    
+    /**
+     * Splits a JSON Lines file into chunks of whole lines.
+     * 
+     * @param jsonReader reader used to open the input
+     * @param jsonFilePath path to the input JSON Lines file
+     * @param chunkSize approximate number of input bytes per chunk
+     * @return the chunks
+     * @throws JsonFileException if the file cannot be read
+     */
+    private static List<RecordChunk> scanLines(JsonFileReader jsonReader, String jsonFilePath, long chunkSize)
+            throws JsonFileException {
+        File file = jsonReader.validateInputFile(jsonFilePath);
+        try {
+            return new RecordChunkScanner(chunkSize).scanLines(file.toPath());
+        } catch (IOException e) {
+            throw new JsonFileException("Failed to read JSON Lines file: " + jsonFilePath, e);
+        }
+    }
+    
+    /**
+     * Collects the columns of all chunks in parallel.
+     * Merging the per-chunk columns in chunk order keeps the first-seen column order.
+     * 
+     * @param executor pool running the chunk tasks
+     * @param source the input being split
+     * @param chunks chunks of the input
+     * @return the compiled column plan
+     * @throws JsonFileException if a chunk cannot be parsed
+     */
+    private ColumnPlan collectColumns(ExecutorService executor, ChunkSource source, List<RecordChunk> chunks)
+            throws JsonFileException {
+        
+        List<Future<ColumnPlan.Builder>> futures = new ArrayList<>();
+        for (RecordChunk chunk : chunks) {
+            futures.add(executor.submit(() -> collectChunkColumns(source, chunk)));
+        }
+        
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
+        for (Future<ColumnPlan.Builder> future : futures) {
+            planBuilder.addAll(await(future, source.name));
+        }
+        return planBuilder.build(valueFormatter);
+    }
+    
+    /**
+     * Converts and writes all chunks, keeping a bounded window of chunks in flight
+     * and appending their output strictly in chunk order.
+     * 
+     * @param executor pool running the chunk tasks
+     * @param source the input being split
+     * @param chunks chunks of the input
+     * @param plan the compiled column plan
+     * @param csvFilePath path to the output CSV file
+     * @throws JsonFileException if a chunk cannot be parsed
+     * @throws CsvFileException if the CSV file cannot be written
+     */
+    private void writeRows(ExecutorService executor, ChunkSource source, List<RecordChunk> chunks,
+            ColumnPlan plan, String csvFilePath) throws JsonFileException, CsvFileException {
+        
+        int window = parallelism * 2;
+        Deque<Future<ChunkOutput>> inFlight = new ArrayDeque<>();
+        int nextChunk = 0;
+        
+        try (EncodedRowWriter rowWriter = csvWriter.openRowWriter(csvFilePath, plan.getHeaders(),
+                source.metrics)) {
+            while (nextChunk < chunks.size() || !inFlight.isEmpty()) {
+                while (nextChunk < chunks.size() && inFlight.size() < window) {
+                    RecordChunk chunk = chunks.get(nextChunk++);
+                    inFlight.add(executor.submit(() -> convertChunk(source, chunk, plan)));
+                }
+                
+                ChunkOutput output = await(inFlight.poll(), source.name);
+                rowWriter.writeEncoded(output.data, output.length, output.rowCount);
+            }
+            source.metrics.addRecords(rowWriter.getRowCount());
+            
+            LOGGER.info("Written " + rowWriter.getRowCount() + " records to CSV file");
+        }
+    }
+    
+    /**
+     * Collects the columns of every record of a chunk.
+     * 
+     * @param source the input being split
+     * @param chunk the chunk to scan
+     * @return the columns in first-seen order
+     * @throws IOException if the chunk cannot be read or parsed
+     */
+    private ColumnPlan.Builder collectChunkColumns(ChunkSource source, RecordChunk chunk) throws IOException {
+        ColumnPlan.Builder planBuilder = ColumnPlan.builder(selection);
+        long start = System.nanoTime();
+        
+        try (RecordStream records = openChunk(source, chunk)) {
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                planBuilder.collect(parser);
+            }
+        }
+        source.metrics.addTimeSince(ConversionMetrics.Stage.DISCOVERY, start);
+        return planBuilder;
+    }
+    
+    /**
+     * Converts every record of a chunk into encoded CSV lines.
+     * 
+     * @param source the input being split
+     * @param chunk the chunk to convert
+     * @param plan the compiled column plan
+     * @return the encoded lines and their count
+     * @throws IOException if the chunk cannot be read or parsed
+     */
+    private ChunkOutput convertChunk(ChunkSource source, RecordChunk chunk, ColumnPlan plan) throws IOException {
+        CsvEncoder encoder = csvWriter.newEncoder((int) Math.min(Integer.MAX_VALUE - 8, chunk.getLength()));
+        ColumnarBatch batch = plan.newBatch(ColumnarBatch.DEFAULT_CAPACITY, dictionarySize);
+        long rowCount = 0;
+        
+        try (RecordStream records = openChunk(source, chunk)) {
+            JsonParser parser;
+            long start = System.nanoTime();
+            while ((parser = records.nextRecord()) != null) {
+                plan.evaluate(parser, batch);
+                if (batch.isFull()) {
+                    start = source.metrics.addTimeSince(ConversionMetrics.Stage.PARSE, start);
+                    rowCount += encodeBatch(encoder, batch, plan);
+                    start = source.metrics.addTimeSince(ConversionMetrics.Stage.FORMAT, start);
+                }
+            }
+            start = source.metrics.addTimeSince(ConversionMetrics.Stage.PARSE, start);
+            rowCount += encodeBatch(encoder, batch, plan);
+            source.metrics.addTimeSince(ConversionMetrics.Stage.FORMAT, start);
+        }
+        source.metrics.sampleHeap();
+        return new ChunkOutput(encoder.array(), encoder.size(), rowCount);
+    }
+    
+    /**
+     * Encodes the rows of a batch and clears it for reuse.
+     * 
+     * @param encoder encoder receiving the lines
+     * @param batch the rows to encode
+     * @param plan the plan that filled the batch
+     * @return the number of rows encoded
+     */
+    private int encodeBatch(CsvEncoder encoder, ColumnarBatch batch, ColumnPlan plan) {
+        int rows = batch.getSize();
+        encoder.encodeBatch(batch, plan.getColumnCount());
+        batch.clear();
+        return rows;
+    }
+    
+    /**
+     * Opens a record stream over a single chunk. JSON Lines chunks are streamed
+     * line by line in place; array chunks are presented as a standalone JSON array.
+     * 
+     * @param source the input being split
+     * @param chunk the chunk to open
+     * @return a record stream over the records of the chunk
+     * @throws IOException if the chunk cannot be mapped or parsed
+     */
+    private RecordStream openChunk(ChunkSource source, RecordChunk chunk) throws IOException {
+        return openChunk(jsonReader, source.channel, source.jsonLines, chunk, source.name);
+    }
+    
+    /**
+     * Opens a record stream over a single chunk of a file, leaving the channel open when closed.
+     * 
+     * @param jsonReader reader used to create the parser
+     * @param channel channel over the input file
+     * @param jsonLines whether the input is a JSON Lines file
+     * @param chunk the chunk to open
+     * @param name path of the input file, for messages
+     * @return a record stream over the records of the chunk
+     * @throws IOException if the chunk cannot be mapped or parsed
+     */
+    static RecordStream openChunk(JsonFileReader jsonReader, FileChannel channel, boolean jsonLines,
+            RecordChunk chunk, String name) throws IOException {
+        if (jsonLines) {
+            return new JsonLinesRecordStream(jsonReader, channel, false,
+                    chunk.getOffset(), chunk.getOffset() + chunk.getLength(), name);
+        }
+        
+        InputStream body = new ByteBufferBackedInputStream(
+                channel.map(FileChannel.MapMode.READ_ONLY, chunk.getOffset(), chunk.getLength()));
+        InputStream input = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(ARRAY_START), body, new ByteArrayInputStream(ARRAY_END))));
+        
+        JsonParser parser = jsonReader.createParser(input);
+        try {
+            return new JsonRecordStream(parser, name);
+        } catch (IOException e) {
+            parser.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Waits for a chunk task and translates its failure into a conversion error.
+     * 
+     * @param future the pending task
+     * @param jsonFilePath path to the input JSON file, for error messages
+     * @param <T> the task result type
+     * @return the task result
+     * @throws JsonFileException if the task failed to parse its chunk
+     */
+    private <T> T await(Future<T> future, String jsonFilePath) throws JsonFileException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JsonFileException("Conversion interrupted: " + jsonFilePath, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw jsonReader.parseFailure(jsonFilePath, (IOException) cause);
+            }
+            throw new JsonFileException("Failed to convert JSON file: " + jsonFilePath, cause);
+        }
+    }
+    
+    /**
+     * Input file being converted, shared by all chunk tasks.
+     */
+    private static final class ChunkSource {
+        
+        private final FileChannel channel;
+        private final boolean jsonLines;
+        private final String name;
+        private final ConversionMetrics metrics;
+        
+        /**
+         * Constructs a new ChunkSource.
+         * 
+         * @param channel channel over the input file
+         * @param jsonLines whether the input is a JSON Lines file
+         * @param name path of the input file, for messages
+         * @param metrics metrics of the running conversion
+         */
+        ChunkSource(FileChannel channel, boolean jsonLines, String name, ConversionMetrics metrics) {
+            this.channel = channel;
+            this.jsonLines = jsonLines;
+            this.name = name;
+            this.metrics = metrics;
+        }
+    }
+    
+    /**
+     * Encoded output of one chunk.
+     */
+    private static final class ChunkOutput {
+        
+        private final byte[] data;
+        private final int length;
+        private final long rowCount;
+        
+        /**
+         * Constructs a new ChunkOutput.
+         * 
+         * @param data buffer holding the encoded CSV lines
+         * @param length number of meaningful bytes in the buffer
+         * @param rowCount number of rows in the data
+         */
+        ChunkOutput(byte[] data, int length, long rowCount) {
+            this.data = data;
+            this.length = length;
+            this.rowCount = rowCount;
+        }
+    }
+}
\ No newline at end of file
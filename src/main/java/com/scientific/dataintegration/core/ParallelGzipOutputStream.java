@@ -0,0 +1,253 @@
+package com.scientific.dataintegration.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream writing gzip data compressed on several threads.
+ * The bytes written are cut into fixed-size blocks and every block is compressed
+ * on a worker thread as a complete, independent gzip member. The members are
+ * written to the underlying stream strictly in order, and since a gzip file may
+ * hold any number of concatenated members, the result is read back by
+ * {@code gunzip}, {@link java.util.zip.GZIPInputStream} and every other standard
+ * tool as if it had been compressed in one piece.
+ * 
+ * <p>Members do not share a compression dictionary, which costs a fraction of a
+ * percent of compression ratio for blocks of a megabyte. The number of blocks in
+ * flight is bounded, so memory use does not depend on the size of the output.
+ * A stream is not thread-safe.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    
+    /** Number of uncompressed bytes per gzip member. */
+    static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final byte OS_UNKNOWN = (byte) 255;
+    
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int blockSize;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private byte[] block;
+    private int blockLength;
+    private boolean memberWritten;
+    private boolean closed;
+    
+    /**
+     * Constructs a new ParallelGzipOutputStream compressing on one thread per available processor.
+     * 
+     * @param out stream receiving the gzip members; closed with this stream
+     */
+    public ParallelGzipOutputStream(OutputStream out) {
+        this(out, Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+    }
+    
+    /**
+     * Constructs a new ParallelGzipOutputStream.
+     * 
+     * @param out stream receiving the gzip members; closed with this stream
+     * @param threads number of compression threads
+     * @param blockSize number of uncompressed bytes per gzip member
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads, int blockSize) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Thread count must be at least 1: " + threads);
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be at least 1: " + blockSize);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.maxPendingBlocks = threads * 2;
+        this.block = new byte[blockSize];
+        this.executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "gzip-compressor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock();
+        }
+    }
+    
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int count = Math.min(length, blockSize - blockLength);
+            System.arraycopy(data, offset, block, blockLength, count);
+            blockLength += count;
+            offset += count;
+            length -= count;
+            if (blockLength == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+    
+    /**
+     * Compresses the buffered bytes as a member of their own and writes every
+     * pending member. Frequent flushes produce small members and a worse ratio.
+     * 
+     * @throws IOException if a block cannot be compressed or written
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (blockLength > 0) {
+            submitBlock();
+        }
+        while (!pendingBlocks.isEmpty()) {
+            writeOldestBlock();
+        }
+        out.flush();
+    }
+    
+    /**
+     * Writes the remaining members, stops the compression threads and closes the
+     * underlying stream. An empty stream still gets one empty member so that the
+     * output is a valid gzip file.
+     * 
+     * @throws IOException if a block cannot be compressed or written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (blockLength > 0 || (!memberWritten && pendingBlocks.isEmpty())) {
+                submitBlock();
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeOldestBlock();
+            }
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+    
+    /**
+     * Hands the current block to the compression threads and starts a new one,
+     * first writing the oldest member when too many blocks are in flight.
+     * 
+     * @throws IOException if a previous block cannot be compressed or written
+     */
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        pendingBlocks.add(executor.submit(() -> compressMember(data, length)));
+        block = new byte[blockSize];
+        blockLength = 0;
+        
+        if (pendingBlocks.size() >= maxPendingBlocks) {
+            writeOldestBlock();
+        }
+    }
+    
+    /**
+     * Waits for the oldest block in flight and writes its member.
+     * 
+     * @throws IOException if the block cannot be compressed or written
+     */
+    private void writeOldestBlock() throws IOException {
+        Future<byte[]> oldest = pendingBlocks.poll();
+        try {
+            out.write(oldest.get());
+            memberWritten = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing output");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress output block", e.getCause());
+        }
+    }
+    
+    /**
+     * Checks that the stream has not been closed.
+     * 
+     * @throws IOException if the stream is closed
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+    
+    /**
+     * Compresses bytes into a complete gzip member: header, raw deflate data and
+     * a trailer holding the CRC-32 and length of the uncompressed bytes.
+     * 
+     * @param data the uncompressed bytes
+     * @param length number of bytes of data to compress
+     * @return the gzip member
+     */
+    static byte[] compressMember(byte[] data, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            
+            byte[] member = new byte[HEADER_SIZE + length + length / 1000 + 64 + TRAILER_SIZE];
+            member[0] = (byte) GZIP_MAGIC;
+            member[1] = (byte) (GZIP_MAGIC >> 8);
+            member[2] = Deflater.DEFLATED;
+            member[9] = OS_UNKNOWN;
+            
+            int position = HEADER_SIZE;
+            while (!deflater.finished()) {
+                if (position == member.length - TRAILER_SIZE) {
+                    member = Arrays.copyOf(member, member.length * 2);
+                }
+                position += deflater.deflate(member, position, member.length - TRAILER_SIZE - position);
+            }
+            
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            writeIntLE(member, position, (int) crc.getValue());
+            writeIntLE(member, position + 4, length);
+            return Arrays.copyOf(member, position + TRAILER_SIZE);
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    /**
+     * Writes a 32-bit value in little-endian byte order, as gzip trailers require.
+     * 
+     * @param buffer destination buffer
+     * @param offset index of the first byte
+     * @param value the value
+     */
+    private static void writeIntLE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.scientific.dataintegration.core;
+
+/**
+ * Byte range of a JSON file holding a whole number of consecutive records.
+ * Chunks always start at the first byte of a record and end right after the
+ * last record they contain, so each one can be parsed independently.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class RecordChunk {
+    
+    private final int index;
+    private final long offset;
+    private final long length;
+    
+    /**
+     * Constructs a new RecordChunk.
+     * 
+     * @param index position of the chunk within the file, starting at zero
+     * @param offset byte offset of the first record of the chunk
+     * @param length number of bytes covered by the chunk
+     */
+    RecordChunk(int index, long offset, long length) {
+        this.index = index;
+        this.offset = offset;
+        this.length = length;
+    }
+    
+    /**
+     * Gets the position of the chunk within the file.
+     * 
+     * @return the chunk index
+     */
+    int getIndex() {
+        return index;
+    }
+    
+    /**
+     * Gets the byte offset of the first record of the chunk.
+     * 
+     * @return the start offset
+     */
+    long getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Gets the number of bytes covered by the chunk.
+     * 
+     * @return the chunk length
+     */
+    long getLength() {
+        return length;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.scientific.dataintegration.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the records of a JSON file into chunks at record boundaries, either
+ * inside the main record array or at line breaks of a JSON Lines file.
+ * The scan only tracks string and nesting state byte by byte, without tokenizing,
+ * so it runs much faster than a full parse and leaves the real work to the
+ * workers that parse the chunks in parallel.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class RecordChunkScanner {
+    
+    private static final int READ_BUFFER_SIZE = 1024 * 1024;
+    
+    private final long targetChunkSize;
+    
+    /**
+     * Constructs a new RecordChunkScanner.
+     * 
+     * @param targetChunkSize approximate number of bytes per chunk
+     */
+    RecordChunkScanner(long targetChunkSize) {
+        this.targetChunkSize = targetChunkSize;
+    }
+    
+    /**
+     * Scans a JSON Lines file and returns chunks that each end after a newline.
+     * 
+     * @param file the JSON Lines file
+     * @return the chunks, in file order
+     * @throws IOException if the file cannot be read
+     */
+    List<RecordChunk> scanLines(Path file) throws IOException {
+        List<RecordChunk> chunks = new ArrayList<>();
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkStart = 0;
+            
+            while (size - chunkStart > targetChunkSize) {
+                long newline = findNewline(channel, chunkStart + targetChunkSize, size);
+                if (newline < 0) {
+                    break;
+                }
+                chunks.add(new RecordChunk(chunks.size(), chunkStart, newline + 1 - chunkStart));
+                chunkStart = newline + 1;
+            }
+            
+            if (chunkStart < size) {
+                chunks.add(new RecordChunk(chunks.size(), chunkStart, size - chunkStart));
+            }
+        }
+        return chunks;
+    }
+    
+    /**
+     * Scans a record array and returns the chunks covering all of its records.
+     * 
+     * @param file the JSON file
+     * @param firstRecordOffset byte offset of the opening brace of the first record
+     * @return the chunks, in file order; empty if the offset does not point at a record
+     * @throws IOException if the file cannot be read or the array is not terminated
+     */
+    List<RecordChunk> scan(Path file, long firstRecordOffset) throws IOException {
+        List<RecordChunk> chunks = new ArrayList<>();
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            byte[] bytes = buffer.array();
+            
+            long chunkStart = firstRecordOffset;
+            long lastSeparator = -1;
+            long position = firstRecordOffset;
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            
+            channel.position(firstRecordOffset);
+            if (channel.read(buffer) <= 0 || bytes[0] != '{') {
+                // Offset does not point at a record, let the caller parse sequentially
+                return chunks;
+            }
+            buffer.flip();
+            
+            int read = buffer.limit();
+            do {
+                for (int i = 0; i < read; i++, position++) {
+                    byte b = bytes[i];
+                    
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                        }
+                        continue;
+                    }
+                    
+                    switch (b) {
+                        case '"':
+                            inString = true;
+                            break;
+                        case '{':
+                            if (depth == 0 && lastSeparator > chunkStart
+                                    && position - chunkStart >= targetChunkSize) {
+                                chunks.add(new RecordChunk(chunks.size(), chunkStart, lastSeparator - chunkStart));
+                                chunkStart = position;
+                            }
+                            depth++;
+                            break;
+                        case '[':
+                            depth++;
+                            break;
+                        case '}':
+                        case ']':
+                            if (--depth < 0) {
+                                chunks.add(new RecordChunk(chunks.size(), chunkStart, position - chunkStart));
+                                return chunks;
+                            }
+                            break;
+                        case ',':
+                            if (depth == 0) {
+                                lastSeparator = position;
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                buffer.clear();
+            } while ((read = channel.read(buffer)) != -1);
+        }
+        
+        throw new IOException("Unexpected end-of-input inside data array");
+    }
+    
+    /**
+     * Finds the first newline at or after a position.
+     * 
+     * @param channel channel over the file
+     * @param from offset where the search starts
+     * @param size size of the file
+     * @return the offset of the newline, or -1 if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private long findNewline(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        byte[] bytes = buffer.array();
+        long position = from;
+        
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '\n') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,372 @@
+package com.scientific.dataintegration.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The part of each record a conversion keeps: the columns written, and the
+ * conditions a record must meet to be written at all. Both are applied while
+ * the record's tokens are read, so fields outside the columns are skipped
+ * without being parsed and rejected records are never formatted.
+ * 
+ * <p>Fields are named by their dotted path, as in the CSV header. Selecting an
+ * object field, such as {@code contact}, selects every column below it.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class RecordSelection {
+    
+    /** Every column of every record is written. */
+    public static final RecordSelection NONE = new RecordSelection(Collections.emptyList(), Collections.emptyList());
+    
+    /** Conditions are tracked as bits of a long while a record is read. */
+    static final int MAX_CONDITIONS = Long.SIZE;
+    
+    private static final String PATH_SEPARATOR = "\\.";
+    
+    private final List<String> columns;
+    private final List<Condition> conditions;
+    
+    /**
+     * Constructs a new RecordSelection.
+     * 
+     * @param columns dotted paths of the fields written, in column order; empty for all
+     * @param conditions conditions every written record meets; empty for all records
+     * @throws IllegalArgumentException if there are more than 64 conditions
+     */
+    public RecordSelection(List<String> columns, List<Condition> conditions) {
+        if (conditions.size() > MAX_CONDITIONS) {
+            throw new IllegalArgumentException("At most " + MAX_CONDITIONS + " conditions are supported");
+        }
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.conditions = Collections.unmodifiableList(new ArrayList<>(conditions));
+    }
+    
+    /**
+     * Parses the command line form of a selection.
+     * 
+     * @param columnSpec comma-separated field paths, for example {@code doi,title,contact};
+     *                   null for all columns
+     * @param conditionSpecs one condition per entry, for example {@code year>=2020}
+     * @return the selection
+     * @throws IllegalArgumentException if a field path or condition is malformed
+     */
+    public static RecordSelection parse(String columnSpec, List<String> conditionSpecs) {
+        List<String> columns = new ArrayList<>();
+        if (columnSpec != null) {
+            for (String column : columnSpec.split(",", -1)) {
+                columns.add(checkPath(column.trim()));
+            }
+        }
+        List<Condition> conditions = new ArrayList<>();
+        for (String conditionSpec : conditionSpecs) {
+            conditions.add(Condition.parse(conditionSpec));
+        }
+        return new RecordSelection(columns, conditions);
+    }
+    
+    /**
+     * Gets the paths of the fields written.
+     * 
+     * @return unmodifiable list of dotted paths, empty if every column is written
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+    
+    /**
+     * Gets the conditions every written record meets.
+     * 
+     * @return unmodifiable list of conditions, empty if every record is written
+     */
+    public List<Condition> getConditions() {
+        return conditions;
+    }
+    
+    /**
+     * Checks whether every column of every record is written.
+     * 
+     * @return true if nothing is projected or filtered
+     */
+    public boolean isEmpty() {
+        return columns.isEmpty() && conditions.isEmpty();
+    }
+    
+    /**
+     * Checks whether a parsed record meets every condition.
+     * 
+     * @param record the record
+     * @return true if the record is written
+     */
+    @SuppressWarnings("unchecked")
+    boolean accepts(Map<String, Object> record) {
+        for (Condition condition : conditions) {
+            Object value = record;
+            for (String name : condition.getPath()) {
+                value = value instanceof Map ? ((Map<String, Object>) value).get(name) : null;
+            }
+            if (!condition.matches(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Formats this selection in a compact form.
+     * 
+     * @return for example {@code columns=doi,title;where=year>=2020}
+     */
+    @Override
+    public String toString() {
+        List<String> where = new ArrayList<>();
+        for (Condition condition : conditions) {
+            where.add(condition.toString());
+        }
+        return "columns=" + String.join(",", columns) + ";where=" + String.join("&", where);
+    }
+    
+    /**
+     * Splits a dotted field path into field names.
+     * 
+     * @param path the path
+     * @return the field names from the outermost
+     */
+    static String[] splitPath(String path) {
+        return path.split(PATH_SEPARATOR, -1);
+    }
+    
+    /**
+     * Checks that a field path names a field at every level.
+     * 
+     * @param path the path
+     * @return the path
+     * @throws IllegalArgumentException if the path or one of its field names is empty
+     */
+    private static String checkPath(String path) {
+        for (String name : splitPath(path)) {
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty field name in selection: '" + path + "'");
+            }
+        }
+        return path;
+    }
+    
+    /**
+     * Comparison operators of a condition.
+     */
+    public enum Operator {
+        /** Equal to the value. */
+        EQUAL("="),
+        /** Not equal to the value. */
+        NOT_EQUAL("!="),
+        /** Less than the value. */
+        LESS("<"),
+        /** Less than or equal to the value. */
+        LESS_OR_EQUAL("<="),
+        /** Greater than the value. */
+        GREATER(">"),
+        /** Greater than or equal to the value. */
+        GREATER_OR_EQUAL(">=");
+        
+        private final String symbol;
+        
+        /**
+         * Constructs a new Operator.
+         * 
+         * @param symbol the operator in the command line form
+         */
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+        
+        /**
+         * Gets the operator in the command line form.
+         * 
+         * @return for example {@code >=}
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+        
+        /**
+         * Checks whether the result of a comparison satisfies this operator.
+         * 
+         * @param comparison negative, zero or positive as the field value is less than,
+         *                   equal to or greater than the condition value
+         * @return true if the condition holds
+         */
+        boolean accepts(int comparison) {
+            switch (this) {
+                case EQUAL:
+                    return comparison == 0;
+                case NOT_EQUAL:
+                    return comparison != 0;
+                case LESS:
+                    return comparison < 0;
+                case LESS_OR_EQUAL:
+                    return comparison <= 0;
+                case GREATER:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+    }
+    
+    /**
+     * Comparison of a field with a constant. When the constant is a number, the field
+     * is compared by value and must be a number too, or text holding one, so
+     * {@code year>=2020} holds for {@code "2021"} but not for {@code "unknown"}.
+     * Otherwise the field is compared as text. A record without a value for the field,
+     * or with a null, array or object value, never meets the condition.
+     */
+    public static final class Condition {
+        
+        private final String field;
+        private final String[] path;
+        private final Operator operator;
+        private final String value;
+        private final double number;
+        
+        /**
+         * Constructs a new Condition.
+         * 
+         * @param field dotted path of the compared field
+         * @param operator the comparison
+         * @param value the constant the field is compared with
+         * @throws IllegalArgumentException if the field path is malformed
+         */
+        public Condition(String field, Operator operator, String value) {
+            this.field = checkPath(field);
+            this.path = splitPath(field);
+            this.operator = operator;
+            this.value = value;
+            this.number = ExternalRowSorter.parseNumber(value);
+        }
+        
+        /**
+         * Parses the command line form of a condition: a field path, an operator
+         * and a constant, for example {@code year>=2020} or {@code type=article}.
+         * 
+         * @param spec the condition
+         * @return the condition
+         * @throws IllegalArgumentException if no operator follows a field path
+         */
+        public static Condition parse(String spec) {
+            int start = -1;
+            for (int i = 0; i < spec.length() && start < 0; i++) {
+                char c = spec.charAt(i);
+                if (c == '=' || c == '<' || c == '>' || (c == '!' && spec.startsWith("=", i + 1))) {
+                    start = i;
+                }
+            }
+            if (start <= 0) {
+                throw new IllegalArgumentException("Expected field=value, field>=value or similar, got: " + spec);
+            }
+            Operator operator = null;
+            for (Operator candidate : Operator.values()) {
+                if (spec.startsWith(candidate.symbol, start)
+                        && (operator == null || candidate.symbol.length() > operator.symbol.length())) {
+                    operator = candidate;
+                }
+            }
+            return new Condition(spec.substring(0, start).trim(), operator,
+                    spec.substring(start + operator.symbol.length()).trim());
+        }
+        
+        /**
+         * Gets the dotted path of the compared field.
+         * 
+         * @return the field path
+         */
+        public String getField() {
+            return field;
+        }
+        
+        /**
+         * Gets the comparison.
+         * 
+         * @return the operator
+         */
+        public Operator getOperator() {
+            return operator;
+        }
+        
+        /**
+         * Gets the constant the field is compared with.
+         * 
+         * @return the constant as given
+         */
+        public String getValue() {
+            return value;
+        }
+        
+        /**
+         * Gets the field names of the compared field's path.
+         * 
+         * @return the field names from the outermost; must not be modified
+         */
+        String[] getPath() {
+            return path;
+        }
+        
+        /**
+         * Checks whether a number meets this condition.
+         * 
+         * @param fieldNumber the field value
+         * @param fieldText the field value as written in the input, compared when the
+         *                  constant is not a number
+         * @return true if the condition holds
+         */
+        boolean matches(double fieldNumber, String fieldText) {
+            if (Double.isNaN(number)) {
+                return operator.accepts(fieldText.compareTo(value));
+            }
+            return operator.accepts(Double.compare(fieldNumber, number));
+        }
+        
+        /**
+         * Checks whether a text or boolean value meets this condition.
+         * 
+         * @param fieldText the field value
+         * @return true if the condition holds; false if the constant is a number and the text is not
+         */
+        boolean matches(String fieldText) {
+            if (!Double.isNaN(number)) {
+                double fieldNumber = ExternalRowSorter.parseNumber(fieldText);
+                return !Double.isNaN(fieldNumber) && operator.accepts(Double.compare(fieldNumber, number));
+            }
+            return operator.accepts(fieldText.compareTo(value));
+        }
+        
+        /**
+         * Checks whether a value of a parsed record meets this condition.
+         * 
+         * @param fieldValue the value, as bound by Jackson
+         * @return true if the condition holds
+         */
+        boolean matches(Object fieldValue) {
+            if (fieldValue instanceof Number) {
+                return matches(((Number) fieldValue).doubleValue(), fieldValue.toString());
+            }
+            if (fieldValue instanceof String || fieldValue instanceof Boolean) {
+                return matches(fieldValue.toString());
+            }
+            return false;
+        }
+        
+        /**
+         * Formats this condition in its command line form.
+         * 
+         * @return for example {@code year>=2020}
+         */
+        @Override
+        public String toString() {
+            return field + operator.symbol + value;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Forward-only source of JSON records, read one at a time from a token stream.
+ * Implementations exist for documents holding a record array and for JSON Lines files.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public interface RecordStream extends Closeable {
+    
+    /**
+     * Checks whether records can be read from this stream.
+     * 
+     * @return false if the source does not contain a collection of records
+     */
+    boolean hasRecordArray();
+    
+    /**
+     * Gets the key of the field holding the records.
+     * 
+     * @return the field name, or null if the records are not nested in an object
+     */
+    String getDataKey();
+    
+    /**
+     * Gets the number of records returned so far.
+     * 
+     * @return the record count
+     */
+    long getRecordCount();
+    
+    /**
+     * Advances to the next record. The caller must consume the whole record,
+     * leaving the parser on its END_OBJECT token, before asking for the next one.
+     * 
+     * @return a parser positioned on the record's START_OBJECT token,
+     *         or null when there are no more records
+     * @throws IOException if the source cannot be read or is malformed
+     */
+    JsonParser nextRecord() throws IOException;
+    
+    /**
+     * Reads the next record into a Map. Only this record is materialized.
+     * 
+     * @return the record as a Map, or null when there are no more records
+     * @throws IOException if the source cannot be read or is malformed
+     */
+    Map<String, Object> readRecord() throws IOException;
+}
\ No newline at end of file
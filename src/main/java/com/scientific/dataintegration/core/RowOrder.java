@@ -0,0 +1,174 @@
+package com.scientific.dataintegration.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Order and uniqueness requested for the rows of a CSV output: the columns rows are
+ * sorted by, and the columns identifying duplicate rows. Rows are compared by the
+ * text of their cells, numerically when both cells hold numbers; empty cells sort last.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class RowOrder {
+    
+    /** Rows are written in input order and duplicates are kept. */
+    public static final RowOrder NONE = new RowOrder(Collections.emptyList(), Collections.emptyList());
+    
+    private static final String DESCENDING_SUFFIX = ":desc";
+    private static final String ASCENDING_SUFFIX = ":asc";
+    
+    private final List<SortKey> sortKeys;
+    private final List<String> dedupColumns;
+    
+    /**
+     * Constructs a new RowOrder.
+     * 
+     * @param sortKeys columns the rows are sorted by, most significant first; empty to keep input order
+     * @param dedupColumns columns whose values identify a row; empty to keep duplicates
+     */
+    public RowOrder(List<SortKey> sortKeys, List<String> dedupColumns) {
+        this.sortKeys = Collections.unmodifiableList(new ArrayList<>(sortKeys));
+        this.dedupColumns = Collections.unmodifiableList(new ArrayList<>(dedupColumns));
+    }
+    
+    /**
+     * Parses the command line form of a row order.
+     * 
+     * @param sortSpec comma-separated columns, each optionally followed by {@code :asc} or
+     *                 {@code :desc}, for example {@code year:desc,author}; null for none
+     * @param dedupSpec comma-separated columns identifying a row, for example {@code doi}; null for none
+     * @return the row order
+     * @throws IllegalArgumentException if a column name is empty
+     */
+    public static RowOrder parse(String sortSpec, String dedupSpec) {
+        List<SortKey> sortKeys = new ArrayList<>();
+        for (String column : splitColumns(sortSpec)) {
+            String lowerCaseColumn = column.toLowerCase();
+            boolean descending = lowerCaseColumn.endsWith(DESCENDING_SUFFIX);
+            if (descending || lowerCaseColumn.endsWith(ASCENDING_SUFFIX)) {
+                column = requireName(column.substring(0, column.lastIndexOf(':')));
+            }
+            sortKeys.add(new SortKey(column, descending));
+        }
+        return new RowOrder(sortKeys, splitColumns(dedupSpec));
+    }
+    
+    /**
+     * Gets the columns the rows are sorted by.
+     * 
+     * @return unmodifiable list of sort keys, most significant first
+     */
+    public List<SortKey> getSortKeys() {
+        return sortKeys;
+    }
+    
+    /**
+     * Gets the columns whose values identify a row.
+     * 
+     * @return unmodifiable list of column names, empty if duplicates are kept
+     */
+    public List<String> getDedupColumns() {
+        return dedupColumns;
+    }
+    
+    /**
+     * Checks whether rows are written as they come, which needs no sorting at all.
+     * 
+     * @return true if neither sorting nor deduplication is requested
+     */
+    public boolean isEmpty() {
+        return sortKeys.isEmpty() && dedupColumns.isEmpty();
+    }
+    
+    /**
+     * Formats this row order in its command line form.
+     * 
+     * @return for example {@code sort=year:desc,author;dedup=doi}
+     */
+    @Override
+    public String toString() {
+        List<String> keys = new ArrayList<>();
+        for (SortKey sortKey : sortKeys) {
+            keys.add(sortKey.toString());
+        }
+        return "sort=" + String.join(",", keys) + ";dedup=" + String.join(",", dedupColumns);
+    }
+    
+    /**
+     * Splits a comma-separated list of column names.
+     * 
+     * @param spec the list, may be null
+     * @return the trimmed names
+     */
+    private static List<String> splitColumns(String spec) {
+        List<String> columns = new ArrayList<>();
+        if (spec == null || spec.trim().isEmpty()) {
+            return columns;
+        }
+        for (String column : spec.split(",")) {
+            columns.add(requireName(column));
+        }
+        return columns;
+    }
+    
+    /**
+     * Trims a column name and rejects empty ones.
+     * 
+     * @param column the column name
+     * @return the trimmed name
+     * @throws IllegalArgumentException if the name is empty
+     */
+    private static String requireName(String column) {
+        String name = column.trim();
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Empty column name in row order");
+        }
+        return name;
+    }
+    
+    /**
+     * A column rows are sorted by, and its direction.
+     */
+    public static final class SortKey {
+        
+        private final String column;
+        private final boolean descending;
+        
+        /**
+         * Constructs a new SortKey.
+         * 
+         * @param column the CSV header of the column
+         * @param descending true to put the largest values first
+         */
+        public SortKey(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+        
+        /**
+         * Gets the column rows are sorted by.
+         * 
+         * @return the CSV header of the column
+         */
+        public String getColumn() {
+            return column;
+        }
+        
+        /**
+         * Checks whether the largest values come first.
+         * 
+         * @return true for a descending sort
+         */
+        public boolean isDescending() {
+            return descending;
+        }
+        
+        @Override
+        public String toString() {
+            return descending ? column + DESCENDING_SUFFIX : column;
+        }
+    }
+}
\ No newline at end of file
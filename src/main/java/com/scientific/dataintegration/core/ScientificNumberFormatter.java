@@ -0,0 +1,225 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.config.ApplicationConfig;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Formats very large and very small numbers in E-notation for CSV output.
+ * Produces exactly the text of {@code String.format("%.<places>E", value)}, but
+ * writes the digits with integer arithmetic into a reusable per-thread char buffer
+ * instead of running a {@link java.util.Formatter} for every value.
+ * 
+ * <p>The mantissa is obtained by scaling the value with an exact power of ten and
+ * rounding half-up. When the scaled value lies too close to a rounding midpoint
+ * for the binary result to be trusted, or the value is outside the range covered
+ * by the power table, the formatter falls back to {@code String.format}.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class ScientificNumberFormatter {
+    
+    private static final Logger LOGGER = Logger.getLogger(ScientificNumberFormatter.class.getName());
+    
+    private static final double DEFAULT_UPPER_THRESHOLD = 1e6;
+    private static final double DEFAULT_LOWER_THRESHOLD = 1e-3;
+    private static final int DEFAULT_DECIMAL_PLACES = 6;
+    private static final int MAX_FAST_DECIMAL_PLACES = 12;
+    private static final int BUFFER_SIZE = 32;
+    
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private final double upperThreshold;
+    private final double lowerThreshold;
+    private final int decimalPlaces;
+    private final String pattern;
+    private final char decimalSeparator;
+    private final boolean fastPath;
+    private final long minMantissa;
+    private final long mantissaLimit;
+    private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+    
+    /**
+     * Constructs a new ScientificNumberFormatter.
+     * 
+     * @param upperThreshold magnitude from which values are written in E-notation
+     * @param lowerThreshold magnitude up to which non-zero values are written in E-notation
+     * @param decimalPlaces number of mantissa digits after the decimal point
+     */
+    public ScientificNumberFormatter(double upperThreshold, double lowerThreshold, int decimalPlaces) {
+        if (decimalPlaces < 0) {
+            throw new IllegalArgumentException("Decimal places must not be negative: " + decimalPlaces);
+        }
+        this.upperThreshold = upperThreshold;
+        this.lowerThreshold = lowerThreshold;
+        this.decimalPlaces = decimalPlaces;
+        this.pattern = "%." + decimalPlaces + "E";
+        
+        // String.format localizes the decimal separator and digits with the default format locale
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.fastPath = decimalPlaces <= MAX_FAST_DECIMAL_PLACES && symbols.getZeroDigit() == '0';
+        this.minMantissa = fastPath ? (long) POWERS_OF_TEN[decimalPlaces] : 0L;
+        this.mantissaLimit = fastPath ? (long) POWERS_OF_TEN[decimalPlaces + 1] : 0L;
+    }
+    
+    /**
+     * Builds the formatter declared by the {@code scientific.*} settings.
+     * 
+     * @param config the application configuration
+     * @return the configured formatter
+     */
+    public static ScientificNumberFormatter fromConfig(ApplicationConfig config) {
+        int decimalPlaces = config.getInt("scientific.decimal.places", DEFAULT_DECIMAL_PLACES);
+        if (decimalPlaces < 0) {
+            LOGGER.warning("Invalid scientific.decimal.places " + decimalPlaces + ", using " + DEFAULT_DECIMAL_PLACES);
+            decimalPlaces = DEFAULT_DECIMAL_PLACES;
+        }
+        return new ScientificNumberFormatter(
+                config.getDouble("scientific.notation.threshold", DEFAULT_UPPER_THRESHOLD),
+                config.getDouble("scientific.notation.min.threshold", DEFAULT_LOWER_THRESHOLD),
+                decimalPlaces);
+    }
+    
+    /**
+     * Checks whether a value is large or small enough to be written in E-notation.
+     * 
+     * @param value the value to check
+     * @return true if the magnitude reaches the upper threshold, or is non-zero
+     *         and does not exceed the lower threshold
+     */
+    public boolean usesScientificNotation(double value) {
+        double magnitude = Math.abs(value);
+        return magnitude >= upperThreshold || (magnitude <= lowerThreshold && value != 0);
+    }
+    
+    /**
+     * Formats a value in E-notation, e.g. {@code 1.234560E+07}.
+     * 
+     * @param value the value to format
+     * @return the same text as {@code String.format("%.<places>E", value)}
+     */
+    public String formatScientific(double value) {
+        char[] buffer = buffers.get();
+        int length = writeScientific(value, buffer);
+        return length < 0 ? String.format(pattern, value) : new String(buffer, 0, length);
+    }
+    
+    /**
+     * Gets the magnitude from which values are written in E-notation.
+     * 
+     * @return the upper threshold
+     */
+    public double getUpperThreshold() {
+        return upperThreshold;
+    }
+    
+    /**
+     * Gets the magnitude up to which non-zero values are written in E-notation.
+     * 
+     * @return the lower threshold
+     */
+    public double getLowerThreshold() {
+        return lowerThreshold;
+    }
+    
+    /**
+     * Gets the number of mantissa digits written after the decimal point.
+     * 
+     * @return the decimal places
+     */
+    public int getDecimalPlaces() {
+        return decimalPlaces;
+    }
+    
+    /**
+     * Writes a value in E-notation into a buffer.
+     * 
+     * @param value the value to format
+     * @param buffer destination of at least {@value #BUFFER_SIZE} chars
+     * @return the number of chars written, or -1 if the value must be formatted
+     *         with {@code String.format} to guarantee the exact same result
+     */
+    int writeScientific(double value, char[] buffer) {
+        double magnitude = Math.abs(value);
+        if (!fastPath || !(magnitude >= Double.MIN_NORMAL) || magnitude > Double.MAX_VALUE) {
+            return -1;
+        }
+        
+        int exponent = (int) Math.floor(Math.log10(magnitude));
+        double scaled = scale(magnitude, decimalPlaces - exponent);
+        // log10 may be off by one next to a power of ten
+        if (scaled >= mantissaLimit) {
+            exponent++;
+            scaled = scale(magnitude, decimalPlaces - exponent);
+        } else if (scaled < minMantissa) {
+            exponent--;
+            scaled = scale(magnitude, decimalPlaces - exponent);
+        }
+        if (!(scaled >= minMantissa && scaled < mantissaLimit)) {
+            return -1;
+        }
+        
+        // A midpoint this close may be a decimal tie that String.format rounds up
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) <= 8 * Math.ulp(scaled)) {
+            return -1;
+        }
+        
+        long mantissa = (long) floor + (fraction > 0.5 ? 1 : 0);
+        if (mantissa == mantissaLimit) {
+            mantissa = minMantissa;
+            exponent++;
+        }
+        
+        int position = 0;
+        if (value < 0) {
+            buffer[position++] = '-';
+        }
+        
+        int end = position + (decimalPlaces > 0 ? decimalPlaces + 2 : 1);
+        int i = end;
+        for (int d = 0; d < decimalPlaces; d++) {
+            buffer[--i] = (char) ('0' + (int) (mantissa % 10));
+            mantissa /= 10;
+        }
+        if (decimalPlaces > 0) {
+            buffer[--i] = decimalSeparator;
+        }
+        buffer[--i] = (char) ('0' + (int) mantissa);
+        position = end;
+        
+        buffer[position++] = 'E';
+        buffer[position++] = exponent < 0 ? '-' : '+';
+        int absExponent = Math.abs(exponent);
+        if (absExponent >= 100) {
+            buffer[position++] = (char) ('0' + absExponent / 100);
+            absExponent %= 100;
+        }
+        buffer[position++] = (char) ('0' + absExponent / 10);
+        buffer[position++] = (char) ('0' + absExponent % 10);
+        return position;
+    }
+    
+    /**
+     * Multiplies a magnitude by ten to the given power using exact powers only,
+     * so the result carries a single rounding error.
+     * 
+     * @param magnitude the positive value to scale
+     * @param power the power of ten
+     * @return the scaled value, or NaN if the power is outside the exact table
+     */
+    private double scale(double magnitude, int power) {
+        if (power >= 0) {
+            return power < POWERS_OF_TEN.length ? magnitude * POWERS_OF_TEN[power] : Double.NaN;
+        }
+        return -power < POWERS_OF_TEN.length ? magnitude / POWERS_OF_TEN[-power] : Double.NaN;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,530 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Row writer that splits its rows over several CSV files, each with its own header,
+ * and lists them in an index file once all are complete.
+ * 
+ * <p>For an output {@code name.csv}, shards are named {@code name-00000.csv},
+ * {@code name-00001.csv} and so on, or {@code name-column=value.csv} when partitioning
+ * by a column, and the index is {@code name.shards.json}. A compressed output name
+ * gives compressed shards.</p>
+ * 
+ * <p>The calling thread encodes each row into the buffer of its shard. Full buffers
+ * are handed to a pool of writer threads, each shard always to the same thread, which
+ * open, write and close the shard files. Writing and compressing several shards thus
+ * overlaps with the encoding of the next rows. Queues are bounded, so a slow disk
+ * holds the conversion back instead of filling the heap.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class ShardedRowWriter implements CsvRowWriter {
+    
+    /** Suffix of the index file that replaces the CSV extension of the output name. */
+    static final String INDEX_SUFFIX = ".shards.json";
+    
+    private static final Logger LOGGER = Logger.getLogger(ShardedRowWriter.class.getName());
+    private static final int INDEX_VERSION = 1;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    /** Encoded bytes of a shard that are handed to its writer thread at once. */
+    private static final int HANDOFF_SIZE = 128 * 1024;
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+    /** Buffers a writer thread may have waiting. */
+    private static final int QUEUE_CAPACITY = 8;
+    private static final Job STOP = new Job(null, null, 0, true);
+    
+    private final String[] headers;
+    private final OutputSharding sharding;
+    private final CsvFileWriter csvWriter;
+    private final ConversionMetrics metrics;
+    private final int maxPartitions;
+    private final int partitionColumn;
+    private final long headerBytes;
+    private final String filePrefix;
+    private final String fileSuffix;
+    private final List<Shard> shards = new ArrayList<>();
+    private final Map<String, Shard> partitions = new HashMap<>();
+    private final Set<String> fileNames = new HashSet<>();
+    private final BlockingQueue<CsvEncoder> freeBuffers = new LinkedBlockingQueue<>();
+    private final List<BlockingQueue<Job>> writerQueues = new ArrayList<>();
+    private final List<Future<?>> writers = new ArrayList<>();
+    private final ExecutorService executor;
+    private final AtomicReference<CsvFileException> failure = new AtomicReference<>();
+    private Shard current;
+    private long rowCount;
+    
+    /**
+     * Constructs a new ShardedRowWriter and starts its writer threads.
+     * 
+     * @param csvFilePath path of the output, from which shard and index names are derived
+     * @param headers array of column headers
+     * @param sharding how rows are assigned to shards
+     * @param csvWriter writer opening the shard files
+     * @param writerThreads number of threads writing shards
+     * @param maxPartitions largest number of partitions when partitioning by a column
+     * @param metrics metrics of the running conversion
+     * @throws CsvFileException if the partition column is not in the header
+     */
+    ShardedRowWriter(String csvFilePath, String[] headers, OutputSharding sharding, CsvFileWriter csvWriter,
+            int writerThreads, int maxPartitions, ConversionMetrics metrics) throws CsvFileException {
+        this.headers = headers;
+        this.sharding = sharding;
+        this.csvWriter = csvWriter;
+        this.metrics = metrics;
+        this.maxPartitions = maxPartitions;
+        this.partitionColumn = sharding.getStrategy() == OutputSharding.Strategy.COLUMN
+                ? indexOf(sharding.getColumn()) : -1;
+        
+        CsvEncoder headerEncoder = csvWriter.newEncoder(INITIAL_BUFFER_SIZE);
+        headerEncoder.encodeRow(headers, headers.length);
+        this.headerBytes = headerEncoder.size();
+        
+        int suffixLength = CsvFileWriter.extensionLength(csvFilePath);
+        this.filePrefix = csvFilePath.substring(0, csvFilePath.length() - suffixLength);
+        this.fileSuffix = suffixLength == 0 ? ".csv" : csvFilePath.substring(csvFilePath.length() - suffixLength);
+        
+        int threads = Math.max(1, writerThreads);
+        this.executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            BlockingQueue<Job> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            writerQueues.add(queue);
+            writers.add(executor.submit(() -> runWriter(queue)));
+        }
+    }
+    
+    @Override
+    public void writeRow(String[] row) throws CsvFileException {
+        long start = System.nanoTime();
+        String partition = null;
+        if (partitionColumn >= 0) {
+            partition = partitionColumn < row.length && row[partitionColumn] != null ? row[partitionColumn] : "";
+        }
+        Shard shard = shardFor(partition);
+        int sizeBefore = shard.buffer.size();
+        shard.buffer.encodeRow(row, headers.length);
+        rowAdded(shard, sizeBefore);
+        metrics.addTimeSince(ConversionMetrics.Stage.FORMAT, start);
+    }
+    
+    @Override
+    public void writeBatch(ColumnarBatch batch) throws CsvFileException {
+        long start = System.nanoTime();
+        boolean partitioned = partitionColumn >= 0 && partitionColumn < batch.getColumnCount();
+        for (int row = 0; row < batch.getSize(); row++) {
+            String partition = null;
+            if (partitionColumn >= 0) {
+                partition = partitioned ? batch.getText(partitionColumn, row) : "";
+            }
+            Shard shard = shardFor(partition);
+            int sizeBefore = shard.buffer.size();
+            shard.buffer.encodeBatchRow(batch, row, headers.length);
+            rowAdded(shard, sizeBefore);
+        }
+        metrics.addTimeSince(ConversionMetrics.Stage.FORMAT, start);
+    }
+    
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * Writes the remaining rows, waits for every shard to be closed and writes the index.
+     * 
+     * @throws CsvFileException if a shard or the index cannot be written
+     */
+    @Override
+    public void close() throws CsvFileException {
+        try {
+            for (Shard shard : shards) {
+                if (shard.buffer != null) {
+                    handOff(shard, true);
+                }
+            }
+            for (BlockingQueue<Job> queue : writerQueues) {
+                put(queue, STOP);
+            }
+            for (Future<?> writer : writers) {
+                awaitWriter(writer);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        checkFailure();
+        
+        Path indexFile = writeIndex();
+        LOGGER.info("Written " + rowCount + " rows to " + shards.size() + " shards, index: " + indexFile);
+    }
+    
+    /**
+     * Finds the shard receiving the next row, starting a new one when needed.
+     * Every partition keeps its file open until the end, so their number is bounded.
+     * 
+     * @param partition value of the partition column, or null unless partitioning by column
+     * @return the shard
+     * @throws CsvFileException if the row would start a partition beyond the limit
+     */
+    private Shard shardFor(String partition) throws CsvFileException {
+        if (partition == null) {
+            if (current == null) {
+                current = newShard(String.format("%05d", shards.size()), null);
+            }
+            return current;
+        }
+        Shard shard = partitions.get(partition);
+        if (shard == null) {
+            if (partitions.size() >= maxPartitions) {
+                // Recorded like a writer failure, so that closing does not write an index of the partial output
+                failure.compareAndSet(null, new CsvFileException("Column " + sharding.getColumn()
+                        + " has more than " + maxPartitions
+                        + " distinct values; raise shard.max.partitions or partition by another column"));
+                checkFailure();
+            }
+            shard = newShard(CsvFileWriter.toFileNamePart(sharding.getColumn()) + "="
+                    + CsvFileWriter.toFileNamePart(partition), partition);
+            partitions.put(partition, shard);
+        }
+        return shard;
+    }
+    
+    /**
+     * Creates a shard with a file name that no other shard of this output uses.
+     * 
+     * @param label distinguishing part of the file name
+     * @param partition value of the partition column, or null
+     * @return the new shard
+     */
+    private Shard newShard(String label, String partition) {
+        String filePath = filePrefix + "-" + label + fileSuffix;
+        if (!fileNames.add(filePath)) {
+            // Different values can sanitize to the same label
+            filePath = filePrefix + "-" + label + "-" + shards.size() + fileSuffix;
+            fileNames.add(filePath);
+        }
+        Shard shard = new Shard(Paths.get(filePath), partition, shards.size() % writerQueues.size(), takeBuffer());
+        shard.bytes = headerBytes;
+        shards.add(shard);
+        return shard;
+    }
+    
+    /**
+     * Accounts for a row just encoded into a shard's buffer, handing the buffer
+     * over when full and closing the shard when it has reached its limit.
+     * 
+     * @param shard the shard
+     * @param sizeBefore size of the buffer before the row was encoded
+     * @throws CsvFileException if a shard could not be written
+     */
+    private void rowAdded(Shard shard, int sizeBefore) throws CsvFileException {
+        rowCount++;
+        shard.rows++;
+        shard.pendingRows++;
+        shard.bytes += shard.buffer.size() - sizeBefore;
+        
+        boolean complete = sharding.getStrategy() == OutputSharding.Strategy.ROWS
+                ? shard.rows >= sharding.getLimit()
+                : sharding.getStrategy() == OutputSharding.Strategy.BYTES && shard.bytes >= sharding.getLimit();
+        if (complete) {
+            handOff(shard, true);
+            current = null;
+        } else if (shard.buffer.size() >= HANDOFF_SIZE) {
+            handOff(shard, false);
+        }
+    }
+    
+    /**
+     * Passes the encoded rows of a shard to its writer thread.
+     * 
+     * @param shard the shard
+     * @param last true to close the shard after these rows
+     * @throws CsvFileException if a shard could not be written
+     */
+    private void handOff(Shard shard, boolean last) throws CsvFileException {
+        checkFailure();
+        put(writerQueues.get(shard.writerIndex), new Job(shard, shard.buffer, shard.pendingRows, last));
+        shard.buffer = last ? null : takeBuffer();
+        shard.pendingRows = 0;
+    }
+    
+    /**
+     * Writes the jobs of one writer thread until told to stop. After a failure the
+     * remaining jobs are only drained, so the calling thread never blocks on a full queue.
+     * Shards left open are closed on the way out.
+     * 
+     * @param queue the thread's jobs
+     */
+    private void runWriter(BlockingQueue<Job> queue) {
+        List<Shard> openShards = new ArrayList<>();
+        try {
+            while (true) {
+                Job job = queue.take();
+                if (job == STOP) {
+                    return;
+                }
+                if (failure.get() == null) {
+                    try {
+                        write(job, openShards);
+                    } catch (CsvFileException e) {
+                        failure.compareAndSet(null, e);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, new CsvFileException("Failed to write CSV shard: "
+                                + job.shard.path, e));
+                    }
+                }
+                job.data.reset();
+                freeBuffers.offer(job.data);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Shard shard : openShards) {
+                try {
+                    shard.rowWriter.close();
+                } catch (CsvFileException e) {
+                    LOGGER.fine("Cannot close abandoned shard " + shard.path + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Writes one job's rows to its shard, opening the shard file first and closing it last.
+     * 
+     * @param job the job
+     * @param openShards shards this thread has open
+     * @throws CsvFileException if the shard cannot be written
+     */
+    private void write(Job job, List<Shard> openShards) throws CsvFileException {
+        Shard shard = job.shard;
+        if (shard.rowWriter == null) {
+            shard.rowWriter = csvWriter.openRowWriter(shard.path.toString(), headers, metrics);
+            openShards.add(shard);
+        }
+        if (job.data.size() > 0) {
+            shard.rowWriter.writeEncoded(job.data.array(), job.data.size(), job.rows);
+        }
+        if (job.last) {
+            openShards.remove(shard);
+            shard.rowWriter.close();
+            try {
+                shard.fileBytes = Files.size(shard.path);
+            } catch (IOException e) {
+                LOGGER.fine("Cannot read size of " + shard.path + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Gets the path of the index listing the shards of an output, which exists once
+     * every shard is complete.
+     * 
+     * @param csvFilePath path of the output
+     * @return the index path, {@code name.shards.json} for an output {@code name.csv}
+     */
+    static Path indexFile(String csvFilePath) {
+        int suffixLength = CsvFileWriter.extensionLength(csvFilePath);
+        return Paths.get(csvFilePath.substring(0, csvFilePath.length() - suffixLength) + INDEX_SUFFIX);
+    }
+    
+    /**
+     * Writes the index of the shards next to them, replacing any previous index in one move.
+     * 
+     * @return path of the index file
+     * @throws CsvFileException if the index cannot be written
+     */
+    private Path writeIndex() throws CsvFileException {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (Shard shard : shards) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("file", shard.path.getFileName().toString());
+            if (shard.partition != null) {
+                entry.put("partition", shard.partition);
+            }
+            entry.put("rows", shard.rows);
+            entry.put("bytes", shard.fileBytes);
+            entries.add(entry);
+        }
+        
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("version", INDEX_VERSION);
+        content.put("sharding", sharding.toString());
+        content.put("columns", headers);
+        content.put("rows", rowCount);
+        content.put("shards", entries);
+        
+        Path indexFile = Paths.get(filePrefix + INDEX_SUFFIX);
+        Path temporaryFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        try {
+            Path parentDir = indexFile.toAbsolutePath().getParent();
+            if (parentDir != null) {
+                Files.createDirectories(parentDir);
+            }
+            MAPPER.writerWithDefaultPrettyPrinter().writeValue(temporaryFile.toFile(), content);
+            try {
+                Files.move(temporaryFile, indexFile, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return indexFile;
+        } catch (IOException e) {
+            throw new CsvFileException("Failed to write shard index: " + indexFile, e);
+        }
+    }
+    
+    /**
+     * Takes a buffer written by a writer thread for reuse, or creates one if none is free.
+     * 
+     * @return an empty buffer
+     */
+    private CsvEncoder takeBuffer() {
+        CsvEncoder buffer = freeBuffers.poll();
+        return buffer != null ? buffer : csvWriter.newEncoder(INITIAL_BUFFER_SIZE);
+    }
+    
+    /**
+     * Queues a job for a writer thread, waiting while its queue is full.
+     * 
+     * @param queue the writer thread's queue
+     * @param job the job
+     * @throws CsvFileException if interrupted while waiting
+     */
+    private void put(BlockingQueue<Job> queue, Job job) throws CsvFileException {
+        try {
+            queue.put(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CsvFileException("Interrupted while writing CSV shards", e);
+        }
+    }
+    
+    /**
+     * Waits for a writer thread to finish its jobs.
+     * 
+     * @param writer the writer thread's task
+     * @throws CsvFileException if interrupted while waiting
+     */
+    private void awaitWriter(Future<?> writer) throws CsvFileException {
+        try {
+            writer.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CsvFileException("Interrupted while writing CSV shards", e);
+        } catch (ExecutionException e) {
+            throw new CsvFileException("Failed to write CSV shards", e.getCause());
+        }
+    }
+    
+    /**
+     * Rethrows the first failure of a writer thread.
+     * 
+     * @throws CsvFileException if a shard could not be written
+     */
+    private void checkFailure() throws CsvFileException {
+        CsvFileException exception = failure.get();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+    
+    /**
+     * Finds the index of the partition column in the header.
+     * 
+     * @param column the column name
+     * @return the column index
+     * @throws CsvFileException if the header has no such column
+     */
+    private int indexOf(String column) throws CsvFileException {
+        for (int index = 0; index < headers.length; index++) {
+            if (headers[index].equals(column)) {
+                return index;
+            }
+        }
+        throw new CsvFileException("Partition column not found in the CSV header: " + column);
+    }
+    
+    /**
+     * One output file and the state of its rows.
+     */
+    private static final class Shard {
+        
+        private final Path path;
+        private final String partition;
+        private final int writerIndex;
+        /** Rows encoded by the calling thread and not handed off yet; null once the shard is complete. */
+        private CsvEncoder buffer;
+        private long rows;
+        private long pendingRows;
+        private long bytes;
+        /** Only used by the shard's writer thread. */
+        private EncodedRowWriter rowWriter;
+        private volatile long fileBytes;
+        
+        /**
+         * Constructs a new Shard.
+         * 
+         * @param path path of the shard file
+         * @param partition value of the partition column, or null
+         * @param writerIndex index of the writer thread that writes the shard
+         * @param buffer buffer receiving the first rows
+         */
+        Shard(Path path, String partition, int writerIndex, CsvEncoder buffer) {
+            this.path = path;
+            this.partition = partition;
+            this.writerIndex = writerIndex;
+            this.buffer = buffer;
+        }
+    }
+    
+    /**
+     * Encoded rows of a shard on their way to its writer thread.
+     */
+    private static final class Job {
+        
+        private final Shard shard;
+        private final CsvEncoder data;
+        private final long rows;
+        private final boolean last;
+        
+        /**
+         * Constructs a new Job.
+         * 
+         * @param shard the shard receiving the rows
+         * @param data the encoded rows
+         * @param rows number of rows in the data
+         * @param last true to close the shard after these rows
+         */
+        Job(Shard shard, CsvEncoder data, long rows, boolean last) {
+            this.shard = shard;
+            this.data = data;
+            this.rows = rows;
+            this.last = last;
+        }
+    }
+}
\ No newline at end of file
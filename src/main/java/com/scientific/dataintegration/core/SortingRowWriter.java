@@ -0,0 +1,193 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Row writer that sorts and deduplicates rows before handing them to the real output.
+ * Rows are collected by an {@link ExternalRowSorter}, which spills to disk beyond its
+ * memory budget, and written in order when this writer is closed; the output is only
+ * opened at that point.
+ * 
+ * <p>Deduplication keeps the first row, in input order, of each group of rows with the
+ * same text in the deduplication columns; rows whose deduplication columns are all
+ * empty are always kept. It takes a first sort grouping equal keys; the remaining rows are
+ * then sorted by the sort columns, or back into input order when no sort columns are
+ * given. The memory budget is shared by the two sorts.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class SortingRowWriter implements CsvRowWriter {
+    
+    private static final Logger LOGGER = Logger.getLogger(SortingRowWriter.class.getName());
+    
+    private final String[] headers;
+    private final DataConverter.RowWriterOpener output;
+    private final ConversionMetrics metrics;
+    private final ExternalRowSorter deduplicator;
+    private final ExternalRowSorter sorter;
+    private long rowCount;
+    
+    /**
+     * Constructs a new SortingRowWriter.
+     * 
+     * @param headers array of column headers
+     * @param rowOrder the requested order and uniqueness of the rows
+     * @param memoryBudgetBytes estimated size of the rows kept in memory before spilling to disk
+     * @param spillDirectory directory receiving the spill files
+     * @param output opens the real output once the rows are sorted
+     * @param metrics metrics of the running conversion
+     * @throws CsvFileException if a sort or deduplication column is not in the header
+     */
+    SortingRowWriter(String[] headers, RowOrder rowOrder, long memoryBudgetBytes, Path spillDirectory,
+            DataConverter.RowWriterOpener output, ConversionMetrics metrics) throws CsvFileException {
+        this.headers = headers;
+        this.output = output;
+        this.metrics = metrics;
+        
+        List<RowOrder.SortKey> sortKeys = rowOrder.getSortKeys();
+        int[] sortColumns = new int[sortKeys.size()];
+        boolean[] descending = new boolean[sortKeys.size()];
+        for (int key = 0; key < sortColumns.length; key++) {
+            sortColumns[key] = indexOf(sortKeys.get(key).getColumn(), "Sort");
+            descending[key] = sortKeys.get(key).isDescending();
+        }
+        List<String> dedupKeys = rowOrder.getDedupColumns();
+        int[] dedupColumns = new int[dedupKeys.size()];
+        for (int key = 0; key < dedupColumns.length; key++) {
+            dedupColumns[key] = indexOf(dedupKeys.get(key), "Deduplication");
+        }
+        
+        long budget = dedupColumns.length == 0 ? memoryBudgetBytes : memoryBudgetBytes / 2;
+        this.deduplicator = dedupColumns.length == 0 ? null
+                : ExternalRowSorter.grouping(headers.length, dedupColumns, budget, spillDirectory);
+        this.sorter = ExternalRowSorter.ordering(headers.length, sortColumns, descending, budget, spillDirectory);
+    }
+    
+    @Override
+    public void writeRow(String[] row) throws CsvFileException {
+        long start = System.nanoTime();
+        add(Arrays.copyOf(row, headers.length));
+        metrics.addTimeSince(ConversionMetrics.Stage.SORT, start);
+    }
+    
+    @Override
+    public void writeBatch(ColumnarBatch batch) throws CsvFileException {
+        long start = System.nanoTime();
+        int batchColumns = Math.min(headers.length, batch.getColumnCount());
+        for (int row = 0; row < batch.getSize(); row++) {
+            String[] values = new String[headers.length];
+            for (int column = 0; column < values.length; column++) {
+                values[column] = column < batchColumns ? batch.getText(column, row) : "";
+            }
+            add(values);
+        }
+        metrics.addTimeSince(ConversionMetrics.Stage.SORT, start);
+    }
+    
+    /**
+     * Gets the number of rows received, before duplicates are removed.
+     * 
+     * @return the row count
+     */
+    @Override
+    public long getRowCount() {
+        return rowCount;
+    }
+    
+    /**
+     * Sorts the rows received, opens the output and writes them to it.
+     * 
+     * @throws CsvFileException if the rows cannot be sorted or written
+     */
+    @Override
+    public void close() throws CsvFileException {
+        try {
+            long start = System.nanoTime();
+            long duplicateCount = deduplicator == null ? 0 : removeDuplicates();
+            
+            long writtenCount;
+            try (ExternalRowSorter.RowCursor cursor = sorter.sorted();
+                 CsvRowWriter writer = output.open(headers)) {
+                while (cursor.next()) {
+                    start = metrics.addTimeSince(ConversionMetrics.Stage.SORT, start);
+                    writer.writeRow(cursor.current().getValues());
+                    start = System.nanoTime();
+                }
+                metrics.addTimeSince(ConversionMetrics.Stage.SORT, start);
+                writtenCount = writer.getRowCount();
+            }
+            
+            LOGGER.info("Sorted " + writtenCount + " rows using " + sorter.getSpilledRunCount() + " spilled runs"
+                    + (deduplicator == null ? "" : ", removed " + duplicateCount + " duplicate rows"));
+        } catch (IOException e) {
+            throw new CsvFileException("Failed to sort CSV rows: " + e.getMessage(), e);
+        } finally {
+            if (deduplicator != null) {
+                deduplicator.close();
+            }
+            sorter.close();
+        }
+    }
+    
+    /**
+     * Hands a row to the first sorter.
+     * 
+     * @param values the cells of the row
+     * @throws CsvFileException if the rows cannot be spilled to disk
+     */
+    private void add(String[] values) throws CsvFileException {
+        try {
+            (deduplicator == null ? sorter : deduplicator).add(values, rowCount++);
+        } catch (IOException e) {
+            throw new CsvFileException("Failed to spill sorted rows to disk: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Reads the rows grouped by their deduplication columns and passes the first row
+     * of each group, in input order, to the second sorter.
+     * 
+     * @return the number of rows removed
+     * @throws IOException if the rows cannot be sorted
+     */
+    private long removeDuplicates() throws IOException {
+        long duplicateCount = 0;
+        try (ExternalRowSorter.RowCursor cursor = deduplicator.sorted()) {
+            ExternalRowSorter.Row kept = null;
+            while (cursor.next()) {
+                ExternalRowSorter.Row row = cursor.current();
+                if (kept != null && deduplicator.hasKeyValue(row) && deduplicator.hasSameKeys(kept, row)) {
+                    duplicateCount++;
+                } else {
+                    kept = row;
+                    sorter.add(row.getValues(), row.getSequence());
+                }
+            }
+        }
+        return duplicateCount;
+    }
+    
+    /**
+     * Finds the index of a column in the header.
+     * 
+     * @param column the column name
+     * @param purpose what the column is used for, for the error message
+     * @return the column index
+     * @throws CsvFileException if the header has no such column
+     */
+    private int indexOf(String column, String purpose) throws CsvFileException {
+        for (int index = 0; index < headers.length; index++) {
+            if (headers[index].equals(column)) {
+                return index;
+            }
+        }
+        throw new CsvFileException(purpose + " column not found in the CSV header: " + column);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package com.scientific.dataintegration.core;
+
+/**
+ * Bounded dictionary of the distinct text values of one column.
+ * Values are looked up straight from the parser's character buffer, so a value
+ * already in the dictionary costs neither a new String nor, once its CSV bytes
+ * have been cached by the encoder, any quoting or encoding work.
+ * 
+ * <p>The dictionary holds at most a fixed number of entries. Once it is full it
+ * keeps serving the values it has, and it switches itself off for good if most
+ * lookups miss, which is the case for identifiers, titles and other columns whose
+ * values rarely repeat. A dictionary is not thread-safe.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class StringDictionary {
+    
+    /** Longest value that is worth keeping in a dictionary. */
+    static final int MAX_VALUE_LENGTH = 256;
+    
+    private static final int SAMPLE_SIZE = 4096;
+    
+    private final int maxEntries;
+    private Entry[] table;
+    private int size;
+    private boolean active = true;
+    private int sampledLookups;
+    private int sampledHits;
+    
+    /**
+     * Constructs a new, empty StringDictionary.
+     * 
+     * @param maxEntries maximum number of distinct values kept
+     */
+    StringDictionary(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Dictionary size must be at least 1: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.table = new Entry[tableSizeFor(Math.min(maxEntries, 64))];
+    }
+    
+    /**
+     * Checks whether the dictionary is still in use.
+     * 
+     * @return false once the column was found to have too many distinct values
+     */
+    boolean isActive() {
+        return active;
+    }
+    
+    /**
+     * Gets the number of distinct values held.
+     * 
+     * @return the entry count
+     */
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Finds the entry for a value, adding it if there is room.
+     * 
+     * @param chars buffer holding the value
+     * @param offset index of the first char of the value
+     * @param length number of chars of the value
+     * @return the shared entry, or null if the value is not kept by this dictionary
+     */
+    Entry lookup(char[] chars, int offset, int length) {
+        if (!active || length > MAX_VALUE_LENGTH) {
+            return null;
+        }
+        
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        
+        int slot = hash & (table.length - 1);
+        for (Entry entry = table[slot]; entry != null; entry = entry.next) {
+            if (entry.hash == hash && entry.matches(chars, offset, length)) {
+                recordLookup(true);
+                return entry;
+            }
+        }
+        
+        if (size == maxEntries) {
+            recordLookup(false);
+            return null;
+        }
+        
+        Entry entry = new Entry(new String(chars, offset, length), hash, table[slot]);
+        table[slot] = entry;
+        size++;
+        if (size > table.length * 3 / 4 && size < maxEntries) {
+            resize();
+        }
+        return entry;
+    }
+    
+    /**
+     * Counts a lookup made while the dictionary is full and switches the
+     * dictionary off when too few lookups of a sample found their value.
+     * 
+     * @param hit whether the value was found
+     */
+    private void recordLookup(boolean hit) {
+        if (size < maxEntries) {
+            return;
+        }
+        sampledLookups++;
+        if (hit) {
+            sampledHits++;
+        }
+        if (sampledLookups == SAMPLE_SIZE) {
+            if (sampledHits * 2 < sampledLookups) {
+                active = false;
+                table = null;
+            }
+            sampledLookups = 0;
+            sampledHits = 0;
+        }
+    }
+    
+    /**
+     * Doubles the hash table.
+     */
+    private void resize() {
+        Entry[] newTable = new Entry[table.length * 2];
+        for (Entry head : table) {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                int slot = entry.hash & (newTable.length - 1);
+                entry.next = newTable[slot];
+                newTable[slot] = entry;
+                entry = next;
+            }
+        }
+        table = newTable;
+    }
+    
+    /**
+     * Gets the power of two table size for an expected number of entries.
+     * 
+     * @param entries the expected entry count
+     * @return the table size
+     */
+    private static int tableSizeFor(int entries) {
+        int tableSize = 16;
+        while (tableSize * 3 / 4 < entries) {
+            tableSize *= 2;
+        }
+        return tableSize;
+    }
+    
+    /**
+     * Distinct value of a column, shared by every cell holding it.
+     */
+    static final class Entry {
+        
+        private final String value;
+        private final int hash;
+        private Entry next;
+        private CsvEncoder encodedBy;
+        private byte[] encoded;
+        
+        /**
+         * Constructs a new Entry.
+         * 
+         * @param value the value
+         * @param hash hash code of the value
+         * @param next next entry of the same hash table slot
+         */
+        Entry(String value, int hash, Entry next) {
+            this.value = value;
+            this.hash = hash;
+            this.next = next;
+        }
+        
+        /**
+         * Gets the value.
+         * 
+         * @return the shared String instance
+         */
+        String getValue() {
+            return value;
+        }
+        
+        /**
+         * Gets the CSV bytes of the value cached for an encoder.
+         * 
+         * @param encoder the encoder about to write the value
+         * @return the cached bytes, or null if they were produced by another encoder
+         */
+        byte[] getEncoded(CsvEncoder encoder) {
+            return encodedBy == encoder ? encoded : null;
+        }
+        
+        /**
+         * Caches the CSV bytes of the value produced by an encoder.
+         * 
+         * @param encoder the encoder that produced the bytes
+         * @param bytes the quoted and escaped UTF-8 bytes of the value
+         */
+        void setEncoded(CsvEncoder encoder, byte[] bytes) {
+            this.encodedBy = encoder;
+            this.encoded = bytes;
+        }
+        
+        /**
+         * Compares the value with a range of chars.
+         * 
+         * @param chars buffer holding the other value
+         * @param offset index of the first char
+         * @param length number of chars
+         * @return true if both values are equal
+         */
+        private boolean matches(char[] chars, int offset, int length) {
+            if (value.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Row writer that computes group aggregates of the rows it passes on to the real output,
+ * and writes them to small summary CSV files once the output is complete.
+ * 
+ * <p>For an output {@code name.csv}, the summary of a grouping by {@code year} and
+ * {@code type} is {@code name.summary-by-year-type.csv}, and the summary of a grouping
+ * by no column is {@code name.summary.csv}. Summaries are never compressed.</p>
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class SummarizingRowWriter implements CsvRowWriter {
+    
+    private static final Logger LOGGER = Logger.getLogger(SummarizingRowWriter.class.getName());
+    
+    private final List<GroupAggregator> aggregators = new ArrayList<>();
+    private final List<String> summaryPaths = new ArrayList<>();
+    private final CsvFileWriter csvWriter;
+    private final ValueFormatter valueFormatter;
+    private final ConversionMetrics metrics;
+    private final CsvRowWriter output;
+    
+    /**
+     * Constructs a new SummarizingRowWriter and opens the real output.
+     * 
+     * @param csvFilePath path of the output, from which the summary names are derived
+     * @param headers array of column headers
+     * @param summary the aggregates to compute
+     * @param maxGroups maximum number of groups kept apart per grouping
+     * @param csvWriter writer of the summary files
+     * @param valueFormatter formatter of decimal aggregates
+     * @param output opens the real output
+     * @param metrics metrics of the running conversion
+     * @throws CsvFileException if a summary column is not in the header or the output cannot be opened
+     */
+    SummarizingRowWriter(String csvFilePath, String[] headers, SummarySpec summary, int maxGroups,
+            CsvFileWriter csvWriter, ValueFormatter valueFormatter, DataConverter.RowWriterOpener output,
+            ConversionMetrics metrics) throws CsvFileException {
+        this.csvWriter = csvWriter;
+        this.valueFormatter = valueFormatter;
+        this.metrics = metrics;
+        
+        String prefix = csvFilePath.substring(0, csvFilePath.length() - CsvFileWriter.extensionLength(csvFilePath));
+        for (List<String> grouping : summary.getGroupings()) {
+            aggregators.add(new GroupAggregator(headers, grouping, summary.getMetricColumns(), maxGroups));
+            StringBuilder summaryPath = new StringBuilder(prefix).append(".summary");
+            for (int i = 0; i < grouping.size(); i++) {
+                summaryPath.append(i == 0 ? "-by-" : "-").append(CsvFileWriter.toFileNamePart(grouping.get(i)));
+            }
+            summaryPaths.add(summaryPath.append(".csv").toString());
+        }
+        // Opened last, so that an unknown column leaves no file behind
+        this.output = output.open(headers);
+    }
+    
+    @Override
+    public void writeRow(String[] row) throws CsvFileException {
+        long start = System.nanoTime();
+        for (GroupAggregator aggregator : aggregators) {
+            aggregator.add(row);
+        }
+        metrics.addTimeSince(ConversionMetrics.Stage.SUMMARY, start);
+        output.writeRow(row);
+    }
+    
+    @Override
+    public void writeBatch(ColumnarBatch batch) throws CsvFileException {
+        long start = System.nanoTime();
+        for (GroupAggregator aggregator : aggregators) {
+            for (int row = 0; row < batch.getSize(); row++) {
+                aggregator.add(batch, row);
+            }
+        }
+        metrics.addTimeSince(ConversionMetrics.Stage.SUMMARY, start);
+        output.writeBatch(batch);
+    }
+    
+    @Override
+    public long getRowCount() {
+        return output.getRowCount();
+    }
+    
+    /**
+     * Closes the real output, then writes the summaries.
+     * 
+     * @throws CsvFileException if the output or a summary cannot be written
+     */
+    @Override
+    public void close() throws CsvFileException {
+        output.close();
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < aggregators.size(); i++) {
+            GroupAggregator aggregator = aggregators.get(i);
+            String summaryPath = summaryPaths.get(i);
+            try (CsvRowWriter summaryWriter = csvWriter.openRowWriter(summaryPath, aggregator.getHeaders())) {
+                aggregator.writeSummary(summaryWriter, valueFormatter);
+            }
+            if (aggregator.isOverflowed()) {
+                LOGGER.warning("Too many groups for " + summaryPath + ", further groups were counted as "
+                        + GroupAggregator.OVERFLOW_LABEL);
+            }
+            LOGGER.info("Written summary of " + aggregator.getGroupCount() + " groups to " + summaryPath);
+        }
+        metrics.addTimeSince(ConversionMetrics.Stage.SUMMARY, start);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.scientific.dataintegration.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregates computed while a CSV output is written: the row count of each group
+ * of rows with the same values in some columns, and the count, sum, mean, minimum
+ * and maximum of numeric columns within each group. Several groupings can be
+ * requested at once, each producing its own summary file.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+public final class SummarySpec {
+    
+    /** No summary is computed. */
+    public static final SummarySpec NONE = new SummarySpec(Collections.emptyList(), Collections.emptyList());
+    
+    private final List<List<String>> groupings;
+    private final List<String> metricColumns;
+    
+    /**
+     * Constructs a new SummarySpec. Metric columns without any grouping are summed over
+     * all rows, as a single grouping by no column.
+     * 
+     * @param groupings the column lists rows are grouped by, one summary per list
+     * @param metricColumns numeric columns aggregated within each group
+     */
+    public SummarySpec(List<List<String>> groupings, List<String> metricColumns) {
+        List<List<String>> copies = new ArrayList<>();
+        for (List<String> grouping : groupings) {
+            copies.add(Collections.unmodifiableList(new ArrayList<>(grouping)));
+        }
+        if (copies.isEmpty() && !metricColumns.isEmpty()) {
+            copies.add(Collections.emptyList());
+        }
+        this.groupings = Collections.unmodifiableList(copies);
+        this.metricColumns = Collections.unmodifiableList(new ArrayList<>(metricColumns));
+    }
+    
+    /**
+     * Parses the command line form of a summary.
+     * 
+     * @param groupSpecs one comma-separated column list per grouping, for example
+     *                   {@code department} and {@code year,type}
+     * @param metricSpec comma-separated numeric columns, for example {@code citations,pages};
+     *                   null for row counts only
+     * @return the summary
+     * @throws IllegalArgumentException if a column name is empty
+     */
+    public static SummarySpec parse(List<String> groupSpecs, String metricSpec) {
+        List<List<String>> groupings = new ArrayList<>();
+        for (String groupSpec : groupSpecs) {
+            groupings.add(splitColumns(groupSpec));
+        }
+        return new SummarySpec(groupings, metricSpec == null ? Collections.emptyList() : splitColumns(metricSpec));
+    }
+    
+    /**
+     * Gets the column lists rows are grouped by.
+     * 
+     * @return unmodifiable list of groupings; a grouping with no column summarizes all rows
+     */
+    public List<List<String>> getGroupings() {
+        return groupings;
+    }
+    
+    /**
+     * Gets the numeric columns aggregated within each group.
+     * 
+     * @return unmodifiable list of column names
+     */
+    public List<String> getMetricColumns() {
+        return metricColumns;
+    }
+    
+    /**
+     * Checks whether no summary is requested.
+     * 
+     * @return true if there is nothing to compute
+     */
+    public boolean isEmpty() {
+        return groupings.isEmpty();
+    }
+    
+    /**
+     * Formats this summary in a compact form.
+     * 
+     * @return for example {@code group=department|year,type;metrics=citations}
+     */
+    @Override
+    public String toString() {
+        List<String> groups = new ArrayList<>();
+        for (List<String> grouping : groupings) {
+            groups.add(String.join(",", grouping));
+        }
+        return "group=" + String.join("|", groups) + ";metrics=" + String.join(",", metricColumns);
+    }
+    
+    /**
+     * Splits a comma-separated list of column names.
+     * 
+     * @param spec the list
+     * @return the trimmed names
+     * @throws IllegalArgumentException if a name is empty
+     */
+    private static List<String> splitColumns(String spec) {
+        List<String> columns = new ArrayList<>();
+        for (String column : spec.split(",", -1)) {
+            String name = column.trim();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty column name in summary");
+            }
+            columns.add(name);
+        }
+        return columns;
+    }
+}
\ No newline at end of file
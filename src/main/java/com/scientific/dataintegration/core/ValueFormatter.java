@@ -0,0 +1,96 @@
+package com.scientific.dataintegration.core;
+
+import java.util.List;
+
+/**
+ * Formats JSON values as CSV cell text, handling special scientific data types.
+ * Very large and very small floating point numbers are written in E-notation and
+ * arrays are written as their elements separated by {@code "; "}.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+final class ValueFormatter {
+    
+    private static final String LIST_SEPARATOR = "; ";
+    
+    private final ScientificNumberFormatter numberFormatter;
+    
+    /**
+     * Constructs a new ValueFormatter.
+     * 
+     * @param numberFormatter formatter used for numbers outside the plain notation range
+     */
+    ValueFormatter(ScientificNumberFormatter numberFormatter) {
+        this.numberFormatter = numberFormatter;
+    }
+    
+    /**
+     * Gets the formatter used for numbers outside the plain notation range.
+     * 
+     * @return the scientific number formatter
+     */
+    ScientificNumberFormatter getNumberFormatter() {
+        return numberFormatter;
+    }
+    
+    /**
+     * Formats a value for CSV output.
+     * 
+     * @param value the value to format
+     * @return formatted string representation, empty for null
+     */
+    String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    text.append(LIST_SEPARATOR);
+                }
+                text.append(format(list.get(i)));
+            }
+            return text.toString();
+        }
+        
+        if (value instanceof Double || value instanceof Float) {
+            // Handle scientific notation for large/small numbers
+            double doubleValue = ((Number) value).doubleValue();
+            if (numberFormatter.usesScientificNotation(doubleValue)) {
+                return numberFormatter.formatScientific(doubleValue);
+            }
+        }
+        
+        return value.toString();
+    }
+    
+    /**
+     * Formats a double value for CSV output without boxing it.
+     * 
+     * @param value the value to format
+     * @return the same text as {@link #format(Object)} for a {@link Double}
+     */
+    String formatDouble(double value) {
+        if (numberFormatter.usesScientificNotation(value)) {
+            return numberFormatter.formatScientific(value);
+        }
+        return Double.toString(value);
+    }
+    
+    /**
+     * Writes a double value in E-notation into a buffer when it needs it,
+     * avoiding the String that {@link #formatDouble(double)} would create.
+     * 
+     * @param value the value to format
+     * @param buffer destination of at least 32 chars
+     * @return the number of chars written, or -1 if the value must be formatted
+     *         with {@link #formatDouble(double)} instead
+     */
+    int writeScientific(double value, char[] buffer) {
+        return numberFormatter.usesScientificNotation(value) ? numberFormatter.writeScientific(value, buffer) : -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link BatchConverter} reports inputs that would write the same CSV file
+ * instead of letting them overwrite each other.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class BatchConverterTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void inputsWithTheSameOutputNameCollide() {
+        List<Path> inputs = List.of(Path.of("in", "a.json"), Path.of("in", "a.jsonl"), Path.of("in", "a.json.gz"),
+                Path.of("in", "b.json"), Path.of("in", "b.ndjson.gz"), Path.of("in", "c.json"));
+        Map<Path, String> collisions = BatchConverter.findNameCollisions(inputs, false);
+        assertEquals(5, collisions.size());
+        assertFalse(collisions.containsKey(Path.of("in", "c.json")));
+        assertEquals("Inputs a.json, a.json.gz, a.jsonl would all be written to a.csv; rename all but one of them",
+                collisions.get(Path.of("in", "a.jsonl")));
+        assertTrue(collisions.get(Path.of("in", "b.json")).contains("b.csv"));
+    }
+    
+    @Test
+    void collidingInputsFailAndTheOthersAreConverted() throws Exception {
+        Path input = Files.createDirectory(directory.resolve("in"));
+        Path output = directory.resolve("out");
+        write(input.resolve("a.json"), "{\"records\":[{\"id\":1}]}");
+        write(input.resolve("a.jsonl"), "{\"id\":2}\n");
+        write(input.resolve("b.json"), "{\"records\":[{\"id\":3}]}");
+        
+        BatchResult result = new BatchConverter(new DataConverter(), 2, true).convertDirectory(input.toString(),
+                output.toString());
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(2, result.getFailureCount());
+        assertFalse(Files.exists(output.resolve("a.csv")));
+        assertEquals(List.of("\"id\"", "\"3\""), Files.readAllLines(output.resolve("b.csv"), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Writes a file.
+     * 
+     * @param file the file
+     * @param content the file content
+     * @throws IOException if the file cannot be written
+     */
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the columns and rows of a {@link ColumnPlan} built with a {@link RecordSelection},
+ * and that records read as Maps, as tokens and into batches give the same rows.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ColumnPlanTest {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private static final String RECORDS = "["
+            + "{\"doi\":\"10.1/a\",\"title\":\"A\",\"year\":2021,"
+            + "\"contact\":{\"email\":\"a@x.org\",\"phone\":{\"home\":\"1\",\"work\":\"2\"}},\"type\":\"article\"},"
+            + "{\"title\":\"B\",\"contact\":{\"email\":\"b@x.org\",\"fax\":\"3\"},"
+            + "\"doi\":\"10.1/b\",\"year\":\"2019\"},"
+            + "{\"doi\":\"10.1/c\",\"year\":\"unknown\",\"contact\":null,\"type\":\"book\",\"tags\":[1,{\"x\":2}]},"
+            + "{\"doi\":\"10.1/d\",\"contact\":{\"phone\":{\"work\":\"4\"}},\"type\":\"article\",\"year\":2020.5},"
+            + "{\"doi\":\"10.1/e\",\"year\":[2020],\"type\":{\"name\":\"article\"}}"
+            + "]";
+    
+    private final ValueFormatter valueFormatter = new ValueFormatter(new ScientificNumberFormatter(1e6, 1e-3, 6));
+    
+    @Test
+    void everyFieldIsFlattenedInFirstSeenOrder() throws IOException {
+        ColumnPlan plan = build(RecordSelection.NONE);
+        // A field holding an object in some records and a value in others gets both kinds of column
+        assertArrayEquals(new String[] {"doi", "title", "year", "contact.email", "contact.phone.home",
+            "contact.phone.work", "type", "contact.fax", "contact", "tags", "type.name"}, plan.getHeaders());
+        assertAllPathsAgree(plan, 5);
+    }
+    
+    @Test
+    void selectingAnObjectSelectsItsWholeSubtree() throws IOException {
+        ColumnPlan plan = build(RecordSelection.parse("contact,doi", List.of()));
+        assertArrayEquals(new String[] {"contact.email", "contact.phone.home", "contact.phone.work",
+            "contact.fax", "contact", "doi"}, plan.getHeaders());
+        List<List<String>> rows = assertAllPathsAgree(plan, 5);
+        assertEquals(List.of("a@x.org", "1", "2", "", "", "10.1/a"), rows.get(0));
+        assertEquals(List.of("b@x.org", "", "", "3", "", "10.1/b"), rows.get(1));
+        assertEquals(List.of("", "", "", "", "", "10.1/c"), rows.get(2));
+        assertEquals(List.of("", "", "", "", "", "10.1/e"), rows.get(4));
+    }
+    
+    @Test
+    void selectingANestedObjectKeepsOnlyThatBranch() throws IOException {
+        ColumnPlan plan = build(RecordSelection.parse("contact.phone", List.of()));
+        assertArrayEquals(new String[] {"contact.phone.home", "contact.phone.work"}, plan.getHeaders());
+        List<List<String>> rows = assertAllPathsAgree(plan, 5);
+        assertEquals(List.of("", "4"), rows.get(3));
+    }
+    
+    @Test
+    void numericConditionsCompareNumbersAndNumericText() throws IOException {
+        // 2021 and "2019" hold numbers; "unknown", an array and a missing year never match
+        assertEquals(List.of("10.1/a", "10.1/d"), selectedDois("year>=2020"));
+        assertEquals(List.of("10.1/b"), selectedDois("year<2020"));
+        assertEquals(List.of("10.1/b"), selectedDois("year=2019"));
+        assertEquals(List.of("10.1/a", "10.1/b"), selectedDois("year!=2020.5"));
+    }
+    
+    @Test
+    void textConditionsCompareText() throws IOException {
+        assertEquals(List.of("10.1/a", "10.1/d"), selectedDois("type=article"));
+        assertEquals(List.of("10.1/a", "10.1/c", "10.1/d"), selectedDois("type<c"));
+        // The unknown year is text, and the object type never matches
+        assertEquals(List.of("10.1/c"), selectedDois("year=unknown"));
+        assertEquals(List.of("10.1/c"), selectedDois("type!=article"));
+    }
+    
+    @Test
+    void conditionsOnMissingNullAndNestedFields() throws IOException {
+        assertEquals(List.of("10.1/a", "10.1/b"), selectedDois("contact.email>=a"));
+        assertEquals(List.of("10.1/a"), selectedDois("contact.phone.home=1"));
+        assertEquals(List.of(), selectedDois("missing=1"));
+        assertEquals(List.of(), selectedDois("contact=null"));
+        assertEquals(List.of("10.1/d"), selectedDois("type=article", "year>2020", "year<2021"));
+    }
+    
+    @Test
+    void conditionsOnUnselectedFieldsDoNotAddColumns() throws IOException {
+        ColumnPlan plan = build(RecordSelection.parse("doi,title", List.of("type=article")));
+        assertArrayEquals(new String[] {"doi", "title"}, plan.getHeaders());
+        List<List<String>> rows = assertAllPathsAgree(plan, 2);
+        assertEquals(List.of("10.1/a", "A"), rows.get(0));
+        assertEquals(List.of("10.1/d", ""), rows.get(1));
+    }
+    
+    @Test
+    void aPlanWithoutRowsKeepsTheSelectedHeaders() throws IOException {
+        ColumnPlan plan = build(RecordSelection.parse("doi,contact", List.of("year>3000")));
+        assertArrayEquals(new String[] {"doi", "contact"}, plan.getHeaders());
+        assertAllPathsAgree(plan, 0);
+        
+        ColumnPlan unselected = build(RecordSelection.parse(null, List.of("year>3000")));
+        assertEquals(0, unselected.getColumnCount());
+        assertAllPathsAgree(unselected, 0);
+    }
+    
+    @Test
+    void recordsCollectedRowByRowMatchTheBuiltPlan() throws IOException {
+        RecordSelection selection = RecordSelection.parse("doi,contact", List.of("year>=2019"));
+        ColumnPlan.Builder builder = ColumnPlan.builder(selection);
+        List<String[]> collected = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(RECORDS)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String[] row = builder.collectRow(parser, valueFormatter);
+                if (row != null) {
+                    collected.add(row);
+                }
+            }
+        }
+        List<String> firstSeenOrder = builder.getColumnPaths();
+        ColumnPlan plan = builder.build(valueFormatter);
+        List<List<String>> rows = assertAllPathsAgree(plan, collected.size());
+        
+        for (int i = 0; i < collected.size(); i++) {
+            for (int cell = 0; cell < collected.get(i).length; cell++) {
+                int column = Arrays.asList(plan.getHeaders()).indexOf(firstSeenOrder.get(cell));
+                assertEquals(rows.get(i).get(column), collected.get(i)[cell], "row " + i + ", cell " + cell);
+            }
+        }
+    }
+    
+    /**
+     * Builds a plan from the test records, reading them as tokens.
+     * 
+     * @param selection the selection
+     * @return the plan
+     * @throws IOException if the records cannot be read
+     */
+    private ColumnPlan build(RecordSelection selection) throws IOException {
+        ColumnPlan.Builder builder = ColumnPlan.builder(selection);
+        try (JsonParser parser = JSON_FACTORY.createParser(RECORDS)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                builder.collect(parser);
+            }
+        }
+        return builder.build(valueFormatter);
+    }
+    
+    /**
+     * Gets the doi of each record meeting some conditions, checking that every path agrees.
+     * 
+     * @param conditions the conditions
+     * @return the dois of the written records, in input order
+     * @throws IOException if the records cannot be read
+     */
+    private List<String> selectedDois(String... conditions) throws IOException {
+        ColumnPlan plan = build(RecordSelection.parse("doi", List.of(conditions)));
+        List<String> dois = new ArrayList<>();
+        for (List<String> row : assertAllPathsAgree(plan, -1)) {
+            dois.add(row.get(0));
+        }
+        return dois;
+    }
+    
+    /**
+     * Evaluates the test records with each of the plan's evaluation paths and checks that
+     * they write the same rows.
+     * 
+     * @param plan the plan
+     * @param expectedRows the expected number of rows, or -1 not to check it
+     * @return the rows written
+     * @throws IOException if the records cannot be read
+     */
+    private List<List<String>> assertAllPathsAgree(ColumnPlan plan, int expectedRows) throws IOException {
+        List<List<String>> fromMaps = new ArrayList<>();
+        for (Map<String, Object> record : MAPPER.readValue(RECORDS,
+                new TypeReference<List<Map<String, Object>>>() { })) {
+            String[] row = plan.evaluate(record);
+            if (row != null) {
+                fromMaps.add(Arrays.asList(row));
+            }
+        }
+        
+        List<List<String>> fromTokens = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(RECORDS)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String[] row = plan.evaluate(parser);
+                if (row != null) {
+                    fromTokens.add(Arrays.asList(row));
+                }
+            }
+            // Each record must leave the parser on its own END_OBJECT
+            assertEquals(JsonToken.END_ARRAY, parser.currentToken());
+        }
+        
+        List<List<String>> fromBatch = new ArrayList<>();
+        ColumnarBatch batch = plan.newBatch(ColumnarBatch.DEFAULT_CAPACITY, 16);
+        try (JsonParser parser = JSON_FACTORY.createParser(RECORDS)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                plan.evaluate(parser, batch);
+            }
+            assertEquals(JsonToken.END_ARRAY, parser.currentToken());
+        }
+        for (int row = 0; row < batch.getSize(); row++) {
+            List<String> cells = new ArrayList<>();
+            for (int column = 0; column < batch.getColumnCount(); column++) {
+                cells.add(batch.getText(column, row));
+            }
+            fromBatch.add(cells);
+        }
+        
+        assertEquals(fromMaps, fromTokens, "rows read as tokens");
+        assertEquals(fromMaps, fromBatch, "rows read into a batch");
+        if (expectedRows >= 0) {
+            assertEquals(expectedRows, fromMaps.size(), "row count");
+        }
+        for (List<String> row : fromMaps) {
+            assertEquals(plan.getColumnCount(), row.size());
+        }
+        return fromMaps;
+    }
+}
\ No newline at end of file
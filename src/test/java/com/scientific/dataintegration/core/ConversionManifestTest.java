@@ -0,0 +1,205 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which inputs a {@link ConversionManifest} reports as up to date across runs,
+ * when their content hash is computed, and how it recovers from manifests it cannot use.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ConversionManifestTest {
+    
+    private static final String SETTINGS = "settings-1";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void unchangedInputsAreSkippedOnTheNextRun() throws Exception {
+        Path input = input("a.json", "{\"records\":[]}", 1_000_000);
+        Path output = output("a.csv");
+        ConversionManifest manifest = ConversionManifest.load(directory, SETTINGS);
+        assertFalse(manifest.isUpToDate(input, output));
+        convert(manifest, input, output);
+        manifest.save();
+        
+        ConversionManifest next = ConversionManifest.load(directory, SETTINGS);
+        assertEquals(1, next.size());
+        assertTrue(next.isUpToDate(input, output));
+        // Another output name, or a deleted output, needs a new conversion
+        assertFalse(next.isUpToDate(input, output("a.csv.gz")));
+        Files.delete(output);
+        assertFalse(next.isUpToDate(input, output));
+    }
+    
+    @Test
+    void theContentIsOnlyHashedForTouchedInputs() throws Exception {
+        Path input = input("a.json", "{\"records\":[]}", 1_000_000);
+        Path output = output("a.csv");
+        ConversionManifest manifest = ConversionManifest.load(directory, SETTINGS);
+        convert(manifest, input, output);
+        manifest.save();
+        assertFalse(savedEntry("a.json").has("crc32c"));
+        
+        // Without a hash to compare with, a touched input is converted again, keeping the hash
+        Files.setLastModifiedTime(input, FileTime.fromMillis(2_000_000));
+        manifest = ConversionManifest.load(directory, SETTINGS);
+        assertFalse(manifest.isUpToDate(input, output));
+        convert(manifest, input, output);
+        manifest.save();
+        assertEquals(ConversionManifest.hash(input), savedEntry("a.json").get("crc32c").asText());
+        
+        // From then on, touching it only updates its modification time
+        Files.setLastModifiedTime(input, FileTime.fromMillis(3_000_000));
+        manifest = ConversionManifest.load(directory, SETTINGS);
+        assertTrue(manifest.isUpToDate(input, output));
+        manifest.save();
+        assertEquals(3_000_000, savedEntry("a.json").get("lastModified").asLong());
+        assertEquals(ConversionManifest.hash(input), savedEntry("a.json").get("crc32c").asText());
+    }
+    
+    @Test
+    void changedContentIsConvertedAgain() throws Exception {
+        Path input = input("a.json", "{\"records\":[1]}", 1_000_000);
+        Path output = output("a.csv");
+        ConversionManifest manifest = ConversionManifest.load(directory, SETTINGS);
+        manifest.isUpToDate(input, output);
+        manifest.record(input, new ConversionManifest.Entry(Files.size(input), 1_000_000,
+                ConversionManifest.hash(input), "a.csv"));
+        
+        // Same size, new modification time, other content
+        input("a.json", "{\"records\":[2]}", 2_000_000);
+        assertFalse(manifest.isUpToDate(input, output));
+        // Same modification time, other size
+        input("a.json", "{\"records\":[22]}", 1_000_000);
+        assertFalse(manifest.isUpToDate(input, output));
+    }
+    
+    @Test
+    void otherSettingsInvalidateTheManifest() throws Exception {
+        Path input = input("a.json", "{\"records\":[]}", 1_000_000);
+        Path output = output("a.csv");
+        ConversionManifest manifest = ConversionManifest.load(directory, SETTINGS);
+        convert(manifest, input, output);
+        manifest.save();
+        
+        ConversionManifest changed = ConversionManifest.load(directory, "settings-2");
+        assertEquals(0, changed.size());
+        assertFalse(changed.isUpToDate(input, output));
+        assertEquals(1, ConversionManifest.load(directory, SETTINGS).size());
+    }
+    
+    @Test
+    void deletedInputsAreForgotten() throws Exception {
+        ConversionManifest manifest = ConversionManifest.load(directory, SETTINGS);
+        for (String name : new String[] {"a", "b", "c"}) {
+            convert(manifest, input(name + ".json", "{}", 1_000_000), output(name + ".csv"));
+        }
+        manifest.retainAll(List.of("a.json", "c.json", "d.json"));
+        manifest.remove(directory.resolve("c.json"));
+        manifest.save();
+        
+        ConversionManifest next = ConversionManifest.load(directory, SETTINGS);
+        assertEquals(1, next.size());
+        assertTrue(next.isUpToDate(directory.resolve("a.json"), output("a.csv")));
+        assertFalse(next.isUpToDate(directory.resolve("c.json"), output("c.csv")));
+    }
+    
+    @Test
+    void unusableManifestsAreReplaced() throws Exception {
+        Path input = input("a.json", "{}", 1_000_000);
+        Path output = output("a.csv");
+        Path manifestFile = directory.resolve(ConversionManifest.FILE_NAME);
+        String entry = "{\"a.json\":{\"size\":2,\"lastModified\":1000000,\"output\":\"a.csv\"}}";
+        for (String content : new String[] {
+            "{\"version\":1,\"settings\":\"" + SETTINGS + "\",\"files\":{\"a.json\"",
+            "{\"version\":99,\"settings\":\"" + SETTINGS + "\",\"files\":" + entry + "}",
+            "[1, 2]",
+            ""}) {
+            Files.writeString(manifestFile, content, StandardCharsets.UTF_8);
+            ConversionManifest manifest = ConversionManifest.load(directory, SETTINGS);
+            assertEquals(0, manifest.size(), content);
+            assertFalse(manifest.isUpToDate(input, output));
+        }
+        
+        // Incomplete entries are dropped, complete ones kept
+        Files.writeString(manifestFile, "{\"version\":1,\"settings\":\"" + SETTINGS + "\",\"files\":{"
+                + "\"a.json\":{\"size\":2,\"lastModified\":1000000,\"output\":\"a.csv\"},"
+                + "\"b.json\":{\"size\":\"2\",\"lastModified\":1000000,\"output\":\"b.csv\"},"
+                + "\"c.json\":{\"size\":2,\"output\":\"c.csv\"}}}", StandardCharsets.UTF_8);
+        ConversionManifest manifest = ConversionManifest.load(directory, SETTINGS);
+        assertEquals(1, manifest.size());
+        assertTrue(manifest.isUpToDate(input, output));
+        manifest.save();
+        assertEquals(1, ConversionManifest.load(directory, SETTINGS).size());
+        assertFalse(Files.exists(directory.resolve(ConversionManifest.FILE_NAME + ".tmp")));
+    }
+    
+    /**
+     * Converts an input the way the batch converter does: snapshot, write, record.
+     * 
+     * @param manifest the manifest
+     * @param input the input file
+     * @param output the output file, rewritten
+     * @throws IOException if a file cannot be read or written
+     */
+    private static void convert(ConversionManifest manifest, Path input, Path output) throws IOException {
+        ConversionManifest.Entry state = manifest.snapshot(input, output);
+        Files.writeString(output, "\"id\"\n", StandardCharsets.UTF_8);
+        manifest.record(input, state);
+    }
+    
+    /**
+     * Writes an input file of the test directory with a given modification time.
+     * 
+     * @param name the file name
+     * @param content the file content
+     * @param lastModified modification time in milliseconds since the epoch
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path input(String name, String content, long lastModified) throws IOException {
+        Path file = Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+    
+    /**
+     * Writes an output file of the test directory.
+     * 
+     * @param name the file name
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path output(String name) throws IOException {
+        return Files.writeString(directory.resolve(name), "\"id\"\n", StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads the saved entry of an input from the manifest file of the test directory.
+     * 
+     * @param name the input file name
+     * @return the entry
+     * @throws IOException if the manifest cannot be read
+     */
+    private JsonNode savedEntry(String name) throws IOException {
+        return MAPPER.readTree(directory.resolve(ConversionManifest.FILE_NAME).toFile()).get("files").get(name);
+    }
+}
\ No newline at end of file
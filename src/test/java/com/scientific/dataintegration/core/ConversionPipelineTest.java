@@ -0,0 +1,320 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ConversionPipeline} writes the batches it is given in order, whatever
+ * its depth and whether rows are encoded on their own thread, and that it stops cleanly
+ * after a failure or when closed early.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ConversionPipelineTest {
+    
+    /** Enough records for many batches, and for several encoded blocks. */
+    private static final int RECORD_COUNT = 25_000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String RECORDS = records(RECORD_COUNT);
+    
+    private final ValueFormatter valueFormatter = new ValueFormatter(new ScientificNumberFormatter(1e6, 1e-3, 6));
+    private final CsvFileWriter csvWriter = new CsvFileWriter();
+    
+    @Test
+    void everyDepthWritesTheRowsInInputOrder() throws Exception {
+        ColumnPlan plan = plan();
+        byte[] sequential = convert(plan, 0, false);
+        
+        String[] lines = new String(sequential, StandardCharsets.UTF_8).split("\n");
+        assertEquals(RECORD_COUNT + 1, lines.length);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            assertTrue(lines[i + 1].startsWith("\"" + i + "\","), "line " + (i + 1) + ": " + lines[i + 1]);
+        }
+        
+        for (int depth : new int[] {1, 2, 4, 16}) {
+            assertArrayEquals(sequential, convert(plan, depth, false), "batches, depth " + depth);
+            assertArrayEquals(sequential, convert(plan, depth, true), "encoded blocks, depth " + depth);
+        }
+    }
+    
+    @Test
+    void aSlowOutputHoldsBackTheReaderWithoutReorderingRows() throws Exception {
+        ColumnPlan plan = plan();
+        byte[] expected = convert(plan, 0, false);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EncodedRowWriter output = csvWriter.openRowWriter(Channels.newChannel(bytes), "test", plan.getHeaders(), null);
+        AtomicInteger written = new AtomicInteger();
+        CsvRowWriter slowOutput = new DelegatingRowWriter(output) {
+            @Override
+            public void writeBatch(ColumnarBatch batch) throws CsvFileException {
+                pause(written.incrementAndGet() % 3);
+                super.writeBatch(batch);
+            }
+        };
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (ConversionPipeline pipeline = new ConversionPipeline(plan, 64, 2, slowOutput, metrics())) {
+                feed(plan, pipeline, RECORD_COUNT);
+                pipeline.finish();
+            }
+        });
+        output.close();
+        assertArrayEquals(expected, bytes.toByteArray());
+    }
+    
+    @Test
+    void aFailingOutputIsReportedToTheReader() throws Exception {
+        ColumnPlan plan = plan();
+        for (boolean encoded : new boolean[] {false, true}) {
+            EncodedRowWriter failingOutput = new DelegatingRowWriter(null) {
+                private int calls;
+                
+                @Override
+                public void writeBatch(ColumnarBatch batch) throws CsvFileException {
+                    if (++calls == 3) {
+                        throw new CsvFileException("disk full");
+                    }
+                }
+                
+                @Override
+                public void writeEncoded(byte[] data, int length, long rows) throws CsvFileException {
+                    if (++calls == 3) {
+                        throw new CsvFileException("disk full");
+                    }
+                }
+            };
+            CsvFileException failure = assertTimeoutPreemptively(TIMEOUT, () -> {
+                try (ConversionPipeline pipeline = pipeline(plan, 4, failingOutput, encoded)) {
+                    return assertThrows(CsvFileException.class, () -> {
+                        feed(plan, pipeline, RECORD_COUNT);
+                        pipeline.finish();
+                    });
+                }
+            });
+            assertEquals("disk full", failure.getMessage(), "encoded " + encoded);
+        }
+    }
+    
+    @Test
+    void closingBeforeTheEndDropsTheRemainingBatches() throws Exception {
+        ColumnPlan plan = plan();
+        AtomicInteger writtenBatches = new AtomicInteger();
+        CsvRowWriter slowOutput = new DelegatingRowWriter(null) {
+            @Override
+            public void writeBatch(ColumnarBatch batch) {
+                pause(5);
+                writtenBatches.incrementAndGet();
+            }
+        };
+        int submitted = assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (ConversionPipeline pipeline = new ConversionPipeline(plan, 64, 4, slowOutput, metrics())) {
+                // As when reading fails part way: close without finish
+                return feed(plan, pipeline, RECORD_COUNT / 2);
+            }
+        });
+        int written = writtenBatches.get();
+        assertTrue(written <= submitted, written + " batches written of " + submitted + " submitted");
+        pause(50);
+        assertEquals(written, writtenBatches.get(), "batches written after close");
+    }
+    
+    /**
+     * Converts the test records through a pipeline into CSV bytes.
+     * 
+     * @param plan the plan
+     * @param depth the pipeline depth
+     * @param encoded true to encode rows on the pipeline's encoder thread
+     * @return the CSV
+     * @throws Exception if the conversion fails
+     */
+    private byte[] convert(ColumnPlan plan, int depth, boolean encoded) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            try (EncodedRowWriter output = csvWriter.openRowWriter(Channels.newChannel(bytes), "test",
+                    plan.getHeaders(), null);
+                 ConversionPipeline pipeline = pipeline(plan, depth, output, encoded)) {
+                feed(plan, pipeline, RECORD_COUNT);
+                pipeline.finish();
+                assertEquals(RECORD_COUNT, output.getRowCount());
+            }
+        });
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Creates a pipeline passing batches or encoded rows to an output.
+     * 
+     * @param plan the plan
+     * @param depth the pipeline depth
+     * @param output the output
+     * @param encoded true to encode rows on the pipeline's encoder thread
+     * @return the pipeline
+     */
+    private ConversionPipeline pipeline(ColumnPlan plan, int depth, EncodedRowWriter output, boolean encoded) {
+        return encoded
+                ? new ConversionPipeline(plan, 64, depth, output, csvWriter, metrics())
+                : new ConversionPipeline(plan, 64, depth, (CsvRowWriter) output, metrics());
+    }
+    
+    /**
+     * Reads test records into the pipeline's batches, as the streaming conversion does.
+     * 
+     * @param plan the plan
+     * @param pipeline the pipeline
+     * @param recordCount number of records to read
+     * @return the number of batches submitted
+     * @throws IOException if a record cannot be read
+     * @throws CsvFileException if a later stage failed
+     */
+    private static int feed(ColumnPlan plan, ConversionPipeline pipeline, int recordCount)
+            throws IOException, CsvFileException {
+        int submitted = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(RECORDS)) {
+            parser.nextToken();
+            ColumnarBatch batch = pipeline.takeBatch();
+            for (int i = 0; i < recordCount && parser.nextToken() == JsonToken.START_OBJECT; i++) {
+                plan.evaluate(parser, batch);
+                if (batch.isFull()) {
+                    pipeline.submit(batch);
+                    submitted++;
+                    batch = pipeline.takeBatch();
+                }
+            }
+            pipeline.submit(batch);
+            submitted++;
+        }
+        return submitted;
+    }
+    
+    /**
+     * Builds the plan of the test records.
+     * 
+     * @return the plan
+     * @throws IOException if the records cannot be read
+     */
+    private ColumnPlan plan() throws IOException {
+        ColumnPlan.Builder builder = ColumnPlan.builder(RecordSelection.NONE);
+        try (JsonParser parser = JSON_FACTORY.createParser(RECORDS)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                builder.collect(parser);
+            }
+        }
+        return builder.build(valueFormatter);
+    }
+    
+    /**
+     * Generates records with numbers, repeated and distinct text, and an occasional
+     * extra field.
+     * 
+     * @param count number of records
+     * @return a JSON array of the records
+     */
+    private static String records(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",")
+                .append("{\"id\":").append(i)
+                .append(",\"value\":").append(i * 1.5e3)
+                .append(",\"group\":\"group ").append(i % 7)
+                .append("\",\"title\":\"Title \\\"").append(Integer.toHexString(i * 31))
+                .append("\\\", part ").append(i).append('"');
+            if (i % 1000 == 999) {
+                json.append(",\"note\":\"rare\"");
+            }
+            json.append('}');
+        }
+        return json.append(']').toString();
+    }
+    
+    /**
+     * Starts metrics for a conversion that is not timed.
+     * 
+     * @return the metrics
+     */
+    private static ConversionMetrics metrics() {
+        return ConversionMetrics.start("input.json", "output.csv");
+    }
+    
+    /**
+     * Sleeps for a while.
+     * 
+     * @param millis the time to sleep
+     */
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Row writer passing everything on to another one, or dropping it without one.
+     */
+    private static class DelegatingRowWriter implements EncodedRowWriter {
+        
+        private final EncodedRowWriter target;
+        
+        /**
+         * Constructs a new DelegatingRowWriter.
+         * 
+         * @param target the writer receiving the rows, or null to drop them
+         */
+        DelegatingRowWriter(EncodedRowWriter target) {
+            this.target = target;
+        }
+        
+        @Override
+        public void writeRow(String[] row) throws CsvFileException {
+            if (target != null) {
+                target.writeRow(row);
+            }
+        }
+        
+        @Override
+        public void writeBatch(ColumnarBatch batch) throws CsvFileException {
+            if (target != null) {
+                target.writeBatch(batch);
+            }
+        }
+        
+        @Override
+        public void writeEncoded(byte[] data, int length, long rows) throws CsvFileException {
+            if (target != null) {
+                target.writeEncoded(data, length, rows);
+            }
+        }
+        
+        @Override
+        public long getRowCount() {
+            return target == null ? 0 : target.getRowCount();
+        }
+        
+        @Override
+        public void close() throws CsvFileException {
+            if (target != null) {
+                target.close();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that a {@link ConversionServer} converts posted JSON, and that a stopped
+ * server accepts requests again once restarted.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ConversionServerTest {
+    
+    @TempDir
+    Path directory;
+    
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ConversionServer server;
+    
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+    
+    @Test
+    void postedJsonIsConvertedAfterARestart() throws Exception {
+        server = new ConversionServer(new DataConverter(new ObjectMapper()), new InetSocketAddress("localhost", 0),
+                2, 1024 * 1024, directory);
+        server.start();
+        HttpResponse<String> response = post("{\"records\":[{\"id\":1},{\"id\":2}]}");
+        assertEquals(200, response.statusCode(), response.body());
+        assertEquals("\"id\"\n\"1\"\n\"2\"\n", response.body());
+        
+        server.stop();
+        server.start();
+        for (int i = 0; i < 3; i++) {
+            response = post("{\"records\":[{\"id\":" + i + "}]}");
+            assertEquals(200, response.statusCode(), response.body());
+            assertEquals("\"id\"\n\"" + i + "\"\n", response.body());
+        }
+    }
+    
+    @Test
+    void aRunningServerCannotBeStartedTwice() throws Exception {
+        server = new ConversionServer(new DataConverter(new ObjectMapper()), new InetSocketAddress("localhost", 0),
+                1, 1024, directory);
+        server.start();
+        assertThrows(IllegalStateException.class, server::start);
+        assertEquals(200, client.send(HttpRequest.newBuilder(uri("/health")).build(),
+                HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+    
+    /**
+     * Posts a JSON body to the conversion endpoint of the running server.
+     * 
+     * @param json the body
+     * @return the response
+     * @throws IOException if the request fails
+     * @throws InterruptedException if the request is interrupted
+     */
+    private HttpResponse<String> post(String json) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/convert"))
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+    
+    /**
+     * Gets the address of a path of the running server.
+     * 
+     * @param path the path
+     * @return the address
+     */
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+}
\ No newline at end of file
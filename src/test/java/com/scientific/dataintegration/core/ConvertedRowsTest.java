@@ -0,0 +1,463 @@
+package com.scientific.dataintegration.core;
+
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ConvertedRows} delivers the rows of the CSV file in order through its
+ * iterator, its spliterator and its publisher, and that it closes the input when the
+ * rows are read, closed early or cancelled.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ConvertedRowsTest {
+    
+    private static final int RECORD_COUNT = 3_000;
+    /** Small enough to split the test files into dozens of chunks. */
+    private static final long CHUNK_SIZE = 4 * 1024;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    
+    @TempDir
+    Path directory;
+    
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final JsonFileReader jsonReader = new JsonFileReader();
+    private final ValueFormatter valueFormatter = new ValueFormatter(new ScientificNumberFormatter(1e6, 1e-3, 6));
+    
+    /**
+     * Stops the publisher threads.
+     */
+    @AfterEach
+    void stopExecutor() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void iteratedRowsAreTheRowsOfTheCsvFile() throws Exception {
+        for (String name : new String[] {"records.json", "records.jsonl"}) {
+            Path json = writeRecords(name, RECORD_COUNT);
+            Path csv = directory.resolve(name + ".csv");
+            DataConverter converter = new DataConverter();
+            converter.convertJsonToCsvStreaming(json.toString(), csv.toString());
+            
+            List<String> lines = new ArrayList<>();
+            try (ConvertedRows rows = converter.openRows(json.toString())) {
+                lines.add(csvLine(rows.getHeaders()));
+                while (rows.hasNext()) {
+                    lines.add(csvLine(rows.next()));
+                }
+                assertThrows(NoSuchElementException.class, rows::next);
+            }
+            assertEquals(Files.readAllLines(csv, StandardCharsets.UTF_8), lines, name);
+        }
+    }
+    
+    @Test
+    void selectedRowsAreTheRowsOfTheSelectedCsvFile() throws Exception {
+        Path json = writeRecords("records.json", RECORD_COUNT);
+        Path csv = directory.resolve("records.csv");
+        DataConverter converter = new DataConverter()
+                .withSelection(RecordSelection.parse("title,id", List.of("group=group 3")));
+        converter.convertJsonToCsvStreaming(json.toString(), csv.toString());
+        
+        List<String> lines = new ArrayList<>();
+        try (ConvertedRows rows = converter.openRows(json.toString());
+             Stream<String[]> stream = rows.stream()) {
+            lines.add(csvLine(rows.getHeaders()));
+            stream.forEach(row -> lines.add(csvLine(row)));
+        }
+        assertEquals(Files.readAllLines(csv, StandardCharsets.UTF_8), lines);
+        assertEquals(1 + IntStream.range(0, RECORD_COUNT).filter(i -> i % 7 == 3).count(), lines.size());
+    }
+    
+    @Test
+    void parallelStreamsKeepTheOrderOfTheFile() throws Exception {
+        for (String name : new String[] {"records.json", "records.jsonl"}) {
+            Path json = writeRecords(name, RECORD_COUNT);
+            List<List<String>> expected = new ArrayList<>();
+            try (ConvertedRows rows = openRows(json)) {
+                rows.forEachRemaining(row -> expected.add(Arrays.asList(row)));
+            }
+            assertEquals(RECORD_COUNT, expected.size());
+            
+            try (ConvertedRows rows = openRows(json)) {
+                Spliterator<String[]> spliterator = rows.spliterator();
+                assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+                assertNotNull(spliterator.trySplit(), "chunks of " + name + " not split");
+            }
+            for (int run = 0; run < 5; run++) {
+                try (ConvertedRows rows = openRows(json);
+                     Stream<String[]> stream = rows.stream()) {
+                    List<List<String>> parallel = stream.parallel()
+                            .map(Arrays::asList)
+                            .collect(Collectors.toList());
+                    assertEquals(expected, parallel, name + ", run " + run);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void splitsCoverEveryChunkOnce() throws Exception {
+        Path json = writeRecords("records.json", RECORD_COUNT);
+        try (ConvertedRows rows = openRows(json)) {
+            Spliterator<String[]> rest = rows.spliterator();
+            List<Spliterator<String[]>> splits = new ArrayList<>();
+            Spliterator<String[]> split;
+            while ((split = rest.trySplit()) != null) {
+                splits.add(split);
+            }
+            splits.add(rest);
+            assertTrue(splits.size() > 2, "splits: " + splits.size());
+            
+            List<String> ids = new ArrayList<>();
+            for (Spliterator<String[]> part : splits) {
+                part.forEachRemaining(row -> ids.add(row[0]));
+            }
+            // Each split takes the first half of what was left, so the splits follow the file in order
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < RECORD_COUNT; i++) {
+                expected.add(String.valueOf(i));
+            }
+            assertEquals(expected, ids);
+        }
+    }
+    
+    @Test
+    void closingEarlyClosesTheInput() throws Exception {
+        TrackedInput input = new TrackedInput(records(100));
+        ConvertedRows rows = new DataConverter().openRows(input, "test", false);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), rows.next()[0]);
+        }
+        assertFalse(input.closed);
+        rows.close();
+        assertTrue(input.closed);
+        assertFalse(rows.hasNext());
+        rows.close();
+    }
+    
+    @Test
+    void readingEveryRowClosesTheInput() throws Exception {
+        TrackedInput input = new TrackedInput(records(100));
+        try (ConvertedRows rows = new DataConverter().openRows(input, "test", false)) {
+            int count = 0;
+            while (rows.hasNext()) {
+                assertEquals(String.valueOf(count++), rows.next()[0]);
+            }
+            assertEquals(100, count);
+            assertTrue(input.closed);
+        }
+    }
+    
+    @Test
+    void rowsReadOnceGrowTheirHeader() throws Exception {
+        String json = "[{\"a\":1},{\"a\":2,\"b\":\"x\"},{\"c\":true}]";
+        try (ConvertedRows rows = new DataConverter().openRows(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "test", false)) {
+            assertArrayEquals(new String[] {"1"}, rows.next());
+            assertArrayEquals(new String[] {"a"}, rows.getHeaders());
+            assertArrayEquals(new String[] {"2", "x"}, rows.next());
+            assertArrayEquals(new String[] {"", "", "true"}, rows.next());
+            assertArrayEquals(new String[] {"a", "b", "c"}, rows.getHeaders());
+            assertFalse(rows.hasNext());
+        }
+    }
+    
+    @Test
+    void malformedInputIsThrownUnchecked() throws Exception {
+        String json = "[{\"a\":1},{\"a\":2,}]";
+        try (ConvertedRows rows = new DataConverter().openRows(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), "test", false)) {
+            assertArrayEquals(new String[] {"1"}, rows.next());
+            assertThrows(UncheckedIOException.class, rows::hasNext);
+        }
+    }
+    
+    @Test
+    void publisherDeliversEveryRowInOrder() throws Exception {
+        Path json = writeRecords("records.json", RECORD_COUNT);
+        List<String> expected = new ArrayList<>();
+        try (ConvertedRows rows = openRows(json)) {
+            rows.forEachRemaining(row -> expected.add(row[0]));
+        }
+        
+        ConvertedRows rows = openRows(json);
+        RecordingSubscriber subscriber = new RecordingSubscriber(7, Long.MAX_VALUE);
+        rows.publisher(executor).subscribe(subscriber);
+        assertTimeoutPreemptively(TIMEOUT, () -> subscriber.done.get());
+        
+        assertTrue(subscriber.completed);
+        assertEquals(expected, subscriber.ids());
+        assertFalse(rows.hasNext());
+    }
+    
+    @Test
+    void cancellingThePublisherClosesTheInput() throws Exception {
+        TrackedInput input = new TrackedInput(records(RECORD_COUNT));
+        ConvertedRows rows = new DataConverter().openRows(input, "test", false);
+        RecordingSubscriber subscriber = new RecordingSubscriber(4, 10);
+        rows.publisher(executor).subscribe(subscriber);
+        assertTimeoutPreemptively(TIMEOUT, () -> subscriber.done.get());
+        
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            while (!input.closed) {
+                Thread.sleep(1);
+            }
+        });
+        assertEquals(10, subscriber.received.size());
+        assertFalse(subscriber.completed);
+        Thread.sleep(50);
+        assertEquals(10, subscriber.received.size(), "rows delivered after cancel");
+    }
+    
+    @Test
+    void aSecondSubscriberIsRefused() throws Exception {
+        TrackedInput input = new TrackedInput(records(10));
+        ConvertedRows rows = new DataConverter().openRows(input, "test", false);
+        Flow.Publisher<String[]> publisher = rows.publisher(executor);
+        RecordingSubscriber first = new RecordingSubscriber(1, Long.MAX_VALUE);
+        RecordingSubscriber second = new RecordingSubscriber(1, Long.MAX_VALUE);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        
+        assertTimeoutPreemptively(TIMEOUT, () -> second.done.get());
+        assertInstanceOf(IllegalStateException.class, second.error);
+        assertTimeoutPreemptively(TIMEOUT, () -> first.done.get());
+        assertTrue(first.completed);
+        assertEquals(10, first.received.size());
+        assertTrue(input.closed);
+    }
+    
+    @Test
+    void anInvalidRequestEndsThePublisher() throws Exception {
+        TrackedInput input = new TrackedInput(records(10));
+        ConvertedRows rows = new DataConverter().openRows(input, "test", false);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0, Long.MAX_VALUE);
+        rows.publisher(executor).subscribe(subscriber);
+        
+        assertTimeoutPreemptively(TIMEOUT, () -> subscriber.done.get());
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        assertTrue(input.closed);
+    }
+    
+    @Test
+    void aReadFailureIsPublishedAsAnError() throws Exception {
+        byte[] json = "[{\"a\":1},{\"a\":2,}]".getBytes(StandardCharsets.UTF_8);
+        ConvertedRows rows = new DataConverter().openRows(new ByteArrayInputStream(json), "test", false);
+        RecordingSubscriber subscriber = new RecordingSubscriber(1, Long.MAX_VALUE);
+        rows.publisher(executor).subscribe(subscriber);
+        
+        assertTimeoutPreemptively(TIMEOUT, () -> subscriber.done.get());
+        assertEquals(1, subscriber.received.size());
+        assertInstanceOf(UncheckedIOException.class, subscriber.error);
+    }
+    
+    /**
+     * Opens the rows of a file split into small chunks, the way
+     * {@link DataConverter#openRows(String)} opens them.
+     * 
+     * @param json the input file
+     * @return the rows
+     * @throws Exception if the file cannot be read
+     */
+    private ConvertedRows openRows(Path json) throws Exception {
+        ColumnPlan.Builder builder = ColumnPlan.builder(RecordSelection.NONE);
+        long recordCount;
+        try (RecordStream records = jsonReader.openRecordStream(json.toString())) {
+            JsonParser parser;
+            while ((parser = records.nextRecord()) != null) {
+                builder.collect(parser);
+            }
+            recordCount = records.getRecordCount();
+        }
+        return ConvertedRows.ofFile(jsonReader, json.toString(), builder.build(valueFormatter),
+                jsonReader.openRecordStream(json.toString()), CHUNK_SIZE, recordCount);
+    }
+    
+    /**
+     * Writes test records to a file, as a JSON array or as JSON Lines by the file extension.
+     * 
+     * @param name the file name
+     * @param count number of records
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path writeRecords(String name, int count) throws IOException {
+        String content;
+        if (name.endsWith(".jsonl")) {
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                lines.append(record(i)).append('\n');
+            }
+            content = lines.toString();
+        } else {
+            content = "{\"records\":" + records(count) + "}";
+        }
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Builds a JSON array of test records.
+     * 
+     * @param count number of records
+     * @return the array
+     */
+    private static String records(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",").append(record(i));
+        }
+        return json.append(']').toString();
+    }
+    
+    /**
+     * Builds a test record whose first field is its position.
+     * 
+     * @param i the position
+     * @return the record
+     */
+    private static String record(int i) {
+        return "{\"id\":" + i + ",\"value\":" + (i * 2.5e4) + ",\"group\":\"group " + (i % 7)
+                + "\",\"title\":\"Title \\\"" + i + "\\\"\""
+                + (i % 500 == 499 ? ",\"meta\":{\"late\":" + i + "}" : "") + "}";
+    }
+    
+    /**
+     * Writes a row the way the default CSV format does.
+     * 
+     * @param cells the cells
+     * @return the CSV line
+     */
+    private static String csvLine(String[] cells) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < cells.length; i++) {
+            line.append(i == 0 ? "\"" : ",\"").append(cells[i].replace("\"", "\"\"")).append('"');
+        }
+        return line.toString();
+    }
+    
+    /**
+     * Input stream remembering whether it was closed.
+     */
+    private static final class TrackedInput extends FilterInputStream {
+        
+        private volatile boolean closed;
+        
+        /**
+         * Constructs a new TrackedInput.
+         * 
+         * @param json the JSON read from the stream
+         */
+        TrackedInput(String json) {
+            super(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        }
+        
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+    
+    /**
+     * Subscriber requesting rows in fixed steps and cancelling after a number of rows.
+     */
+    private static final class RecordingSubscriber implements Flow.Subscriber<String[]> {
+        
+        private final long step;
+        private final long cancelAfter;
+        private final List<String[]> received = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private volatile boolean completed;
+        private volatile Throwable error;
+        
+        /**
+         * Constructs a new RecordingSubscriber.
+         * 
+         * @param step rows requested at once
+         * @param cancelAfter number of rows after which the subscription is cancelled
+         */
+        RecordingSubscriber(long step, long cancelAfter) {
+            this.step = step;
+            this.cancelAfter = cancelAfter;
+        }
+        
+        @Override
+        public void onSubscribe(Flow.Subscription newSubscription) {
+            subscription = newSubscription;
+            newSubscription.request(step);
+        }
+        
+        @Override
+        public void onNext(String[] row) {
+            received.add(row);
+            if (received.size() == cancelAfter) {
+                subscription.cancel();
+                done.complete(null);
+            } else if (received.size() % step == 0) {
+                subscription.request(step);
+            }
+        }
+        
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.complete(null);
+        }
+        
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.complete(null);
+        }
+        
+        /**
+         * Gets the first cell of each row received.
+         * 
+         * @return the ids, in order of delivery
+         */
+        List<String> ids() {
+            List<String> ids = new ArrayList<>();
+            for (String[] row : received) {
+                ids.add(row[0]);
+            }
+            return ids;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,314 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the order produced by {@link ExternalRowSorter}, in memory and when its
+ * runs are spilled to disk and merged.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ExternalRowSorterTest {
+    
+    /** A budget below the size of any row, so that every row is spilled as its own run. */
+    private static final long SPILL_EVERY_ROW = 1;
+    
+    @TempDir
+    Path spillDirectory;
+    
+    @Test
+    void numbersAreOrderedByValue() throws IOException {
+        List<String[]> rows = rows("10", "9", "-1.5", "1e3", "0", "2.50");
+        assertEquals(List.of("-1.5", "0", "2.50", "9", "10", "1e3"),
+                sort(rows, false, Long.MAX_VALUE));
+        assertEquals(List.of("1e3", "10", "9", "2.50", "0", "-1.5"),
+                sort(rows, true, Long.MAX_VALUE));
+    }
+    
+    @Test
+    void numbersComeBeforeTextAndEmptyCellsLastInBothDirections() throws IOException {
+        List<String[]> rows = rows("beta", "", "2", "alpha", "10", "", "1");
+        assertEquals(List.of("1", "2", "10", "alpha", "beta", "", ""),
+                sort(rows, false, Long.MAX_VALUE));
+        assertEquals(List.of("10", "2", "1", "beta", "alpha", "", ""),
+                sort(rows, true, Long.MAX_VALUE));
+    }
+    
+    @Test
+    void equalKeysKeepInputOrder() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            rows.add(new String[] {String.valueOf(i % 3), "row" + i});
+        }
+        for (boolean descending : new boolean[] {false, true}) {
+            List<String[]> sorted = sortRows(rows, new int[] {0}, new boolean[] {descending}, SPILL_EVERY_ROW);
+            for (int i = 1; i < sorted.size(); i++) {
+                String[] previous = sorted.get(i - 1);
+                String[] current = sorted.get(i);
+                if (previous[0].equals(current[0])) {
+                    assertTrue(sequence(previous) < sequence(current), "rows of equal keys out of input order");
+                }
+            }
+        }
+    }
+    
+    @Test
+    void spilledRunsBeyondTheMergeFanInAreMergedInOrder() throws IOException {
+        Random random = new Random(3);
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int kind = random.nextInt(10);
+            String key = kind == 0 ? "" : kind == 1 ? "text" + random.nextInt(20) : String.valueOf(random.nextInt(50));
+            rows.add(new String[] {key, String.valueOf(random.nextInt(5)), "row" + i});
+        }
+        int[] keyColumns = {0, 1};
+        boolean[] descending = {true, false};
+        
+        try (ExternalRowSorter sorter = ExternalRowSorter.ordering(3, keyColumns, descending,
+                SPILL_EVERY_ROW, spillDirectory)) {
+            for (int i = 0; i < rows.size(); i++) {
+                sorter.add(rows.get(i), i);
+            }
+            // More runs than a single merge can read at once forces intermediate merges
+            assertTrue(sorter.getSpilledRunCount() > 64, "runs spilled: " + sorter.getSpilledRunCount());
+            assertEquals(rows.size(), sorter.getRowCount());
+            
+            List<String[]> sorted = new ArrayList<>();
+            try (ExternalRowSorter.RowCursor cursor = sorter.sorted()) {
+                while (cursor.next()) {
+                    ExternalRowSorter.Row row = cursor.current();
+                    assertEquals("row" + row.getSequence(), row.getValues()[2]);
+                    sorted.add(row.getValues());
+                }
+            }
+            assertRowsEqual(referenceSort(rows, keyColumns, descending), sorted);
+        }
+        assertSpillFilesDeleted();
+    }
+    
+    @Test
+    void spilledAndInMemorySortsAgree() throws IOException {
+        Random random = new Random(5);
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String key = random.nextInt(4) == 0 ? "n" + random.nextInt(8) : random.nextInt(40) / 4.0 + "";
+            rows.add(new String[] {key, "row" + i});
+        }
+        for (boolean descending : new boolean[] {false, true}) {
+            int[] keyColumns = {0};
+            boolean[] order = {descending};
+            List<String[]> inMemory = sortRows(rows, keyColumns, order, Long.MAX_VALUE);
+            assertRowsEqual(inMemory, sortRows(rows, keyColumns, order, SPILL_EVERY_ROW));
+            assertRowsEqual(inMemory, sortRows(rows, keyColumns, order, 2_000));
+            assertRowsEqual(referenceSort(rows, keyColumns, order), inMemory);
+        }
+    }
+    
+    @Test
+    void groupingMakesEqualKeysAdjacentInInputOrder() throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            rows.add(new String[] {"doi" + (i * 7 % 13), "row" + i});
+        }
+        List<String[]> grouped = new ArrayList<>();
+        try (ExternalRowSorter sorter = ExternalRowSorter.grouping(2, new int[] {0}, SPILL_EVERY_ROW,
+                spillDirectory)) {
+            for (int i = 0; i < rows.size(); i++) {
+                sorter.add(rows.get(i), i);
+            }
+            try (ExternalRowSorter.RowCursor cursor = sorter.sorted()) {
+                while (cursor.next()) {
+                    grouped.add(cursor.current().getValues());
+                }
+            }
+        }
+        
+        assertEquals(rows.size(), grouped.size());
+        List<String> finishedGroups = new ArrayList<>();
+        for (int i = 0; i < grouped.size(); i++) {
+            String key = grouped.get(i)[0];
+            if (i > 0 && key.equals(grouped.get(i - 1)[0])) {
+                assertTrue(sequence(grouped.get(i - 1)) < sequence(grouped.get(i)), "group out of input order");
+            } else {
+                assertFalse(finishedGroups.contains(key), "group split: " + key);
+                finishedGroups.add(key);
+            }
+        }
+        assertEquals(13, finishedGroups.size());
+        assertSpillFilesDeleted();
+    }
+    
+    @Test
+    void rowsArePaddedAndTruncatedToTheColumnCount() throws IOException {
+        try (ExternalRowSorter sorter = ExternalRowSorter.ordering(2, new int[] {0}, new boolean[] {false},
+                SPILL_EVERY_ROW, spillDirectory)) {
+            sorter.add(new String[] {"2", "b", "extra"}, 0);
+            sorter.add(new String[] {"1"}, 1);
+            try (ExternalRowSorter.RowCursor cursor = sorter.sorted()) {
+                assertTrue(cursor.next());
+                assertEquals(List.of("1", ""), Arrays.asList(cursor.current().getValues()));
+                assertTrue(cursor.next());
+                assertEquals(List.of("2", "b"), Arrays.asList(cursor.current().getValues()));
+                assertFalse(cursor.next());
+            }
+        }
+    }
+    
+    /**
+     * Builds single-cell rows tagged with their input position in a second cell.
+     * 
+     * @param keys the key cell of each row
+     * @return the rows
+     */
+    private static List<String[]> rows(String... keys) {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < keys.length; i++) {
+            rows.add(new String[] {keys[i], "row" + i});
+        }
+        return rows;
+    }
+    
+    /**
+     * Sorts rows by their first cell and returns the sorted keys.
+     * 
+     * @param rows the rows
+     * @param descending true to put the largest values first
+     * @param memoryBudgetBytes the sorter's memory budget
+     * @return the first cell of each sorted row
+     * @throws IOException if the sort fails
+     */
+    private List<String> sort(List<String[]> rows, boolean descending, long memoryBudgetBytes) throws IOException {
+        List<String> keys = new ArrayList<>();
+        for (String[] row : sortRows(rows, new int[] {0}, new boolean[] {descending}, memoryBudgetBytes)) {
+            keys.add(row[0]);
+        }
+        return keys;
+    }
+    
+    /**
+     * Sorts rows with an {@link ExternalRowSorter}, using the list position as the sequence.
+     * 
+     * @param rows the rows, whose width gives the column count
+     * @param keyColumns indexes of the key columns
+     * @param descending direction of each key column
+     * @param memoryBudgetBytes the sorter's memory budget
+     * @return the sorted rows
+     * @throws IOException if the sort fails
+     */
+    private List<String[]> sortRows(List<String[]> rows, int[] keyColumns, boolean[] descending,
+            long memoryBudgetBytes) throws IOException {
+        List<String[]> sorted = new ArrayList<>();
+        try (ExternalRowSorter sorter = ExternalRowSorter.ordering(rows.get(0).length, keyColumns, descending,
+                memoryBudgetBytes, spillDirectory)) {
+            for (int i = 0; i < rows.size(); i++) {
+                sorter.add(rows.get(i).clone(), i);
+            }
+            try (ExternalRowSorter.RowCursor cursor = sorter.sorted()) {
+                while (cursor.next()) {
+                    sorted.add(cursor.current().getValues());
+                }
+            }
+        }
+        return sorted;
+    }
+    
+    /**
+     * Sorts rows the documented way, independently of {@link ExternalRowSorter}: numbers by
+     * value, then text, both in the key's direction, then empty cells, ties in input order.
+     * 
+     * @param rows the rows
+     * @param keyColumns indexes of the key columns
+     * @param descending direction of each key column
+     * @return the sorted rows
+     */
+    private static List<String[]> referenceSort(List<String[]> rows, int[] keyColumns, boolean[] descending) {
+        Comparator<String[]> order = (first, second) -> 0;
+        for (int key = 0; key < keyColumns.length; key++) {
+            int column = keyColumns[key];
+            boolean reversed = descending[key];
+            order = order.thenComparing((first, second) -> {
+                String firstValue = first[column];
+                String secondValue = second[column];
+                int firstRank = rank(firstValue);
+                int secondRank = rank(secondValue);
+                if (firstRank != secondRank) {
+                    return Integer.compare(firstRank, secondRank);
+                }
+                int result = firstRank == 0 ? Double.compare(Double.parseDouble(firstValue),
+                        Double.parseDouble(secondValue)) : firstValue.compareTo(secondValue);
+                return reversed ? -result : result;
+            });
+        }
+        List<String[]> sorted = new ArrayList<>(rows);
+        sorted.sort(order);
+        return sorted;
+    }
+    
+    /**
+     * Ranks a cell for {@link #referenceSort}.
+     * 
+     * @param value the cell text
+     * @return 0 for numbers, 1 for text and 2 for empty cells
+     */
+    private static int rank(String value) {
+        if (value.isEmpty()) {
+            return 2;
+        }
+        try {
+            Double.parseDouble(value);
+            return 0;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+    
+    /**
+     * Reads the input position a test row was tagged with.
+     * 
+     * @param row a row whose last cell is {@code row<position>}
+     * @return the position
+     */
+    private static int sequence(String[] row) {
+        return Integer.parseInt(row[row.length - 1].substring("row".length()));
+    }
+    
+    /**
+     * Checks that two lists hold rows with the same cells in the same order.
+     * 
+     * @param expected the expected rows
+     * @param actual the actual rows
+     */
+    private static void assertRowsEqual(List<String[]> expected, List<String[]> actual) {
+        assertEquals(expected.size(), actual.size(), "row count");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(Arrays.asList(expected.get(i)), Arrays.asList(actual.get(i)), "row " + i);
+        }
+    }
+    
+    /**
+     * Checks that closing the sorter removed every spill file.
+     * 
+     * @throws IOException if the spill directory cannot be listed
+     */
+    private void assertSpillFilesDeleted() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count(), "spill files left behind");
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the groups and aggregates of a {@link GroupAggregator}, for rows given as
+ * texts and as batch cells, and its overflow group.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class GroupAggregatorTest {
+    
+    private static final String[] HEADERS = {"year", "site", "value"};
+    
+    private final ValueFormatter valueFormatter = new ValueFormatter(new ScientificNumberFormatter(1e6, 1e-3, 6));
+    
+    @Test
+    void rowsAreGroupedInFirstSeenOrder() throws CsvFileException {
+        GroupAggregator aggregator = aggregator(List.of("site"), 100);
+        aggregator.add(new String[] {"2020", "b", "4"});
+        aggregator.add(new String[] {"2021", "a", "1"});
+        aggregator.add(new String[] {"2020", "b", "n/a"});
+        aggregator.add(new String[] {"2022", "a", "-2"});
+        aggregator.add(new String[] {"2022", "c", ""});
+        aggregator.add(new String[] {"2023"});
+        
+        assertArrayEquals(new String[] {"site", "rows", "value.count", "value.sum", "value.mean", "value.min",
+            "value.max"}, aggregator.getHeaders());
+        assertEquals(List.of(
+                List.of("b", "2", "1", "4", "4.0", "4", "4"),
+                List.of("a", "2", "2", "-1", "-0.5", "-2", "1"),
+                List.of("c", "1", "0", "", "", "", ""),
+                List.of("", "1", "0", "", "", "", "")), summary(aggregator));
+        assertEquals(4, aggregator.getGroupCount());
+        assertFalse(aggregator.isOverflowed());
+    }
+    
+    @Test
+    void aggregatesAreIntegralOnlyWhileEveryValueIs() throws CsvFileException {
+        GroupAggregator aggregator = aggregator(List.of(), 100);
+        aggregator.add(new String[] {"2020", "a", "1"});
+        aggregator.add(new String[] {"2020", "a", "2.5"});
+        aggregator.add(new String[] {"2020", "a", "3"});
+        assertEquals(List.of(List.of("3", "3", "6.5", "2.1666666666666665", "1.0", "3.0")), summary(aggregator));
+    }
+    
+    @Test
+    void groupsBeyondTheLimitAreCountedTogether() throws CsvFileException {
+        GroupAggregator aggregator = aggregator(List.of("site"), 2);
+        for (String site : new String[] {"a", "b", "c", "a", "d", "b", "c"}) {
+            aggregator.add(new String[] {"2020", site, "1"});
+        }
+        
+        assertTrue(aggregator.isOverflowed());
+        assertEquals(3, aggregator.getGroupCount());
+        assertEquals(List.of(
+                List.of("a", "2", "2", "2", "1.0", "1", "1"),
+                List.of("b", "2", "2", "2", "1.0", "1", "1"),
+                List.of(GroupAggregator.OVERFLOW_LABEL, "3", "3", "3", "1.0", "1", "1")), summary(aggregator));
+    }
+    
+    @Test
+    void integralTextAndNumbersShareAGroup() throws CsvFileException {
+        GroupAggregator aggregator = aggregator(List.of("year"), 100);
+        ColumnarBatch numbers = new ColumnarBatch(HEADERS.length, 8, valueFormatter, 0);
+        for (long year : new long[] {2020, 2021, -5}) {
+            numbers.setLong(0, year);
+            numbers.setLong(2, 10);
+            numbers.endRow();
+        }
+        ColumnarBatch texts = new ColumnarBatch(HEADERS.length, 8, valueFormatter, 0);
+        for (String year : new String[] {"2021", "02021", "2021.0", "-5", "+5", "-0"}) {
+            texts.setString(0, year);
+            texts.setString(2, "1");
+            texts.endRow();
+        }
+        texts.setNull(0);
+        texts.endRow();
+        
+        for (int row = 0; row < numbers.getSize(); row++) {
+            aggregator.add(numbers, row);
+        }
+        for (int row = 0; row < texts.getSize(); row++) {
+            aggregator.add(texts, row);
+        }
+        aggregator.add(new String[] {"2020", "a", "100"});
+        
+        // Only the text Long.toString gives for a number matches it
+        assertEquals(List.of(
+                List.of("2020", "2", "2", "110"),
+                List.of("2021", "2", "2", "11"),
+                List.of("-5", "2", "2", "11"),
+                List.of("02021", "1", "1", "1"),
+                List.of("2021.0", "1", "1", "1"),
+                List.of("+5", "1", "1", "1"),
+                List.of("-0", "1", "1", "1"),
+                List.of("", "1", "0", "")), firstColumns(summary(aggregator), 4));
+    }
+    
+    @Test
+    void groupingsOfSeveralColumnsKeepEveryCombination() throws CsvFileException {
+        GroupAggregator aggregator = aggregator(List.of("year", "site"), 5);
+        String[][] rows = {
+            {"2020", "a"}, {"2021", "a"}, {"2020", "b"}, {"2020", "a"}, {"2021", "b"}, {"2022", "a"},
+            {"2021", "a"}, {"2023", "a"}, {"2022", "c"}
+        };
+        for (String[] row : rows) {
+            aggregator.add(new String[] {row[0], row[1], "1"});
+        }
+        
+        assertArrayEquals(new String[] {"year", "site", "rows"}, Arrays.copyOf(aggregator.getHeaders(), 3));
+        assertEquals(List.of(
+                List.of("2020", "a", "2"),
+                List.of("2021", "a", "2"),
+                List.of("2020", "b", "1"),
+                List.of("2021", "b", "1"),
+                List.of("2022", "a", "1"),
+                List.of(GroupAggregator.OVERFLOW_LABEL, GroupAggregator.OVERFLOW_LABEL, "2")),
+                firstColumns(summary(aggregator), 3));
+    }
+    
+    @Test
+    void unknownColumnsAreRejected() {
+        assertThrows(CsvFileException.class, () -> aggregator(List.of("missing"), 10));
+        assertThrows(CsvFileException.class,
+                () -> new GroupAggregator(HEADERS, List.of("site"), List.of("missing"), 10));
+    }
+    
+    /**
+     * Creates an aggregator of the test columns with the value column as metric.
+     * 
+     * @param grouping the group columns
+     * @param maxGroups maximum number of groups kept apart
+     * @return the aggregator
+     * @throws CsvFileException if a column is not a test column
+     */
+    private static GroupAggregator aggregator(List<String> grouping, int maxGroups) throws CsvFileException {
+        return new GroupAggregator(HEADERS, grouping, List.of("value"), maxGroups);
+    }
+    
+    /**
+     * Gets the summary rows of an aggregator.
+     * 
+     * @param aggregator the aggregator
+     * @return the rows
+     * @throws CsvFileException if the summary cannot be written
+     */
+    private List<List<String>> summary(GroupAggregator aggregator) throws CsvFileException {
+        List<List<String>> rows = new ArrayList<>();
+        aggregator.writeSummary(new CsvRowWriter() {
+            @Override
+            public void writeRow(String[] row) {
+                rows.add(List.of(row.clone()));
+            }
+            
+            @Override
+            public void writeBatch(ColumnarBatch batch) {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public long getRowCount() {
+                return rows.size();
+            }
+            
+            @Override
+            public void close() {
+            }
+        }, valueFormatter);
+        return rows;
+    }
+    
+    /**
+     * Keeps the first cells of each row.
+     * 
+     * @param rows the rows
+     * @param count number of cells to keep
+     * @return the shortened rows
+     */
+    private static List<List<String>> firstColumns(List<List<String>> rows, int count) {
+        List<List<String>> shortened = new ArrayList<>();
+        for (List<String> row : rows) {
+            shortened.add(row.subList(0, count));
+        }
+        return shortened;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks {@link LongIntHashMap} against a {@link HashMap}, across resizes and for keys
+ * that only differ in their high bits.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class LongIntHashMapTest {
+    
+    @Test
+    void valuesCanBeReplaced() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(LongIntHashMap.MISSING, map.get(7));
+        map.put(7, 1);
+        map.put(7, 0);
+        assertEquals(0, map.get(7));
+        assertEquals(1, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(8, -1));
+        assertEquals(LongIntHashMap.MISSING, map.get(8));
+    }
+    
+    @Test
+    void extremeKeysAreDistinct() {
+        LongIntHashMap map = new LongIntHashMap();
+        long[] keys = {0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, 1L << 32};
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i, map.get(keys[i]), "key " + keys[i]);
+        }
+        assertEquals(keys.length, map.size());
+    }
+    
+    @Test
+    void everyKeyIsKeptAcrossResizes() {
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        // Keys sharing their low bits, as group keys sharing a value id do
+        for (int i = 0; i < 20_000; i++) {
+            long key = (long) i << 32 | 5;
+            map.put(key, i);
+            expected.put(key, i);
+            assertEquals(expected.size(), map.size());
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextLong();
+            int value = random.nextInt(Integer.MAX_VALUE);
+            map.put(key, value);
+            expected.put(key, value);
+        }
+        
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().intValue(), map.get(entry.getKey()), "key " + entry.getKey());
+        }
+        for (int i = 20_000; i < 21_000; i++) {
+            assertEquals(LongIntHashMap.MISSING, map.get((long) i << 32 | 5));
+        }
+    }
+}
\ No newline at end of file
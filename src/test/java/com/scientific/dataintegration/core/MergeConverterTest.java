@@ -0,0 +1,134 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.JsonFileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Checks that {@link MergeConverter} writes the files in order under the union header,
+ * and that a worker failing with an exception or an error fails the merge instead of
+ * leaving the writer waiting.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class MergeConverterTest {
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    
+    @TempDir
+    Path directory;
+    
+    private final ValueFormatter valueFormatter = new ValueFormatter(new ScientificNumberFormatter(1e6, 1e-3, 6));
+    
+    @Test
+    void filesAreWrittenInOrderUnderTheUnionHeader() throws Exception {
+        List<String> inputs = inputs(6);
+        Path output = directory.resolve("merged.csv");
+        merge(new JsonFileReader(), inputs, output);
+        
+        List<String> expected = new ArrayList<>();
+        expected.add("\"id\",\"file\",\"extra5\"");
+        for (int file = 0; file < 6; file++) {
+            for (int id = 0; id < 3; id++) {
+                expected.add("\"" + id + "\",\"" + file + "\",\"" + (file == 5 ? "x" : "") + "\"");
+            }
+        }
+        assertEquals(expected, Files.readAllLines(output, StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void aWorkerExceptionFailsTheMerge() throws Exception {
+        List<String> inputs = inputs(6);
+        JsonFileReader jsonReader = failingReader(inputs.get(3), new IllegalStateException("worker failed"));
+        JsonFileException failure = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(JsonFileException.class,
+                () -> merge(jsonReader, inputs, directory.resolve("merged.csv"))));
+        assertEquals("worker failed", failure.getCause().getMessage());
+    }
+    
+    @Test
+    void aWorkerErrorFailsTheMerge() throws Exception {
+        List<String> inputs = inputs(6);
+        JsonFileReader jsonReader = failingReader(inputs.get(3), new StackOverflowError("worker overflowed"));
+        StackOverflowError failure = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(StackOverflowError.class,
+                () -> merge(jsonReader, inputs, directory.resolve("merged.csv"))));
+        assertEquals("worker overflowed", failure.getMessage());
+    }
+    
+    /**
+     * Writes small input files of the test directory; the last one has an extra column.
+     * 
+     * @param count number of files
+     * @return the file paths
+     * @throws IOException if a file cannot be written
+     */
+    private List<String> inputs(int count) throws IOException {
+        List<String> paths = new ArrayList<>();
+        for (int file = 0; file < count; file++) {
+            StringBuilder records = new StringBuilder();
+            for (int id = 0; id < 3; id++) {
+                records.append(id > 0 ? "," : "").append("{\"id\":").append(id).append(",\"file\":").append(file)
+                        .append(file == count - 1 ? ",\"extra5\":\"x\"" : "").append('}');
+            }
+            Path input = directory.resolve("input" + file + ".json");
+            Files.writeString(input, "{\"records\":[" + records + "]}", StandardCharsets.UTF_8);
+            paths.add(input.toString());
+        }
+        return paths;
+    }
+    
+    /**
+     * Creates a reader that fails when a file is opened for the second time, which is
+     * when a worker converts it after its columns were collected.
+     * 
+     * @param failingPath path of the file to fail on
+     * @param failure the exception or error to throw
+     * @return the reader
+     */
+    private static JsonFileReader failingReader(String failingPath, Throwable failure) {
+        Map<String, AtomicInteger> opens = new ConcurrentHashMap<>();
+        return new JsonFileReader() {
+            @Override
+            public RecordStream openRecordStream(String filePath) throws JsonFileException {
+                int open = opens.computeIfAbsent(filePath, path -> new AtomicInteger()).incrementAndGet();
+                if (filePath.equals(failingPath) && open == 2) {
+                    if (failure instanceof Error) {
+                        throw (Error) failure;
+                    }
+                    throw (RuntimeException) failure;
+                }
+                return super.openRecordStream(filePath);
+            }
+        };
+    }
+    
+    /**
+     * Merges files into a CSV file on two worker threads.
+     * 
+     * @param jsonReader reader used to open the inputs
+     * @param inputs paths to the input files
+     * @param output path of the CSV file
+     * @throws Exception if the merge fails
+     */
+    private void merge(JsonFileReader jsonReader, List<String> inputs, Path output) throws Exception {
+        CsvFileWriter csvWriter = new CsvFileWriter();
+        new MergeConverter(valueFormatter, jsonReader, 2, 64, RecordSelection.NONE).merge(inputs,
+                headers -> csvWriter.openRowWriter(output.toString(), headers),
+                ConversionMetrics.start("input.json", output.toString()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks how {@link OutputSharding} parses and formats its command line form.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class OutputShardingTest {
+    
+    @Test
+    void parsesEveryStrategy() {
+        OutputSharding rows = OutputSharding.parse("rows:100000");
+        assertEquals(OutputSharding.Strategy.ROWS, rows.getStrategy());
+        assertEquals(100000, rows.getLimit());
+        
+        OutputSharding bytes = OutputSharding.parse(" BYTES : 512 ");
+        assertEquals(OutputSharding.Strategy.BYTES, bytes.getStrategy());
+        assertEquals(512, bytes.getLimit());
+        
+        OutputSharding column = OutputSharding.parse("column: year ");
+        assertEquals(OutputSharding.Strategy.COLUMN, column.getStrategy());
+        assertEquals("year", column.getColumn());
+        assertEquals(0, column.getLimit());
+        
+        assertSame(OutputSharding.NONE, OutputSharding.parse(null));
+        assertSame(OutputSharding.NONE, OutputSharding.parse("  "));
+    }
+    
+    @Test
+    void sizesTakeBinaryUnitSuffixes() {
+        assertEquals(64L * 1024, OutputSharding.parse("bytes:64k").getLimit());
+        assertEquals(64L * 1024, OutputSharding.parse("bytes:64K").getLimit());
+        assertEquals(2L * 1024 * 1024, OutputSharding.parse("bytes:2m").getLimit());
+        assertEquals(3L * 1024 * 1024 * 1024, OutputSharding.parse("bytes:3G").getLimit());
+        // Row counts take no unit
+        assertThrows(IllegalArgumentException.class, () -> OutputSharding.parse("rows:10k"));
+    }
+    
+    @Test
+    void sizesThatOverflowAreRejected() {
+        long largestGigabytes = Long.MAX_VALUE / (1024L * 1024 * 1024);
+        assertEquals(largestGigabytes * 1024 * 1024 * 1024,
+                OutputSharding.parse("bytes:" + largestGigabytes + "g").getLimit());
+        assertThrows(IllegalArgumentException.class,
+                () -> OutputSharding.parse("bytes:" + (largestGigabytes + 1) + "g"));
+        assertThrows(IllegalArgumentException.class,
+                () -> OutputSharding.parse("bytes:" + Long.MAX_VALUE / 1024 + "1k"));
+        assertThrows(IllegalArgumentException.class, () -> OutputSharding.parse("rows:9223372036854775808"));
+        assertEquals(Long.MAX_VALUE, OutputSharding.parse("bytes:" + Long.MAX_VALUE).getLimit());
+    }
+    
+    @Test
+    void rejectsMalformedForms() {
+        for (String spec : new String[] {"rows:0", "rows:-5", "rows:", "rows", "bytes:k", "bytes:10x",
+            "bytes:1.5m", "column:", "column:  ", "lines:10", ":10"}) {
+            assertThrows(IllegalArgumentException.class, () -> OutputSharding.parse(spec), spec);
+        }
+        assertThrows(IllegalArgumentException.class, () -> OutputSharding.byRows(0));
+        assertThrows(IllegalArgumentException.class, () -> OutputSharding.byBytes(-1));
+    }
+    
+    @Test
+    void formatsAsItsCommandLineForm() {
+        for (String spec : new String[] {"rows:1000", "bytes:1048576", "column:contact.country"}) {
+            assertEquals(spec, OutputSharding.parse(spec).toString());
+        }
+        assertEquals("bytes:1048576", OutputSharding.parse("bytes:1m").toString());
+        assertEquals("none", OutputSharding.NONE.toString());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ParallelChunkConverter} writes the CSV a sequential streaming
+ * conversion writes, whatever the number of chunks and workers.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ParallelChunkConverterTest {
+    
+    private static final int RECORD_COUNT = 5_000;
+    
+    @TempDir
+    Path directory;
+    
+    private final JsonFileReader jsonReader = new JsonFileReader();
+    private final CsvFileWriter csvWriter = new CsvFileWriter();
+    private final ValueFormatter valueFormatter = new ValueFormatter(new ScientificNumberFormatter(1e6, 1e-3, 6));
+    
+    @Test
+    void chunksAreWrittenInTheOrderOfTheFile() throws Exception {
+        for (String name : new String[] {"records.json", "records.jsonl"}) {
+            Path json = writeRecords(name);
+            byte[] expected = convertStreaming(json, RecordSelection.NONE);
+            for (long chunkSize : new long[] {512, 4 * 1024, 64 * 1024}) {
+                for (int parallelism : new int[] {2, 3, 8}) {
+                    assertArrayEquals(expected, convertParallel(json, RecordSelection.NONE, chunkSize, parallelism),
+                            name + ", chunk size " + chunkSize + ", " + parallelism + " threads");
+                }
+            }
+        }
+    }
+    
+    @Test
+    void selectedColumnsAndRecordsMatchTheStreamingConversion() throws Exception {
+        Path json = writeRecords("records.json");
+        RecordSelection selection = RecordSelection.parse("meta,id", List.of("group!=group 2", "id>=100"));
+        byte[] expected = convertStreaming(json, selection);
+        assertArrayEquals(expected, convertParallel(json, selection, 2 * 1024, 4));
+        
+        String[] lines = new String(expected, StandardCharsets.UTF_8).split("\n");
+        assertEquals("\"meta.late\",\"id\"", lines[0]);
+    }
+    
+    @Test
+    void columnsFirstSeenInLaterChunksKeepTheirPlace() throws Exception {
+        Path json = writeRecords("records.json");
+        byte[] expected = convertStreaming(json, RecordSelection.NONE);
+        String header = new String(expected, StandardCharsets.UTF_8).split("\n")[0];
+        // "meta" first appears near the end of the file, and "rare" just before it
+        assertEquals("\"id\",\"value\",\"group\",\"title\",\"rare\",\"meta.late\"", header);
+        assertArrayEquals(expected, convertParallel(json, RecordSelection.NONE, 1024, 4));
+    }
+    
+    @Test
+    void inputsInASingleChunkAreLeftToTheCaller() throws Exception {
+        Path json = writeRecords("records.json");
+        Path csv = directory.resolve("single.csv");
+        ParallelChunkConverter converter = new ParallelChunkConverter(valueFormatter, jsonReader, csvWriter, 4,
+                Long.MAX_VALUE, 64, RecordSelection.NONE);
+        assertFalse(converter.convert(json.toString(), csv.toString(), metrics(json, csv)));
+        assertFalse(Files.exists(csv));
+        assertTrue(ParallelChunkConverter.split(jsonReader, json.toString(), 1024).size() > 10);
+    }
+    
+    /**
+     * Converts a file with the streaming conversion.
+     * 
+     * @param json the input
+     * @param selection the selection
+     * @return the CSV
+     * @throws Exception if the conversion fails
+     */
+    private byte[] convertStreaming(Path json, RecordSelection selection) throws Exception {
+        Path csv = directory.resolve("streamed.csv");
+        new DataConverter().withSelection(selection).convertJsonToCsvStreaming(json.toString(), csv.toString());
+        return Files.readAllBytes(csv);
+    }
+    
+    /**
+     * Converts a file in chunks.
+     * 
+     * @param json the input
+     * @param selection the selection
+     * @param chunkSize approximate number of input bytes per chunk
+     * @param parallelism number of worker threads
+     * @return the CSV
+     * @throws Exception if the conversion fails
+     */
+    private byte[] convertParallel(Path json, RecordSelection selection, long chunkSize, int parallelism)
+            throws Exception {
+        Path csv = directory.resolve("parallel.csv");
+        ParallelChunkConverter converter = new ParallelChunkConverter(valueFormatter, jsonReader, csvWriter,
+                parallelism, chunkSize, 64, selection);
+        assertTrue(converter.convert(json.toString(), csv.toString(), metrics(json, csv)), "not split");
+        return Files.readAllBytes(csv);
+    }
+    
+    /**
+     * Writes test records, as a JSON array or as JSON Lines by the file extension.
+     * 
+     * @param name the file name
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path writeRecords(String name) throws IOException {
+        boolean jsonLines = name.endsWith(".jsonl");
+        StringBuilder content = new StringBuilder(jsonLines ? "" : "{\"source\":\"test\",\"records\":[");
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            content.append(jsonLines || i == 0 ? "" : ",\n")
+                .append("{\"id\":").append(i)
+                .append(",\"value\":").append(i % 3 == 0 ? String.valueOf(i * 1.25e5) : "\"n/a\"")
+                .append(",\"group\":\"group ").append(i % 5)
+                .append("\",\"title\":\"Título, \\\"").append(i).append("\\\"\"");
+            if (i == RECORD_COUNT - 50) {
+                content.append(",\"rare\":true");
+            }
+            if (i > RECORD_COUNT - 20) {
+                content.append(",\"meta\":{\"late\":").append(i).append('}');
+            }
+            content.append(jsonLines ? "}\n" : "}");
+        }
+        content.append(jsonLines ? "" : "]}");
+        return Files.write(directory.resolve(name), content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Starts metrics for a conversion that is not timed.
+     * 
+     * @param json the input
+     * @param csv the output
+     * @return the metrics
+     */
+    private static ConversionMetrics metrics(Path json, Path csv) {
+        return ConversionMetrics.start(json.toString(), csv.toString());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ParallelGzipOutputStream} writes gzip members that standard readers
+ * decompress to the bytes written, whatever the block size and the pattern of writes,
+ * and that {@link JsonFileReader} recognizes compressed input by its content.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ParallelGzipOutputStreamTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void blocksAreWrittenAsConsecutiveMembers() throws IOException {
+        byte[] data = sample(10_000);
+        int blockSize = 1000;
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new ParallelGzipOutputStream(compressed, 3, blockSize)) {
+            out.write(data);
+        }
+        
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += blockSize) {
+            members.write(ParallelGzipOutputStream.compressMember(
+                    Arrays.copyOfRange(data, offset, offset + blockSize), blockSize));
+        }
+        assertArrayEquals(members.toByteArray(), compressed.toByteArray());
+        assertArrayEquals(data, gunzip(compressed.toByteArray()));
+    }
+    
+    @Test
+    void writesAcrossBlockBoundariesReadBackWhole() throws IOException {
+        Random random = new Random(7);
+        for (int blockSize : new int[] {1, 17, 4096, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE}) {
+            // One member per byte is slow to write, so the smallest blocks get less data
+            byte[] data = sample(blockSize == 1 ? 5_000 : 200_000);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = new ParallelGzipOutputStream(compressed, 2, blockSize)) {
+                int offset = 0;
+                while (offset < data.length) {
+                    if (random.nextInt(10) == 0) {
+                        out.write(data[offset++]);
+                    } else {
+                        int length = Math.min(data.length - offset, random.nextInt(3 * blockSize + 10));
+                        out.write(data, offset, length);
+                        offset += length;
+                    }
+                }
+            }
+            assertArrayEquals(data, gunzip(compressed.toByteArray()), "block size " + blockSize);
+        }
+    }
+    
+    @Test
+    void anEmptyStreamIsAValidMember() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, 2, 1024).close();
+        assertArrayEquals(ParallelGzipOutputStream.compressMember(new byte[0], 0), compressed.toByteArray());
+        assertEquals(0, gunzip(compressed.toByteArray()).length);
+        
+        // A flush without data does not count as a member
+        compressed.reset();
+        try (OutputStream out = new ParallelGzipOutputStream(compressed, 2, 1024)) {
+            out.flush();
+            assertEquals(0, compressed.size());
+        }
+        assertEquals(0, gunzip(compressed.toByteArray()).length);
+    }
+    
+    @Test
+    void flushWritesEveryByteWrittenSoFar() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = new ParallelGzipOutputStream(compressed, 2, 1024);
+        out.write("first line\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        assertEquals("first line\n", new String(gunzip(compressed.toByteArray()), StandardCharsets.UTF_8));
+        
+        out.write("second line\n".getBytes(StandardCharsets.UTF_8));
+        out.close();
+        out.close();
+        assertEquals("first line\nsecond line\n",
+                new String(gunzip(compressed.toByteArray()), StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> out.write(1));
+        assertThrows(IOException.class, out::flush);
+    }
+    
+    @Test
+    void invalidSettingsAreRejected() {
+        OutputStream sink = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputStream(sink, 0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new ParallelGzipOutputStream(sink, 1, 0));
+    }
+    
+    @Test
+    void compressedInputIsRecognizedByItsContent() throws Exception {
+        JsonFileReader jsonReader = new JsonFileReader();
+        String json = "{\"records\":[{\"id\":1}]}";
+        Path misnamed = directory.resolve("records.json");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(misnamed))) {
+            out.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+        Path plain = Files.write(directory.resolve("plain.json.gz"), json.getBytes(StandardCharsets.UTF_8));
+        Path magicOnly = Files.write(directory.resolve("short.gz"), new byte[] {0x1f});
+        Path empty = Files.write(directory.resolve("empty.json"), new byte[0]);
+        
+        assertTrue(jsonReader.isCompressed(misnamed.toString()));
+        assertFalse(jsonReader.isCompressed(plain.toString()));
+        assertFalse(jsonReader.isCompressed(magicOnly.toString()));
+        assertFalse(jsonReader.isCompressed(empty.toString()));
+        assertFalse(jsonReader.isCompressed(directory.resolve("missing.gz").toString()));
+        assertFalse(jsonReader.isCompressed(directory.toString()));
+        assertFalse(jsonReader.isCompressed(null));
+        assertFalse(jsonReader.isCompressed(" "));
+        
+        Map<String, Object> content = jsonReader.readJsonAsMap(misnamed.toString());
+        assertTrue(content.containsKey("records"));
+    }
+    
+    /**
+     * Creates compressible test data: lines of text with some random bytes.
+     * 
+     * @param length number of bytes
+     * @return the data
+     */
+    private static byte[] sample(int length) {
+        Random random = new Random(length);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = i % 50 == 49 ? (byte) '\n' : random.nextInt(4) == 0 ? (byte) random.nextInt()
+                    : (byte) ('a' + i % 26);
+        }
+        return data;
+    }
+    
+    /**
+     * Decompresses every gzip member of some data.
+     * 
+     * @param compressed the members
+     * @return the decompressed bytes
+     * @throws IOException if the data is not valid gzip
+     */
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        if (compressed.length == 0) {
+            return compressed;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how {@link RecordSelection} parses its command line form and which values meet
+ * its conditions, and that every conversion mode writes the same selected rows.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class RecordSelectionTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void parsesColumnsAndConditions() {
+        RecordSelection selection = RecordSelection.parse(" doi, contact.email ",
+                List.of("year>=2020", "type = article"));
+        assertEquals(List.of("doi", "contact.email"), selection.getColumns());
+        assertEquals(2, selection.getConditions().size());
+        assertEquals("columns=doi,contact.email;where=year>=2020&type=article", selection.toString());
+        assertFalse(selection.isEmpty());
+        assertTrue(RecordSelection.parse(null, List.of()).isEmpty());
+    }
+    
+    @Test
+    void parsesTheLongestOperator() {
+        String[][] specs = {
+            {"year=2020", "EQUAL", "2020"},
+            {"year!=2020", "NOT_EQUAL", "2020"},
+            {"year<2020", "LESS", "2020"},
+            {"year<=2020", "LESS_OR_EQUAL", "2020"},
+            {"year>2020", "GREATER", "2020"},
+            {"year>=2020", "GREATER_OR_EQUAL", "2020"},
+            {"title==x", "EQUAL", "=x"},
+            {"note=a!=b", "EQUAL", "a!=b"}
+        };
+        for (String[] spec : specs) {
+            RecordSelection.Condition condition = RecordSelection.Condition.parse(spec[0]);
+            assertEquals(spec[0].substring(0, spec[0].indexOf(condition.getOperator().getSymbol())),
+                    condition.getField(), spec[0]);
+            assertEquals(spec[1], condition.getOperator().name(), spec[0]);
+            assertEquals(spec[2], condition.getValue(), spec[0]);
+        }
+    }
+    
+    @Test
+    void rejectsMalformedSelections() {
+        assertThrows(IllegalArgumentException.class, () -> RecordSelection.Condition.parse("year"));
+        assertThrows(IllegalArgumentException.class, () -> RecordSelection.Condition.parse(">=2020"));
+        assertThrows(IllegalArgumentException.class, () -> RecordSelection.Condition.parse("contact..email=x"));
+        assertThrows(IllegalArgumentException.class, () -> RecordSelection.parse("doi,,title", List.of()));
+        assertThrows(IllegalArgumentException.class, () -> RecordSelection.parse("contact.", List.of()));
+        String[] tooMany = new String[RecordSelection.MAX_CONDITIONS + 1];
+        Arrays.fill(tooMany, "year>0");
+        assertThrows(IllegalArgumentException.class, () -> RecordSelection.parse(null, Arrays.asList(tooMany)));
+    }
+    
+    @Test
+    void numericConstantsCompareByValue() {
+        RecordSelection.Condition condition = RecordSelection.Condition.parse("year>=2020");
+        assertTrue(condition.matches((Object) 2020));
+        assertTrue(condition.matches((Object) 2020.5));
+        assertTrue(condition.matches((Object) "2.1e3"));
+        assertTrue(condition.matches((Object) "10000"));
+        assertFalse(condition.matches((Object) 2019L));
+        assertFalse(condition.matches((Object) "2019"));
+        // Text holding no number never meets a numeric condition, whatever its order as text
+        assertFalse(condition.matches((Object) "unknown"));
+        assertFalse(condition.matches((Object) ""));
+        assertFalse(condition.matches((Object) true));
+        assertFalse(RecordSelection.Condition.parse("year!=2020").matches((Object) "unknown"));
+        assertTrue(RecordSelection.Condition.parse("year!=2020").matches((Object) "2021"));
+    }
+    
+    @Test
+    void textConstantsCompareAsText() {
+        RecordSelection.Condition condition = RecordSelection.Condition.parse("type=article");
+        assertTrue(condition.matches((Object) "article"));
+        assertFalse(condition.matches((Object) "Article"));
+        assertFalse(condition.matches((Object) 1));
+        assertTrue(RecordSelection.Condition.parse("flag=true").matches((Object) true));
+        // Numbers are compared by the text the input holds when the constant is not a number
+        assertTrue(RecordSelection.Condition.parse("code<b").matches((Object) 42));
+        assertTrue(RecordSelection.Condition.parse("title>=M").matches((Object) "Zebra"));
+    }
+    
+    @Test
+    void missingNullArrayAndObjectValuesNeverMatch() {
+        for (String spec : new String[] {"year>=2020", "year!=2020", "type=article", "type!=article"}) {
+            RecordSelection.Condition condition = RecordSelection.Condition.parse(spec);
+            assertFalse(condition.matches((Object) null), spec);
+            assertFalse(condition.matches((Object) List.of(2021)), spec);
+            assertFalse(condition.matches((Object) Map.of("name", "article")), spec);
+        }
+    }
+    
+    @Test
+    void acceptsRecordsByNestedPath() {
+        RecordSelection selection = RecordSelection.parse(null, List.of("contact.country=MX", "year>2000"));
+        Map<String, Object> record = new HashMap<>();
+        record.put("year", 2001);
+        record.put("contact", Map.of("country", "MX"));
+        assertTrue(selection.accepts(record));
+        
+        record.put("contact", Map.of("country", "US"));
+        assertFalse(selection.accepts(record));
+        record.put("contact", "MX");
+        assertFalse(selection.accepts(record));
+        record.remove("contact");
+        assertFalse(selection.accepts(record));
+        assertTrue(RecordSelection.NONE.accepts(record));
+    }
+    
+    @Test
+    void everyConversionModeWritesTheSameSelectedRows() throws Exception {
+        Path json = write("input.json", "{\"records\":["
+                + "{\"doi\":\"a\",\"year\":2021,\"contact\":{\"email\":\"a@x\",\"phone\":\"1\"},\"title\":\"A\"},"
+                + "{\"doi\":\"b\",\"year\":\"2022\",\"title\":\"B\"},"
+                + "{\"doi\":\"c\",\"year\":\"unknown\",\"contact\":{\"email\":\"c@x\"}},"
+                + "{\"doi\":\"d\",\"contact\":{\"email\":\"d@x\"}},"
+                + "{\"doi\":\"e\",\"year\":1999,\"contact\":{\"email\":\"e@x\"}}"
+                + "]}");
+        DataConverter converter = new DataConverter()
+                .withSelection(RecordSelection.parse("doi,contact", List.of("year>2000")));
+        
+        List<String> expected = List.of(
+                "\"doi\",\"contact.email\",\"contact.phone\"",
+                "\"a\",\"a@x\",\"1\"",
+                "\"b\",\"\",\"\"");
+        assertEquals(expected, convertInEveryMode(converter, json));
+    }
+    
+    @Test
+    void anEmptySelectionWritesOnlyTheSelectedHeader() throws Exception {
+        Path json = write("input.json", "{\"records\":[{\"doi\":\"a\",\"year\":2021},{\"doi\":\"b\",\"year\":2022}]}");
+        
+        DataConverter projected = new DataConverter()
+                .withSelection(RecordSelection.parse("doi,title", List.of("year>3000")));
+        assertEquals(List.of("\"doi\",\"title\""), convertInEveryMode(projected, json));
+        
+        DataConverter unprojected = new DataConverter()
+                .withSelection(RecordSelection.parse(null, List.of("year>3000")));
+        assertEquals(List.of(), convertInEveryMode(unprojected, json));
+    }
+    
+    /**
+     * Converts a file loaded whole, streamed and on several threads, checking that every
+     * mode writes the same CSV.
+     * 
+     * @param converter the converter
+     * @param json the input file
+     * @return the lines of the CSV
+     * @throws Exception if a conversion fails
+     */
+    private List<String> convertInEveryMode(DataConverter converter, Path json) throws Exception {
+        Path loaded = directory.resolve("loaded.csv");
+        Path streamed = directory.resolve("streamed.csv");
+        Path parallel = directory.resolve("parallel.csv");
+        converter.convertJsonToCsv(json.toString(), loaded.toString());
+        converter.convertJsonToCsvStreaming(json.toString(), streamed.toString());
+        converter.convertJsonToCsvParallel(json.toString(), parallel.toString(), 2);
+        
+        List<String> lines = Files.readAllLines(loaded, StandardCharsets.UTF_8);
+        assertEquals(lines, Files.readAllLines(streamed, StandardCharsets.UTF_8), "streamed CSV");
+        assertEquals(lines, Files.readAllLines(parallel, StandardCharsets.UTF_8), "parallel CSV");
+        return lines;
+    }
+    
+    /**
+     * Writes a file in the test directory.
+     * 
+     * @param name the file name
+     * @param content the file content
+     * @return the file
+     * @throws IOException if the file cannot be written
+     */
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.scientific.dataintegration.core;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ScientificNumberFormatter} and {@link ValueFormatter} write exactly
+ * the text cells had when they were formatted with {@code String.format("%.6E")}.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ScientificNumberFormatterTest {
+    
+    private static Locale defaultFormatLocale;
+    
+    private final ScientificNumberFormatter formatter = new ScientificNumberFormatter(1e6, 1e-3, 6);
+    private final ValueFormatter valueFormatter = new ValueFormatter(formatter);
+    
+    /**
+     * Makes the formatters and {@code String.format} use the same locale on every machine.
+     */
+    @BeforeAll
+    static void useRootLocale() {
+        defaultFormatLocale = Locale.getDefault(Locale.Category.FORMAT);
+        Locale.setDefault(Locale.Category.FORMAT, Locale.ROOT);
+    }
+    
+    /**
+     * Restores the default locale.
+     */
+    @AfterAll
+    static void restoreLocale() {
+        Locale.setDefault(Locale.Category.FORMAT, defaultFormatLocale);
+    }
+    
+    @Test
+    void roundingTiesRoundHalfUp() {
+        Random random = new Random(42);
+        assertScientific(10000005.0);
+        assertScientific(12345675.0);
+        assertScientific(-99999995.0);
+        assertScientific(1.0000005e-4);
+        assertScientific(2.5e-7);
+        for (int i = 0; i < 20_000; i++) {
+            // Eight significant digits ending in 5 lie on, or next to, a midpoint of seven digits
+            long digits = 10_000_000L + random.nextInt(90_000_000) / 10 * 10 + 5;
+            int exponent = random.nextInt(60) - 30;
+            assertScientific(Double.parseDouble(digits + "e" + exponent));
+        }
+    }
+    
+    @Test
+    void powersOfTenAndTheirNeighbours() {
+        for (int exponent = -323; exponent <= 308; exponent++) {
+            double power = Double.parseDouble("1e" + exponent);
+            assertScientific(power);
+            assertScientific(Math.nextUp(power));
+            assertScientific(Math.nextDown(power));
+            assertScientific(-power);
+        }
+    }
+    
+    @Test
+    void thresholdBoundaries() {
+        double[] values = {
+            1e6, Math.nextDown(1e6), Math.nextUp(1e6), 999999.5, 999999.9999999,
+            1e-3, Math.nextDown(1e-3), Math.nextUp(1e-3), 0.0010000001
+        };
+        for (double value : values) {
+            assertCell(value);
+            assertCell(-value);
+        }
+        assertTrue(formatter.usesScientificNotation(1e6));
+        assertFalse(formatter.usesScientificNotation(Math.nextDown(1e6)));
+        assertTrue(formatter.usesScientificNotation(1e-3));
+        assertFalse(formatter.usesScientificNotation(Math.nextUp(1e-3)));
+    }
+    
+    @Test
+    void subnormals() {
+        double[] values = {
+            Double.MIN_VALUE, 2 * Double.MIN_VALUE, 4.9e-324, 2.2250738585072009e-308,
+            Math.nextDown(Double.MIN_NORMAL), Double.MIN_NORMAL, 1.5e-315, 3.7e-310
+        };
+        for (double value : values) {
+            assertScientific(value);
+            assertScientific(-value);
+            assertCell(value);
+        }
+    }
+    
+    @Test
+    void zeros() {
+        assertFalse(formatter.usesScientificNotation(0.0));
+        assertFalse(formatter.usesScientificNotation(-0.0));
+        assertCell(0.0);
+        assertCell(-0.0);
+        assertEquals("-0.0", valueFormatter.formatDouble(-0.0));
+        assertScientific(0.0);
+        assertScientific(-0.0);
+    }
+    
+    @Test
+    void nanAndInfinity() {
+        for (double value : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            assertScientific(value);
+            assertCell(value);
+        }
+        // %E writes infinities in upper case, and cells keep that text
+        assertEquals("INFINITY", valueFormatter.formatDouble(Double.POSITIVE_INFINITY));
+        assertEquals("NaN", valueFormatter.format(Double.NaN));
+        assertEquals("NAN", formatter.formatScientific(Double.NaN));
+    }
+    
+    @Test
+    void extremeMagnitudes() {
+        assertScientific(Double.MAX_VALUE);
+        assertScientific(-Double.MAX_VALUE);
+        assertScientific(1.7976931348623157e308);
+        assertScientific(9.9999995e307);
+        assertScientific(9.9999995e-300);
+    }
+    
+    @Test
+    void randomValuesOverTheWholeRange() {
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            assertScientific(value);
+            assertCell(value);
+        }
+        for (int i = 0; i < 200_000; i++) {
+            assertCell(Math.pow(10, random.nextDouble() * 24 - 12) * (random.nextBoolean() ? 1 : -1));
+        }
+    }
+    
+    @Test
+    void otherDecimalPlaces() {
+        Random random = new Random(11);
+        for (int places = 0; places <= 16; places++) {
+            ScientificNumberFormatter placesFormatter = new ScientificNumberFormatter(1e6, 1e-3, places);
+            String pattern = "%." + places + "E";
+            for (int i = 0; i < 5_000; i++) {
+                double value = Math.pow(10, random.nextDouble() * 40 - 20);
+                assertEquals(String.format(Locale.ROOT, pattern, value), placesFormatter.formatScientific(value),
+                        "places " + places + ", value " + value);
+            }
+            double tie = Double.parseDouble("1." + "0".repeat(places) + "5e3");
+            assertEquals(String.format(Locale.ROOT, pattern, tie), placesFormatter.formatScientific(tie),
+                    "places " + places + ", tie " + tie);
+        }
+    }
+    
+    /**
+     * Checks that a value is written in E-notation exactly as {@code String.format} writes it.
+     * 
+     * @param value the value
+     */
+    private void assertScientific(double value) {
+        assertEquals(String.format(Locale.ROOT, "%.6E", value), formatter.formatScientific(value),
+                () -> "value " + value);
+    }
+    
+    /**
+     * Checks that a cell holds the text it had before {@link ScientificNumberFormatter}.
+     * 
+     * @param value the value
+     */
+    private void assertCell(double value) {
+        double magnitude = Math.abs(value);
+        String expected = magnitude >= 1e6 || (magnitude <= 1e-3 && value != 0)
+                ? String.format(Locale.ROOT, "%.6E", value) : Double.toString(value);
+        assertEquals(expected, valueFormatter.formatDouble(value), () -> "value " + value);
+        assertEquals(expected, valueFormatter.format(value), () -> "boxed value " + value);
+    }
+}
\ No newline at end of file
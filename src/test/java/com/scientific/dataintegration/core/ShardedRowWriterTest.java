@@ -0,0 +1,252 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks how {@link ShardedRowWriter} splits rows over shard files, names them and lists
+ * them in its index, and that a failing shard fails the whole output.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class ShardedRowWriterTest {
+    
+    private static final String[] HEADERS = {"id", "group", "text"};
+    private static final String HEADER_LINE = "\"id\",\"group\",\"text\"";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    @TempDir
+    Path directory;
+    
+    private final CsvFileWriter csvWriter = new CsvFileWriter();
+    
+    @Test
+    void aNewShardStartsAfterTheRowLimit() throws Exception {
+        Path output = directory.resolve("out.csv");
+        try (ShardedRowWriter writer = open(output, OutputSharding.byRows(4), 2, 16)) {
+            writeRows(writer, 10);
+            assertEquals(10, writer.getRowCount());
+        }
+        
+        assertEquals(List.of(HEADER_LINE, row(0), row(1), row(2), row(3)), lines("out-00000.csv"));
+        assertEquals(List.of(HEADER_LINE, row(4), row(5), row(6), row(7)), lines("out-00001.csv"));
+        assertEquals(List.of(HEADER_LINE, row(8), row(9)), lines("out-00002.csv"));
+        assertFalse(Files.exists(output));
+        assertFalse(Files.exists(directory.resolve("out-00003.csv")));
+    }
+    
+    @Test
+    void aShardEndsWithTheRowReachingTheByteLimit() throws Exception {
+        long limit = 200;
+        try (ShardedRowWriter writer = open(directory.resolve("out.csv"), OutputSharding.byBytes(limit), 3, 16)) {
+            writeRows(writer, 100);
+        }
+        
+        JsonNode shards = index("out").get("shards");
+        assertTrue(shards.size() > 5, shards.size() + " shards");
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            Path shard = directory.resolve(shards.get(i).get("file").asText());
+            long size = Files.size(shard);
+            List<String> shardLines = Files.readAllLines(shard, StandardCharsets.UTF_8);
+            if (i < shards.size() - 1) {
+                String lastLine = shardLines.get(shardLines.size() - 1);
+                assertTrue(size >= limit && size - lastLine.length() - 1 < limit, "shard " + i + ": " + size);
+            }
+            assertEquals(HEADER_LINE, shardLines.get(0));
+            rows.addAll(shardLines.subList(1, shardLines.size()));
+        }
+        assertEquals(100, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(row(i), rows.get(i));
+        }
+    }
+    
+    @Test
+    void everyColumnValueGetsItsOwnShard() throws Exception {
+        try (ShardedRowWriter writer = open(directory.resolve("out.csv.gz"), OutputSharding.byColumn("group"), 2,
+                16)) {
+            writeRows(writer, 9);
+            writer.writeRow(new String[] {"9", "", "empty"});
+            writer.writeRow(new String[] {"10"});
+        }
+        
+        assertEquals(List.of(HEADER_LINE, row(0), row(3), row(6)), gunzippedLines("out-group=g0.csv.gz"));
+        assertEquals(List.of(HEADER_LINE, row(2), row(5), row(8)), gunzippedLines("out-group=g2.csv.gz"));
+        assertEquals(List.of(HEADER_LINE, "\"9\",\"\",\"empty\"", "\"10\",\"\",\"\""),
+                gunzippedLines("out-group=_empty.csv.gz"));
+        assertTrue(Files.exists(directory.resolve("out.shards.json")));
+    }
+    
+    @Test
+    void valuesWithTheSameFileNameGetDistinctShards() throws Exception {
+        try (ShardedRowWriter writer = open(directory.resolve("out.csv"), OutputSharding.byColumn("group"), 2, 16)) {
+            for (String group : new String[] {"a/b", "a:b", "a_b", "a/b"}) {
+                writer.writeRow(new String[] {"1", group, "x"});
+            }
+        }
+        
+        JsonNode shards = index("out").get("shards");
+        assertEquals(3, shards.size());
+        String[][] expected = {{"a/b", "out-group=a_b.csv", "2"}, {"a:b", "out-group=a_b-1.csv", "1"},
+            {"a_b", "out-group=a_b-2.csv", "1"}};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i][0], shards.get(i).get("partition").asText());
+            assertEquals(expected[i][1], shards.get(i).get("file").asText());
+            assertEquals(Long.parseLong(expected[i][2]), shards.get(i).get("rows").asLong());
+            assertEquals(Long.parseLong(expected[i][2]) + 1, lines(expected[i][1]).size());
+        }
+    }
+    
+    @Test
+    void theIndexDescribesEveryShard() throws Exception {
+        try (ShardedRowWriter writer = open(directory.resolve("out.csv"), OutputSharding.byRows(3), 2, 16)) {
+            writeRows(writer, 7);
+        }
+        
+        JsonNode index = index("out");
+        assertEquals(1, index.get("version").asInt());
+        assertEquals("rows:3", index.get("sharding").asText());
+        assertEquals(List.of(HEADERS), MAPPER.convertValue(index.get("columns"), List.class));
+        assertEquals(7, index.get("rows").asLong());
+        
+        JsonNode shards = index.get("shards");
+        assertEquals(3, shards.size());
+        long[] rows = {3, 3, 1};
+        for (int i = 0; i < rows.length; i++) {
+            JsonNode shard = shards.get(i);
+            String file = String.format("out-%05d.csv", i);
+            assertEquals(file, shard.get("file").asText());
+            assertFalse(shard.has("partition"));
+            assertEquals(rows[i], shard.get("rows").asLong());
+            assertEquals(Files.size(directory.resolve(file)), shard.get("bytes").asLong());
+        }
+    }
+    
+    @Test
+    void tooManyPartitionsFailWithoutAnIndex() throws Exception {
+        ShardedRowWriter writer = open(directory.resolve("out.csv"), OutputSharding.byColumn("group"), 2, 2);
+        CsvFileException failure = assertThrows(CsvFileException.class, () -> {
+            try {
+                writeRows(writer, 3);
+            } finally {
+                writer.close();
+            }
+        });
+        assertTrue(failure.getMessage().contains("shard.max.partitions"), failure.getMessage());
+        assertFalse(Files.exists(directory.resolve("out.shards.json")));
+    }
+    
+    @Test
+    void aShardThatCannotBeWrittenFailsTheOutput() throws Exception {
+        // A file where the output directory should be makes every shard fail to open
+        Path blocked = Files.createFile(directory.resolve("blocked"));
+        ShardedRowWriter writer = open(blocked.resolve("out.csv"), OutputSharding.byRows(1), 2, 16);
+        assertThrows(CsvFileException.class, () -> {
+            try {
+                writeRows(writer, 1000);
+            } finally {
+                writer.close();
+            }
+        });
+    }
+    
+    @Test
+    void thePartitionColumnMustBeInTheHeader() {
+        CsvFileException failure = assertThrows(CsvFileException.class,
+                () -> open(directory.resolve("out.csv"), OutputSharding.byColumn("missing"), 2, 16));
+        assertTrue(failure.getMessage().contains("missing"), failure.getMessage());
+    }
+    
+    /**
+     * Opens a sharded writer of the test columns.
+     * 
+     * @param output path of the output
+     * @param sharding how rows are assigned to shards
+     * @param writerThreads number of threads writing shards
+     * @param maxPartitions largest number of partitions
+     * @return the writer
+     * @throws CsvFileException if the partition column is not a test column
+     */
+    private ShardedRowWriter open(Path output, OutputSharding sharding, int writerThreads, int maxPartitions)
+            throws CsvFileException {
+        return new ShardedRowWriter(output.toString(), HEADERS, sharding, csvWriter, writerThreads, maxPartitions,
+                ConversionMetrics.start("input.json", output.toString()));
+    }
+    
+    /**
+     * Writes numbered test rows, spread over three groups.
+     * 
+     * @param writer the writer
+     * @param count number of rows
+     * @throws CsvFileException if a row cannot be written
+     */
+    private static void writeRows(ShardedRowWriter writer, int count) throws CsvFileException {
+        for (int i = 0; i < count; i++) {
+            writer.writeRow(new String[] {String.valueOf(i), "g" + i % 3, "text " + i});
+        }
+    }
+    
+    /**
+     * Gets the CSV line of a test row.
+     * 
+     * @param i the row number
+     * @return the line
+     */
+    private static String row(int i) {
+        return "\"" + i + "\",\"g" + i % 3 + "\",\"text " + i + "\"";
+    }
+    
+    /**
+     * Reads the lines of a file of the test directory.
+     * 
+     * @param name the file name
+     * @return the lines
+     * @throws IOException if the file cannot be read
+     */
+    private List<String> lines(String name) throws IOException {
+        return Files.readAllLines(directory.resolve(name), StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Reads the lines of a gzip-compressed file of the test directory.
+     * 
+     * @param name the file name
+     * @return the lines
+     * @throws IOException if the file cannot be read
+     */
+    private List<String> gunzippedLines(String name) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(name)))) {
+            return List.of(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n"));
+        }
+    }
+    
+    /**
+     * Reads the index of an output of the test directory.
+     * 
+     * @param prefix the output name without its extension
+     * @return the index
+     * @throws IOException if the index cannot be read
+     */
+    private JsonNode index(String prefix) throws IOException {
+        return MAPPER.readTree(directory.resolve(prefix + ShardedRowWriter.INDEX_SUFFIX).toFile());
+    }
+}
\ No newline at end of file
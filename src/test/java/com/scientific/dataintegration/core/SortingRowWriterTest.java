@@ -0,0 +1,189 @@
+package com.scientific.dataintegration.core;
+
+import com.scientific.dataintegration.exceptions.CsvFileException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the rows {@link SortingRowWriter} hands to its output once sorted and deduplicated.
+ * 
+ * @author AlduinoCalderon
+ * @version 1.0
+ */
+class SortingRowWriterTest {
+    
+    private static final String[] HEADERS = {"doi", "year", "title"};
+    
+    @TempDir
+    Path spillDirectory;
+    
+    private final List<String[]> written = new ArrayList<>();
+    private String[] writtenHeaders;
+    
+    @Test
+    void deduplicationKeepsTheFirstRowOfEachKeyInInputOrder() throws CsvFileException {
+        List<String[]> rows = List.of(
+                row("10.1/a", "2001", "first a"),
+                row("10.1/b", "1999", "first b"),
+                row("10.1/a", "2005", "second a"),
+                row("", "2003", "no doi 1"),
+                row("10.1/c", "2002", "first c"),
+                row("", "2004", "no doi 2"),
+                row("10.1/b", "2010", "second b"));
+        
+        for (long budget : new long[] {Long.MAX_VALUE, 1}) {
+            convert(RowOrder.parse(null, "doi"), budget, rows);
+            // Rows without a key are never duplicates of each other
+            assertTitles("first a", "first b", "no doi 1", "first c", "no doi 2");
+        }
+    }
+    
+    @Test
+    void deduplicationHappensBeforeSorting() throws CsvFileException {
+        List<String[]> rows = List.of(
+                row("10.1/a", "2001", "first a"),
+                row("10.1/b", "1999", "first b"),
+                row("10.1/a", "2020", "later a"),
+                row("10.1/c", "2010", "first c"));
+        
+        convert(RowOrder.parse("year:desc", "doi"), 1, rows);
+        // The later copy of 10.1/a has the largest year but was not the first one seen
+        assertTitles("first c", "first a", "first b");
+    }
+    
+    @Test
+    void deduplicationOnSeveralColumnsAcrossManySpilledRuns() throws CsvFileException, IOException {
+        List<String[]> rows = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            rows.add(row("10.1/" + (i % 50), String.valueOf(2000 + i % 3), "row" + i));
+        }
+        
+        convert(RowOrder.parse("title", "doi,year"), 1, rows);
+        assertEquals(150, written.size());
+        for (String[] row : written) {
+            int sequence = Integer.parseInt(row[2].substring("row".length()));
+            // Each doi and year pair first appears within the first 150 rows
+            assertTrue(sequence < 150, "kept a later duplicate: " + Arrays.toString(row));
+        }
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertEquals(0, files.count(), "spill files left behind");
+        }
+    }
+    
+    @Test
+    void sortingWithoutDeduplicationKeepsEveryRow() throws CsvFileException {
+        List<String[]> rows = List.of(
+                row("10.1/a", "n/a", "text year"),
+                row("10.1/a", "1999", "old"),
+                row("10.1/b", "", "no year"),
+                row("10.1/c", "2010", "new"));
+        
+        convert(RowOrder.parse("year:desc", null), 1, rows);
+        assertTitles("new", "old", "text year", "no year");
+        assertArrayEquals(HEADERS, writtenHeaders);
+    }
+    
+    @Test
+    void unknownColumnsAreRejected() {
+        assertThrows(CsvFileException.class, () -> new SortingRowWriter(HEADERS, RowOrder.parse("author", null),
+                Long.MAX_VALUE, spillDirectory, this::open, metrics()));
+        assertThrows(CsvFileException.class, () -> new SortingRowWriter(HEADERS, RowOrder.parse(null, "isbn"),
+                Long.MAX_VALUE, spillDirectory, this::open, metrics()));
+    }
+    
+    /**
+     * Writes rows through a {@link SortingRowWriter}, collecting what reaches its output.
+     * 
+     * @param rowOrder the order and uniqueness of the rows
+     * @param memoryBudgetBytes the sort memory budget
+     * @param rows the rows to write
+     * @throws CsvFileException if the rows cannot be sorted
+     */
+    private void convert(RowOrder rowOrder, long memoryBudgetBytes, List<String[]> rows) throws CsvFileException {
+        written.clear();
+        SortingRowWriter writer = new SortingRowWriter(HEADERS, rowOrder, memoryBudgetBytes, spillDirectory,
+                this::open, metrics());
+        for (String[] row : rows) {
+            writer.writeRow(row);
+        }
+        assertEquals(rows.size(), writer.getRowCount());
+        writer.close();
+    }
+    
+    /**
+     * Opens the collecting output.
+     * 
+     * @param headers the header written by the sorting writer
+     * @return a row writer adding each row to {@link #written}
+     */
+    private CsvRowWriter open(String[] headers) {
+        writtenHeaders = headers;
+        return new CsvRowWriter() {
+            @Override
+            public void writeRow(String[] row) {
+                written.add(row.clone());
+            }
+            
+            @Override
+            public void writeBatch(ColumnarBatch batch) {
+                throw new UnsupportedOperationException();
+            }
+            
+            @Override
+            public long getRowCount() {
+                return written.size();
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+    }
+    
+    /**
+     * Checks the titles of the rows written, in order.
+     * 
+     * @param titles the expected titles
+     */
+    private void assertTitles(String... titles) {
+        List<String> actual = new ArrayList<>();
+        for (String[] row : written) {
+            actual.add(row[2]);
+        }
+        assertEquals(Arrays.asList(titles), actual);
+    }
+    
+    /**
+     * Builds a row of the test header.
+     * 
+     * @param doi the doi cell
+     * @param year the year cell
+     * @param title the title cell
+     * @return the row
+     */
+    private static String[] row(String doi, String year, String title) {
+        return new String[] {doi, year, title};
+    }
+    
+    /**
+     * Starts metrics for a conversion that is not timed.
+     * 
+     * @return the metrics
+     */
+    private static ConversionMetrics metrics() {
+        return ConversionMetrics.start("input.json", "output.csv");
+    }
+}
\ No newline at end of file